@@ -38,4 +38,12 @@ public interface Cache<K, V> {
 
     int size();
 
+    /**
+     * Records the time it took to load a value that was missing from the
+     * cache, caches that don't keep statistics ignore it.
+     */
+    default void recordLoad(long loadTimeNanos) {
+        // no statistics by default
+    }
+
 }
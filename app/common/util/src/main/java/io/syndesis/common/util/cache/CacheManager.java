@@ -15,10 +15,20 @@
  */
 package io.syndesis.common.util.cache;
 
+import java.util.Optional;
+
 public interface CacheManager {
 
     void evictAll();
 
     <K, V> Cache<K, V> getCache(String name, boolean soft);
 
+    /**
+     * Statistics of the cache with the given name, empty if the cache has not
+     * been created yet or if this manager doesn't keep statistics.
+     */
+    default Optional<CacheStats> getStats(String name) {
+        return Optional.empty();
+    }
+
 }
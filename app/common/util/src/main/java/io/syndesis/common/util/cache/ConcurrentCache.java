@@ -0,0 +1,362 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.common.util.cache;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A concurrent {@link Cache} split into segments, each a
+ * {@link ConcurrentHashMap} bounded by its share of the maximum number of
+ * elements.
+ *
+ * Reads don't take any locks and don't reorder anything, they only mark the
+ * entry as recently used. When a segment grows over its capacity the entry
+ * to evict is picked by a CLOCK sweep (approximate LRU) under the segment's
+ * lock. With admission enabled, a TinyLFU frequency sketch decides whether
+ * the newly added entry is worth keeping over that victim, so that a scan of
+ * entries that are read once does not flush out the frequently read ones.
+ * Entries removed by other means than the sweep stay on the clock as
+ * tombstones, they are skipped by the sweep and purged once there are more of
+ * them than the segment holds entries.
+ *
+ * Entries can optionally expire a fixed time after they were written and the
+ * values can be held by {@link SoftReference}s.
+ */
+@SuppressWarnings("PMD.TooManyMethods")
+public class ConcurrentCache<K, V> implements Cache<K, V> {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private static final int MIN_SEGMENT_CAPACITY = 16;
+
+    private final Segment<K, V>[] segments;
+    private final int segmentShift;
+    private final int maxElements;
+    private final boolean soft;
+    private final boolean admission;
+    private final long expireAfterWriteNanos;
+    private final LongSupplier ticker;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadTime = new LongAdder();
+
+    private static final class Node<K, V> {
+        private final K key;
+        private final Object value;
+        private final long writeTime;
+        // new entries start out as used so they're not the first to go
+        private volatile boolean referenced = true;
+        // no longer in the map but still on the clock
+        private volatile boolean removed;
+
+        Node(K key, Object value, long writeTime) {
+            this.key = key;
+            this.value = value;
+            this.writeTime = writeTime;
+        }
+    }
+
+    private static final class Segment<K, V> {
+        private final Map<K, Node<K, V>> map = new ConcurrentHashMap<>();
+        private final Queue<Node<K, V>> clock = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger tombstones = new AtomicInteger();
+        private final FrequencySketch sketch;
+        private final int capacity;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+            this.sketch = new FrequencySketch(capacity);
+        }
+    }
+
+    /**
+     * @param maxElements the maximum number of entries to hold
+     * @param soft hold the values by {@link SoftReference}s
+     * @param admission reject new entries that are accessed less frequently
+     *            than the one they would evict, only suitable when the cached
+     *            values can be loaded again
+     * @param expireAfterWrite time after which entries expire, {@code 0} to
+     *            never expire
+     * @param unit the time unit of {@code expireAfterWrite}
+     */
+    public ConcurrentCache(int maxElements, boolean soft, boolean admission, long expireAfterWrite, TimeUnit unit) {
+        this(maxElements, soft, admission, unit.toNanos(expireAfterWrite), System::nanoTime);
+    }
+
+    @SuppressWarnings("unchecked")
+    ConcurrentCache(int maxElements, boolean soft, boolean admission, long expireAfterWriteNanos, LongSupplier ticker) {
+        if (maxElements < 1) {
+            throw new IllegalArgumentException("The cache must be able to hold at least one element, given: " + maxElements);
+        }
+
+        int segmentCount = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, maxElements / MIN_SEGMENT_CAPACITY)));
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // spread the remainder so the capacities add up to maxElements
+            segments[i] = new Segment<>(maxElements / segmentCount + (i < maxElements % segmentCount ? 1 : 0));
+        }
+        segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+
+        this.maxElements = maxElements;
+        this.soft = soft;
+        this.admission = admission;
+        this.expireAfterWriteNanos = expireAfterWriteNanos;
+        this.ticker = ticker;
+    }
+
+    @Override
+    public V get(K key) {
+        int hash = hash(key);
+        Segment<K, V> segment = segmentFor(hash);
+        if (admission) {
+            segment.sketch.increment(hash);
+        }
+
+        Node<K, V> node = segment.map.get(key);
+        V value = valueOf(node);
+        if (value == null) {
+            if (node != null && segment.map.remove(key, node)) {
+                retire(segment, node);
+            }
+            misses.increment();
+            return null;
+        }
+
+        node.referenced = true;
+        hits.increment();
+        return value;
+    }
+
+    @Override
+    public Set<K> keySet() {
+        Set<K> keys = new HashSet<>();
+        for (Segment<K, V> segment : segments) {
+            for (Map.Entry<K, Node<K, V>> entry : segment.map.entrySet()) {
+                if (valueOf(entry.getValue()) != null) {
+                    keys.add(entry.getKey());
+                }
+            }
+        }
+        return keys;
+    }
+
+    @Override
+    public Collection<V> values() {
+        List<V> values = new ArrayList<>();
+        for (Segment<K, V> segment : segments) {
+            for (Node<K, V> node : segment.map.values()) {
+                V value = valueOf(node);
+                if (value != null) {
+                    values.add(value);
+                }
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        int hash = hash(key);
+        Segment<K, V> segment = segmentFor(hash);
+        if (admission) {
+            segment.sketch.increment(hash);
+        }
+
+        Node<K, V> node = new Node<>(key, soft ? new SoftReference<>(value) : value, ticker.getAsLong());
+        Node<K, V> previous = segment.map.put(key, node);
+        segment.clock.add(node);
+        if (previous != null) {
+            retire(segment, previous);
+        } else if (segment.map.size() > segment.capacity) {
+            evict(segment, node, hash);
+        }
+    }
+
+    @Override
+    public V remove(K key) {
+        Segment<K, V> segment = segmentFor(hash(key));
+        Node<K, V> node = segment.map.remove(key);
+        if (node != null) {
+            retire(segment, node);
+        }
+        return valueOf(node);
+    }
+
+    @Override
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                // nodes are added to the clock after the map, clearing in
+                // this order never leaves a node in the map but not on the clock
+                segment.clock.clear();
+                segment.map.clear();
+                segment.tombstones.set(0);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        if (!soft && expireAfterWriteNanos == 0) {
+            int size = 0;
+            for (Segment<K, V> segment : segments) {
+                size += segment.map.size();
+            }
+            return size;
+        }
+
+        return keySet().size();
+    }
+
+    @Override
+    public void recordLoad(long loadTimeNanos) {
+        loads.increment();
+        loadTime.add(loadTimeNanos);
+    }
+
+    public boolean isSoft() {
+        return soft;
+    }
+
+    int clockSize() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.clock.size();
+        }
+        return size;
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), loads.sum(), loadTime.sum(), size(), maxElements);
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrentCache{" +
+            "segments=" + segments.length +
+            ", soft=" + soft +
+            ", admission=" + admission +
+            ", stats=" + stats() +
+            '}';
+    }
+
+    /**
+     * Sweeps the segment's clock until it finds an entry that was not used
+     * since the last sweep, giving every used entry a second chance.
+     */
+    private void evict(Segment<K, V> segment, Node<K, V> candidate, int candidateHash) {
+        synchronized (segment) {
+            boolean admit = admission;
+            while (segment.map.size() > segment.capacity) {
+                Node<K, V> node = segment.clock.poll();
+                if (node == null) {
+                    return;
+                }
+
+                if (node.removed) {
+                    segment.tombstones.decrementAndGet();
+                    continue;
+                }
+
+                if (node.referenced && valueOf(node) != null) {
+                    node.referenced = false;
+                    segment.clock.add(node);
+                    continue;
+                }
+
+                if (admit && node != candidate
+                    && segment.sketch.frequency(candidateHash) < segment.sketch.frequency(hash(node.key))) {
+                    // the victim is more popular, keep it and drop the
+                    // newcomer instead, which stays on the clock as a
+                    // tombstone
+                    segment.clock.add(node);
+                    admit = false;
+                    if (segment.map.remove(candidate.key, candidate)) {
+                        evictions.increment();
+                        retire(segment, candidate);
+                    }
+                    continue;
+                }
+
+                if (segment.map.remove(node.key, node)) {
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks the node removed from the map as tombstone on the clock, purges
+     * the tombstones once there are more of them than the segment holds
+     * entries.
+     */
+    private static <K, V> void retire(Segment<K, V> segment, Node<K, V> node) {
+        node.removed = true;
+        if (segment.tombstones.incrementAndGet() > segment.capacity) {
+            synchronized (segment) {
+                if (segment.tombstones.get() > segment.capacity) {
+                    segment.clock.removeIf(n -> n.removed);
+                    segment.tombstones.set(0);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueOf(Node<K, V> node) {
+        if (node == null) {
+            return null;
+        }
+
+        if (expireAfterWriteNanos > 0 && ticker.getAsLong() - node.writeTime >= expireAfterWriteNanos) {
+            return null;
+        }
+
+        if (soft) {
+            return ((SoftReference<V>) node.value).get();
+        }
+
+        return (V) node.value;
+    }
+
+    private Segment<K, V> segmentFor(int hash) {
+        if (segments.length == 1) {
+            return segments[0];
+        }
+        return segments[hash >>> segmentShift];
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode() * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.common.util.cache;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link CacheManager} handing out {@link ConcurrentCache}s.
+ *
+ * Soft caches hold values that can be loaded again from the store, so for
+ * those frequency based admission is used and the values are held by soft
+ * references. Hard caches might be the only copy of the values so no entry
+ * is ever rejected, the least recently used are evicted.
+ */
+public class ConcurrentCacheManager implements CacheManager {
+    private static final Logger LOG = LoggerFactory.getLogger(CacheManager.class);
+
+    private final ConcurrentMap<String, ConcurrentCache<?, ?>> caches;
+    private final int maxElements;
+    private final Map<String, Integer> maxElementsByName;
+    private final long expireAfterWrite;
+    private final TimeUnit unit;
+
+    public ConcurrentCacheManager(final int maxElements) {
+        this(maxElements, Collections.emptyMap(), 0, TimeUnit.MILLISECONDS);
+    }
+
+    public ConcurrentCacheManager(final int maxElements, final long expireAfterWrite, final TimeUnit unit) {
+        this(maxElements, Collections.emptyMap(), expireAfterWrite, unit);
+    }
+
+    /**
+     * @param maxElements maximum number of elements per cache
+     * @param maxElementsByName maximum number of elements of the caches
+     *            whose sizes differ from {@code maxElements}, by cache name
+     * @param expireAfterWrite time after which entries of soft caches
+     *            expire, {@code 0} to never expire
+     * @param unit the time unit of {@code expireAfterWrite}
+     */
+    public ConcurrentCacheManager(final int maxElements, final Map<String, Integer> maxElementsByName, final long expireAfterWrite, final TimeUnit unit) {
+        this.maxElements = maxElements;
+        this.maxElementsByName = new HashMap<>(maxElementsByName);
+        this.expireAfterWrite = expireAfterWrite;
+        this.unit = unit;
+        caches = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void evictAll() {
+        caches.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <K, V> Cache<K, V> getCache(final String name, boolean soft) {
+        ConcurrentCache<K, V> cache = (ConcurrentCache<K, V>) caches.computeIfAbsent(name, n -> newCache(n, soft));
+        if (cache.isSoft() != soft) {
+            LOG.warn("Cache {} is being used in mixed 'soft' and 'hard' mode", name);
+        }
+        return cache;
+    }
+
+    @Override
+    public Optional<CacheStats> getStats(final String name) {
+        return Optional.ofNullable(caches.get(name)).map(ConcurrentCache::stats);
+    }
+
+    /**
+     * Statistics of all caches by cache name.
+     */
+    public Map<String, CacheStats> stats() {
+        return caches.entrySet().stream()
+            .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().stats()));
+    }
+
+    private <K, V> ConcurrentCache<K, V> newCache(String name, boolean soft) {
+        int size = maxElementsByName.getOrDefault(name, maxElements);
+        if (soft) {
+            return new ConcurrentCache<>(size, true, true, expireAfterWrite, unit);
+        }
+        return new ConcurrentCache<>(size, false, false, 0, unit);
+    }
+}
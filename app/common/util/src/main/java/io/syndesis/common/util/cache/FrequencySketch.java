@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.common.util.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A count-min sketch estimating how often keys were accessed recently, as
+ * used by TinyLFU admission. Counters saturate at 15 and are halved once
+ * the number of recorded accesses reaches ten times the cache capacity so
+ * that past popularity fades away.
+ *
+ * Safe for concurrent use without locking: counters are updated atomically
+ * and only the thread recording the access that reaches the sample size
+ * halves them, accesses recorded while halving might be halved as well.
+ */
+final class FrequencySketch {
+
+    private static final int[] SEEDS = {0x97cb3127, 0xb3f2b5a1, 0xc2b2ae35, 0x85ebca6b};
+
+    private static final int MAX_COUNT = 15;
+
+    private final AtomicIntegerArray counters;
+    private final int mask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+
+    FrequencySketch(int capacity) {
+        int size = Integer.highestOneBit(Math.max(16, capacity * 4 - 1)) << 1;
+        counters = new AtomicIntegerArray(size);
+        mask = size - 1;
+        sampleSize = Math.max(10 * capacity, 10);
+    }
+
+    void increment(int hash) {
+        boolean added = false;
+        for (int seed : SEEDS) {
+            added |= incrementAt(indexOf(hash, seed));
+        }
+
+        // every value is returned once, so exactly one thread resets
+        if (added && additions.incrementAndGet() == sampleSize) {
+            reset();
+        }
+    }
+
+    int frequency(int hash) {
+        int frequency = MAX_COUNT;
+        for (int seed : SEEDS) {
+            frequency = Math.min(frequency, counters.get(indexOf(hash, seed)));
+        }
+        return frequency;
+    }
+
+    private boolean incrementAt(int i) {
+        int count = counters.get(i);
+        while (count < MAX_COUNT) {
+            if (counters.compareAndSet(i, count, count + 1)) {
+                return true;
+            }
+            count = counters.get(i);
+        }
+        return false;
+    }
+
+    private void reset() {
+        for (int i = 0; i < counters.length(); i++) {
+            int count = counters.get(i);
+            while (!counters.compareAndSet(i, count, count >>> 1)) {
+                count = counters.get(i);
+            }
+        }
+        additions.addAndGet(-(sampleSize >>> 1));
+    }
+
+    private int indexOf(int hash, int seed) {
+        int h = hash * seed;
+        h ^= h >>> 17;
+        return h & mask;
+    }
+}
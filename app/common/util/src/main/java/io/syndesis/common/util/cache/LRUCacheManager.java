@@ -18,6 +18,9 @@ package io.syndesis.common.util.cache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -26,9 +29,15 @@ public class LRUCacheManager implements CacheManager {
 
     private final ConcurrentMap<String, Cache<?, ?>> caches;
     private final int maxElements;
+    private final Map<String, Integer> maxElementsByName;
 
     public LRUCacheManager(final int maxElements) {
+        this(maxElements, Collections.emptyMap());
+    }
+
+    public LRUCacheManager(final int maxElements, final Map<String, Integer> maxElementsByName) {
         this.maxElements = maxElements;
+        this.maxElementsByName = new HashMap<>(maxElementsByName);
         caches = new ConcurrentHashMap<>();
     }
 
@@ -40,17 +49,18 @@ public class LRUCacheManager implements CacheManager {
     @SuppressWarnings("unchecked")
     @Override
     public <K, V> Cache<K, V> getCache(final String name, boolean soft) {
-        Cache<K, V> cache = (Cache<K, V>) caches.computeIfAbsent(name, n -> this.newCache(soft));
+        Cache<K, V> cache = (Cache<K, V>) caches.computeIfAbsent(name, n -> this.newCache(n, soft));
         if ((soft && !(cache instanceof LRUSoftCache)) || (!soft && (cache instanceof LRUSoftCache))) {
             LOG.warn("Cache {} is being used in mixed 'soft' and 'hard' mode", name);
         }
         return cache;
     }
 
-    private <K, V> Cache<K, V> newCache(boolean soft) {
+    private <K, V> Cache<K, V> newCache(String name, boolean soft) {
+        int size = maxElementsByName.getOrDefault(name, maxElements);
         if (soft) {
-            return new LRUSoftCache<>(maxElements);
+            return new LRUSoftCache<>(size);
         }
-        return new LRUDefaultCache<>(maxElements);
+        return new LRUDefaultCache<>(size);
     }
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.common.util.cache;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConcurrentCacheManagerTest {
+
+    @Test
+    public void shouldSizeCachesByName() {
+        CacheManager manager = new ConcurrentCacheManager(2, Collections.singletonMap("big", 3), 0, TimeUnit.MILLISECONDS);
+        Cache<String, String> big = manager.getCache("big", false);
+        Cache<String, String> other = manager.getCache("other", false);
+
+        for (int i = 0; i < 5; i++) {
+            big.put(String.valueOf(i), "value");
+            other.put(String.valueOf(i), "value");
+        }
+
+        assertThat(big.size()).isEqualTo(3);
+        assertThat(other.size()).isEqualTo(2);
+        assertThat(manager.getStats("big")).hasValueSatisfying(s -> assertThat(s.getMaxSize()).isEqualTo(3));
+    }
+
+    @Test
+    public void shouldRecordLoads() {
+        CacheManager manager = new ConcurrentCacheManager(10);
+        Cache<String, String> cache = manager.getCache("cache", true);
+
+        cache.recordLoad(100);
+        cache.recordLoad(50);
+
+        assertThat(manager.getStats("cache")).hasValueSatisfying(s -> {
+            assertThat(s.getLoadCount()).isEqualTo(2);
+            assertThat(s.getTotalLoadTimeNanos()).isEqualTo(150);
+        });
+    }
+
+    @Test
+    public void shouldNotHaveStatsOfUnusedCaches() {
+        assertThat(new ConcurrentCacheManager(10).getStats("cache")).isEmpty();
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.common.util.cache;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConcurrentCacheTest {
+
+    @ParameterizedTest(name = "ConcurrentCacheTest(soft={0})")
+    @ValueSource(booleans = {true, false})
+    public void testEviction(final boolean soft) {
+        CacheManager manager = new ConcurrentCacheManager(2);
+        Cache<String, Object> cache = manager.getCache("cache", soft);
+
+        cache.put("1", "1");
+        cache.put("2", "2");
+        cache.put("3", "3");
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("1")).isNull();
+        assertThat(cache.get("2")).isNotNull();
+        assertThat(cache.get("3")).isNotNull();
+    }
+
+    @Test
+    public void testRecentlyUsedGetSecondChance() {
+        ConcurrentCache<String, String> cache = new ConcurrentCache<>(2, false, false, 0, TimeUnit.MILLISECONDS);
+
+        cache.put("1", "1");
+        cache.put("2", "2");
+        cache.put("3", "3");
+        cache.get("2");
+        cache.put("4", "4");
+
+        assertThat(cache.keySet()).containsOnly("2", "4");
+        assertThat(cache.stats().getEvictionCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testAdmissionKeepsFrequentlyUsed() {
+        ConcurrentCache<String, String> cache = new ConcurrentCache<>(2, false, true, 0, TimeUnit.MILLISECONDS);
+
+        cache.put("a", "a");
+        cache.put("b", "b");
+        for (int i = 0; i < 5; i++) {
+            cache.get("a");
+            cache.get("b");
+        }
+
+        // a scan of entries read only once
+        for (int i = 0; i < 10; i++) {
+            cache.put("scan" + i, "scan");
+        }
+
+        assertThat(cache.keySet()).containsOnly("a", "b");
+    }
+
+    @Test
+    public void testHardCachesAdmitEverything() {
+        ConcurrentCache<String, String> cache = new ConcurrentCache<>(2, false, false, 0, TimeUnit.MILLISECONDS);
+
+        cache.put("a", "a");
+        cache.put("b", "b");
+        for (int i = 0; i < 5; i++) {
+            cache.get("a");
+            cache.get("b");
+        }
+        cache.put("c", "c");
+
+        assertThat(cache.get("c")).isEqualTo("c");
+    }
+
+    @Test
+    public void testExpireAfterWrite() {
+        AtomicLong time = new AtomicLong();
+        ConcurrentCache<String, String> cache = new ConcurrentCache<>(10, true, true, 100, time::get);
+
+        cache.put("1", "1");
+        time.set(50);
+        cache.put("2", "2");
+
+        assertThat(cache.get("1")).isEqualTo("1");
+
+        time.set(100);
+        assertThat(cache.get("1")).isNull();
+        assertThat(cache.get("2")).isEqualTo("2");
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void testStatistics() {
+        ConcurrentCacheManager manager = new ConcurrentCacheManager(10);
+        Cache<String, String> cache = manager.getCache("cache", true);
+
+        cache.put("1", "1");
+        cache.get("1");
+        cache.get("1");
+        cache.get("2");
+
+        CacheStats stats = manager.stats().get("cache");
+        assertThat(stats.getHitCount()).isEqualTo(2);
+        assertThat(stats.getMissCount()).isEqualTo(1);
+        assertThat(stats.getEvictionCount()).isZero();
+        assertThat(stats.getSize()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRemovedAndReplacedEntriesArePurgedFromTheClock() {
+        ConcurrentCache<String, String> cache = new ConcurrentCache<>(2, false, true, 0, TimeUnit.MILLISECONDS);
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put("removed-" + i, "value");
+            cache.remove("removed-" + i);
+            cache.put("replaced", "value-" + i);
+        }
+
+        assertThat(cache.keySet()).containsOnly("replaced");
+        // the live entry and at most one more tombstone than the capacity
+        assertThat(cache.clockSize()).isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    public void testConcurrentAccessStaysBounded() throws InterruptedException {
+        ConcurrentCache<Integer, Integer> cache = new ConcurrentCache<>(1000, false, true, 0, TimeUnit.MILLISECONDS);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            final int offset = t * 10_000;
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    cache.put(offset + i, i);
+                    cache.get(offset + i / 2);
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        assertThat(cache.size()).isLessThanOrEqualTo(1000);
+        assertThat(cache.values()).hasSize(cache.size());
+    }
+}
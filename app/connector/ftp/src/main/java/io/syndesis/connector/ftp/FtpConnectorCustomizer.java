@@ -15,38 +15,65 @@
  */
 package io.syndesis.connector.ftp;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 import org.apache.camel.Exchange;
 import org.apache.camel.Message;
+import org.apache.camel.converter.stream.CachedOutputStream;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonGenerator;
 
 import io.syndesis.common.util.ErrorCategory;
 import io.syndesis.common.util.SyndesisConnectorException;
 import io.syndesis.common.util.json.JsonUtils;
+import io.syndesis.connector.support.util.ConnectorOptions;
 import io.syndesis.integration.component.proxy.ComponentProxyComponent;
 import io.syndesis.integration.component.proxy.ComponentProxyCustomizer;
 
 public class FtpConnectorCustomizer implements ComponentProxyCustomizer {
 
+    /**
+     * The file content is passed as is, with the file name and the other
+     * file metadata in the Camel file headers.
+     */
+    static final String PAYLOAD_STREAM = "stream";
+
+    private boolean streaming;
+
     @Override
     public void customize(ComponentProxyComponent component, Map<String, Object> options) {
+        streaming = PAYLOAD_STREAM.equals(ConnectorOptions.popOption(options, "payload"));
+
+        // downloaded files are read from the server as they are consumed
+        options.put("streamDownload", "true");
 
-        component.setBeforeProducer(FtpConnectorCustomizer::doBeforeProducer);
+        component.setBeforeProducer(this::doBeforeProducer);
 
-        component.setBeforeConsumer(FtpConnectorCustomizer::doBeforeConsumer);
-        component.setAfterConsumer(FtpConnectorCustomizer::doAfterConsumer);
+        component.setBeforeConsumer(this::doBeforeConsumer);
+        component.setAfterConsumer(this::doAfterConsumer);
     }
 
     // Before Uploading or Updating a named file (pattern: to)
-    private static void doBeforeProducer(Exchange exchange) throws JsonMappingException, JsonProcessingException {
+    private void doBeforeProducer(Exchange exchange) throws IOException {
         final Message in = exchange.getIn();
+        if (streaming) {
+            // Camel uploads stream bodies to the server in chunks
+            if (in.getHeader(Exchange.FILE_NAME) == null) {
+                throw new SyndesisConnectorException(ErrorCategory.DATA_ACCESS_ERROR, "Header '"
+                    + Exchange.FILE_NAME + "' with the name of the file to upload is missing");
+            }
+            return;
+        }
+
         final String body = in.getBody(String.class);
         if (body != null && JsonUtils.isJson(body)) {
-            final FtpPayload payLoad = new ObjectMapper().readValue(body, FtpPayload.class);
+            final FtpPayload payLoad = JsonUtils.reader().forType(FtpPayload.class).readValue(body);
             if (payLoad.getFileName()==null || payLoad.getFileName().equals("error")) {
                 throw new SyndesisConnectorException(ErrorCategory.DATA_ACCESS_ERROR, "FileName '"
                        + payLoad.getFileName()  + "' could not be parsed correctly");
@@ -58,11 +85,15 @@ public class FtpConnectorCustomizer implements ComponentProxyCustomizer {
     }
 
     // Before Downloading a named file (pattern: pollEnrich)
-    private static void doBeforeConsumer(Exchange exchange) throws JsonMappingException, JsonProcessingException {
+    private void doBeforeConsumer(Exchange exchange) throws IOException {
         final Message in = exchange.getIn();
+        if (streaming && in.getHeader(Exchange.FILE_NAME) != null) {
+            return;
+        }
+
         final String body = in.getBody(String.class);
         if (body != null && JsonUtils.isJson(body)) {
-            FtpPayload payLoad = new ObjectMapper().readValue(in.getBody(String.class), FtpPayload.class);
+            FtpPayload payLoad = JsonUtils.reader().forType(FtpPayload.class).readValue(body);
             if (payLoad.getFileName()==null || payLoad.getFileName().equals("error")) {
                 throw new SyndesisConnectorException(ErrorCategory.DATA_ACCESS_ERROR, "FileName"
                         + " could not be parsed correctly");
@@ -73,23 +104,50 @@ public class FtpConnectorCustomizer implements ComponentProxyCustomizer {
     }
 
     // After Downloading a named file (pattern: pollEnrich)
-    private static void doAfterConsumer(Exchange exchange) throws JsonMappingException, JsonProcessingException {
+    private void doAfterConsumer(Exchange exchange) throws IOException {
         if (exchange.getException()!=null) {
             throw SyndesisConnectorException.wrap(
                     ErrorCategory.CONNECTOR_ERROR, exchange.getException());
         }
         final Message in = exchange.getIn();
-        final String body = in.getBody(String.class);
         final String fileName = in.getHeader(Exchange.FILE_NAME, String.class);
-        if (body!=null) {
-            final FtpPayload payLoad = new FtpPayload(body);
-            payLoad.setFileName(fileName);
-            final String jsonPayload = new ObjectMapper().writeValueAsString(payLoad);
-            in.setBody(jsonPayload);
-        } else {
+        if (in.getBody() == null) {
             final String detailedMsg = "File '" + fileName + "' was not found on the FTP server";
             throw new SyndesisConnectorException(ErrorCategory.ENTITY_NOT_FOUND_ERROR, detailedMsg);
         }
+
+        if (!streaming) {
+            in.setBody(toJsonPayload(exchange, fileName, in.getBody(InputStream.class)));
+        }
     }
 
+    /**
+     * Writes the file content into the JSON shape of {@link FtpPayload}
+     * while it is read, the content is never held as a String.
+     */
+    static Object toJsonPayload(Exchange exchange, String fileName, InputStream content) throws IOException {
+        final Charset charset = charsetOf(exchange);
+
+        // closed together with the generator, the cached content is removed once the exchange is done
+        final CachedOutputStream payload = new CachedOutputStream(exchange);
+        try (JsonGenerator generator = JsonUtils.writer().getFactory().createGenerator(payload);
+            Reader reader = new InputStreamReader(content, charset)) {
+            generator.writeStartObject();
+            generator.writeStringField("fileName", fileName);
+            generator.writeFieldName("fileContent");
+            generator.writeString(reader, -1);
+            generator.writeEndObject();
+        }
+
+        return payload.newStreamCache();
+    }
+
+    private static Charset charsetOf(Exchange exchange) {
+        final String charset = exchange.getProperty(Exchange.CHARSET_NAME, String.class);
+        if (charset == null) {
+            return StandardCharsets.UTF_8;
+        }
+
+        return Charset.forName(charset);
+    }
 }
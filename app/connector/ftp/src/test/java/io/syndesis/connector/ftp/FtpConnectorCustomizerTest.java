@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.connector.ftp;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.impl.DefaultExchange;
+import org.junit.jupiter.api.Test;
+
+import io.syndesis.common.util.SyndesisConnectorException;
+import io.syndesis.common.util.json.JsonUtils;
+import io.syndesis.integration.component.proxy.ComponentProxyComponent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class FtpConnectorCustomizerTest {
+
+    private final CamelContext context = new DefaultCamelContext();
+
+    private final ComponentProxyComponent component = new ComponentProxyComponent("ftp-1", "ftp");
+
+    @Test
+    public void shouldStreamDownloadedFileIntoJsonPayload() throws Exception {
+        final Map<String, Object> options = new HashMap<>();
+        new FtpConnectorCustomizer().customize(component, options);
+
+        assertThat(options).containsEntry("streamDownload", "true");
+
+        final Exchange exchange = new DefaultExchange(context);
+        exchange.getIn().setHeader(Exchange.FILE_NAME, "notes.txt");
+        exchange.getIn().setBody(new ByteArrayInputStream("line \"one\"\nline two ä".getBytes(StandardCharsets.UTF_8)));
+
+        component.getAfterConsumer().process(exchange);
+
+        final FtpPayload payload = JsonUtils.reader().forType(FtpPayload.class)
+            .readValue(exchange.getIn().getBody(InputStream.class));
+        assertThat(payload.getFileName()).isEqualTo("notes.txt");
+        assertThat(payload.getFileContent()).isEqualTo("line \"one\"\nline two ä");
+    }
+
+    @Test
+    public void shouldPassFileContentAsStream() throws Exception {
+        final Map<String, Object> options = new HashMap<>();
+        options.put("payload", FtpConnectorCustomizer.PAYLOAD_STREAM);
+        new FtpConnectorCustomizer().customize(component, options);
+
+        assertThat(options).doesNotContainKey("payload");
+
+        final byte[] content = {(byte) 0xCA, (byte) 0xFE, 0, (byte) 0xBA, (byte) 0xBE};
+        final InputStream stream = new ByteArrayInputStream(content);
+
+        final Exchange download = new DefaultExchange(context);
+        download.getIn().setHeader(Exchange.FILE_NAME, "data.bin");
+        download.getIn().setBody(stream);
+        component.getAfterConsumer().process(download);
+
+        assertThat(download.getIn().getBody()).isSameAs(stream);
+
+        component.getBeforeProducer().process(download);
+        assertThat(download.getIn().getBody()).isSameAs(stream);
+
+        final Exchange upload = new DefaultExchange(context);
+        upload.getIn().setBody(new ByteArrayInputStream(content));
+        assertThatThrownBy(() -> component.getBeforeProducer().process(upload))
+            .isInstanceOf(SyndesisConnectorException.class);
+    }
+}
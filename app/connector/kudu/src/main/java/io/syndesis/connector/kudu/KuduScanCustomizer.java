@@ -16,22 +16,17 @@
 
 package io.syndesis.connector.kudu;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import io.syndesis.common.util.SyndesisServerException;
 import io.syndesis.connector.kudu.common.KuduSupport;
 import io.syndesis.integration.component.proxy.ComponentProxyComponent;
 import io.syndesis.integration.component.proxy.ComponentProxyCustomizer;
 import org.apache.camel.Exchange;
 import org.apache.camel.Message;
 import org.apache.camel.component.kudu.KuduDbOperations;
-import org.apache.kudu.Type;
+import org.apache.camel.component.kudu.KuduRows;
 import org.apache.kudu.client.KuduException;
 import org.apache.kudu.client.KuduScanner;
-import org.apache.kudu.client.RowResult;
-import org.apache.kudu.client.RowResultIterator;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -48,53 +43,34 @@ public class KuduScanCustomizer implements ComponentProxyCustomizer {
         options.put("type", KuduDbOperations.SCAN);
     }
 
-    private static void processBody(Exchange exchange) throws KuduException, JsonProcessingException {
+    private static void processBody(Exchange exchange) throws KuduException {
         final Message in = exchange.getIn();
-        final KuduScanner scanner = in.getBody(KuduScanner.class);
 
         final List<String> answer = new ArrayList<>();
-        while(scanner.hasMoreRows()) {
-            RowResultIterator results = scanner.nextRows();
-
-            while (results.hasNext()) {
-                Map<String, Object> row = new HashMap<String, Object>();
-                RowResult result = results.next();
-
-                for (int i = 0; i < result.getSchema().getColumnCount(); i++) {
-                    String key = result.getSchema().getColumnByIndex(i).getName();
-                    Type type = result.getColumnType(i);
-
-                    switch (type.getName()) {
-                        case "string":
-                            row.put(key, result.getString(i));
-                            break;
-                        case "bool":
-                            row.put(key, result.getBoolean(i));
-                            break;
-                        case "int8":
-                        case "int16":
-                        case "int32":
-                            row.put(key, result.getInt(i));
-                            break;
-                        case "int64":
-                            row.put(key, result.getLong(i));
-                            break;
-                        case "double":
-                            row.put(key, result.getDouble(i));
-                            break;
-                        case "float":
-                            row.put(key, result.getFloat(i));
-                            break;
-                        default:
-                            throw new SyndesisServerException("The column schema type " + type.getName()
-                                    + " for column " + key
-                                    + " is not supported at the moment");
-                    }
+        if (in.getBody() instanceof KuduScanner) {
+            final KuduScanner scanner = in.getBody(KuduScanner.class);
+            try {
+                while (scanner.hasMoreRows()) {
+                    addJSONBeans(answer, KuduRows.toMaps(scanner.nextRows()));
                 }
-                answer.add(KuduSupport.toJSONBean(row));
+            } finally {
+                scanner.close();
+            }
+        } else {
+            // a batch of rows scanned by the consumer
+            @SuppressWarnings("unchecked")
+            final List<Map<String, Object>> rows = in.getBody(List.class);
+            if (rows != null) {
+                addJSONBeans(answer, rows);
             }
         }
 
         in.setBody(answer);
     }
+
+    private static void addJSONBeans(List<String> answer, List<Map<String, Object>> rows) {
+        for (Map<String, Object> row : rows) {
+            answer.add(KuduSupport.toJSONBean(row));
+        }
+    }
 }
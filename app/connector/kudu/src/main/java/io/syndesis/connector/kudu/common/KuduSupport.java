@@ -27,6 +27,8 @@ import java.util.Map;
 
 public final class KuduSupport {
 
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     private KuduSupport() {
         // utility class
     }
@@ -58,7 +60,6 @@ public final class KuduSupport {
      * @return JSON bean String
      */
     public static String toJSONBean(final Map<String, Object> map) {
-        ObjectMapper mapper = new ObjectMapper();
         final Map<String, Object> data = new HashMap<>(map.size());
 
         for (final Map.Entry<String, Object> entry : map.entrySet()) {
@@ -70,7 +71,7 @@ public final class KuduSupport {
         }
 
         try {
-            return mapper.writeValueAsString(data);
+            return MAPPER.writeValueAsString(data);
         } catch (final JsonProcessingException e) {
             throw new IllegalArgumentException("Unable to serialize to JSON", e);
         }
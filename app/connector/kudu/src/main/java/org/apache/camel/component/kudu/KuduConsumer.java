@@ -24,13 +24,16 @@ import org.apache.kudu.client.KuduClient;
 import org.apache.kudu.client.KuduException;
 import org.apache.kudu.client.KuduScanner;
 import org.apache.kudu.client.KuduTable;
+import org.apache.kudu.client.RowResultIterator;
 
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
 /**
- * The Kudu consumer.
+ * The Kudu consumer. Each batch of rows returned by the table scanner is
+ * sent as a separate exchange with the rows as list of maps body, so that
+ * the table is never held in memory as a whole.
  */
 public class KuduConsumer extends ScheduledPollConsumer {
     private final KuduEndpoint endpoint;
@@ -44,27 +47,41 @@ public class KuduConsumer extends ScheduledPollConsumer {
 
     @Override
     protected int poll() throws Exception {
-        Exchange exchange = endpoint.createExchange();
-
-        // create a message body
         KuduScanner scanner = doScan(endpoint.getTableName());
 
-        exchange.getIn().setBody(scanner);
-
+        int polled = 0;
         try {
-            // send message to next processor in the route
-            getProcessor().process(exchange);
-            return 1; // number of messages polled
-        } finally {
-            // log exception if an exception occurred and was not handled
-            if (exchange.getException() != null) {
-                getExceptionHandler().handleException("Error processing exchange", exchange, exchange.getException());
+            while (scanner.hasMoreRows() && isRunAllowed()) {
+                RowResultIterator results = scanner.nextRows();
+                if (results == null || !results.hasNext()) {
+                    continue;
+                }
+
+                Exchange exchange = endpoint.createExchange();
+
+                // create a message body
+                exchange.getIn().setBody(KuduRows.toMaps(results));
+
+                try {
+                    // send message to next processor in the route
+                    getProcessor().process(exchange);
+                    polled++;
+                } finally {
+                    // log exception if an exception occurred and was not handled
+                    if (exchange.getException() != null) {
+                        getExceptionHandler().handleException("Error processing exchange", exchange, exchange.getException());
+                    }
+                }
             }
+        } finally {
+            scanner.close();
         }
+
+        return polled; // number of messages polled
     }
 
     private KuduScanner doScan(String tableName) throws KuduException {
-        KuduTable table = connection.openTable(tableName);
+        KuduTable table = endpoint.getTable(tableName);
 
         List<String> projectColumns = new ArrayList<>(1);
         Iterator<ColumnSchema> columns = table.getSchema().getColumns().iterator();
@@ -25,9 +25,15 @@ import org.apache.camel.spi.UriEndpoint;
 import org.apache.camel.spi.UriParam;
 import org.apache.camel.spi.UriPath;
 import org.apache.kudu.client.KuduClient;
+import org.apache.kudu.client.KuduException;
+import org.apache.kudu.client.KuduTable;
+import org.apache.kudu.client.SessionConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
  * Represents a Kudu endpoint. A kudu endpoint allows you to interact with
  * <a href="https://kudu.apache.org/">Apache Kudu</a>,  a free and open source
@@ -61,6 +67,17 @@ public class KuduEndpoint extends DefaultEndpoint {
     @UriParam
     private String tableName;
 
+    @UriParam(label = "producer", defaultValue = "AUTO_FLUSH_SYNC", enums = "AUTO_FLUSH_SYNC,AUTO_FLUSH_BACKGROUND,MANUAL_FLUSH")
+    private SessionConfiguration.FlushMode flushMode = SessionConfiguration.FlushMode.AUTO_FLUSH_SYNC;
+
+    @UriParam(label = "producer", defaultValue = "1000")
+    private int mutationBufferSize = 1000;
+
+    @UriParam(label = "producer", defaultValue = "1000")
+    private int flushInterval = 1000;
+
+    private final ConcurrentMap<String, KuduTable> tables = new ConcurrentHashMap<>();
+
     public KuduEndpoint(String uri, KuduComponent component) {
         super(uri, component);
     }
@@ -75,6 +92,8 @@ public class KuduEndpoint extends DefaultEndpoint {
 
     @Override
     protected void doStop() throws Exception {
+        tables.clear();
+
         try {
             kuduClient.shutdown();
         } catch (Exception e) {
@@ -114,6 +133,20 @@ public class KuduEndpoint extends DefaultEndpoint {
         return kuduClient;
     }
 
+    /**
+     * Opens the table with the given name, the table handles are cached as
+     * opening a table requires a round-trip to the master
+     */
+    public KuduTable getTable(String name) throws KuduException {
+        KuduTable table = tables.get(name);
+        if (table == null) {
+            table = kuduClient.openTable(name);
+            tables.put(name, table);
+        }
+
+        return table;
+    }
+
     /**
      * Set the client to connect to a kudu resource
      *
@@ -149,6 +182,49 @@ public class KuduEndpoint extends DefaultEndpoint {
         this.operation = operation;
     }
 
+    public SessionConfiguration.FlushMode getFlushMode() {
+        return flushMode;
+    }
+
+    /**
+     * How inserted rows are sent to kudu, either one at a time, in the
+     * background or in batches of mutationBufferSize rows. Only rows sent one
+     * at a time fail the exchange that inserted them, errors of rows sent in
+     * the background or in batches are logged
+     *
+     * @param flushMode
+     */
+    public void setFlushMode(SessionConfiguration.FlushMode flushMode) {
+        this.flushMode = flushMode;
+    }
+
+    public int getMutationBufferSize() {
+        return mutationBufferSize;
+    }
+
+    /**
+     * Number of rows buffered before they are sent to kudu
+     *
+     * @param mutationBufferSize
+     */
+    public void setMutationBufferSize(int mutationBufferSize) {
+        this.mutationBufferSize = mutationBufferSize;
+    }
+
+    public int getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * Maximum time in milliseconds buffered rows wait before they are sent to
+     * kudu
+     *
+     * @param flushInterval
+     */
+    public void setFlushInterval(int flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
     public String getPort() {
         return port;
     }
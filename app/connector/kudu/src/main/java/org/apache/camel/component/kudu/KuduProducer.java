@@ -16,6 +16,7 @@
 
 package org.apache.camel.component.kudu;
 
+import org.apache.camel.CamelExchangeException;
 import org.apache.camel.Exchange;
 import org.apache.camel.impl.DefaultProducer;
 import org.apache.camel.util.ObjectHelper;
@@ -23,11 +24,15 @@ import org.apache.kudu.ColumnSchema;
 import org.apache.kudu.Schema;
 import org.apache.kudu.client.CreateTableOptions;
 import org.apache.kudu.client.KuduScanner;
-import org.apache.kudu.client.PartialRow;
+import org.apache.kudu.client.KuduSession;
+import org.apache.kudu.client.OperationResponse;
+import org.apache.kudu.client.RowError;
+import org.apache.kudu.client.RowErrorsAndOverflowStatus;
 import org.apache.kudu.client.Insert;
 import org.apache.kudu.client.KuduClient;
 import org.apache.kudu.client.KuduException;
 import org.apache.kudu.client.KuduTable;
+import org.apache.kudu.client.SessionConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,9 +40,19 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
- * The Kudu producer.
+ * The Kudu producer. In AUTO_FLUSH_SYNC mode every exchange inserts its row
+ * with a session of its own, so that concurrent exchanges do not wait on each
+ * other. In the buffered flush modes rows are inserted using a single session
+ * kept open while the producer runs, so that they can be sent to kudu in
+ * batches.
+ * <p>
+ * Only errors of rows sent synchronously fail the exchange inserting them,
+ * errors of buffered rows are not related to the exchange that happens to
+ * find them and are logged.
  */
 public class KuduProducer extends DefaultProducer {
 
@@ -46,6 +61,10 @@ public class KuduProducer extends DefaultProducer {
     private final KuduEndpoint endpoint;
     private final KuduClient connection;
 
+    private KuduSession session;
+    private int buffered;
+    private ScheduledExecutorService flusher;
+
     public KuduProducer(KuduEndpoint endpoint) {
         super(endpoint);
 
@@ -57,6 +76,51 @@ public class KuduProducer extends DefaultProducer {
         this.endpoint = endpoint;
     }
 
+    @Override
+    protected void doStart() throws Exception {
+        super.doStart();
+
+        if (!KuduDbOperations.INSERT.equals(endpoint.getOperation())) {
+            return;
+        }
+
+        if (!isBuffered()) {
+            return;
+        }
+
+        session = connection.newSession();
+        session.setFlushMode(endpoint.getFlushMode());
+        session.setMutationBufferSpace(endpoint.getMutationBufferSize());
+        session.setFlushInterval(endpoint.getFlushInterval());
+
+        if (endpoint.getFlushMode() == SessionConfiguration.FlushMode.MANUAL_FLUSH) {
+            // the session only flushes in the background in AUTO_FLUSH_BACKGROUND mode
+            flusher = endpoint.getCamelContext().getExecutorServiceManager().newSingleThreadScheduledExecutor(this, "KuduFlush");
+            flusher.scheduleWithFixedDelay(this::flushQuietly, endpoint.getFlushInterval(), endpoint.getFlushInterval(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        if (flusher != null) {
+            endpoint.getCamelContext().getExecutorServiceManager().shutdown(flusher);
+            flusher = null;
+        }
+
+        if (session != null) {
+            synchronized (this) {
+                try {
+                    logRowErrors(session.close());
+                    logPendingErrors();
+                } finally {
+                    session = null;
+                }
+            }
+        }
+
+        super.doStop();
+    }
+
     @Override
     public void process(Exchange exchange) throws Exception {
         String table = endpoint.getTableName();
@@ -75,39 +139,91 @@ public class KuduProducer extends DefaultProducer {
         }
     }
 
-    private void doInsert(Exchange exchange, String tableName) throws KuduException {
-        KuduTable table = connection.openTable(tableName);
+    private void doInsert(Exchange exchange, String tableName) throws KuduException, CamelExchangeException {
+        KuduTable table = endpoint.getTable(tableName);
 
         Insert insert = table.newInsert();
-        PartialRow row = insert.getRow();
-
-        Map<?, ?> rows = exchange.getIn().getBody(Map.class);
-
-        for (Map.Entry<?, ?> entry : rows.entrySet()) {
-            String key = (String) entry.getKey();
-            Object value = entry.getValue();
-            switch (value.getClass().toString()) {
-                case "class java.lang.String":
-                    row.addString(key, (String) value);
-                    break;
-                case "class java.lang.Long":
-                    row.addLong(key, (long) value);
-                    break;
-                case "class java.lang.Integer":
-                    row.addInt(key, (int) value);
-                    break;
-                case "class java.lang.Double":
-                    row.addDouble(key, (double) value);
-                    break;
-                case "class java.lang.Float":
-                    row.addFloat(key, (float) value);
-                    break;
-                default:
-                    throw new IllegalArgumentException("The type " + value.getClass().toString() + " is not supported");
+        KuduRows.addValues(insert.getRow(), table.getSchema(), exchange.getIn().getBody(Map.class));
+
+        if (isBuffered()) {
+            bufferInsert(insert);
+            return;
+        }
+
+        KuduSession syncSession = connection.newSession();
+        syncSession.setFlushMode(SessionConfiguration.FlushMode.AUTO_FLUSH_SYNC);
+
+        final OperationResponse response;
+        try {
+            response = syncSession.apply(insert);
+        } finally {
+            syncSession.close();
+        }
+
+        if (response.hasRowError()) {
+            throw new CamelExchangeException("Unable to insert row in table " + tableName + ": " + response.getRowError(), exchange);
+        }
+    }
+
+    private void bufferInsert(Insert insert) throws KuduException {
+        // sessions are not thread safe
+        synchronized (this) {
+            if (endpoint.getFlushMode() == SessionConfiguration.FlushMode.MANUAL_FLUSH
+                && buffered >= endpoint.getMutationBufferSize()) {
+                logRowErrors(session.flush());
+                buffered = 0;
             }
+
+            session.apply(insert);
+            buffered++;
+
+            logPendingErrors();
         }
+    }
+
+    private boolean isBuffered() {
+        return endpoint.getFlushMode() != SessionConfiguration.FlushMode.AUTO_FLUSH_SYNC;
+    }
 
-        connection.newSession().apply(insert);
+    /**
+     * Errors of rows flushed in the background are reported by the session.
+     */
+    private void logPendingErrors() {
+        if (session.countPendingErrors() > 0) {
+            RowErrorsAndOverflowStatus pending = session.getPendingErrors();
+            logRowErrors(pending.getRowErrors());
+            if (pending.isOverflowed()) {
+                LOG.warn("Too many row errors in table {}, some of them have been discarded", endpoint.getTableName());
+            }
+        }
+    }
+
+    private synchronized void flushQuietly() {
+        if (session == null || buffered == 0) {
+            return;
+        }
+
+        try {
+            logRowErrors(session.flush());
+            buffered = 0;
+            logPendingErrors();
+        } catch (KuduException e) {
+            LOG.error("Unable to flush rows to table {}", endpoint.getTableName(), e);
+        }
+    }
+
+    private static void logRowErrors(List<OperationResponse> responses) {
+        for (OperationResponse response : responses) {
+            if (response.hasRowError()) {
+                logRowErrors(response.getRowError());
+            }
+        }
+    }
+
+    private static void logRowErrors(RowError... errors) {
+        for (RowError error : errors) {
+            LOG.error("Unable to insert row: {}", error);
+        }
     }
 
     private KuduTable doCreateTable(Exchange exchange, String tableName) throws KuduException {
@@ -119,7 +235,7 @@ public class KuduProducer extends DefaultProducer {
     }
 
     private KuduScanner doScan(Exchange exchange, String tableName) throws KuduException {
-        KuduTable table = connection.openTable(tableName);
+        KuduTable table = endpoint.getTable(tableName);
 
         List<String> projectColumns = new ArrayList<>(1);
         Iterator<ColumnSchema> columns = table.getSchema().getColumns().iterator();
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.component.kudu;
+
+import org.apache.kudu.ColumnSchema;
+import org.apache.kudu.Schema;
+import org.apache.kudu.client.PartialRow;
+import org.apache.kudu.client.RowResult;
+import org.apache.kudu.client.RowResultIterator;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts between kudu rows and maps of column values, the values are
+ * converted according to the type of the column in the table schema.
+ */
+public final class KuduRows {
+
+    private KuduRows() {
+        // utility class
+    }
+
+    /**
+     * Converts a batch of scanned rows to a list of maps
+     */
+    public static List<Map<String, Object>> toMaps(RowResultIterator results) {
+        final List<Map<String, Object>> rows = new ArrayList<>(results.getNumRows());
+        while (results.hasNext()) {
+            rows.add(toMap(results.next()));
+        }
+
+        return rows;
+    }
+
+    public static Map<String, Object> toMap(RowResult result) {
+        final Schema schema = result.getSchema();
+        final Map<String, Object> row = new HashMap<>(schema.getColumnCount());
+
+        for (int i = 0; i < schema.getColumnCount(); i++) {
+            final ColumnSchema column = schema.getColumnByIndex(i);
+            final String key = column.getName();
+
+            if (result.isNull(i)) {
+                row.put(key, null);
+                continue;
+            }
+
+            switch (column.getType()) {
+                case STRING:
+                    row.put(key, result.getString(i));
+                    break;
+                case BOOL:
+                    row.put(key, result.getBoolean(i));
+                    break;
+                case INT8:
+                    row.put(key, (int) result.getByte(i));
+                    break;
+                case INT16:
+                    row.put(key, (int) result.getShort(i));
+                    break;
+                case INT32:
+                    row.put(key, result.getInt(i));
+                    break;
+                case INT64:
+                case UNIXTIME_MICROS:
+                    row.put(key, result.getLong(i));
+                    break;
+                case DOUBLE:
+                    row.put(key, result.getDouble(i));
+                    break;
+                case FLOAT:
+                    row.put(key, result.getFloat(i));
+                    break;
+                case BINARY:
+                    row.put(key, result.getBinaryCopy(i));
+                    break;
+                default:
+                    throw new IllegalArgumentException("The column schema type " + column.getType().getName()
+                            + " for column " + key
+                            + " is not supported at the moment");
+            }
+        }
+
+        return row;
+    }
+
+    /**
+     * Adds the given values to the row, converting each value to the type of
+     * its column
+     */
+    public static void addValues(PartialRow row, Schema schema, Map<?, ?> values) {
+        for (Map.Entry<?, ?> entry : values.entrySet()) {
+            final String key = (String) entry.getKey();
+            final Object value = entry.getValue();
+
+            if (value == null) {
+                row.setNull(key);
+                continue;
+            }
+
+            final ColumnSchema column = schema.getColumn(key);
+            switch (column.getType()) {
+                case STRING:
+                    row.addString(key, value.toString());
+                    break;
+                case BOOL:
+                    row.addBoolean(key, value instanceof Boolean ? (Boolean) value : Boolean.parseBoolean(value.toString()));
+                    break;
+                case INT8:
+                    row.addByte(key, toNumber(key, value).byteValue());
+                    break;
+                case INT16:
+                    row.addShort(key, toNumber(key, value).shortValue());
+                    break;
+                case INT32:
+                    row.addInt(key, toNumber(key, value).intValue());
+                    break;
+                case INT64:
+                case UNIXTIME_MICROS:
+                    row.addLong(key, toNumber(key, value).longValue());
+                    break;
+                case DOUBLE:
+                    row.addDouble(key, toNumber(key, value).doubleValue());
+                    break;
+                case FLOAT:
+                    row.addFloat(key, toNumber(key, value).floatValue());
+                    break;
+                case BINARY:
+                    row.addBinary(key, value instanceof byte[] ? (byte[]) value : value.toString().getBytes(StandardCharsets.UTF_8));
+                    break;
+                default:
+                    throw new IllegalArgumentException("The type " + column.getType().getName() + " of column " + key + " is not supported");
+            }
+        }
+    }
+
+    private static Number toNumber(String key, Object value) {
+        if (value instanceof Number) {
+            return (Number) value;
+        }
+
+        try {
+            return new BigDecimal(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The value " + value + " of column " + key + " is not a number", e);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.component.kudu;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.CamelExchangeException;
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.impl.DefaultExchange;
+import org.apache.kudu.ColumnSchema;
+import org.apache.kudu.Schema;
+import org.apache.kudu.Type;
+import org.apache.kudu.client.Insert;
+import org.apache.kudu.client.KuduClient;
+import org.apache.kudu.client.KuduSession;
+import org.apache.kudu.client.KuduTable;
+import org.apache.kudu.client.OperationResponse;
+import org.apache.kudu.client.PartialRow;
+import org.apache.kudu.client.RowError;
+import org.apache.kudu.client.RowErrorsAndOverflowStatus;
+import org.apache.kudu.client.SessionConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class KuduProducerTest {
+
+    private final CamelContext context = new DefaultCamelContext();
+
+    private final KuduClient client = mock(KuduClient.class);
+
+    private final KuduTable table = mock(KuduTable.class);
+
+    private final KuduSession session = mock(KuduSession.class);
+
+    private final PartialRow row = mock(PartialRow.class);
+
+    private KuduEndpoint endpoint;
+
+    @BeforeEach
+    public void setupEndpoint() throws Exception {
+        final Schema schema = new Schema(Arrays.asList(
+            new ColumnSchema.ColumnSchemaBuilder("id", Type.INT32).key(true).build(),
+            new ColumnSchema.ColumnSchemaBuilder("name", Type.STRING).build(),
+            new ColumnSchema.ColumnSchemaBuilder("visits", Type.INT64).nullable(true).build(),
+            new ColumnSchema.ColumnSchemaBuilder("score", Type.DOUBLE).nullable(true).build()));
+
+        final Insert insert = mock(Insert.class);
+        when(insert.getRow()).thenReturn(row);
+        when(table.getSchema()).thenReturn(schema);
+        when(table.newInsert()).thenReturn(insert);
+        when(client.openTable("people")).thenReturn(table);
+        when(client.newSession()).thenReturn(session);
+
+        final KuduComponent component = new KuduComponent();
+        component.setCamelContext(context);
+
+        endpoint = new KuduEndpoint("kudu:insert", component);
+        endpoint.setKuduClient(client);
+        endpoint.setTableName("people");
+        endpoint.setOperation(KuduDbOperations.INSERT);
+    }
+
+    @AfterEach
+    public void stopContext() throws Exception {
+        context.stop();
+    }
+
+    @Test
+    public void shouldReuseTableAndUseASessionPerSynchronousInsert() throws Exception {
+        final KuduProducer producer = new KuduProducer(endpoint);
+        producer.start();
+
+        final Map<String, Object> values = new HashMap<>();
+        values.put("id", 5);
+        values.put("name", "Samuel");
+        values.put("visits", 42);
+        values.put("score", "1.5");
+
+        producer.process(exchangeWith(values));
+        producer.process(exchangeWith(Collections.singletonMap("id", 6L)));
+
+        producer.stop();
+
+        verify(client).openTable("people");
+        verify(client, times(2)).newSession();
+        verify(session, times(2)).setFlushMode(SessionConfiguration.FlushMode.AUTO_FLUSH_SYNC);
+        verify(session, times(2)).apply(any(Insert.class));
+        verify(session, times(2)).close();
+
+        verify(row).addInt("id", 5);
+        verify(row).addInt("id", 6);
+        verify(row).addString("name", "Samuel");
+        verify(row).addLong("visits", 42L);
+        verify(row).addDouble("score", 1.5);
+    }
+
+    @Test
+    public void shouldSurfaceRowErrors() throws Exception {
+        final OperationResponse response = mock(OperationResponse.class);
+        when(response.hasRowError()).thenReturn(true);
+        when(response.getRowError()).thenReturn(mock(RowError.class));
+        when(session.apply(any(Insert.class))).thenReturn(response);
+
+        final KuduProducer producer = new KuduProducer(endpoint);
+        producer.start();
+
+        final Exchange exchange = exchangeWith(Collections.singletonMap("id", 5));
+        assertThatThrownBy(() -> producer.process(exchange))
+            .isInstanceOf(CamelExchangeException.class)
+            .hasMessageContaining("Unable to insert row in table people");
+
+        producer.stop();
+    }
+
+    @Test
+    public void shouldNotFailExchangesWithErrorsOfRowsFlushedInTheBackground() throws Exception {
+        endpoint.setFlushMode(SessionConfiguration.FlushMode.AUTO_FLUSH_BACKGROUND);
+
+        final RowErrorsAndOverflowStatus pending = mock(RowErrorsAndOverflowStatus.class);
+        when(pending.getRowErrors()).thenReturn(new RowError[] {mock(RowError.class)});
+        when(session.countPendingErrors()).thenReturn(1, 0);
+        when(session.getPendingErrors()).thenReturn(pending);
+
+        final KuduProducer producer = new KuduProducer(endpoint);
+        producer.start();
+
+        producer.process(exchangeWith(Collections.singletonMap("id", 5)));
+        producer.process(exchangeWith(Collections.singletonMap("id", 6)));
+
+        producer.stop();
+
+        verify(client).newSession();
+        verify(session, times(2)).apply(any(Insert.class));
+        verify(session).close();
+        verify(session).getPendingErrors();
+    }
+
+    private Exchange exchangeWith(Map<String, Object> values) {
+        final Exchange exchange = new DefaultExchange(context);
+        exchange.getIn().setBody(values);
+
+        return exchange;
+    }
+}
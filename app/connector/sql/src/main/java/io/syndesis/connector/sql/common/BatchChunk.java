@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.connector.sql.common;
+
+/**
+ * Outcome of one chunk of a batch update executed by {@link BatchDataSource}.
+ */
+public final class BatchChunk {
+
+    private final int index;
+    private final int rows;
+    private final int updateCount;
+    private final long elapsedMillis;
+
+    BatchChunk(final int index, final int[] updateCounts, final long elapsedMillis) {
+        this.index = index;
+        this.rows = updateCounts.length;
+        this.updateCount = totalOf(updateCounts);
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * One based index of the chunk within the batch.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getUpdateCount() {
+        return updateCount;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "chunk " + index + ": " + rows + " rows, " + updateCount + " updated in " + elapsedMillis + " ms";
+    }
+
+    private static int totalOf(final int[] updateCounts) {
+        int total = 0;
+        for (int count : updateCounts) {
+            // drivers may report Statement.SUCCESS_NO_INFO instead of a count
+            if (count >= 0) {
+                total += count;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.connector.sql.common;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * DataSource used for batch updates. The batch added to the prepared
+ * statements of its connections is executed in chunks of at most the given
+ * batch size as rows are added, and all chunks are committed as a single
+ * transaction when the batch is executed. Camel SQL adds the whole batch
+ * before executing it, so the chunks cannot be given by the JdbcTemplate
+ * configuration.
+ */
+public final class BatchDataSource extends DelegatingDataSource {
+
+    private final int batchSize;
+
+    private final Consumer<BatchChunk> listener;
+
+    /**
+     * @param batchSize maximum number of rows executed at a time, no limit if
+     *            not positive
+     * @param listener notified on the executing thread after each chunk
+     */
+    public BatchDataSource(final DataSource targetDataSource, final int batchSize, final Consumer<BatchChunk> listener) {
+        super(targetDataSource);
+        this.batchSize = batchSize;
+        this.listener = listener;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return new BatchConnection(super.getConnection()).proxy();
+    }
+
+    @Override
+    public Connection getConnection(final String username, final String password) throws SQLException {
+        return new BatchConnection(super.getConnection(username, password)).proxy();
+    }
+
+    static Object invoke(final Object target, final Method method, final Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private final class BatchConnection implements InvocationHandler {
+        private final Connection connection;
+
+        // we only manage the transaction if nobody else does
+        private final boolean transaction;
+
+        private boolean uncommitted;
+
+        BatchConnection(final Connection connection) throws SQLException {
+            this.connection = connection;
+            this.transaction = connection.getAutoCommit();
+            if (transaction) {
+                connection.setAutoCommit(false);
+            }
+        }
+
+        Connection proxy() {
+            return (Connection) Proxy.newProxyInstance(BatchDataSource.class.getClassLoader(), new Class<?>[] {Connection.class}, this);
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            if ("close".equals(method.getName())) {
+                close();
+                return null;
+            }
+
+            final Object result = BatchDataSource.invoke(connection, method, args);
+            if (result instanceof PreparedStatement) {
+                return new BatchStatement(this, (PreparedStatement) result).proxy();
+            }
+
+            return result;
+        }
+
+        void added() {
+            uncommitted = true;
+        }
+
+        void commit() throws SQLException {
+            if (transaction) {
+                connection.commit();
+            }
+            uncommitted = false;
+        }
+
+        void rollback(final SQLException cause) {
+            if (transaction) {
+                try {
+                    connection.rollback();
+                } catch (SQLException e) {
+                    cause.addSuppressed(e);
+                }
+            }
+            uncommitted = false;
+        }
+
+        private void close() throws SQLException {
+            try {
+                if (uncommitted && transaction) {
+                    // the batch was never executed, i.e. failed while adding rows
+                    connection.rollback();
+                }
+                if (transaction) {
+                    connection.setAutoCommit(true);
+                }
+            } finally {
+                connection.close();
+            }
+        }
+    }
+
+    private final class BatchStatement implements InvocationHandler {
+        private final BatchConnection connection;
+
+        private final PreparedStatement statement;
+
+        private final List<int[]> executed = new ArrayList<>();
+
+        private int added;
+
+        BatchStatement(final BatchConnection connection, final PreparedStatement statement) {
+            this.connection = connection;
+            this.statement = statement;
+        }
+
+        PreparedStatement proxy() {
+            return (PreparedStatement) Proxy.newProxyInstance(BatchDataSource.class.getClassLoader(), new Class<?>[] {PreparedStatement.class}, this);
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            switch (method.getName()) {
+            case "addBatch":
+                BatchDataSource.invoke(statement, method, args);
+                connection.added();
+                if (++added == batchSize) {
+                    executeChunk();
+                }
+                return null;
+            case "executeBatch":
+                return executeBatch();
+            case "clearBatch":
+                statement.clearBatch();
+                executed.clear();
+                added = 0;
+                return null;
+            default:
+                return BatchDataSource.invoke(statement, method, args);
+            }
+        }
+
+        private int[] executeBatch() throws SQLException {
+            if (added > 0 || executed.isEmpty()) {
+                executeChunk();
+            }
+
+            try {
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback(e);
+                throw e;
+            }
+
+            int length = 0;
+            for (int[] counts : executed) {
+                length += counts.length;
+            }
+
+            final int[] updateCounts = new int[length];
+            int offset = 0;
+            for (int[] counts : executed) {
+                System.arraycopy(counts, 0, updateCounts, offset, counts.length);
+                offset += counts.length;
+            }
+            executed.clear();
+
+            return updateCounts;
+        }
+
+        private void executeChunk() throws SQLException {
+            final long start = System.nanoTime();
+
+            final int[] counts;
+            try {
+                counts = statement.executeBatch();
+            } catch (SQLException e) {
+                connection.rollback(e);
+                executed.clear();
+                added = 0;
+                throw e;
+            }
+
+            executed.add(counts);
+            added = 0;
+
+            listener.accept(new BatchChunk(executed.size(), counts, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.connector.sql.common;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.ObjectName;
+import javax.sql.DataSource;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.CamelContextAware;
+import org.apache.camel.Service;
+import org.apache.camel.api.management.ManagedAttribute;
+import org.apache.camel.api.management.ManagedResource;
+import org.apache.camel.util.ObjectHelper;
+import org.apache.commons.dbcp.BasicDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Connection pools shared by all SQL steps of an integration, there is one
+ * pool per database URL, user and password. The pools are exposed as managed objects
+ * and closed when the CamelContext is stopped.
+ */
+public final class DataSourceRegistry implements Service, CamelContextAware {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataSourceRegistry.class);
+
+    private final Map<String, ManagedPool> pools = new ConcurrentHashMap<>();
+
+    private final AtomicInteger poolIds = new AtomicInteger();
+
+    private CamelContext camelContext;
+
+    /**
+     * Returns the registry of the given context, it is added to the context as
+     * service on first use.
+     */
+    public static DataSourceRegistry of(final CamelContext camelContext) {
+        synchronized (camelContext) {
+            DataSourceRegistry registry = camelContext.hasService(DataSourceRegistry.class);
+            if (registry == null) {
+                registry = new DataSourceRegistry();
+                registry.setCamelContext(camelContext);
+                try {
+                    camelContext.addService(registry, true, true);
+                } catch (Exception e) {
+                    throw ObjectHelper.wrapRuntimeCamelException(e);
+                }
+            }
+
+            return registry;
+        }
+    }
+
+    /**
+     * Returns the pool already registered for the URL, user and password of
+     * the given data source, or registers the given data source if there is none. The
+     * given data source must not have been used yet. The pool settings of the
+     * given data source are ignored when a pool is already registered.
+     */
+    public DataSource register(final BasicDataSource dataSource) {
+        final String name = dataSource.getUsername() + "@" + dataSource.getUrl();
+        // steps with different passwords for the same user don't share a pool,
+        // the password is only part of the key as fingerprint and never logged
+        final String key = name + "#" + fingerprint(dataSource.getPassword());
+
+        final ManagedPool pool = pools.computeIfAbsent(key, k -> manage(new ManagedPool(name, poolIds.incrementAndGet(), dataSource)));
+        if (pool.dataSource != dataSource) {
+            final List<String> differences = differentSettings(pool.dataSource, dataSource);
+            if (!differences.isEmpty()) {
+                LOGGER.warn("Connection pool for {} is shared by steps configured with different {}, using the settings of the first step: {}",
+                    name, differences, pool.settings());
+            }
+        }
+
+        return pool.dataSource;
+    }
+
+    static String fingerprint(final String password) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            final byte[] hash = digest.digest(Objects.toString(password, "").getBytes(StandardCharsets.UTF_8));
+
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by the JVM", e);
+        }
+    }
+
+    static List<String> differentSettings(final BasicDataSource registered, final BasicDataSource given) {
+        final List<String> differences = new ArrayList<>();
+        if (registered.getMaxActive() != given.getMaxActive()) {
+            differences.add("maxPoolSize");
+        }
+        if (registered.getMinIdle() != given.getMinIdle()) {
+            differences.add("minIdle");
+        }
+        if (registered.getMinEvictableIdleTimeMillis() != given.getMinEvictableIdleTimeMillis()) {
+            differences.add("idleTimeout");
+        }
+        if (registered.isPoolPreparedStatements() != given.isPoolPreparedStatements()
+            || registered.getMaxOpenPreparedStatements() != given.getMaxOpenPreparedStatements()) {
+            differences.add("statementCacheSize");
+        }
+        if (!Objects.equals(registered.getValidationQuery(), given.getValidationQuery())) {
+            differences.add("validationQuery");
+        }
+
+        return differences;
+    }
+
+    @Override
+    public void start() {
+        // pools are started lazily by the first connection request
+    }
+
+    @Override
+    public void stop() {
+        for (ManagedPool pool : pools.values()) {
+            try {
+                camelContext.getManagementStrategy().unmanageNamedObject(pool.objectName);
+            } catch (Exception e) {
+                LOGGER.debug("Unable to unregister mbean {}", pool.objectName, e);
+            }
+
+            try {
+                pool.dataSource.close();
+            } catch (SQLException e) {
+                LOGGER.warn("Unable to close connection pool for {}", pool.name, e);
+            }
+        }
+
+        pools.clear();
+    }
+
+    @Override
+    public void setCamelContext(final CamelContext camelContext) {
+        this.camelContext = camelContext;
+    }
+
+    @Override
+    public CamelContext getCamelContext() {
+        return camelContext;
+    }
+
+    private ManagedPool manage(final ManagedPool pool) {
+        try {
+            camelContext.getManagementStrategy().manageNamedObject(pool, pool.objectName);
+        } catch (Exception e) {
+            LOGGER.debug("Unable to register mbean {}", pool.objectName, e);
+        }
+
+        return pool;
+    }
+
+    /**
+     * Exposes the usage of a connection pool.
+     */
+    @ManagedResource(description = "Managed Syndesis SQL connection pool")
+    public final class ManagedPool {
+
+        final String name;
+
+        final BasicDataSource dataSource;
+
+        final ObjectName objectName;
+
+        ManagedPool(final String name, final int id, final BasicDataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+
+            try {
+                // the id tells apart pools of the same user with different
+                // passwords
+                this.objectName = ObjectName.getInstance(String.format("io.syndesis.connector.sql:context=%s,type=dataSource,name=%s,id=%d",
+                    camelContext.getName(), ObjectName.quote(name), id));
+            } catch (Exception e) {
+                throw ObjectHelper.wrapRuntimeCamelException(e);
+            }
+        }
+
+        String settings() {
+            return "maxPoolSize=" + dataSource.getMaxActive()
+                + ", minIdle=" + dataSource.getMinIdle()
+                + ", idleTimeout=" + dataSource.getMinEvictableIdleTimeMillis()
+                + ", statementCacheSize=" + (dataSource.isPoolPreparedStatements() ? dataSource.getMaxOpenPreparedStatements() : 0)
+                + ", validationQuery=" + dataSource.getValidationQuery();
+        }
+
+        @ManagedAttribute
+        public Integer getNumActive() {
+            return dataSource.getNumActive();
+        }
+
+        @ManagedAttribute
+        public Integer getNumIdle() {
+            return dataSource.getNumIdle();
+        }
+
+        @ManagedAttribute
+        public Integer getMaxActive() {
+            return dataSource.getMaxActive();
+        }
+    }
+}
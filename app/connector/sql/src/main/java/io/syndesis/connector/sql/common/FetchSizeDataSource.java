@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.connector.sql.common;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * DataSource that sets the fetch size on all statements created using its
+ * connections. Camel SQL creates the statements for streamed results itself,
+ * so the fetch size cannot be given by the JdbcTemplate configuration.
+ * <p>
+ * The PostgreSQL driver only fetches rows in chunks outside of auto commit
+ * mode, so auto commit is turned off while the connection is in use and
+ * restored when it is closed. The MySQL driver ignores the fetch size unless
+ * {@code useCursorFetch=true} is given in the connection URL.
+ */
+public final class FetchSizeDataSource extends DelegatingDataSource {
+
+    private final int fetchSize;
+
+    public FetchSizeDataSource(final DataSource targetDataSource, final int fetchSize) {
+        super(targetDataSource);
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return new FetchSizeConnection(super.getConnection()).proxy();
+    }
+
+    @Override
+    public Connection getConnection(final String username, final String password) throws SQLException {
+        return new FetchSizeConnection(super.getConnection(username, password)).proxy();
+    }
+
+    private final class FetchSizeConnection implements InvocationHandler {
+        private final Connection connection;
+
+        // we only manage the transaction if nobody else does
+        private final boolean transaction;
+
+        FetchSizeConnection(final Connection connection) throws SQLException {
+            this.connection = connection;
+            this.transaction = connection.getAutoCommit();
+            if (transaction) {
+                connection.setAutoCommit(false);
+            }
+        }
+
+        Connection proxy() {
+            return (Connection) Proxy.newProxyInstance(FetchSizeDataSource.class.getClassLoader(), new Class<?>[] {Connection.class}, this);
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            if ("close".equals(method.getName())) {
+                close();
+                return null;
+            }
+
+            final Object result = BatchDataSource.invoke(connection, method, args);
+            if (result instanceof Statement) {
+                ((Statement) result).setFetchSize(fetchSize);
+            }
+
+            return result;
+        }
+
+        private void close() throws SQLException {
+            try {
+                if (transaction) {
+                    // what auto commit would have done for the statements
+                    connection.commit();
+                    connection.setAutoCommit(true);
+                }
+            } finally {
+                connection.close();
+            }
+        }
+    }
+}
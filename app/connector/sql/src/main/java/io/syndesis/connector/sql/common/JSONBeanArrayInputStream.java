@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.connector.sql.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Serializes the rows of a streamed result to a JSON array as the stream is
+ * read, only the row currently being read is held in memory.
+ */
+final class JSONBeanArrayInputStream extends InputStream {
+
+    private final Iterator<?> rows;
+
+    private final Buffer buffer = new Buffer();
+
+    private final JsonGenerator generator;
+
+    private int position;
+
+    private boolean done;
+
+    JSONBeanArrayInputStream(final Iterator<?> rows) throws IOException {
+        this.rows = rows;
+        this.generator = JSONBeanUtil.MAPPER.getFactory().createGenerator(buffer);
+        this.generator.writeStartArray();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+
+        return buffer.bytes()[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        if (!fill()) {
+            return -1;
+        }
+
+        final int count = Math.min(len, buffer.size() - position);
+        System.arraycopy(buffer.bytes(), position, b, off, count);
+        position += count;
+
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return buffer.size() - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        done = true;
+        generator.close();
+
+        if (rows instanceof Closeable) {
+            ((Closeable) rows).close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean fill() throws IOException {
+        while (position >= buffer.size()) {
+            if (done) {
+                return false;
+            }
+
+            buffer.reset();
+            position = 0;
+
+            if (rows.hasNext()) {
+                JSONBeanUtil.writeJSONBean(generator, (Map<String, Object>) rows.next());
+            } else {
+                generator.writeEndArray();
+                done = true;
+            }
+
+            generator.flush();
+        }
+
+        return true;
+    }
+
+    private static final class Buffer extends ByteArrayOutputStream {
+        byte[] bytes() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.connector.sql.common;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Serializes the rows of a streamed result to JSON bean Strings as they are
+ * iterated, using a single generator and buffer for all rows.
+ */
+final class JSONBeanIterator implements Iterator<String>, Closeable {
+
+    private final Iterator<?> rows;
+
+    private final StringWriter buffer = new StringWriter();
+
+    private final JsonGenerator generator;
+
+    JSONBeanIterator(final Iterator<?> rows) throws IOException {
+        this.rows = rows;
+        this.generator = JSONBeanUtil.MAPPER.getFactory().createGenerator(buffer);
+        this.generator.setRootValueSeparator(null);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return rows.hasNext();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public String next() {
+        final Map<String, Object> row = (Map<String, Object>) rows.next();
+
+        buffer.getBuffer().setLength(0);
+        try {
+            JSONBeanUtil.writeJSONBean(generator, row);
+            generator.flush();
+        } catch (final IOException e) {
+            throw new IllegalArgumentException("Unable to serialize to JSON", e);
+        }
+
+        return buffer.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+
+        if (rows instanceof Closeable) {
+            ((Closeable) rows).close();
+        }
+    }
+}
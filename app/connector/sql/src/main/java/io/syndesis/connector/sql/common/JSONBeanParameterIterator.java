@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.connector.sql.common;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.springframework.jdbc.core.SqlParameterValue;
+
+/**
+ * Parses the JSON beans of a JSON array to SQL parameters as they are
+ * iterated, the array is never held in memory as a whole.
+ */
+final class JSONBeanParameterIterator implements Iterator<Map<String, SqlParameterValue>> {
+
+    private final JsonParser parser;
+
+    private final Map<String, Integer> jdbcTypeMap;
+
+    private JsonToken current;
+
+    JSONBeanParameterIterator(final String jsonArray, final Map<String, Integer> jdbcTypeMap) throws IOException {
+        this.parser = JSONBeanUtil.MAPPER.getFactory().createParser(jsonArray);
+        this.jdbcTypeMap = jdbcTypeMap;
+
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new IOException("Expected a JSON array, got: " + parser.getCurrentToken());
+        }
+        advance();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return current == JsonToken.START_OBJECT;
+    }
+
+    @Override
+    public Map<String, SqlParameterValue> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        try {
+            final Map<String, SqlParameterValue> parameters = JSONBeanUtil.readSqlParameters(parser, jdbcTypeMap);
+            advance();
+            return parameters;
+        } catch (final IOException e) {
+            throw new IllegalArgumentException("Unable to parse given JSON", e);
+        }
+    }
+
+    private void advance() throws IOException {
+        current = parser.nextToken();
+
+        if (current != JsonToken.START_OBJECT) {
+            if (current != JsonToken.END_ARRAY) {
+                throw new IOException("Expected a JSON bean, got: " + current);
+            }
+            parser.close();
+        }
+    }
+}
@@ -16,15 +16,21 @@
 package io.syndesis.connector.sql.common;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.camel.Message;
@@ -41,7 +47,7 @@ import org.springframework.jdbc.core.SqlParameterValue;
  */
 public final class JSONBeanUtil {
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    static final ObjectMapper MAPPER = new ObjectMapper();
 
     private static final TypeReference<Map<String, String>> STRING_STRING_MAP = new TypeReference<Map<String, String>>() {
         // type token pattern
@@ -81,17 +87,48 @@ public final class JSONBeanUtil {
             return Collections.emptyMap(); // json is empty so no need to parse
         }
 
-        final Map<String, String> parsed;
+        try (JsonParser parser = MAPPER.getFactory().createParser(json)) {
+            parser.nextToken();
+            return Collections.unmodifiableMap(readSqlParameters(parser, jdbcTypeMap));
+        } catch (final IOException e) {
+            throw new IllegalArgumentException("Unable to parse given JSON", e);
+        }
+    }
+
+    /**
+     * Parses the JSON beans of the given JSON array to SQL parameters as the
+     * returned iterator is advanced, used for batch updates.
+     *
+     * @param jsonArray JSON array of simple JSON beans
+     * @param jdbcTypeMap JDBC types of the parameters by name
+     * @return Iterator of SQL parameters, one per JSON bean.
+     */
+    public static Iterator<Map<String, SqlParameterValue>> parseSqlParametersFromJSONBeans(final String jsonArray, final Map<String, Integer> jdbcTypeMap) {
         try {
-            parsed = MAPPER.readerFor(STRING_STRING_MAP).readValue(json);
+            return new JSONBeanParameterIterator(jsonArray, jdbcTypeMap);
         } catch (final IOException e) {
             throw new IllegalArgumentException("Unable to parse given JSON", e);
         }
+    }
+
+    /**
+     * Reads the JSON bean the parser is positioned on directly into SQL
+     * parameters, the parser is left on the end of the bean.
+     */
+    static Map<String, SqlParameterValue> readSqlParameters(final JsonParser parser, final Map<String, Integer> jdbcTypeMap) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a JSON bean");
+        }
 
         final Map<String,SqlParameterValue> ret = new HashMap<>();
-        for (Map.Entry<String, String> entry : parsed.entrySet()) {
-            String key = entry.getKey();
-            String value = entry.getValue();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String key = parser.getCurrentName();
+
+            final JsonToken token = parser.nextToken();
+            if (!token.isScalarValue()) {
+                throw new JsonParseException(parser, "Expected a simple value for: " + key);
+            }
+            final String value = token == JsonToken.VALUE_NULL ? null : parser.getText();
 
             Integer jdbcType = null;
             if (jdbcTypeMap != null) {
@@ -105,7 +142,7 @@ public final class JSONBeanUtil {
             SqlParameterValue sqlParam = new SqlParameterValue(jdbcType, value);
             ret.put(key, sqlParam);
         }
-        return Collections.unmodifiableMap(ret);
+        return ret;
     }
 
     /**
@@ -155,7 +192,7 @@ public final class JSONBeanUtil {
         for (Map.Entry<String, Object> entry : map.entrySet()) {
             final String key = entry.getKey();
             final Object value = entry.getValue();
-            if (key.charAt(0) != '#') { // don't include Camel stats
+            if (key.isEmpty() || key.charAt(0) != '#') { // don't include Camel stats
                 data.put(key, value);
             }
         }
@@ -202,6 +239,48 @@ public final class JSONBeanUtil {
 
     }
 
+    /**
+     * Converts Camel StreamList output representing DB result set rows to JSON
+     * Bean Strings, the rows are serialized as they are iterated.
+     *
+     * @param rows
+     * @return Iterator of JSON beans.
+     */
+    public static Iterator<String> toJSONBeans(final Iterator<?> rows) {
+        try {
+            return new JSONBeanIterator(rows);
+        } catch (final IOException e) {
+            throw new IllegalArgumentException("Unable to serialize to JSON", e);
+        }
+    }
+
+    /**
+     * Converts Camel StreamList output representing DB result set rows to a
+     * JSON array of JSON Beans, the rows are serialized as the stream is read.
+     *
+     * @param rows
+     * @return JSON array stream.
+     */
+    public static InputStream toJSONArray(final Iterator<?> rows) {
+        try {
+            return new JSONBeanArrayInputStream(rows);
+        } catch (final IOException e) {
+            throw new IllegalArgumentException("Unable to serialize to JSON", e);
+        }
+    }
+
+    static void writeJSONBean(final JsonGenerator generator, final Map<String, Object> map) throws IOException {
+        generator.writeStartObject();
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            final String key = entry.getKey();
+            if (key.isEmpty() || key.charAt(0) != '#') { // don't include Camel stats
+                generator.writeFieldName(key);
+                generator.writeObject(entry.getValue());
+            }
+        }
+        generator.writeEndObject();
+    }
+
     /**
      * Converts Camel Generated Key output to a list of JSON Bean Strings.
      *
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.connector.sql.common;
+
+import java.util.Locale;
+
+/**
+ * How the rows of a SELECT statement are given to the integration.
+ */
+public enum ResultStreaming {
+    /**
+     * All rows are read and given as list of JSON beans.
+     */
+    NONE,
+    /**
+     * Rows are read while the integration iterates the JSON beans, i.e. in a
+     * split step.
+     */
+    BEANS,
+    /**
+     * Rows are read while the integration reads the JSON array stream.
+     */
+    ARRAY;
+
+    public static ResultStreaming fromOption(String option) {
+        if (option == null || option.isEmpty()) {
+            return NONE;
+        }
+
+        return valueOf(option.toUpperCase(Locale.US));
+    }
+}
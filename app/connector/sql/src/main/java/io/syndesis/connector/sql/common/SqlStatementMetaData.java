@@ -98,6 +98,14 @@ public class SqlStatementMetaData {
     }
 
     public boolean isVerifiedBatchUpdateMode() {
+        return isVerifiedBatchUpdateMode(batch);
+    }
+
+    /**
+     * Same as {@link #isVerifiedBatchUpdateMode()} for the given batch mode,
+     * used with shared instances which must not be modified.
+     */
+    public boolean isVerifiedBatchUpdateMode(boolean batch) {
         if (batch) {
             if (!hasInputParams()) {
                 LOGGER.warn("Batch update mode set but no input params specified - automatically using non batch update mode");
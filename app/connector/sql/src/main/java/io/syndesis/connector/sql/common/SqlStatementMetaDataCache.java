@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.connector.sql.common;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sql.DataSource;
+
+/**
+ * Caches parsed statement metadata per data source so that steps using the
+ * same statement on the same (shared) data source do not connect to the
+ * database and parse the statement again. The returned metadata is shared
+ * and must not be modified.
+ */
+public final class SqlStatementMetaDataCache {
+
+    private static final Map<DataSource, Map<List<String>, SqlStatementMetaData>> CACHE = new WeakHashMap<>();
+
+    private SqlStatementMetaDataCache() {
+        // utility class
+    }
+
+    /**
+     * Returns the metadata of the given statement.
+     *
+     * @param dataSource data source to read database metadata from
+     * @param user database user, used to determine the default schema
+     * @param schema schema pattern, or {@code null} for the default schema
+     * @param sql the statement
+     */
+    public static SqlStatementMetaData parse(final DataSource dataSource, final String user, final String schema, final String sql) throws SQLException {
+        final Map<List<String>, SqlStatementMetaData> statements;
+        synchronized (CACHE) {
+            statements = CACHE.computeIfAbsent(dataSource, ds -> new ConcurrentHashMap<>());
+        }
+
+        final List<String> key = Arrays.asList(user, schema, sql);
+        SqlStatementMetaData statementInfo = statements.get(key);
+        if (statementInfo == null) {
+            try (Connection connection = dataSource.getConnection()) {
+                final String schemaPattern = schema != null ? schema : new DbMetaDataHelper(connection).getDefaultSchema(user);
+                statementInfo = new SqlStatementParser(connection, schemaPattern, sql).parse();
+            }
+
+            statements.put(key, statementInfo);
+        }
+
+        return statementInfo;
+    }
+}
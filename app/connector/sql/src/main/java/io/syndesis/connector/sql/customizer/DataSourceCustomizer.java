@@ -17,6 +17,7 @@ package io.syndesis.connector.sql.customizer;
 
 import java.util.Map;
 
+import io.syndesis.connector.sql.common.DataSourceRegistry;
 import io.syndesis.integration.component.proxy.ComponentProxyComponent;
 import io.syndesis.integration.component.proxy.ComponentProxyCustomizer;
 import org.apache.camel.CamelContext;
@@ -28,6 +29,11 @@ import org.slf4j.LoggerFactory;
 public class DataSourceCustomizer implements ComponentProxyCustomizer, CamelContextAware {
     private static final Logger LOGGER = LoggerFactory.getLogger(DataSourceCustomizer.class);
 
+    private static final int DEFAULT_MAX_POOL_SIZE = 10;
+    private static final long DEFAULT_IDLE_TIMEOUT = 300_000L;
+    private static final long EVICTION_INTERVAL = 60_000L;
+    private static final int DEFAULT_STATEMENT_CACHE_SIZE = 20;
+
     private CamelContext camelContext;
 
     @Override
@@ -50,7 +56,33 @@ public class DataSourceCustomizer implements ComponentProxyCustomizer, CamelCont
                 consumeOption(camelContext, options, "password", String.class, ds::setPassword);
                 consumeOption(camelContext, options, "url", String.class, ds::setUrl);
 
-                options.put("dataSource", ds);
+                ds.setMaxActive(DEFAULT_MAX_POOL_SIZE);
+                ds.setMaxIdle(DEFAULT_MAX_POOL_SIZE);
+                consumeOption(camelContext, options, "maxPoolSize", Integer.class, size -> {
+                    ds.setMaxActive(size);
+                    ds.setMaxIdle(size);
+                });
+                consumeOption(camelContext, options, "minIdle", Integer.class, ds::setMinIdle);
+
+                ds.setTimeBetweenEvictionRunsMillis(EVICTION_INTERVAL);
+                ds.setMinEvictableIdleTimeMillis(DEFAULT_IDLE_TIMEOUT);
+                consumeOption(camelContext, options, "idleTimeout", Long.class, ds::setMinEvictableIdleTimeMillis);
+
+                ds.setPoolPreparedStatements(true);
+                ds.setMaxOpenPreparedStatements(DEFAULT_STATEMENT_CACHE_SIZE);
+                consumeOption(camelContext, options, "statementCacheSize", Integer.class, size -> {
+                    ds.setPoolPreparedStatements(size > 0);
+                    ds.setMaxOpenPreparedStatements(size);
+                });
+
+                consumeOption(camelContext, options, "validationQuery", String.class, query -> {
+                    ds.setValidationQuery(query);
+                    ds.setTestOnBorrow(true);
+                    ds.setTestWhileIdle(true);
+                });
+
+                // steps using the same database share the connection pool
+                options.put("dataSource", DataSourceRegistry.of(camelContext).register(ds));
             } else {
                 LOGGER.debug("Not enough information provided to set-up the DataSource");
             }
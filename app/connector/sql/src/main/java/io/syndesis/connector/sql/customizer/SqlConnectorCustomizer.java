@@ -16,18 +16,22 @@
 package io.syndesis.connector.sql.customizer;
 
 import java.io.IOException;
-import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 
 import javax.sql.DataSource;
 import org.apache.camel.Exchange;
+import org.apache.camel.LoggingLevel;
 import org.apache.camel.Message;
+import org.apache.camel.spi.LogListener;
+import org.apache.camel.util.CamelLogger;
 import org.apache.camel.util.ObjectHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,13 +40,15 @@ import org.springframework.jdbc.core.SqlParameterValue;
 import io.syndesis.common.util.ErrorCategory;
 import io.syndesis.common.util.SyndesisConnectorException;
 import io.syndesis.common.util.json.JsonUtils;
-import io.syndesis.connector.sql.common.DbMetaDataHelper;
-
+import io.syndesis.connector.sql.common.BatchChunk;
+import io.syndesis.connector.sql.common.BatchDataSource;
 import io.syndesis.connector.sql.common.CamelSqlConstants;
+import io.syndesis.connector.sql.common.FetchSizeDataSource;
 import io.syndesis.connector.sql.common.JSONBeanUtil;
+import io.syndesis.connector.sql.common.ResultStreaming;
 import io.syndesis.connector.sql.common.SqlParam;
 import io.syndesis.connector.sql.common.SqlStatementMetaData;
-import io.syndesis.connector.sql.common.SqlStatementParser;
+import io.syndesis.connector.sql.common.SqlStatementMetaDataCache;
 import io.syndesis.connector.sql.common.StatementType;
 import io.syndesis.connector.support.util.ConnectorOptions;
 import io.syndesis.integration.component.proxy.ComponentProxyComponent;
@@ -50,6 +56,13 @@ import io.syndesis.integration.component.proxy.ComponentProxyCustomizer;
 
 public final class SqlConnectorCustomizer implements ComponentProxyCustomizer {
 
+    private static final int DEFAULT_FETCH_SIZE = 100;
+
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+
+    // header set by the integration runtime to the id of the current step
+    private static final String STEP_ID = "Syndesis.STEP_ID";
+
     private Map<String, Integer> jdbcTypeMap;
     private static final Logger LOGGER = LoggerFactory.getLogger(SqlConnectorCustomizer.class);
     private String autoIncrementColumnName;
@@ -58,6 +71,8 @@ public final class SqlConnectorCustomizer implements ComponentProxyCustomizer {
 
     private boolean isBatch;
     private boolean isRaiseErrorOnNotFound;
+    private ResultStreaming resultStreaming = ResultStreaming.NONE;
+    private final ThreadLocal<List<BatchChunk>> batchChunks = new ThreadLocal<>();
 
     @Override
     public void customize(ComponentProxyComponent component, Map<String, Object> options) {
@@ -70,30 +85,26 @@ public final class SqlConnectorCustomizer implements ComponentProxyCustomizer {
     private void doBeforeProducer(Exchange exchange) {
         final Message in = exchange.getIn();
 
-        List<String> jsonBeans = null;
-        if (in.getBody() instanceof List) {
-            jsonBeans = in.getBody(List.class);
-        } else if (in.getBody(String.class) != null) {
-            String body = in.getBody(String.class);
-            if (JsonUtils.isJsonArray(body)) {
-                try {
-                    jsonBeans = JsonUtils.arrayToJsonBeans(JsonUtils.reader().readTree(body));
-                } catch (IOException e) {
-                    throw SyndesisConnectorException.wrap(ErrorCategory.DATA_ACCESS_ERROR, e);
+        if (isBatch && !jdbcTypeMap.isEmpty()) {
+            doBeforeBatchProducer(in);
+        } else {
+            List<String> jsonBeans = null;
+            if (in.getBody() instanceof List) {
+                jsonBeans = in.getBody(List.class);
+            } else if (in.getBody(String.class) != null) {
+                String body = in.getBody(String.class);
+                if (JsonUtils.isJsonArray(body)) {
+                    try {
+                        jsonBeans = JsonUtils.arrayToJsonBeans(JsonUtils.reader().readTree(body));
+                    } catch (IOException e) {
+                        throw SyndesisConnectorException.wrap(ErrorCategory.DATA_ACCESS_ERROR, e);
+                    }
+                } else if (JsonUtils.isJson(body)) {
+                    jsonBeans = Collections.singletonList(body);
                 }
-            } else if (JsonUtils.isJson(body)) {
-                jsonBeans = Collections.singletonList(body);
             }
-        }
 
-        if (ObjectHelper.isNotEmpty(jsonBeans) && !jdbcTypeMap.isEmpty()) {
-            if (isBatch) {
-                final List<Map<String, SqlParameterValue>> sqlParametersValues = new ArrayList<>();
-                for (String jsonBean : jsonBeans) {
-                    sqlParametersValues.add(JSONBeanUtil.parseSqlParametersFromJSONBean(jsonBean, jdbcTypeMap));
-                }
-                exchange.getIn().setBody(sqlParametersValues);
-            } else {
+            if (ObjectHelper.isNotEmpty(jsonBeans) && !jdbcTypeMap.isEmpty()) {
                 final Map<String, SqlParameterValue> sqlParametersValues = JSONBeanUtil.parseSqlParametersFromJSONBean(jsonBeans.get(0), jdbcTypeMap);
                 exchange.getIn().setBody(sqlParametersValues);
             }
@@ -103,13 +114,56 @@ public final class SqlConnectorCustomizer implements ComponentProxyCustomizer {
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private void doBeforeBatchProducer(Message in) {
+        //rows are parsed to parameters while Camel SQL adds them to the batch
+        Iterator<Map<String, SqlParameterValue>> sqlParametersValues = null;
+        if (in.getBody() instanceof List) {
+            final List<String> jsonBeans = in.getBody(List.class);
+            if (ObjectHelper.isNotEmpty(jsonBeans)) {
+                sqlParametersValues = jsonBeans.stream()
+                    .map(jsonBean -> JSONBeanUtil.parseSqlParametersFromJSONBean(jsonBean, jdbcTypeMap))
+                    .iterator();
+            }
+        } else if (in.getBody(String.class) != null) {
+            String body = in.getBody(String.class);
+            try {
+                if (JsonUtils.isJsonArray(body)) {
+                    sqlParametersValues = JSONBeanUtil.parseSqlParametersFromJSONBeans(body, jdbcTypeMap);
+                } else if (JsonUtils.isJson(body)) {
+                    sqlParametersValues = Collections.singletonList(JSONBeanUtil.parseSqlParametersFromJSONBean(body, jdbcTypeMap)).iterator();
+                }
+            } catch (IllegalArgumentException e) {
+                throw SyndesisConnectorException.wrap(ErrorCategory.DATA_ACCESS_ERROR, e);
+            }
+        }
+
+        if (sqlParametersValues != null) {
+            batchChunks.set(new ArrayList<>());
+            in.setBody(sqlParametersValues);
+        }
+    }
+
     private void doAfterProducer(Exchange exchange) {
+        final List<BatchChunk> chunks = batchChunks.get();
+        batchChunks.remove();
+        if (chunks != null) {
+            logBatchChunks(exchange, chunks);
+            if (exchange.getIn().getBody() instanceof Iterator) {
+                //the consumed batch parameters are of no use to the next steps
+                exchange.getIn().setBody(null);
+            }
+        }
 
         if (exchange.getException()!=null) {
             throw SyndesisConnectorException.wrap(
                     ErrorCategory.CONNECTOR_ERROR, exchange.getException());
         }
         final Message in = exchange.getIn();
+        if (resultStreaming != ResultStreaming.NONE && in.getBody() instanceof Iterator) {
+            doAfterStreamingProducer(in);
+            return;
+        }
         //converting SQL Map or List results to JSON Beans
         List<String> list = null;
         if (isRetrieveGeneratedKeys) {
@@ -126,6 +180,44 @@ public final class SqlConnectorCustomizer implements ComponentProxyCustomizer {
         }
     }
 
+    private void doAfterStreamingProducer(Message in) {
+        //rows are read from the database and converted to JSON Beans as they are consumed
+        final Iterator<?> rows = in.getBody(Iterator.class);
+        if (isRaiseErrorOnNotFound && !rows.hasNext()) {
+            String detailedMsg = "SQL " + statementType.name() + " did not " + statementType +  " any records";
+            throw new SyndesisConnectorException(ErrorCategory.ENTITY_NOT_FOUND_ERROR, detailedMsg);
+        }
+        if (resultStreaming == ResultStreaming.BEANS) {
+            in.setBody(JSONBeanUtil.toJSONBeans(rows));
+        } else {
+            in.setBody(JSONBeanUtil.toJSONArray(rows));
+        }
+    }
+
+    private void onBatchChunk(BatchChunk chunk) {
+        final List<BatchChunk> chunks = batchChunks.get();
+        if (chunks != null) {
+            chunks.add(chunk);
+        }
+    }
+
+    private static void logBatchChunks(Exchange exchange, List<BatchChunk> chunks) {
+        //reported the same way as log steps so that the chunks show in the activity log
+        final String stepId = exchange.getIn().getHeader(STEP_ID, String.class);
+        final CamelLogger logger = new CamelLogger(LOGGER, LoggingLevel.INFO, stepId);
+        final Set<LogListener> listeners = exchange.getContext().getLogListeners();
+
+        for (BatchChunk chunk : chunks) {
+            String message = "SQL batch update " + chunk;
+            if (listeners != null) {
+                for (LogListener listener : listeners) {
+                    message = listener.onLog(exchange, logger, message);
+                }
+            }
+            logger.log(message);
+        }
+    }
+
     private boolean isRecordsFound(Message in) {
 
         switch (statementType) {
@@ -157,18 +249,21 @@ public final class SqlConnectorCustomizer implements ComponentProxyCustomizer {
                     .extractOptionAndMap(options, "batch", Boolean::valueOf, false);
             isRaiseErrorOnNotFound = ConnectorOptions
                     .extractOptionAndMap(options, "raiseErrorOnNotFound", Boolean::valueOf, false);
+            resultStreaming = ConnectorOptions
+                    .extractOptionAndMap(options, "resultStreaming", ResultStreaming::fromOption, ResultStreaming.NONE);
+            final int fetchSize = ConnectorOptions
+                    .extractOptionAndMap(options, "fetchSize", Integer::valueOf, DEFAULT_FETCH_SIZE);
+            final int batchSize = ConnectorOptions
+                    .extractOptionAndMap(options, "batchSize", Integer::valueOf, DEFAULT_BATCH_SIZE);
 
             final String sql =  ConnectorOptions.extractOption(options, "query");
             final DataSource dataSource = ConnectorOptions.extractOptionAsType(
                 options, "dataSource", DataSource.class);
 
             final Map<String, Integer> tmpMap = new HashMap<>();
-            try (Connection connection = dataSource.getConnection()) {
-                DbMetaDataHelper dbHelper = new DbMetaDataHelper(connection);
-                final String defaultSchema = dbHelper.getDefaultSchema(ConnectorOptions.extractOption(options, "user", ""));
-                final String schemaPattern = ConnectorOptions.extractOption(options, "schema", defaultSchema);
-
-                SqlStatementMetaData statementInfo = new SqlStatementParser(connection, schemaPattern, sql).parse();
+            try {
+                SqlStatementMetaData statementInfo = SqlStatementMetaDataCache.parse(dataSource,
+                    ConnectorOptions.extractOption(options, "user", ""), ConnectorOptions.extractOption(options, "schema"), sql);
                 for (SqlParam sqlParam: statementInfo.getInParams()) {
                     tmpMap.put(sqlParam.getName(), sqlParam.getJdbcType().getVendorTypeNumber());
                 }
@@ -177,11 +272,23 @@ public final class SqlConnectorCustomizer implements ComponentProxyCustomizer {
                     autoIncrementColumnName = statementInfo.getAutoIncrementColumnName();
                 }
 
-                statementInfo.setBatch(isBatch);
-                isBatch = statementInfo.isVerifiedBatchUpdateMode();
+                // the metadata is shared by all steps using the statement
+                isBatch = statementInfo.isVerifiedBatchUpdateMode(isBatch);
                 statementType = statementInfo.getStatementType();
                 options.put("batch", isBatch);
 
+                if (isBatch) {
+                    // generated keys are only available for the last executed chunk
+                    options.put("dataSource", new BatchDataSource(dataSource, isRetrieveGeneratedKeys ? 0 : batchSize, this::onBatchChunk));
+                }
+
+                if (resultStreaming != ResultStreaming.NONE && statementType == StatementType.SELECT) {
+                    options.put("outputType", "StreamList");
+                    options.put("dataSource", new FetchSizeDataSource(dataSource, fetchSize));
+                } else {
+                    resultStreaming = ResultStreaming.NONE;
+                }
+
             } catch (SQLException e){
                 LOGGER.error(e.getMessage(),e);
             }
@@ -15,21 +15,23 @@
  */
 package io.syndesis.connector.sql.customizer;
 
-import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
 import javax.sql.DataSource;
 
-import io.syndesis.connector.sql.common.DbMetaDataHelper;
 import io.syndesis.common.util.ErrorCategory;
 import io.syndesis.common.util.SyndesisConnectorException;
 
+import io.syndesis.connector.sql.common.FetchSizeDataSource;
 import io.syndesis.connector.sql.common.JSONBeanUtil;
+import io.syndesis.connector.sql.common.ResultStreaming;
 import io.syndesis.connector.sql.common.SqlStatementMetaData;
-import io.syndesis.connector.sql.common.SqlStatementParser;
+import io.syndesis.connector.sql.common.SqlStatementMetaDataCache;
+import io.syndesis.connector.sql.common.StatementType;
 import io.syndesis.connector.support.util.ConnectorOptions;
 import io.syndesis.integration.component.proxy.ComponentProxyComponent;
 import io.syndesis.integration.component.proxy.ComponentProxyCustomizer;
@@ -42,10 +44,13 @@ import org.slf4j.LoggerFactory;
 
 public final class SqlStartConnectorCustomizer implements ComponentProxyCustomizer {
 
+    private static final int DEFAULT_FETCH_SIZE = 100;
+
     private boolean isInit;
     private static final Logger LOGGER = LoggerFactory.getLogger(SqlStartConnectorCustomizer.class);
     private String autoIncrementColumnName;
     private boolean isRetrieveGeneratedKeys;
+    private ResultStreaming resultStreaming = ResultStreaming.NONE;
 
     @Override
     public void customize(ComponentProxyComponent component, Map<String, Object> options) {
@@ -71,6 +76,16 @@ public final class SqlStartConnectorCustomizer implements ComponentProxyCustomiz
             throw SyndesisConnectorException.wrap(ErrorCategory.CONNECTOR_ERROR, e);
         }
         final Message in = exchange.getIn();
+        if (resultStreaming != ResultStreaming.NONE && in.getBody() instanceof Iterator) {
+            //rows are read from the database and converted to JSON Beans as they are consumed
+            final Iterator<?> rows = in.getBody(Iterator.class);
+            if (resultStreaming == ResultStreaming.BEANS) {
+                in.setBody(JSONBeanUtil.toJSONBeans(rows));
+            } else {
+                in.setBody(JSONBeanUtil.toJSONArray(rows));
+            }
+            return;
+        }
         List<String> list = null;
         if (isRetrieveGeneratedKeys) {
             list = JSONBeanUtil.toJSONBeansFromHeader(in, autoIncrementColumnName);
@@ -84,18 +99,26 @@ public final class SqlStartConnectorCustomizer implements ComponentProxyCustomiz
 
     private void init(Map<String, Object> options) {
         if (!isInit) {
+            resultStreaming = ConnectorOptions
+                    .extractOptionAndMap(options, "resultStreaming", ResultStreaming::fromOption, ResultStreaming.NONE);
+            final int fetchSize = ConnectorOptions
+                    .extractOptionAndMap(options, "fetchSize", Integer::valueOf, DEFAULT_FETCH_SIZE);
             final String sql =  ConnectorOptions.extractOption(options, "query");
             final DataSource dataSource = ConnectorOptions.extractOptionAsType(options, "dataSource", DataSource.class);
-            try (Connection connection = dataSource.getConnection()) {
-                DbMetaDataHelper dbHelper = new DbMetaDataHelper(connection);
-                final String defaultSchema = dbHelper.getDefaultSchema(ConnectorOptions.extractOption(options, "user", ""));
-                final String schemaPattern = ConnectorOptions.extractOption(options, "schema", defaultSchema);
-
-                SqlStatementMetaData statementInfo = new SqlStatementParser(connection, schemaPattern, sql).parse();
+            try {
+                SqlStatementMetaData statementInfo = SqlStatementMetaDataCache.parse(dataSource,
+                    ConnectorOptions.extractOption(options, "user", ""), ConnectorOptions.extractOption(options, "schema"), sql);
                 if (statementInfo.getAutoIncrementColumnName() != null) {
                     isRetrieveGeneratedKeys = true;
                     autoIncrementColumnName = statementInfo.getAutoIncrementColumnName();
                 }
+
+                if (resultStreaming != ResultStreaming.NONE && statementInfo.getStatementType() == StatementType.SELECT) {
+                    options.put("outputType", "StreamList");
+                    options.put("dataSource", new FetchSizeDataSource(dataSource, fetchSize));
+                } else {
+                    resultStreaming = ResultStreaming.NONE;
+                }
             } catch (SQLException e){
                 LOGGER.error(e.getMessage(),e);
             }
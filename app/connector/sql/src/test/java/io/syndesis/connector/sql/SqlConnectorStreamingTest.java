@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.connector.sql;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+import io.syndesis.common.model.integration.Step;
+import io.syndesis.common.model.integration.StepKind;
+import io.syndesis.connector.sql.common.JSONBeanUtil;
+import io.syndesis.connector.sql.common.SqlTest;
+import io.syndesis.connector.sql.common.SqlTest.ConnectionInfo;
+import io.syndesis.connector.sql.common.SqlTest.Setup;
+import io.syndesis.connector.sql.common.SqlTest.Teardown;
+import io.syndesis.connector.sql.util.SqlConnectorTestSupport;
+
+import org.apache.camel.component.mock.MockEndpoint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Streamed results are only readable until the exchange completes, so the
+ * rows are read by a split step as an integration would.
+ */
+@ExtendWith(SqlTest.class)
+@Setup({"CREATE TABLE ADDRESS (street VARCHAR(255), number INTEGER)",
+    "INSERT INTO ADDRESS VALUES ('East Davie Street', 100)",
+    "INSERT INTO ADDRESS VALUES ('Am Treptower Park', 75)",
+    "INSERT INTO ADDRESS VALUES ('Werner-von-Siemens-Ring', 14)"})
+@Teardown("DROP TABLE ADDRESS")
+public abstract class SqlConnectorStreamingTest extends SqlConnectorTestSupport {
+
+    private final String resultStreaming;
+
+    private final String splitMode;
+
+    static class Beans extends SqlConnectorStreamingTest {
+
+        public Beans(final ConnectionInfo info) {
+            super(info, "beans", "memory");
+        }
+    }
+
+    static class Array extends SqlConnectorStreamingTest {
+
+        public Array(final ConnectionInfo info) {
+            super(info, "array", "json");
+        }
+    }
+
+    public SqlConnectorStreamingTest(final ConnectionInfo info, final String resultStreaming, final String splitMode) {
+        super(info);
+        this.resultStreaming = resultStreaming;
+        this.splitMode = splitMode;
+    }
+
+    @Override
+    protected List<Step> createSteps() {
+        return Arrays.asList(
+            newSimpleEndpointStep(
+                "direct",
+                builder -> builder.putConfiguredProperty("name", "start")),
+            newSqlEndpointStep(
+                "sql-connector",
+                builder -> builder.putConfiguredProperty("query", "SELECT * FROM ADDRESS")
+                    .putConfiguredProperty("resultStreaming", resultStreaming)
+                    .putConfiguredProperty("fetchSize", "2")),
+            new Step.Builder()
+                .stepKind(StepKind.split)
+                .putConfiguredProperty("splitMode", splitMode)
+                .build(),
+            newSimpleEndpointStep(
+                "mock",
+                builder -> builder.putConfiguredProperty("name", "result")));
+    }
+
+    @Test
+    public void shouldStreamRows() throws Exception {
+        final MockEndpoint mock = context().getEndpoint("mock:result", MockEndpoint.class);
+        mock.expectedMessageCount(3);
+
+        template().sendBody("direct:start", null);
+
+        mock.assertIsSatisfied();
+
+        final List<Properties> rows = mock.getReceivedExchanges().stream()
+            .map(exchange -> exchange.getIn().getBody(String.class))
+            .map(JSONBeanUtil::parsePropertiesFromJSONBean)
+            .collect(Collectors.toList());
+
+        validateProperty(rows, "NUMBER", "100", "75", "14");
+        validateProperty(rows, "STREET", "East Davie Street", "Am Treptower Park", "Werner-von-Siemens-Ring");
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.connector.sql.common;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BatchDataSourceTest {
+
+    private final Connection connection = mock(Connection.class);
+
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+
+    private final List<BatchChunk> chunks = new ArrayList<>();
+
+    private DataSource dataSource;
+
+    @BeforeEach
+    public void setupMocks() throws SQLException {
+        final DataSource target = mock(DataSource.class);
+        when(target.getConnection()).thenReturn(connection);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeBatch()).thenReturn(new int[] {1, 1}, new int[] {1, 1}, new int[] {1});
+
+        dataSource = new BatchDataSource(target, 2, chunks::add);
+    }
+
+    @Test
+    public void shouldExecuteBatchInChunksWithinOneTransaction() throws SQLException {
+        try (Connection con = dataSource.getConnection();
+            PreparedStatement ps = con.prepareStatement("INSERT INTO ADDRESS VALUES (?)")) {
+            for (int i = 0; i < 5; i++) {
+                ps.setInt(1, i);
+                ps.addBatch();
+            }
+
+            assertThat(chunks).hasSize(2);
+            verify(connection, never()).commit();
+
+            assertThat(ps.executeBatch()).containsExactly(1, 1, 1, 1, 1);
+        }
+
+        verify(connection).setAutoCommit(false);
+        verify(statement, times(3)).executeBatch();
+        verify(connection).commit();
+        verify(connection, never()).rollback();
+        verify(connection).setAutoCommit(true);
+        verify(connection).close();
+
+        assertThat(chunks).extracting(BatchChunk::getIndex).containsExactly(1, 2, 3);
+        assertThat(chunks).extracting(BatchChunk::getRows).containsExactly(2, 2, 1);
+        assertThat(chunks).extracting(BatchChunk::getUpdateCount).containsExactly(2, 2, 1);
+    }
+
+    @Test
+    public void shouldRollbackAllChunksOnFailure() throws SQLException {
+        final SQLException failure = new SQLException("duplicate key");
+        when(statement.executeBatch()).thenReturn(new int[] {1, 1}).thenThrow(failure);
+
+        try (Connection con = dataSource.getConnection();
+            PreparedStatement ps = con.prepareStatement("INSERT INTO ADDRESS VALUES (?)")) {
+            for (int i = 0; i < 3; i++) {
+                ps.addBatch();
+            }
+
+            assertThatThrownBy(ps::executeBatch).isSameAs(failure);
+        }
+
+        verify(connection, never()).commit();
+        verify(connection).rollback();
+        verify(connection).setAutoCommit(true);
+        assertThat(chunks).hasSize(1);
+    }
+
+    @Test
+    public void shouldRollbackBatchThatWasNeverExecuted() throws SQLException {
+        try (Connection con = dataSource.getConnection();
+            PreparedStatement ps = con.prepareStatement("INSERT INTO ADDRESS VALUES (?)")) {
+            ps.addBatch();
+        }
+
+        verify(connection, never()).commit();
+        verify(connection).rollback();
+        verify(connection).close();
+    }
+}
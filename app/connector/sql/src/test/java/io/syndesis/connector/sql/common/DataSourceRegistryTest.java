@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.connector.sql.common;
+
+import javax.sql.DataSource;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.commons.dbcp.BasicDataSource;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DataSourceRegistryTest {
+
+    @Test
+    public void shouldShareDataSourcesByUrlAndUser() throws Exception {
+        final CamelContext context = new DefaultCamelContext();
+        context.start();
+
+        try {
+            final DataSourceRegistry registry = DataSourceRegistry.of(context);
+            assertThat(DataSourceRegistry.of(context)).isSameAs(registry);
+
+            final BasicDataSource first = dataSource("jdbc:derby:memory:test", "sa");
+            final DataSource registered = registry.register(first);
+
+            assertThat(registered).isSameAs(first);
+            assertThat(registry.register(dataSource("jdbc:derby:memory:test", "sa"))).isSameAs(first);
+            assertThat(registry.register(dataSource("jdbc:derby:memory:test", "other"))).isNotSameAs(first);
+            assertThat(registry.register(dataSource("jdbc:derby:memory:other", "sa"))).isNotSameAs(first);
+        } finally {
+            context.stop();
+        }
+    }
+
+    @Test
+    public void shouldNotShareDataSourcesWithDifferentPasswords() throws Exception {
+        final CamelContext context = new DefaultCamelContext();
+        context.start();
+
+        try {
+            final DataSourceRegistry registry = DataSourceRegistry.of(context);
+
+            final BasicDataSource first = dataSource("jdbc:derby:memory:test", "sa");
+            first.setPassword("secret");
+            registry.register(first);
+
+            final BasicDataSource same = dataSource("jdbc:derby:memory:test", "sa");
+            same.setPassword("secret");
+            assertThat(registry.register(same)).isSameAs(first);
+
+            final BasicDataSource changed = dataSource("jdbc:derby:memory:test", "sa");
+            changed.setPassword("changed");
+            assertThat(registry.register(changed)).isSameAs(changed);
+        } finally {
+            context.stop();
+        }
+    }
+
+    @Test
+    public void shouldClosePoolsWhenContextIsStopped() throws Exception {
+        final CamelContext context = new DefaultCamelContext();
+        context.start();
+
+        final BasicDataSource dataSource = dataSource("jdbc:derby:memory:test", "sa");
+        DataSourceRegistry.of(context).register(dataSource);
+
+        context.stop();
+
+        assertThat(dataSource.isClosed()).isTrue();
+    }
+
+    @Test
+    public void shouldDetectDifferentPoolSettings() {
+        final BasicDataSource registered = dataSource("jdbc:derby:memory:test", "sa");
+        final BasicDataSource given = dataSource("jdbc:derby:memory:test", "sa");
+
+        assertThat(DataSourceRegistry.differentSettings(registered, given)).isEmpty();
+
+        given.setMaxActive(registered.getMaxActive() + 1);
+        given.setValidationQuery("SELECT 1");
+
+        assertThat(DataSourceRegistry.differentSettings(registered, given)).containsExactly("maxPoolSize", "validationQuery");
+    }
+
+    private static BasicDataSource dataSource(final String url, final String user) {
+        final BasicDataSource dataSource = new BasicDataSource();
+        dataSource.setUrl(url);
+        dataSource.setUsername(user);
+
+        return dataSource;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.connector.sql.common;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class FetchSizeDataSourceTest {
+
+    private final Connection connection = mock(Connection.class);
+
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+
+    private DataSource dataSource;
+
+    @BeforeEach
+    public void setupMocks() throws SQLException {
+        final DataSource target = mock(DataSource.class);
+        when(target.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+
+        dataSource = new FetchSizeDataSource(target, 50);
+    }
+
+    @Test
+    public void shouldFetchInChunksOutsideOfAutoCommit() throws SQLException {
+        when(connection.getAutoCommit()).thenReturn(true);
+
+        try (Connection con = dataSource.getConnection();
+            PreparedStatement ps = con.prepareStatement("SELECT * FROM ADDRESS")) {
+            ps.executeQuery();
+        }
+
+        final InOrder order = inOrder(connection, statement);
+        order.verify(connection).setAutoCommit(false);
+        order.verify(statement).setFetchSize(50);
+        order.verify(statement).executeQuery();
+        order.verify(connection).commit();
+        order.verify(connection).setAutoCommit(true);
+        order.verify(connection).close();
+    }
+
+    @Test
+    public void shouldNotManageTransactionOfOthers() throws SQLException {
+        when(connection.getAutoCommit()).thenReturn(false);
+
+        try (Connection con = dataSource.getConnection();
+            PreparedStatement ps = con.prepareStatement("SELECT * FROM ADDRESS")) {
+            ps.executeQuery();
+        }
+
+        verify(statement).setFetchSize(50);
+        verify(connection, never()).setAutoCommit(anyBoolean());
+        verify(connection, never()).commit();
+        verify(connection).close();
+    }
+}
@@ -15,14 +15,23 @@
  */
 package io.syndesis.connector.sql.common;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.sql.Types;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Assertions;
+import org.apache.camel.util.IOHelper;
 import org.junit.jupiter.api.Test;
 import org.springframework.jdbc.core.SqlParameterValue;
 
@@ -126,4 +135,71 @@ public class JSONBeanUtilTest {
             throw new AssertionError("Should not throw exception when json parameter is empty", ex);
         }
     }
+
+    @Test
+    public void parseSqlParametersFromJSONBeansTest() {
+        final Map<String, Integer> jdbcTypeMap = Collections.singletonMap("number", Types.INTEGER);
+
+        final Iterator<Map<String, SqlParameterValue>> parameters = JSONBeanUtil.parseSqlParametersFromJSONBeans(
+            "[{\"street\":\"Am Treptower Park\",\"number\":75},{\"street\":null,\"number\":\"14\"}]", jdbcTypeMap);
+
+        assertThat(parameters.hasNext()).isTrue();
+        final Map<String, SqlParameterValue> first = parameters.next();
+        assertThat(first.get("street").getSqlType()).isEqualTo(Types.VARCHAR);
+        assertThat(first.get("street").getValue()).isEqualTo("Am Treptower Park");
+        assertThat(first.get("number").getSqlType()).isEqualTo(Types.INTEGER);
+        assertThat(first.get("number").getValue()).isEqualTo("75");
+
+        assertThat(parameters.hasNext()).isTrue();
+        final Map<String, SqlParameterValue> second = parameters.next();
+        assertThat(second.get("street").getValue()).isNull();
+        assertThat(second.get("number").getValue()).isEqualTo("14");
+
+        assertThat(parameters.hasNext()).isFalse();
+        assertThat(JSONBeanUtil.parseSqlParametersFromJSONBeans("[]", jdbcTypeMap).hasNext()).isFalse();
+    }
+
+    @Test
+    public void streamedRowsToJsonBeansTest() {
+        final Iterator<String> jsonBeans = JSONBeanUtil.toJSONBeans(rows().iterator());
+
+        assertThat(jsonBeans).toIterable().containsExactly(
+            "{\"ID\":1,\"NAME\":\"Joe\"}",
+            "{\"ID\":2,\"NAME\":null}");
+    }
+
+    @Test
+    public void streamedRowsToJsonArrayTest() throws IOException {
+        try (InputStream jsonArray = JSONBeanUtil.toJSONArray(rows().iterator())) {
+            assertThat(IOHelper.loadText(jsonArray).trim()).isEqualTo("[{\"ID\":1,\"NAME\":\"Joe\"},{\"ID\":2,\"NAME\":null}]");
+        }
+
+        try (InputStream jsonArray = JSONBeanUtil.toJSONArray(Collections.emptyIterator())) {
+            final byte[] buffer = new byte[16];
+            final int read = jsonArray.read(buffer);
+            assertThat(new String(buffer, 0, read, StandardCharsets.UTF_8)).isEqualTo("[]");
+            assertThat(jsonArray.read()).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    public void streamedRowsWithEmptyColumnNameToJsonBeansTest() {
+        final Map<String, Object> row = new LinkedHashMap<>();
+        row.put("", 1);
+
+        assertThat(JSONBeanUtil.toJSONBeans(Collections.singletonList(row).iterator())).toIterable().containsExactly("{\"\":1}");
+    }
+
+    private static List<Map<String, Object>> rows() {
+        final Map<String, Object> first = new LinkedHashMap<>();
+        first.put("ID", 1);
+        first.put("NAME", "Joe");
+        first.put("#update-count-1", 0);
+
+        final Map<String, Object> second = new LinkedHashMap<>();
+        second.put("ID", 2);
+        second.put("NAME", null);
+
+        return Arrays.asList(first, second);
+    }
 }
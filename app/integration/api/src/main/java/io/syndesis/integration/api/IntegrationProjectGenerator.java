@@ -17,6 +17,8 @@ package io.syndesis.integration.api;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
 
 import io.syndesis.common.model.integration.Integration;
@@ -33,6 +35,34 @@ public interface IntegrationProjectGenerator {
      */
     InputStream generate(Integration integration, IntegrationErrorHandler errorHandler) throws IOException;
 
+    /**
+     * Computes the digest of the inputs {@link #generate} creates the project
+     * files from: the integration, its dependencies and extensions and the
+     * templates and configuration of the generator. The project files are not
+     * generated for this. The version and the modification timestamps of the
+     * integration are not part of the digest, so republishing an unchanged
+     * integration yields the same digest and can reuse the image built for it.
+     *
+     * @param integration the Integration
+     * @return the digest in {@code algorithm:hex} form
+     * @throws IOException if generating fails
+     */
+    String generateDigest(Integration integration) throws IOException;
+
+    /**
+     * Generate the files the prebuilt integration runtime loads from its
+     * classpath to run the integration without building a project for it:
+     * the integration definition, the application properties, the data
+     * mapper mappings and the extensions.
+     *
+     * @param integration the Integration
+     * @return the files by name, or empty if the integration needs a build
+     * because it depends on generated code or on dependencies the prebuilt
+     * runtime doesn't include
+     * @throws IOException if generating fails
+     */
+    Optional<Map<String, byte[]>> generateRuntimeFiles(Integration integration) throws IOException;
+
     Properties generateApplicationProperties(Integration deployment);
 
     byte[] generatePom(Integration integration) throws IOException;
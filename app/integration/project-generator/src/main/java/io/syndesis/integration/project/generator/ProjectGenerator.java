@@ -25,6 +25,11 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -72,6 +77,7 @@ import io.syndesis.integration.project.generator.mvn.PomContext;
 import org.apache.camel.generator.openapi.RestDslGenerator;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -91,6 +97,7 @@ public class ProjectGenerator implements IntegrationProjectGenerator {
     private final Mustache restRoutesMustache;
     private final Mustache pomMustache;
     private final MavenProperties mavenProperties;
+    private final byte[] generatorDigest;
 
     public ProjectGenerator(ProjectGeneratorConfiguration configuration, IntegrationResourceManager resourceManager, MavenProperties mavenProperties) throws IOException {
         this.configuration = configuration;
@@ -103,6 +110,7 @@ public class ProjectGenerator implements IntegrationProjectGenerator {
         this.applicationPropertiesMustache = compile(mf, configuration, "application.properties.mustache", "application.properties");
         this.restRoutesMustache = compile(mf, configuration, "RestRouteConfiguration.java.mustache", "RestRouteConfiguration.java");
         this.pomMustache = compile(mf, configuration, "pom.xml.mustache", "pom.xml");
+        this.generatorDigest = digestGenerator();
     }
 
     @Override
@@ -118,6 +126,80 @@ public class ProjectGenerator implements IntegrationProjectGenerator {
         return is;
     }
 
+    @Override
+    public String generateDigest(final Integration integrationDefinition) throws IOException {
+        final Integration integration = resourceManager.sanitize(integrationDefinition).builder()
+            .version(0)
+            .createdAt(0)
+            .updatedAt(0)
+            .build();
+
+        // the project files are rendered from the integration, its
+        // dependencies and extensions and from the templates and
+        // configuration of this generator, digesting those inputs avoids
+        // rendering the project a second time on every publish
+        final MessageDigest digest = sha256();
+        digest.update(generatorDigest);
+        digest.update(JsonUtils.writer().writeValueAsBytes(integration));
+
+        for (Dependency dependency : resourceManager.collectDependencies(integration)) {
+            update(digest, dependency.getType() + ":" + dependency.getId());
+        }
+
+        for (String extensionId : extensionIds(integration)) {
+            update(digest, extensionId);
+
+            try (InputStream blob = new DigestInputStream(resourceManager.loadExtensionBLOB(extensionId).orElseThrow(
+                () -> new IllegalStateException("No extension blob for extension with id:" + extensionId)), digest)) {
+                IOUtils.copy(blob, NullOutputStream.NULL_OUTPUT_STREAM);
+            }
+        }
+
+        final StringBuilder hex = new StringBuilder("sha256:");
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return hex.toString();
+    }
+
+    @Override
+    public Optional<Map<String, byte[]>> generateRuntimeFiles(final Integration integrationDefinition) throws IOException {
+        final Integration integration = resourceManager.sanitize(integrationDefinition);
+
+        // REST routes of API provider integrations are generated code
+        if (integration.getResources().stream().anyMatch(Kind.OpenApi::sameAs)) {
+            return Optional.empty();
+        }
+
+        final boolean includedInRuntime = resourceManager.collectDependencies(integration).stream()
+            .filter(Dependency::isMaven)
+            .map(Dependency::getId)
+            .map(MavenGav::new)
+            .filter(ProjectGeneratorHelper::filterDefaultDependencies)
+            .allMatch(gav -> configuration.getRuntimeGroupIds().contains(gav.getGroupId()));
+        if (!includedInRuntime) {
+            return Optional.empty();
+        }
+
+        final Map<String, byte[]> files = new LinkedHashMap<>();
+
+        final ObjectWriter writer = JsonUtils.writer();
+        files.put("integration.json", writer.with(writer.getConfig().getDefaultPrettyPrinter()).writeValueAsBytes(integration));
+
+        final String applicationProperties = new String(ProjectGeneratorHelper.generate(new Scope(configuration, integration), applicationPropertiesMustache), StandardCharsets.UTF_8)
+            + "\nsyndesis.integration.runtime.configuration-location = classpath:integration.json\n";
+        files.put("application.properties", applicationProperties.getBytes(StandardCharsets.UTF_8));
+
+        files.putAll(mappingRules(integration));
+
+        for (String extensionId : extensionIds(integration)) {
+            files.put(Names.sanitize(extensionId) + ".jar", loadExtension(extensionId));
+        }
+
+        return Optional.of(files);
+    }
+
     @Override
     public Properties generateApplicationProperties(final Integration integrationDefinition) {
         final Integration integration = resourceManager.sanitize(integrationDefinition);
@@ -130,6 +212,51 @@ public class ProjectGenerator implements IntegrationProjectGenerator {
         return properties;
     }
 
+    /**
+     * Digests the templates and resources the project files are generated
+     * from along with the configuration that is rendered into them. The pom
+     * template has the Syndesis, Camel and Spring Boot versions filtered in
+     * so upgrading the server changes this digest too.
+     */
+    private byte[] digestGenerator() throws IOException {
+        final MessageDigest digest = sha256();
+
+        for (String template : Arrays.asList("Application.java.mustache", "application.properties.mustache", "RestRouteConfiguration.java.mustache", "pom.xml.mustache")) {
+            digest.update(IOUtils.toByteArray(ProjectGeneratorHelper.findTemplate(configuration, template)));
+        }
+
+        for (String resource : Arrays.asList("s2i/assemble", "templates/prometheus-config.yml", "templates/settings.xml")) {
+            digest.update(IOUtils.toByteArray(ProjectGeneratorHelper.class.getResource(resource)));
+        }
+
+        for (ProjectGeneratorConfiguration.Templates.Resource additionalResource : configuration.getTemplates().getAdditionalResources()) {
+            update(digest, additionalResource.getDestination());
+            digest.update(IOUtils.toByteArray(findAdditionalResource(additionalResource)));
+        }
+
+        update(digest, String.valueOf(configuration.isActivityTracing()));
+        update(digest, String.valueOf(configuration.isSecretMaskingEnabled()));
+        update(digest, configuration.getSyndesisExtensionPath());
+        update(digest, configuration.getRuntimeGroupIds().toString());
+        update(digest, mavenProperties.getRepositories().toString());
+
+        return digest.digest();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by the JVM", e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        // separates consecutive values so that they can't run into each other
+        digest.update((byte) 0);
+    }
+
     private static void addPropertiesFrom(final Properties properties, final Integration integration, final IntegrationResourceManager resourceManager) {
         final List<Flow> flows = integration.getFlows();
         for (int flowIndex = 0; flowIndex < flows.size(); flowIndex++) {
@@ -236,23 +363,7 @@ public class ProjectGenerator implements IntegrationProjectGenerator {
 
     private void addAdditionalResources(TarArchiveOutputStream tos) throws IOException {
         for (ProjectGeneratorConfiguration.Templates.Resource additionalResource : configuration.getTemplates().getAdditionalResources()) {
-            String overridePath = configuration.getTemplates().getOverridePath();
-            URL resource = null;
-
-            if (!StringUtils.isEmpty(overridePath)) {
-                resource = getClass().getResource("templates/" + overridePath + "/" + additionalResource.getSource());
-            }
-            if (resource == null) {
-                resource = getClass().getResource("templates/" + additionalResource.getSource());
-            }
-            if (resource == null) {
-                throw new IllegalArgumentException(
-                    String.format("Unable to find the required additional resource (overridePath=%s, source=%s)"
-                        , overridePath
-                        , additionalResource.getSource()
-                    )
-                );
-            }
+            URL resource = findAdditionalResource(additionalResource);
 
             try {
                 addTarEntry(tos, additionalResource.getDestination(), Files.readAllBytes(Paths.get(resource.toURI())));
@@ -262,6 +373,28 @@ public class ProjectGenerator implements IntegrationProjectGenerator {
         }
     }
 
+    private URL findAdditionalResource(ProjectGeneratorConfiguration.Templates.Resource additionalResource) {
+        String overridePath = configuration.getTemplates().getOverridePath();
+        URL resource = null;
+
+        if (!StringUtils.isEmpty(overridePath)) {
+            resource = getClass().getResource("templates/" + overridePath + "/" + additionalResource.getSource());
+        }
+        if (resource == null) {
+            resource = getClass().getResource("templates/" + additionalResource.getSource());
+        }
+        if (resource == null) {
+            throw new IllegalArgumentException(
+                String.format("Unable to find the required additional resource (overridePath=%s, source=%s)"
+                    , overridePath
+                    , additionalResource.getSource()
+                )
+            );
+        }
+
+        return resource;
+    }
+
     public static class Scope {
         public ProjectGeneratorConfiguration configuration;
         public Integration integration;
@@ -282,27 +415,8 @@ public class ProjectGenerator implements IntegrationProjectGenerator {
 
     private Runnable generateAddProjectTarEntries(Integration integration, OutputStream os, IntegrationErrorHandler errorHandler) {
         return () -> {
-            try (
-                TarArchiveOutputStream tos = new TarArchiveOutputStream(os)) {
-                tos.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
-
-                ObjectWriter writer = JsonUtils.writer();
-
-                addTarEntry(tos, "src/main/java/io/syndesis/example/Application.java", ProjectGeneratorHelper.generate(integration, applicationJavaMustache));
-                Scope scope = new Scope(configuration, integration);
-                addTarEntry(tos, "src/main/resources/application.properties", ProjectGeneratorHelper.generate(scope, applicationPropertiesMustache));
-                addTarEntry(tos, "src/main/resources/syndesis/integration/integration.json", writer.with(writer.getConfig().getDefaultPrettyPrinter()).writeValueAsBytes(integration));
-                addTarEntry(tos, "pom.xml", generatePom(integration));
-
-                addExtensions(tos, integration);
-                addMappingRules(tos, integration);
-                addRestDefinition(tos, integration);
-
-                addResource(tos, ".s2i/bin/assemble", "s2i/assemble");
-                addResource(tos, "prometheus-config.yml", "templates/prometheus-config.yml");
-                addResource(tos, "configuration/settings.xml", "templates/settings.xml");
-
-                addAdditionalResources(tos);
+            try {
+                addProjectTarEntries(integration, os);
 
                 LOGGER.info("Integration [{}]: Project files written to output stream", Names.sanitize(integration.getName()));
             } catch (Exception e) {
@@ -314,30 +428,66 @@ public class ProjectGenerator implements IntegrationProjectGenerator {
         };
     }
 
+    private void addProjectTarEntries(Integration integration, OutputStream os) throws IOException {
+        try (TarArchiveOutputStream tos = new TarArchiveOutputStream(os)) {
+            tos.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+
+            ObjectWriter writer = JsonUtils.writer();
+
+            addTarEntry(tos, "src/main/java/io/syndesis/example/Application.java", ProjectGeneratorHelper.generate(integration, applicationJavaMustache));
+            Scope scope = new Scope(configuration, integration);
+            addTarEntry(tos, "src/main/resources/application.properties", ProjectGeneratorHelper.generate(scope, applicationPropertiesMustache));
+            addTarEntry(tos, "src/main/resources/syndesis/integration/integration.json", writer.with(writer.getConfig().getDefaultPrettyPrinter()).writeValueAsBytes(integration));
+            addTarEntry(tos, "pom.xml", generatePom(integration));
+
+            addExtensions(tos, integration);
+            addMappingRules(tos, integration);
+            addRestDefinition(tos, integration);
+
+            addResource(tos, ".s2i/bin/assemble", "s2i/assemble");
+            addResource(tos, "prometheus-config.yml", "templates/prometheus-config.yml");
+            addResource(tos, "configuration/settings.xml", "templates/settings.xml");
+
+            addAdditionalResources(tos);
+        }
+    }
+
     private void addExtensions(TarArchiveOutputStream tos, Integration integration) throws IOException {
-        final Set<String> extensions = resourceManager.collectDependencies(integration).stream()
-            .filter(d-> d.isExtension() || d.isExtensionTag())
-            .map(Dependency::getId)
-            .collect(Collectors.toCollection(TreeSet::new));
+        final Set<String> extensions = extensionIds(integration);
 
         if (!extensions.isEmpty()) {
             addTarEntry(tos, "src/main/resources/loader.properties", generateExtensionLoader(extensions));
 
             for (String extensionId : extensions) {
-                addTarEntry(
-                    tos,
-                    "extensions/" + Names.sanitize(extensionId) + ".jar",
-                    IOUtils.toByteArray(
-                        resourceManager.loadExtensionBLOB(extensionId).orElseThrow(
-                            () -> new IllegalStateException("No extension blob for extension with id:" + extensionId)
-                        )
-                    )
-                );
+                addTarEntry(tos, "extensions/" + Names.sanitize(extensionId) + ".jar", loadExtension(extensionId));
             }
         }
     }
 
+    private Set<String> extensionIds(Integration integration) {
+        return resourceManager.collectDependencies(integration).stream()
+            .filter(d-> d.isExtension() || d.isExtensionTag())
+            .map(Dependency::getId)
+            .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private byte[] loadExtension(String extensionId) throws IOException {
+        return IOUtils.toByteArray(
+            resourceManager.loadExtensionBLOB(extensionId).orElseThrow(
+                () -> new IllegalStateException("No extension blob for extension with id:" + extensionId)
+            )
+        );
+    }
+
     private static void addMappingRules(TarArchiveOutputStream tos, Integration integration) throws IOException {
+        for (Map.Entry<String, byte[]> mapping : mappingRules(integration).entrySet()) {
+            addTarEntry(tos, "src/main/resources/" + mapping.getKey(), mapping.getValue());
+        }
+    }
+
+    private static Map<String, byte[]> mappingRules(Integration integration) {
+        final Map<String, byte[]> mappings = new LinkedHashMap<>();
+
         final List<Flow> flows = integration.getFlows();
         for (int f = 0; f < flows.size(); f++) {
             final Flow flow = flows.get(f);
@@ -352,13 +502,15 @@ public class ProjectGenerator implements IntegrationProjectGenerator {
 
                     if (mapping != null) {
                         final String resource = "mapping-flow-" + f + "-step-"  + s + ".json";
-                        addTarEntry(tos, "src/main/resources/" + resource, mapping.getBytes(StandardCharsets.UTF_8));
+                        mappings.put(resource, mapping.getBytes(StandardCharsets.UTF_8));
                     } else {
                         throw new IllegalStateException("Missing configured property for data mapper mapping definition");
                     }
                 }
             }
         }
+
+        return mappings;
     }
 
     private void addRestDefinition(TarArchiveOutputStream tos, Integration integration) throws IOException {
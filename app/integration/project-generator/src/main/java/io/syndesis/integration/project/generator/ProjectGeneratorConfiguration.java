@@ -18,6 +18,7 @@ package io.syndesis.integration.project.generator;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 @ConfigurationProperties("generator")
@@ -31,6 +32,12 @@ public class ProjectGeneratorConfiguration {
     private Boolean secretMaskingEnabled = false;
     private String syndesisExtensionPath = "extensions";
 
+    /**
+     * Group ids of the Maven dependencies included in the prebuilt
+     * integration runtime.
+     */
+    private final List<String> runtimeGroupIds = new ArrayList<>(Arrays.asList("io.syndesis.connector", "io.syndesis.integration"));
+
     /**
      * Templates configuration.
      */
@@ -66,6 +73,10 @@ public class ProjectGeneratorConfiguration {
         this.syndesisExtensionPath = syndesisExtensionPath;
     }
 
+    public List<String> getRuntimeGroupIds() {
+        return runtimeGroupIds;
+    }
+
     public Templates getTemplates() {
         return templates;
     }
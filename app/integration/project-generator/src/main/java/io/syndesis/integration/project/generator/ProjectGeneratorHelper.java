@@ -37,6 +37,10 @@ import org.slf4j.LoggerFactory;
 public final class ProjectGeneratorHelper {
     private static final Logger LOGGER = LoggerFactory.getLogger(ProjectGeneratorHelper.class);
 
+    // fixed modification time, 1980-01-01T00:00:00Z, the earliest one that
+    // fits in jar/zip entries built from the extracted project
+    static final long ENTRY_MODIFICATION_TIME = 315_532_800_000L;
+
     private ProjectGeneratorHelper() {
     }
 
@@ -49,6 +53,12 @@ public final class ProjectGeneratorHelper {
 
     public static void addTarEntry(TarArchiveOutputStream tos, String path, byte[] content) throws IOException {
         TarArchiveEntry entry = new TarArchiveEntry(path);
+        // entries don't depend on the time or on the user generating them so
+        // the same project always yields the same archive
+        entry.setModTime(ENTRY_MODIFICATION_TIME);
+        entry.setUserName("");
+        entry.setGroupName("");
+        entry.setIds(0, 0);
         entry.setSize(content.length);
         tos.putArchiveEntry(entry);
         tos.write(content);
@@ -96,6 +106,14 @@ public final class ProjectGeneratorHelper {
     }
 
     public static Mustache compile(MustacheFactory mustacheFactory, ProjectGeneratorConfiguration generatorProperties, String template, String name) throws IOException {
+        URL resource = findTemplate(generatorProperties, template);
+
+        try (InputStream stream = resource.openStream()) {
+            return mustacheFactory.compile(new InputStreamReader(stream, StandardCharsets.UTF_8), name);
+        }
+    }
+
+    public static URL findTemplate(ProjectGeneratorConfiguration generatorProperties, String template) {
         String overridePath = generatorProperties.getTemplates().getOverridePath();
         URL resource = null;
 
@@ -114,9 +132,7 @@ public final class ProjectGeneratorHelper {
             );
         }
 
-        try (InputStream stream = resource.openStream()) {
-            return mustacheFactory.compile(new InputStreamReader(stream, StandardCharsets.UTF_8), name);
-        }
+        return resource;
     }
 
     public static String mandatoryDecrypt(IntegrationResourceManager manager, String propertyKey, String propertyVal) {
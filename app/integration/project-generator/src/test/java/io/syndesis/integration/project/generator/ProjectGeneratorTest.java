@@ -16,6 +16,7 @@
 package io.syndesis.integration.project.generator;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -32,6 +33,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
@@ -320,6 +322,83 @@ public class ProjectGeneratorTest {
         );
     }
 
+    @Test
+    public void testGenerateDigest() throws Exception {
+        final Step mapper = new Step.Builder()
+            .stepKind(StepKind.mapper)
+            .putConfiguredProperty("atlasmapping", "{}")
+            .build();
+
+        final TestResourceManager resourceManager = new TestResourceManager();
+        final IntegrationProjectGenerator generator = new ProjectGenerator(new ProjectGeneratorConfiguration(), resourceManager, TestConstants.MAVEN_PROPERTIES);
+        final Integration integration = resourceManager.newIntegration(mapper);
+
+        // the archive doesn't depend on the time or on the user it was
+        // generated by
+        final byte[] first = generateArchive(generator, integration);
+        assertThat(generateArchive(generator, integration)).isEqualTo(first);
+
+        final List<String> names = new ArrayList<>();
+        try (TarArchiveInputStream tis = new TarArchiveInputStream(new ByteArrayInputStream(first))) {
+            for (TarArchiveEntry entry = tis.getNextTarEntry(); entry != null; entry = tis.getNextTarEntry()) {
+                names.add(entry.getName());
+                assertThat(entry.getModTime().getTime()).as(entry.getName()).isEqualTo(ProjectGeneratorHelper.ENTRY_MODIFICATION_TIME);
+                assertThat(entry.getUserName()).as(entry.getName()).isEmpty();
+                assertThat(entry.getGroupName()).as(entry.getName()).isEmpty();
+                assertThat(entry.getLongUserId()).as(entry.getName()).isZero();
+                assertThat(entry.getLongGroupId()).as(entry.getName()).isZero();
+            }
+        }
+        assertThat(names).contains("pom.xml");
+
+        final String digest = generator.generateDigest(integration);
+        assertThat(digest).matches("sha256:[0-9a-f]{64}");
+
+        final Integration republished = integration.builder()
+            .version(integration.getVersion() + 1)
+            .updatedAt(System.currentTimeMillis())
+            .build();
+        assertThat(generator.generateDigest(republished)).isEqualTo(digest);
+
+        final Integration changed = resourceManager.newIntegration(new Step.Builder()
+            .createFrom(mapper)
+            .putConfiguredProperty("atlasmapping", "{\"AtlasMapping\":{}}")
+            .build());
+        assertThat(generator.generateDigest(changed)).isNotEqualTo(digest);
+
+        final ProjectGeneratorConfiguration tracing = new ProjectGeneratorConfiguration();
+        tracing.setActivityTracing(true);
+        final IntegrationProjectGenerator tracingGenerator = new ProjectGenerator(tracing, resourceManager, TestConstants.MAVEN_PROPERTIES);
+        assertThat(tracingGenerator.generateDigest(integration)).isNotEqualTo(digest);
+    }
+
+    @Test
+    public void testGenerateRuntimeFiles() throws Exception {
+        final Step mapper = new Step.Builder()
+            .stepKind(StepKind.mapper)
+            .putConfiguredProperty("atlasmapping", "{}")
+            .addDependency(Dependency.maven("io.syndesis.connector:connector-log:1.0.0"))
+            .build();
+
+        final TestResourceManager resourceManager = new TestResourceManager();
+        final IntegrationProjectGenerator generator = new ProjectGenerator(new ProjectGeneratorConfiguration(), resourceManager, TestConstants.MAVEN_PROPERTIES);
+
+        final Map<String, byte[]> files = generator.generateRuntimeFiles(resourceManager.newIntegration(mapper))
+            .orElseThrow(() -> new AssertionError("Integration should run on the prebuilt runtime"));
+
+        assertThat(files).containsOnlyKeys("integration.json", "application.properties", "mapping-flow-0-step-0.json");
+        assertThat(new String(files.get("mapping-flow-0-step-0.json"), StandardCharsets.UTF_8)).isEqualTo("{}");
+        assertThat(new String(files.get("application.properties"), StandardCharsets.UTF_8))
+            .contains("camel.springboot.name = Test Integration")
+            .contains("syndesis.integration.runtime.configuration-location = classpath:integration.json");
+
+        final Step withOtherDependency = new Step.Builder()
+            .createFrom(mapper)
+            .addDependency(Dependency.maven("org.example:other:1.0.0"))
+            .build();
+        assertThat(generator.generateRuntimeFiles(resourceManager.newIntegration(withOtherDependency))).isEmpty();
+    }
+
     @Test
     public void testGenerateApplicationPropertiesOldStyle() throws IOException {
 
@@ -738,6 +817,15 @@ public class ProjectGeneratorTest {
         JSONAssert.assertEquals(expected, actual, JSONCompareMode.STRICT);
     }
 
+    private static byte[] generateArchive(IntegrationProjectGenerator generator, Integration integration) throws IOException {
+        final List<Throwable> errors = new ArrayList<>();
+        try (InputStream is = generator.generate(integration, errors::add)) {
+            final byte[] archive = IOUtils.toByteArray(is);
+            assertThat(errors).isEmpty();
+            return archive;
+        }
+    }
+
     private static Path generate(Integration integration, ProjectGeneratorConfiguration generatorConfiguration, TestResourceManager resourceManager, List<Throwable> errors, Path testFolder) throws IOException {
         Path destination = testFolder.resolve("integration-project");
 
@@ -74,7 +74,7 @@ public class OutMessageCaptureProcessorTest extends IntegrationTestSupport {
         final CamelContext context = new SpringCamelContext(applicationContext);
 
         try {
-            final RouteBuilder routes = newIntegrationRouteBuilder(
+            final RouteBuilder routes = newIntegrationRouteBuilder(withDataMapperSources(newIntegration(
                 new Step.Builder()
                     .id("s1")
                     .stepKind(StepKind.endpoint)
@@ -115,7 +115,7 @@ public class OutMessageCaptureProcessorTest extends IntegrationTestSupport {
                             .build())
                         .build())
                     .build()
-            );
+            ), "s1", "s2", "s3", "s4"));
 
             // Set up the camel context
             context.addRoutes(routes);
@@ -148,7 +148,7 @@ public class OutMessageCaptureProcessorTest extends IntegrationTestSupport {
         final CamelContext context = new SpringCamelContext(applicationContext);
 
         try {
-            final RouteBuilder routes = newIntegrationRouteBuilder(
+            final RouteBuilder routes = newIntegrationRouteBuilder(withDataMapperSources(newIntegration(
                 new Step.Builder()
                     .id("s1")
                     .stepKind(StepKind.endpoint)
@@ -197,7 +197,7 @@ public class OutMessageCaptureProcessorTest extends IntegrationTestSupport {
                     .id("s-aggregate")
                     .stepKind(StepKind.aggregate)
                     .build()
-            );
+            ), "s1", "s-split", "s2", "s3", "s4", "s-aggregate"));
 
             // Set up the camel context
             context.addRoutes(routes);
@@ -284,7 +284,7 @@ public class OutMessageCaptureProcessorTest extends IntegrationTestSupport {
                 .flows(singleton(flowWithScheduler))
                 .build();
 
-            IntegrationRouteBuilder routes = newIntegrationRouteBuilder(integration);
+            IntegrationRouteBuilder routes = newIntegrationRouteBuilder(withDataMapperSources(integration, "s-split", "s2"));
             routes.from("direct:getdata").bean(new Bean3());
 
             // Set up the camel context
@@ -313,6 +313,99 @@ public class OutMessageCaptureProcessorTest extends IntegrationTestSupport {
         }
     }
 
+    @Test
+    public void testCaptureDataMapperSourcesOnly() throws Exception {
+        final CamelContext context = new SpringCamelContext(applicationContext);
+
+        try {
+            final RouteBuilder routes = newIntegrationRouteBuilder(withDataMapperSources(newIntegration(
+                new Step.Builder()
+                    .id("s1")
+                    .stepKind(StepKind.endpoint)
+                    .action(new ConnectorAction.Builder()
+                        .descriptor(new ConnectorDescriptor.Builder()
+                            .componentScheme("direct")
+                            .putConfiguredProperty("name", "expression")
+                            .build())
+                        .build())
+                    .build(),
+                new Step.Builder()
+                    .id("s2")
+                    .stepKind(StepKind.extension)
+                    .action(new StepAction.Builder()
+                        .descriptor(new StepDescriptor.Builder()
+                            .kind(StepAction.Kind.BEAN)
+                            .entrypoint(Bean1.class.getName())
+                            .build())
+                        .build())
+                    .build(),
+                new Step.Builder()
+                    .id("s3")
+                    .stepKind(StepKind.endpoint)
+                    .action(new ConnectorAction.Builder()
+                        .descriptor(new ConnectorDescriptor.Builder()
+                            .componentScheme("mock")
+                            .putConfiguredProperty("name", "expression")
+                            .build())
+                        .build())
+                    .build()
+            ), "s2"));
+
+            // Set up the camel context
+            context.addRoutes(routes);
+            context.start();
+
+            // Dump routes as XML for troubleshooting
+            dumpRoutes(context);
+
+            final ProducerTemplate template = context.createProducerTemplate();
+            final MockEndpoint result = context.getEndpoint("mock:expression", MockEndpoint.class);
+
+            result.expectedBodiesReceived("Hello World");
+            template.sendBody("direct:expression", "World");
+            result.assertIsSatisfied();
+
+            Exchange exchange1 = result.getExchanges().get(0);
+            Map<String, Message> messages = OutMessageCaptureProcessor.getCapturedMessageMap(exchange1);
+            assertThat(messages).containsOnlyKeys("s2");
+            assertThat(messages.get("s2").getBody()).isEqualTo("Hello World");
+            assertThat(exchange1.getProperty(OutMessageCaptureProcessor.CAPTURED_OUT_MESSAGES_SIZE)).isEqualTo(11L);
+        } finally {
+            context.stop();
+        }
+    }
+
+    /**
+     * Adds a flow with a data mapper step that uses the given steps as source
+     * documents, the flow itself is never triggered.
+     */
+    private static Integration withDataMapperSources(Integration integration, String... sourceIds) {
+        final StringBuilder dataSources = new StringBuilder();
+        for (String sourceId : sourceIds) {
+            dataSources.append("{\"id\":\"").append(sourceId).append("\",\"uri\":\"atlas:java\",\"dataSourceType\":\"SOURCE\"},");
+        }
+        dataSources.append("{\"id\":\"target\",\"uri\":\"atlas:java\",\"dataSourceType\":\"TARGET\"}");
+
+        return new Integration.Builder()
+            .createFrom(integration)
+            .addFlow(new Flow.Builder()
+                .addStep(new Step.Builder()
+                    .stepKind(StepKind.endpoint)
+                    .action(new ConnectorAction.Builder()
+                        .descriptor(new ConnectorDescriptor.Builder()
+                            .componentScheme("direct")
+                            .putConfiguredProperty("name", "mapper")
+                            .build())
+                        .build())
+                    .build())
+                .addStep(new Step.Builder()
+                    .stepKind(StepKind.mapper)
+                    .putConfiguredProperty("atlasmapping", "{\"AtlasMapping\":{\"dataSource\":[" + dataSources + "],\"mappings\":{}}}")
+                    .build())
+                .build())
+            .build();
+    }
+
     public static class Bean1 {
         @Handler
         public String apply(@Body String body) {
@@ -51,7 +51,10 @@ public class CamelContextMetadataMBeanTest {
 
     private static final String[] ATTRIBUTES = {
         "StartTimestamp",
-        "LastExchangeCompletedTimestamp"
+        "LastExchangeCompletedTimestamp",
+        "CapturedMessages",
+        "CapturedBytes",
+        "MaxCapturedBytesPerExchange"
     };
 
     @Test
@@ -44,6 +44,7 @@ import io.syndesis.common.util.KeyGenerator;
 import io.syndesis.common.util.Resources;
 import io.syndesis.common.util.json.JsonUtils;
 import io.syndesis.integration.runtime.capture.OutMessageCaptureProcessor;
+import io.syndesis.integration.runtime.handlers.DataMapperStepHandler;
 import io.syndesis.integration.runtime.logging.IntegrationLoggingConstants;
 import org.apache.camel.CamelContext;
 import org.apache.camel.Processor;
@@ -76,7 +77,7 @@ public class IntegrationRouteBuilder extends RouteBuilder {
     private final List<IntegrationStepHandler> stepHandlerList;
     private final Set<String> resources;
     private final List<ActivityTrackingPolicyFactory> activityTrackingPolicyFactories;
-
+    private Processor outMessageCaptureProcessor = OutMessageCaptureProcessor.INSTANCE;
 
     public IntegrationRouteBuilder(String configurationUri) {
         this(configurationUri, Resources.loadServices(IntegrationStepHandler.class));
@@ -139,6 +140,8 @@ public class IntegrationRouteBuilder extends RouteBuilder {
         final Integration integration = loadIntegration();
         final List<Flow> flows = integration.getFlows();
 
+        outMessageCaptureProcessor = createOutMessageCaptureProcessor(flows);
+
         for (int f = 0; f < flows.size(); f++) {
             configureFlow(flows.get(f), String.valueOf(f));
         }
@@ -260,6 +263,35 @@ public class IntegrationRouteBuilder extends RouteBuilder {
         return definition;
     }
 
+    /**
+     * Creates the out message capture processor that captures only the out
+     * messages of the steps that data mapper steps use as source documents.
+     * If the source documents of any data mapper step can not be determined
+     * the out messages of all steps are captured.
+     * @param flows
+     * @return
+     */
+    private static Processor createOutMessageCaptureProcessor(List<Flow> flows) {
+        final Set<String> sourceStepIds = new HashSet<>();
+        for (Flow flow : flows) {
+            for (Step step : flow.getSteps()) {
+                if (StepKind.mapper != step.getStepKind()) {
+                    continue;
+                }
+
+                final Optional<Set<String>> sourceDocumentIds = DataMapperStepHandler.getSourceDocumentIds(step);
+                if (!sourceDocumentIds.isPresent()) {
+                    return OutMessageCaptureProcessor.INSTANCE;
+                }
+
+                sourceStepIds.addAll(sourceDocumentIds.get());
+            }
+        }
+
+        LOGGER.debug("Capturing out messages of steps: {}", sourceStepIds);
+        return new OutMessageCaptureProcessor(Collections.unmodifiableSet(sourceStepIds));
+    }
+
     /**
      * Adds out message capture message processor to save current message to memory for later usage.
      * @param parent
@@ -280,7 +312,7 @@ public class IntegrationRouteBuilder extends RouteBuilder {
             definition = parent.setHeader(IntegrationLoggingConstants.STEP_ID, constant(stepId));
         }
 
-        definition = parent.process(OutMessageCaptureProcessor.INSTANCE)
+        definition = parent.process(outMessageCaptureProcessor)
                         .id(String.format("capture-out:%s", stepId));
         return definition;
     }
@@ -15,8 +15,13 @@
  */
 package io.syndesis.integration.runtime.capture;
 
+import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 import io.syndesis.integration.runtime.logging.IntegrationLoggingConstants;
 import org.apache.camel.Exchange;
@@ -27,27 +32,71 @@ import org.apache.camel.impl.MessageSupport;
 /**
  * Used to capture the out messages of processors with configured ids.  The messages are placed into
  * a map stored in the camel exchange property using the processor id as the map key.
+ * <p>
+ * Captured messages are snapshots taken with {@link Message#copy()}, they
+ * share the body with the original message and only copy the headers. When
+ * created with a set of step ids only the messages of those steps are
+ * captured, the outputs of all steps are captured otherwise.
  */
 public class OutMessageCaptureProcessor implements Processor {
     public static final Processor INSTANCE = new OutMessageCaptureProcessor();
     public static final String CAPTURED_OUT_MESSAGES_MAP = "Syndesis.CAPTURED_OUT_MESSAGES_MAP";
+    public static final String CAPTURED_OUT_MESSAGES_SIZE = "Syndesis.CAPTURED_OUT_MESSAGES_SIZE";
+
+    private static final LongAdder CAPTURED_MESSAGES = new LongAdder();
+    private static final LongAdder CAPTURED_BYTES = new LongAdder();
+    private static final LongAccumulator MAX_RETAINED_BYTES = new LongAccumulator(Math::max, 0);
+
+    private final Set<String> stepIds;
+
+    public OutMessageCaptureProcessor() {
+        this.stepIds = null;
+    }
+
+    public OutMessageCaptureProcessor(Set<String> stepIds) {
+        this.stepIds = stepIds;
+    }
 
     @Override
     public void process(Exchange exchange) throws Exception {
         final Message message = exchange.hasOut() ? exchange.getOut() : exchange.getIn();
         final String id = message.getHeader(IntegrationLoggingConstants.STEP_ID, String.class);
 
-        if (id != null) {
+        if (id != null && (stepIds == null || stepIds.contains(id))) {
             Message copy = message.copy();
             Map<String, Message> outMessagesMap = getCapturedMessageMap(exchange);
             if (copy instanceof MessageSupport && copy.getExchange() == null) {
                 ((MessageSupport) copy).setExchange(message.getExchange());
             }
 
-            outMessagesMap.put(id, copy);
+            final Message previous = outMessagesMap.put(id, copy);
+            trackRetainedBytes(exchange, copy, previous);
         }
     }
 
+    /**
+     * The number of messages captured so far.
+     */
+    public static long getCapturedMessages() {
+        return CAPTURED_MESSAGES.sum();
+    }
+
+    /**
+     * The estimated number of bytes held by the bodies of the messages
+     * captured so far.
+     */
+    public static long getCapturedBytes() {
+        return CAPTURED_BYTES.sum();
+    }
+
+    /**
+     * The largest estimated number of bytes retained by the captured messages
+     * of a single exchange.
+     */
+    public static long getMaxRetainedBytesPerExchange() {
+        return MAX_RETAINED_BYTES.get();
+    }
+
     public static Map<String, Message> getCapturedMessageMap(Exchange exchange) {
         @SuppressWarnings("unchecked")
         Map<String, Message> outMessagesMap = exchange.getProperty(CAPTURED_OUT_MESSAGES_MAP, Map.class);
@@ -57,4 +106,52 @@ public class OutMessageCaptureProcessor implements Processor {
         }
         return outMessagesMap;
     }
+
+    /**
+     * Gives the exchange its own copy of the captured messages map. Exchange
+     * copies, like the ones created for split elements, share the map of the
+     * exchange they were copied from and would otherwise see, and overwrite,
+     * the messages captured by each other.
+     */
+    public static void isolateCapturedMessages(Exchange exchange) {
+        @SuppressWarnings("unchecked")
+        final Map<String, Message> outMessagesMap = exchange.getProperty(CAPTURED_OUT_MESSAGES_MAP, Map.class);
+        if (outMessagesMap != null) {
+            exchange.setProperty(CAPTURED_OUT_MESSAGES_MAP, new HashMap<>(outMessagesMap));
+        }
+    }
+
+    private static void trackRetainedBytes(Exchange exchange, Message captured, Message previous) {
+        final long bytes = sizeOf(captured.getBody());
+        final long replaced = previous == null ? 0 : sizeOf(previous.getBody());
+        final long retained = exchange.getProperty(CAPTURED_OUT_MESSAGES_SIZE, 0L, Long.class) + bytes - replaced;
+
+        exchange.setProperty(CAPTURED_OUT_MESSAGES_SIZE, retained);
+
+        CAPTURED_MESSAGES.increment();
+        CAPTURED_BYTES.add(bytes);
+        MAX_RETAINED_BYTES.accumulate(retained);
+    }
+
+    /**
+     * Estimates the size of the body, bodies of unknown types, like streams
+     * or beans, are not accounted for.
+     */
+    static long sizeOf(Object body) {
+        if (body instanceof byte[]) {
+            return ((byte[]) body).length;
+        } else if (body instanceof CharSequence) {
+            return ((CharSequence) body).length();
+        } else if (body instanceof ByteBuffer) {
+            return ((ByteBuffer) body).remaining();
+        } else if (body instanceof Collection) {
+            long size = 0;
+            for (Object element : (Collection<?>) body) {
+                size += sizeOf(element);
+            }
+            return size;
+        }
+
+        return 0;
+    }
 }
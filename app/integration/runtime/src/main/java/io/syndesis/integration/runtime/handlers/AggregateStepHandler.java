@@ -17,19 +17,32 @@
 package io.syndesis.integration.runtime.handlers;
 
 import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
-import javax.script.SimpleBindings;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.BiFunction;
 import java.util.function.Supplier;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParseException;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.google.errorprone.annotations.Immutable;
 
 import io.syndesis.common.model.integration.Step;
@@ -37,14 +50,18 @@ import io.syndesis.common.model.integration.StepKind;
 import io.syndesis.common.util.json.JsonUtils;
 import io.syndesis.integration.runtime.IntegrationRouteBuilder;
 import io.syndesis.integration.runtime.IntegrationStepHandler;
+import io.syndesis.integration.runtime.handlers.SpoolingOutputStream.SpooledInputStream;
 import org.apache.camel.Exchange;
 import org.apache.camel.Message;
 import org.apache.camel.Processor;
 import org.apache.camel.model.ProcessorDefinition;
 import org.apache.camel.processor.aggregate.AggregationStrategy;
+import org.apache.camel.processor.aggregate.CompletionAwareAggregationStrategy;
 import org.apache.camel.processor.aggregate.GroupedBodyAggregationStrategy;
 import org.apache.camel.processor.aggregate.UseLatestAggregationStrategy;
 import org.apache.camel.processor.aggregate.UseOriginalAggregationStrategy;
+import org.apache.camel.support.SynchronizationAdapter;
+import org.apache.camel.util.IOHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -52,6 +69,8 @@ public class AggregateStepHandler implements IntegrationStepHandler {
 
     private static final Logger LOG = LoggerFactory.getLogger(AggregateStepHandler.class);
 
+    private static final JsonFactory JSON_FACTORY = JsonUtils.reader().getFactory();
+
     @Override
     public boolean canHandle(Step step) {
         return StepKind.aggregate == step.getStepKind();
@@ -86,6 +105,11 @@ public class AggregateStepHandler implements IntegrationStepHandler {
             Optional.ofNullable(stepProperties.get("aggregationScriptLanguage")).ifPresent(strategy::setLanguage);
             Optional.ofNullable(stepProperties.get("aggregationScript")).ifPresent(strategy::setScript);
             return strategy;
+        }),
+        spool(AggregateStepHandler.SpoolAggregationStrategy::new, (strategy, stepProperties) -> {
+            Optional.ofNullable(stepProperties.get("aggregationSpoolThreshold")).map(Long::parseLong).ifPresent(strategy::setThreshold);
+            Optional.ofNullable(stepProperties.get("aggregationSpoolDirectory")).map(Paths::get).ifPresent(strategy::setDirectory);
+            return strategy;
         });
 
         private final StrategySupplier<AggregationStrategy> strategySupplier;
@@ -116,9 +140,11 @@ public class AggregateStepHandler implements IntegrationStepHandler {
     }
 
     private static class ScriptAggregationStrategy implements AggregationStrategy {
+        private static final ScriptEngineManager ENGINE_MANAGER = new ScriptEngineManager();
+
         private String language;
         private String script;
-        private ScriptEngine engine;
+        private volatile CompiledAggregationScript compiled;
 
         ScriptAggregationStrategy() {
             this("nashorn", "oldExchange;");
@@ -127,20 +153,16 @@ public class AggregateStepHandler implements IntegrationStepHandler {
         ScriptAggregationStrategy(String language, String script) {
             this.language = language;
             this.script = script;
-            this.engine = new ScriptEngineManager().getEngineByName(this.language);
         }
 
         @Override
         public Exchange aggregate(Exchange oldExchange, Exchange newExchange) {
-            Bindings bindings = new SimpleBindings();
-            bindings.put("oldExchange", oldExchange);
-            bindings.put("newExchange", newExchange);
-
-            try {
-                return (Exchange) engine.eval(script, bindings);
-            } catch (ScriptException e) {
-                throw new IllegalStateException("Script aggregation strategy failed", e);
+            CompiledAggregationScript current = compiled;
+            if (current == null) {
+                current = compile();
             }
+
+            return current.aggregate(oldExchange, newExchange);
         }
 
         /**
@@ -148,8 +170,9 @@ public class AggregateStepHandler implements IntegrationStepHandler {
          *
          * @param script
          */
-        public void setScript(String script) {
+        public synchronized void setScript(String script) {
             this.script = script;
+            this.compiled = null;
         }
 
         /**
@@ -157,40 +180,301 @@ public class AggregateStepHandler implements IntegrationStepHandler {
          *
          * @param language
          */
-        public void setLanguage(String language) {
+        public synchronized void setLanguage(String language) {
             this.language = language;
-            this.engine = new ScriptEngineManager().getEngineByName(this.language);
+            this.compiled = null;
+        }
+
+        private synchronized CompiledAggregationScript compile() {
+            if (compiled == null) {
+                final ScriptEngine engine = ENGINE_MANAGER.getEngineByName(language);
+                if (engine == null) {
+                    throw new IllegalStateException("No script engine found for language: " + language);
+                }
+
+                compiled = new CompiledAggregationScript(engine, script);
+            }
+
+            return compiled;
+        }
+    }
+
+    /**
+     * Aggregation script compiled once when the engine supports it. Script engines are not required to be thread safe, so each
+     * thread evaluates the script with its own engine bindings. The bindings are reset after every aggregation so that no
+     * script state is carried over to the next one, and are only dropped when the engine refuses to remove a variable.
+     */
+    private static final class CompiledAggregationScript {
+        private final ScriptEngine engine;
+        private final String script;
+        private final CompiledScript compiledScript;
+        private final Set<String> initialKeys;
+        private final ThreadLocal<Bindings> bindings;
+
+        CompiledAggregationScript(ScriptEngine engine, String script) {
+            this.engine = engine;
+            this.script = script;
+
+            try {
+                this.compiledScript = engine instanceof Compilable ? ((Compilable) engine).compile(script) : null;
+            } catch (ScriptException e) {
+                throw new IllegalStateException("Unable to compile aggregation script", e);
+            }
+
+            this.initialKeys = new HashSet<>(engine.createBindings().keySet());
+            this.bindings = ThreadLocal.withInitial(engine::createBindings);
+        }
+
+        Exchange aggregate(Exchange oldExchange, Exchange newExchange) {
+            final Bindings current = bindings.get();
+            current.put("oldExchange", oldExchange);
+            current.put("newExchange", newExchange);
+
+            try {
+                if (compiledScript != null) {
+                    return (Exchange) compiledScript.eval(current);
+                }
+
+                return (Exchange) engine.eval(script, current);
+            } catch (ScriptException e) {
+                throw new IllegalStateException("Script aggregation strategy failed", e);
+            } finally {
+                reset(current);
+            }
+        }
+
+        /**
+         * Removes the exchanges and any top level variable defined by the script, e.g. global {@code var} declarations in
+         * JavaScript can't be deleted, in which case the bindings are dropped and the next aggregation on this thread gets new
+         * ones.
+         */
+        private void reset(Bindings current) {
+            for (String key : new ArrayList<>(current.keySet())) {
+                if (!initialKeys.contains(key)) {
+                    current.remove(key);
+                }
+            }
+
+            if (!initialKeys.containsAll(current.keySet())) {
+                bindings.remove();
+            }
+        }
+    }
+
+    /**
+     * Aggregates the split elements to a Json array that is written to an append only buffer as the elements arrive, the
+     * buffer is moved to a temporary file once it grows beyond the configured threshold. The aggregated Json array is given
+     * as lazily read {@link InputStream} body. Temporary files are created in the configured directory, or in the default
+     * temporary directory, and are removed when the exchange that ran the split is done.
+     */
+    static class SpoolAggregationStrategy implements CompletionAwareAggregationStrategy {
+        static final long DEFAULT_THRESHOLD = 1024 * 1024;
+
+        private static final String SPOOL = "Syndesis.AGGREGATION_SPOOL";
+        private static final String SPOOLS = "Syndesis.AGGREGATION_SPOOLS";
+
+        private long threshold = DEFAULT_THRESHOLD;
+
+        private Path directory;
+
+        @Override
+        public Exchange aggregate(Exchange oldExchange, Exchange newExchange) {
+            final Exchange answer = oldExchange == null ? newExchange : oldExchange;
+
+            // Account for filter match indicator and only aggregate those values that actually matched the filter.
+            if (!newExchange.getProperty(Exchange.FILTER_MATCHED, true, Boolean.class)) {
+                return answer;
+            }
+
+            try {
+                SpoolingOutputStream spool = answer.getProperty(SPOOL, SpoolingOutputStream.class);
+                if (spool == null) {
+                    spool = newSpool(answer, threshold, directory);
+                    spool.write('[');
+                    answer.setProperty(SPOOL, spool);
+                } else {
+                    spool.write(',');
+                }
+
+                writeElement(newExchange.getIn().getBody(), spool);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to aggregate split element", e);
+            }
+
+            return answer;
+        }
+
+        @Override
+        public void onCompletion(Exchange exchange) {
+            if (exchange == null) {
+                return;
+            }
+
+            try {
+                // removed so that the spool is not handed over to the exchange that ran the split
+                SpoolingOutputStream spool = (SpoolingOutputStream) exchange.removeProperty(SPOOL);
+                if (spool == null) {
+                    // no element matched
+                    spool = newSpool(exchange, threshold, directory);
+                    spool.write('[');
+                }
+
+                spool.write(']');
+                exchange.getIn().setBody(spool.getInputStream());
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to complete aggregation", e);
+            }
+        }
+
+        public void setThreshold(long threshold) {
+            this.threshold = threshold;
+        }
+
+        public void setDirectory(Path directory) {
+            this.directory = directory;
+        }
+
+        /**
+         * Prepares the exchange that is about to be split so that temporary files created by this strategy are removed
+         * once the exchange is done.
+         */
+        static void registerCleanup(Exchange exchange) {
+            if (exchange.getProperty(SPOOLS) != null) {
+                return;
+            }
+
+            final List<SpoolingOutputStream> spools = new CopyOnWriteArrayList<>();
+            exchange.setProperty(SPOOLS, spools);
+            exchange.addOnCompletion(new SynchronizationAdapter() {
+                @Override
+                public void onDone(Exchange done) {
+                    final Message message = done.hasOut() ? done.getOut() : done.getIn();
+                    final Object body = message.getBody();
+
+                    for (SpoolingOutputStream spool : spools) {
+                        // a failed exchange has no reply that could still be read
+                        if (!done.isFailed() && body instanceof SpooledInputStream && ((SpooledInputStream) body).spool() == spool) {
+                            // still to be read by the consumer, i.e. as reply
+                            ((SpooledInputStream) body).deleteOnClose();
+                        } else {
+                            spool.delete();
+                        }
+                    }
+                }
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        static SpoolingOutputStream newSpool(Exchange exchange, long threshold, Path directory) {
+            final SpoolingOutputStream spool = new SpoolingOutputStream(threshold, directory);
+
+            final List<SpoolingOutputStream> spools = exchange.getProperty(SPOOLS, List.class);
+            if (spools != null) {
+                spools.add(spool);
+            }
+
+            return spool;
+        }
+
+        private static void writeElement(Object body, SpoolingOutputStream spool) throws IOException {
+            if (body instanceof String) {
+                spool.write(((String) body).getBytes(StandardCharsets.UTF_8));
+            } else if (body instanceof byte[]) {
+                spool.write((byte[]) body);
+            } else if (body instanceof InputStream) {
+                IOHelper.copy((InputStream) body, spool);
+            } else {
+                spool.write(JsonUtils.writer().writeValueAsBytes(body));
+            }
         }
     }
 
     /**
      * Special unified json aggregation post processor takes care of multiple unified json body elements and aggregates
-     * those to a single unified body element.
+     * those to a single unified body element. The body elements are copied token by token so that the elements do not need
+     * to be parsed to Json trees, aggregated bodies given as stream are read and written in a streaming fashion.
      */
     private static class UnifiedJsonAggregationPostProcessor implements Processor {
         @Override
         public void process(Exchange exchange) throws Exception {
             final Message message = exchange.hasOut() ? exchange.getOut() : exchange.getIn();
 
-            if (message != null && message.getBody() instanceof List) {
+            if (message != null && message.getBody() instanceof SpooledInputStream) {
+                final SpooledInputStream aggregated = message.getBody(SpooledInputStream.class);
+                final SpoolingOutputStream spool = SpoolAggregationStrategy.newSpool(exchange, aggregated.spool().threshold(), aggregated.spool().directory());
+
+                try (JsonParser parser = JSON_FACTORY.createParser(aggregated);
+                     JsonGenerator generator = JSON_FACTORY.createGenerator(spool)) {
+                    startUnifiedBody(generator);
+                    if (parser.nextToken() == JsonToken.START_ARRAY) {
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            copyUnifiedBody(parser, generator);
+                        }
+                    } else {
+                        copyUnifiedBody(parser, generator);
+                    }
+                    endUnifiedBody(generator);
+                } catch (JsonParseException e) {
+                    LOG.warn("Unable to aggregate unified json array type", e);
+                    aggregated.reset();
+                    spool.delete();
+                    return;
+                }
+
+                message.setBody(spool.getInputStream());
+                aggregated.spool().delete();
+            } else if (message != null && message.getBody() instanceof List) {
                 try {
-                    List<String> unifiedBodies = new ArrayList<>();
-                    List<?> jsonBeans = message.getBody(List.class);
-                    for (Object unifiedJsonBean : jsonBeans) {
-                        JsonNode unifiedJson = JsonUtils.reader().readTree(String.valueOf(unifiedJsonBean));
-                        if (unifiedJson.isObject()) {
-                            JsonNode body = unifiedJson.get("body");
-                            if (body != null) {
-                                unifiedBodies.add(JsonUtils.writer().writeValueAsString(body));
+                    final StringWriter unifiedBody = new StringWriter();
+                    try (JsonGenerator generator = JSON_FACTORY.createGenerator(unifiedBody)) {
+                        startUnifiedBody(generator);
+                        List<?> jsonBeans = message.getBody(List.class);
+                        for (Object unifiedJsonBean : jsonBeans) {
+                            try (JsonParser parser = JSON_FACTORY.createParser(String.valueOf(unifiedJsonBean))) {
+                                parser.nextToken();
+                                copyUnifiedBody(parser, generator);
                             }
                         }
+                        endUnifiedBody(generator);
                     }
 
-                    message.setBody("{\"body\":" + JsonUtils.jsonBeansToArray(unifiedBodies) + "}");
+                    message.setBody(unifiedBody.toString());
                 } catch (JsonParseException e) {
                     LOG.warn("Unable to aggregate unified json array type", e);
                 }
             }
         }
+
+        private static void startUnifiedBody(JsonGenerator generator) throws IOException {
+            generator.writeStartObject();
+            generator.writeFieldName("body");
+            generator.writeStartArray();
+        }
+
+        private static void endUnifiedBody(JsonGenerator generator) throws IOException {
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+
+        /**
+         * Copies the value of the body property of the unified Json object the parser is positioned at, other values are
+         * skipped.
+         */
+        private static void copyUnifiedBody(JsonParser parser, JsonGenerator generator) throws IOException {
+            if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                return;
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.getCurrentName();
+                parser.nextToken();
+                if ("body".equals(name)) {
+                    generator.copyCurrentStructure(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
     }
 }
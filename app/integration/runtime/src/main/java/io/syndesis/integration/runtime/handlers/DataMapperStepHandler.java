@@ -22,6 +22,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.core.JsonParseException;
@@ -68,6 +69,26 @@ public class DataMapperStepHandler implements IntegrationStepHandler {
         return Optional.of(route);
     }
 
+    /**
+     * Reads the ids of the source documents of the given data mapper step,
+     * those are the ids of the steps whose out messages the mapper reads from
+     * the captured out messages.
+     * @param step
+     * @return the source document ids or empty if the atlas mapping definition can not be read
+     */
+    public static Optional<Set<String>> getSourceDocumentIds(Step step) {
+        try {
+            return Optional.of(readAtlasmapDataSources(step.getConfiguredProperties()).stream()
+                .filter(s -> "SOURCE".equals(s.get("dataSourceType")))
+                .filter(s -> ObjectHelper.isNotEmpty(s.get("id")))
+                .map(s -> s.get("id").toString())
+                .collect(Collectors.toSet()));
+        } catch (IOException | ClassCastException e) {
+            LOG.warn("Failed to read atlas mapping definition from configured properties", e);
+            return Optional.empty();
+        }
+    }
+
     /**
      * In case atlas mapping definition contains Json typed source documents we need to make sure to convert those from list to Json array Strings before passing those
      * source documents to the mapper.
@@ -112,14 +133,11 @@ public class DataMapperStepHandler implements IntegrationStepHandler {
      * @param configuredProperties
      * @return
      */
-    @SuppressWarnings("unchecked")
     private static List<Map<String, Object>> getAtlasmapDataSources(Map<String, String> configuredProperties) {
         List<Map<String, Object>> sources = new ArrayList<>();
 
         try {
-            Map<String, Object> atlasMapping = JsonUtils.reader().forType(Map.class).readValue(configuredProperties.getOrDefault("atlasmapping", "{}"));
-            atlasMapping = (Map<String, Object>) atlasMapping.getOrDefault("AtlasMapping", new HashMap<>());
-            sources = (List<Map<String, Object>>) atlasMapping.getOrDefault("dataSource", Collections.emptyList());
+            sources = readAtlasmapDataSources(configuredProperties);
         } catch (IOException | ClassCastException e) {
             LOG.warn("Failed to read atlas mapping definition from configured properties", e);
         }
@@ -127,6 +145,13 @@ public class DataMapperStepHandler implements IntegrationStepHandler {
         return sources;
     }
 
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> readAtlasmapDataSources(Map<String, String> configuredProperties) throws IOException {
+        Map<String, Object> atlasMapping = JsonUtils.reader().forType(Map.class).readValue(configuredProperties.getOrDefault("atlasmapping", "{}"));
+        atlasMapping = (Map<String, Object>) atlasMapping.getOrDefault("AtlasMapping", new HashMap<>());
+        return (List<Map<String, Object>>) atlasMapping.getOrDefault("dataSource", Collections.emptyList());
+    }
+
     /**
      * Processor converts all Json collection typed entries in captured out messages to a
      * Json array String representation. See {@link OutMessageCaptureProcessor}
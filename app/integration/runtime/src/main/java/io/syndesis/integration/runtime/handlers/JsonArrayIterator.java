@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.integration.runtime.handlers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.syndesis.common.util.SyndesisServerException;
+import io.syndesis.common.util.json.JsonUtils;
+
+/**
+ * Iterates the elements of a Json array read from a stream, each element is
+ * given as Json bean String as they are read, so only a single element is held
+ * in memory at a time. A Json value that is not an array is given as the only
+ * element.
+ */
+final class JsonArrayIterator implements Iterator<String>, Closeable {
+    private final JsonParser parser;
+    private String next;
+    private boolean done;
+
+    /**
+     * @param stream the Json document
+     * @param field name of the top level property holding the array, or
+     *            {@code null} if the document itself is the array
+     */
+    JsonArrayIterator(InputStream stream, String field) throws IOException {
+        parser = JsonUtils.reader().getFactory().createParser(stream);
+
+        JsonToken token = parser.nextToken();
+        if (field != null) {
+            token = seek(field, token);
+        }
+
+        if (token == null) {
+            close();
+        } else if (token != JsonToken.START_ARRAY) {
+            next = readElement();
+            done = true;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+
+        if (done) {
+            return false;
+        }
+
+        try {
+            final JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.END_ARRAY) {
+                close();
+                return false;
+            }
+
+            next = readElement();
+            return true;
+        } catch (IOException e) {
+            throw SyndesisServerException.launderThrowable(e);
+        }
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        final String element = next;
+        next = null;
+        return element;
+    }
+
+    @Override
+    public void close() throws IOException {
+        done = true;
+        parser.close();
+    }
+
+    private JsonToken seek(String field, JsonToken start) throws IOException {
+        if (start != JsonToken.START_OBJECT) {
+            return start;
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            final JsonToken value = parser.nextToken();
+            if (field.equals(name)) {
+                return value;
+            }
+            parser.skipChildren();
+        }
+
+        return null;
+    }
+
+    private String readElement() throws IOException {
+        final JsonNode element = JsonUtils.reader().readTree(parser);
+        return JsonUtils.writer().writeValueAsString(element);
+    }
+}
@@ -15,10 +15,15 @@
  */
 package io.syndesis.integration.runtime.handlers;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import io.syndesis.common.model.integration.Step;
@@ -27,13 +32,16 @@ import io.syndesis.common.util.SyndesisServerException;
 import io.syndesis.common.util.json.JsonUtils;
 import io.syndesis.integration.runtime.IntegrationRouteBuilder;
 import io.syndesis.integration.runtime.IntegrationStepHandler;
+import io.syndesis.integration.runtime.capture.OutMessageCaptureProcessor;
 import org.apache.camel.Exchange;
 import org.apache.camel.Expression;
 import org.apache.camel.TypeConverter;
 import org.apache.camel.builder.Builder;
 import org.apache.camel.model.ProcessorDefinition;
+import org.apache.camel.model.SplitDefinition;
 import org.apache.camel.spi.Language;
 import org.apache.camel.support.ExpressionAdapter;
+import org.apache.camel.util.IOHelper;
 import org.apache.camel.util.ObjectHelper;
 
 public class SplitStepHandler implements IntegrationStepHandler {
@@ -66,6 +74,19 @@ public class SplitStepHandler implements IntegrationStepHandler {
         }
     }
 
+    /* How the value to split is read */
+    public enum SplitMode {
+        /* the whole value is read into memory before the first element is routed */
+        memory,
+        /* Json array elements are routed as they are read */
+        json,
+        /* lines, like CSV records or newline delimited Json, are routed as they are read */
+        lines
+    }
+
+    /* Default size of the thread pool of parallel splits, same as Camel's default */
+    private static final int DEFAULT_PARALLEL_THREADS = 10;
+
     @Override
     public boolean canHandle(Step step) {
         return StepKind.split == step.getStepKind();
@@ -76,13 +97,22 @@ public class SplitStepHandler implements IntegrationStepHandler {
     public Optional<ProcessorDefinition<?>> handle(Step step, ProcessorDefinition<?> route, IntegrationRouteBuilder builder, String flowIndex, String stepIndex) {
         ObjectHelper.notNull(route, "route");
 
-        SplitExpression splitExpression;
-        String languageName = step.getConfiguredProperties().get("language");
-        String expressionDefinition = step.getConfiguredProperties().get("expression");
+        final Map<String, String> properties = step.getConfiguredProperties();
+        final SplitMode mode = Optional.ofNullable(properties.get("splitMode"))
+                .map(SplitMode::valueOf)
+                .orElse(SplitMode.memory);
+
+        Expression splitExpression;
+        String languageName = properties.get("language");
+        String expressionDefinition = properties.get("expression");
 
         if (step.hasUnifiedJsonSchemaOutputShape()) {
             // we have to split the nested unified body property by default.
-            splitExpression = new SplitExpression(new UnifiedJsonBodyExpression(Builder.body()));
+            if (mode == SplitMode.json) {
+                splitExpression = new StreamingSplitExpression(Builder.body(), mode, "body");
+            } else {
+                splitExpression = splitExpression(new UnifiedJsonBodyExpression(Builder.body()), mode);
+            }
         } else if (ObjectHelper.isNotEmpty(expressionDefinition)) {
             if (ObjectHelper.isEmpty(languageName)) {
                 languageName = "simple";
@@ -96,18 +126,52 @@ public class SplitStepHandler implements IntegrationStepHandler {
             }
 
             final Language language = builder.getContext().resolveLanguage(languageName);
-            splitExpression = new SplitExpression(language.createExpression(expressionDefinition));
+            splitExpression = splitExpression(language.createExpression(expressionDefinition), mode);
         } else {
-            splitExpression = new SplitExpression(Builder.body());
+            splitExpression = splitExpression(Builder.body(), mode);
         }
 
-        AggregateStepHandler.AggregationOption aggregation = Optional.ofNullable(step.getConfiguredProperties().get("aggregationStrategy"))
+        AggregateStepHandler.AggregationOption aggregation = Optional.ofNullable(properties.get("aggregationStrategy"))
                 .map(AggregateStepHandler.AggregationOption::valueOf)
                 .orElse(AggregateStepHandler.AggregationOption.body);
 
-        route = route.split(splitExpression).aggregationStrategy(aggregation.getStrategy(step.getConfiguredProperties()));
+        if (aggregation == AggregateStepHandler.AggregationOption.spool) {
+            route.process(AggregateStepHandler.SpoolAggregationStrategy::registerCleanup);
+        }
+
+        final SplitDefinition split = route.split(splitExpression).aggregationStrategy(aggregation.getStrategy(properties));
+
+        if (mode != SplitMode.memory) {
+            // do not collect all elements before routing the first one
+            split.streaming();
+        }
+
+        if (Boolean.parseBoolean(properties.get("parallel"))) {
+            final int threads = Optional.ofNullable(properties.get("parallelThreads"))
+                    .map(Integer::parseInt)
+                    .orElse(DEFAULT_PARALLEL_THREADS);
+
+            final ExecutorService executor = builder.getContext().getExecutorServiceManager()
+                    .newFixedThreadPool(split, String.format("Split-flow-%s-step-%s", flowIndex, stepIndex), threads);
 
-        return Optional.of(route);
+            split.parallelProcessing().executorService(executor);
+
+            // split elements are shallow copies of the split exchange, when
+            // processed in parallel each one needs its own captured messages
+            // so that steps processing different elements do not see each
+            // other's messages
+            split.onPrepare(OutMessageCaptureProcessor::isolateCapturedMessages);
+        }
+
+        return Optional.of(split);
+    }
+
+    private static Expression splitExpression(Expression delegate, SplitMode mode) {
+        if (mode == SplitMode.memory) {
+            return new SplitExpression(delegate);
+        }
+
+        return new StreamingSplitExpression(delegate, mode, null);
     }
 
     /**
@@ -146,6 +210,48 @@ public class SplitStepHandler implements IntegrationStepHandler {
         }
     }
 
+    /**
+     * Split expression that reads streams, remote files and other values convertible to a stream lazily while the
+     * splitter routes the elements. In {@link SplitMode#json} mode the elements of a Json array are split, in
+     * {@link SplitMode#lines} mode the non empty lines.
+     *
+     * Values that can be iterated already, like lists of Json beans, are left to the splitter as they are.
+     */
+    private static class StreamingSplitExpression extends ExpressionAdapter {
+        private final Expression delegate;
+        private final SplitMode mode;
+        private final String field;
+
+        StreamingSplitExpression(Expression delegate, SplitMode mode, String field) {
+            this.delegate = delegate;
+            this.mode = mode;
+            this.field = field;
+        }
+
+        @Override
+        public Object evaluate(Exchange exchange) {
+            final Object value = delegate.evaluate(exchange, Object.class);
+            if (value == null || value instanceof Iterable || value instanceof Iterator) {
+                return value;
+            }
+
+            final InputStream stream = exchange.getContext().getTypeConverter().convertTo(InputStream.class, exchange, value);
+            if (stream == null) {
+                return value;
+            }
+
+            try {
+                if (mode == SplitMode.json) {
+                    return new JsonArrayIterator(stream, field);
+                }
+
+                return new LineIterator(new BufferedReader(new InputStreamReader(stream, IOHelper.getCharsetName(exchange))));
+            } catch (IOException e) {
+                throw SyndesisServerException.launderThrowable(e);
+            }
+        }
+    }
+
     /**
      * Expression extracts body property from unified Json schema typed input. The unified Json holds the actual body in
      * a nested property. This property is extracted and set as expression result so follow up expressions can operate on the body.
@@ -0,0 +1,271 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.integration.runtime.handlers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.StreamCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append only output stream that keeps the written bytes in memory until the
+ * given threshold is exceeded, and then moves them to a temporary file and
+ * continues writing there. Once closed the written content can be read any
+ * number of times via {@link #getInputStream()}, the temporary file is removed
+ * by {@link #delete()}. Temporary files are created in the given directory, or
+ * in the default temporary directory if none is given.
+ */
+final class SpoolingOutputStream extends OutputStream {
+    private static final Logger LOG = LoggerFactory.getLogger(SpoolingOutputStream.class);
+
+    private final long threshold;
+
+    private final Path directory;
+
+    private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+
+    private Path file;
+
+    private OutputStream out = memory;
+
+    private long length;
+
+    private boolean closed;
+
+    SpoolingOutputStream(long threshold, Path directory) {
+        this.threshold = threshold;
+        this.directory = directory;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        spoolIfNeeded(1);
+        out.write(b);
+        length++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        spoolIfNeeded(len);
+        out.write(b, off, len);
+        length += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            out.close();
+        }
+    }
+
+    long length() {
+        return length;
+    }
+
+    long threshold() {
+        return threshold;
+    }
+
+    Path directory() {
+        return directory;
+    }
+
+    boolean inMemory() {
+        return file == null;
+    }
+
+    /**
+     * Closes this stream and returns a stream cache reading the written
+     * content from the start.
+     */
+    SpooledInputStream getInputStream() throws IOException {
+        close();
+
+        return new SpooledInputStream(this);
+    }
+
+    /**
+     * Removes the temporary file, if any was needed. The content is not
+     * readable afterwards.
+     */
+    void delete() {
+        try {
+            close();
+        } catch (IOException e) {
+            LOG.debug("Unable to close spool file {}", file, e);
+        }
+
+        memory = null;
+
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                LOG.warn("Unable to delete spool file {}", file, e);
+            }
+        }
+    }
+
+    private void spoolIfNeeded(int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream already closed");
+        }
+
+        if (file != null || length + len <= threshold) {
+            return;
+        }
+
+        file = directory == null
+            ? Files.createTempFile("syndesis-aggregate-", ".json")
+            : Files.createTempFile(directory, "syndesis-aggregate-", ".json");
+        out = new BufferedOutputStream(Files.newOutputStream(file));
+        memory.writeTo(out);
+        memory = null;
+    }
+
+    private InputStream openContent() throws IOException {
+        if (file != null) {
+            return new BufferedInputStream(Files.newInputStream(file));
+        }
+
+        if (memory == null) {
+            throw new IOException("Spooled content already deleted");
+        }
+
+        return new ByteArrayInputStream(memory.toByteArray());
+    }
+
+    /**
+     * Reads the content of a closed {@link SpoolingOutputStream}, the content is
+     * opened lazily on first read and can be read again after {@link #reset()}.
+     */
+    static final class SpooledInputStream extends InputStream implements StreamCache {
+        private final SpoolingOutputStream spool;
+
+        private InputStream current;
+
+        private volatile boolean deleteOnClose;
+
+        SpooledInputStream(SpoolingOutputStream spool) {
+            this.spool = spool;
+        }
+
+        SpoolingOutputStream spool() {
+            return spool;
+        }
+
+        /**
+         * Deletes the spooled content once this stream is closed, used when
+         * the content is still to be read after the exchange is done.
+         */
+        void deleteOnClose() {
+            deleteOnClose = true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return current().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return current().read(b, off, len);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return current == null ? 0 : current.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                closeCurrent();
+            } finally {
+                if (deleteOnClose) {
+                    spool.delete();
+                }
+            }
+        }
+
+        @Override
+        public void reset() {
+            try {
+                closeCurrent();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void writeTo(OutputStream os) throws IOException {
+            try (InputStream content = spool.openContent()) {
+                final byte[] buffer = new byte[8192];
+                int read;
+                while ((read = content.read(buffer)) != -1) {
+                    os.write(buffer, 0, read);
+                }
+            }
+        }
+
+        @Override
+        public StreamCache copy(Exchange exchange) {
+            return new SpooledInputStream(spool);
+        }
+
+        @Override
+        public boolean inMemory() {
+            return spool.inMemory();
+        }
+
+        @Override
+        public long length() {
+            return spool.length();
+        }
+
+        private void closeCurrent() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+
+        private InputStream current() throws IOException {
+            if (current == null) {
+                current = spool.openContent();
+            }
+
+            return current;
+        }
+    }
+}
@@ -18,6 +18,7 @@ package io.syndesis.integration.runtime.jmx;
 import java.util.Date;
 import javax.management.ObjectName;
 
+import io.syndesis.integration.runtime.capture.OutMessageCaptureProcessor;
 import org.apache.camel.CamelContext;
 import org.apache.camel.CamelContextAware;
 import org.apache.camel.Service;
@@ -64,6 +65,21 @@ public class CamelContextMetadataMBean implements Service, CamelContextAware {
         return timestamp == null ? null : timestamp.getTime();
     }
 
+    @ManagedAttribute
+    public Long getCapturedMessages() {
+        return OutMessageCaptureProcessor.getCapturedMessages();
+    }
+
+    @ManagedAttribute
+    public Long getCapturedBytes() {
+        return OutMessageCaptureProcessor.getCapturedBytes();
+    }
+
+    @ManagedAttribute
+    public Long getMaxCapturedBytesPerExchange() {
+        return OutMessageCaptureProcessor.getMaxRetainedBytesPerExchange();
+    }
+
     @Override
     public void start() throws Exception {
         // register mbean
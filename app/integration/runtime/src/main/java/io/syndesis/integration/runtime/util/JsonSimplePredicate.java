@@ -36,10 +36,11 @@ import org.apache.camel.CamelContext;
 import org.apache.camel.Exchange;
 import org.apache.camel.Message;
 import org.apache.camel.Predicate;
+import org.apache.camel.impl.DefaultExchange;
+import org.apache.camel.impl.DefaultMessage;
 import org.apache.camel.language.bean.RuntimeBeanExpressionException;
 import org.apache.camel.spi.Language;
 import org.apache.camel.spi.Registry;
-import org.apache.camel.util.ExchangeHelper;
 import org.apache.camel.util.ObjectHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,8 +48,14 @@ import org.slf4j.LoggerFactory;
 /**
  * Predicate which tries to convert a JSON message to a map first before
  * applying
+ * <p>
+ * The converted message body is kept in an exchange property, so that all
+ * predicates evaluated against the same body, like the conditions of a choice
+ * step, parse it only once.
  */
 public final class JsonSimplePredicate implements Predicate {
+    public static final String PARSED_JSON_BODY = "Syndesis.PARSED_JSON_BODY";
+
     private static final Pattern SIMPLE_EXPRESSION = Pattern.compile("\\$\\{([^}]+)\\}");
 
     private static final Logger LOG = LoggerFactory.getLogger(JsonSimplePredicate.class);
@@ -61,6 +68,20 @@ public final class JsonSimplePredicate implements Predicate {
 
     private final Predicate predicate;
 
+    /**
+     * The message body converted to a Map / List, or {@code null} if the
+     * body is not a JSON object or array.
+     */
+    static final class ParsedBody {
+        final Object body;
+        final Object json;
+
+        ParsedBody(final Object body, final Object json) {
+            this.body = body;
+            this.json = json;
+        }
+    }
+
     public JsonSimplePredicate(final String expression, final CamelContext context) {
         final Language language = ObjectHelper.notNull(context.resolveLanguage("simple"), "simple language");
         final String ognlExpression = convertSimpleToOGNLForMaps(expression);
@@ -80,29 +101,71 @@ public final class JsonSimplePredicate implements Predicate {
 
     @Override
     public boolean matches(final Exchange exchange) {
-        // Clone the exchange and set the JSON message converted to a Map /
-        // List as in message.
-        // The intention is that only this predicate acts on the converted
-        // value, but the original in-message still continues to carry the
-        // same format.
-        // The predicated is supposed to be read only with respect to the
-        // incoming message.
-        final Exchange exchangeForProcessing = ExchangeHelper.createCopy(exchange, true);
-        final Message payload = exchangeForProcessing.getIn();
-
-        if (payload.getBody() instanceof List) {
-            List<?> jsonBeans = payload.getBody(List.class);
-            payload.setBody("[" + jsonBeans.stream().map(Object::toString).collect(Collectors.joining(",")) + "]");
-        }
-
-        try (InputStream stream = payload.getBody(InputStream.class)) {
-            if (stream == null) {
+        ParsedBody parsed = exchange.getProperty(PARSED_JSON_BODY, ParsedBody.class);
+        if (parsed == null || parsed.body != exchange.getIn().getBody()) {
+            parsed = parse(exchange);
+            if (parsed == null) {
+                // if above fails
                 return predicate.matches(exchange);
             }
 
+            exchange.setProperty(PARSED_JSON_BODY, parsed);
+        }
+
+        if (parsed.json == null) {
+            return predicate.matches(exchange);
+        }
+
+        // The predicate is evaluated on an exchange having the JSON message
+        // converted to a Map / List as in message, the original in-message
+        // still continues to carry the same format. The headers and
+        // properties are shared with the original exchange, as the predicate
+        // is supposed to be read only with respect to the incoming message.
+        final Exchange exchangeForProcessing = jsonExchange(exchange, parsed.json);
+
+        if (parsed.json instanceof List) {
+            try {
+                return ognlPredicate.matches(exchangeForProcessing);
+            } catch (RuntimeBeanExpressionException e) {
+                if (Optional.ofNullable(e.getCause())
+                            .map(Object::getClass)
+                            .map(IndexOutOfBoundsException.class::equals)
+                            .orElse(false)) {
+                    LOG.debug("Try to match array item out of bounds");
+                    // we do not need to dump on the logs so log it at trace level.
+                    LOG.trace("Try to match array item out of bounds ", e);
+                    return false;
+                }
+
+                throw e;
+            }
+        }
+
+        return ognlPredicate.matches(exchangeForProcessing);
+    }
+
+    /**
+     * Converts the JSON message body to a Map / List.
+     *
+     * @return the converted body or {@code null} if the body could not be read
+     */
+    private ParsedBody parse(final Exchange exchange) {
+        final Message in = exchange.getIn();
+
+        Object body = in.getBody();
+        if (body instanceof List) {
+            List<?> jsonBeans = (List<?>) body;
+            body = "[" + jsonBeans.stream().map(Object::toString).collect(Collectors.joining(",")) + "]";
+        }
+
+        try (InputStream stream = exchange.getContext().getTypeConverter().convertTo(InputStream.class, exchange, body)) {
+            if (stream == null) {
+                return new ParsedBody(in.getBody(), null);
+            }
+
             ResetAfterCloseInputStream resetAfterCloseInputStream = new ResetAfterCloseInputStream(stream);
-            if (exchange.getIn().getBody() instanceof InputStream) {
-                exchange.getIn().setBody(resetAfterCloseInputStream);
+            if (in.getBody() instanceof InputStream) {
+                in.setBody(resetAfterCloseInputStream);
             }
 
             // If it is a JSON document, suppose that this is a document which
@@ -112,40 +175,40 @@ public final class JsonSimplePredicate implements Predicate {
 
             if (json != null) {
                 if (json.isArray()) {
-                    payload.setBody(mapper.convertValue(json, List.class));
-                    try {
-                        return ognlPredicate.matches(exchangeForProcessing);
-                    } catch (RuntimeBeanExpressionException e) {
-                        if (Optional.ofNullable(e.getCause())
-                                    .map(Object::getClass)
-                                    .map(IndexOutOfBoundsException.class::equals)
-                                    .orElse(false)) {
-                            LOG.debug("Try to match array item out of bounds");
-                            // we do not need to dump on the logs so log it at trace level.
-                            LOG.trace("Try to match array item out of bounds ", e);
-                            return false;
-                        }
-
-                        throw e;
-                    }
+                    return new ParsedBody(in.getBody(), mapper.convertValue(json, List.class));
                 } else if (json.isObject()) {
-                    payload.setBody(mapper.convertValue(json, Map.class));
-                    return ognlPredicate.matches(exchangeForProcessing);
+                    return new ParsedBody(in.getBody(), mapper.convertValue(json, Map.class));
                 }
             }
+
+            return new ParsedBody(in.getBody(), null);
         } catch (final JsonParseException e) {
             LOG.debug("Incoming message is not a json, try to match using simple language");
             // in case the body is not convertible to a map, the json converter
             // may throw an exception we do not need to dump on the logs so log
             // it at trace level.
             LOG.trace("Unable to parse incoming message body as JSON ", e);
+
+            return new ParsedBody(in.getBody(), null);
         } catch (final IOException e) {
             LOG.warn("Unable to apply simple filter to the given payload");
             LOG.debug("Unable to parse incoming message body as JSON needed for simple filtering", e);
         }
 
-        // if above fails
-        return predicate.matches(exchange);
+        return null;
+    }
+
+    private static Exchange jsonExchange(final Exchange exchange, final Object json) {
+        final DefaultExchange jsonExchange = new DefaultExchange(exchange);
+        jsonExchange.setProperties(exchange.getProperties());
+        jsonExchange.setException(exchange.getException());
+
+        final DefaultMessage payload = new DefaultMessage(exchange.getContext());
+        payload.setHeaders(exchange.getIn().getHeaders());
+        payload.setBody(json);
+        jsonExchange.setIn(payload);
+
+        return jsonExchange;
     }
 
     static String convertSimpleToOGNLForMaps(final String simple) {
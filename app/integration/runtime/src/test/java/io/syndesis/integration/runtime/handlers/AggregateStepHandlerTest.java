@@ -87,6 +87,23 @@ public class AggregateStepHandlerTest {
 
     @Test
     public void testAggregateUnifiedJsonStep() throws Exception {
+        testAggregateUnifiedJsonStep(new Step.Builder()
+                .id(SPLIT_STEP)
+                .stepKind(StepKind.split)
+                .build());
+    }
+
+    @Test
+    public void testAggregateSpooledUnifiedJsonStep() throws Exception {
+        testAggregateUnifiedJsonStep(new Step.Builder()
+                .id(SPLIT_STEP)
+                .stepKind(StepKind.split)
+                .putConfiguredProperty("aggregationStrategy", "spool")
+                .putConfiguredProperty("aggregationSpoolThreshold", "16")
+                .build());
+    }
+
+    private void testAggregateUnifiedJsonStep(Step split) throws Exception {
         final DefaultCamelContext context = new DefaultCamelContext();
 
         try {
@@ -101,10 +118,7 @@ public class AggregateStepHandlerTest {
                                             .build())
                                     .build())
                             .build(),
-                    new Step.Builder()
-                            .id(SPLIT_STEP)
-                            .stepKind(StepKind.split)
-                            .build(),
+                    split,
                     new Step.Builder()
                             .id(LOG_STEP)
                             .stepKind(StepKind.log)
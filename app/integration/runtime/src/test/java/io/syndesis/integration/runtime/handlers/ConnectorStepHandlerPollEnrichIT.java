@@ -207,7 +207,8 @@ public class ConnectorStepHandlerPollEnrichIT {
             MockEndpoint.assertWait(2, TimeUnit.SECONDS, result);
 
             result.expectedBodiesReceived("Hi there");
-            result.allMessages().exchangeProperty(OutMessageCaptureProcessor.CAPTURED_OUT_MESSAGES_MAP).convertTo(String.class).contains("expected");
+            // without data mapper steps nothing reads the captured out messages
+            result.allMessages().exchangeProperty(OutMessageCaptureProcessor.CAPTURED_OUT_MESSAGES_MAP).isNull();
 
             MockEndpoint.assertIsSatisfied(context);
 
@@ -280,7 +281,8 @@ public class ConnectorStepHandlerPollEnrichIT {
             MockEndpoint.assertWait(2, TimeUnit.SECONDS, result);
 
             result.expectedBodiesReceived("Hi dynamic");
-            result.allMessages().exchangeProperty(OutMessageCaptureProcessor.CAPTURED_OUT_MESSAGES_MAP).convertTo(String.class).contains("expected");
+            // without data mapper steps nothing reads the captured out messages
+            result.allMessages().exchangeProperty(OutMessageCaptureProcessor.CAPTURED_OUT_MESSAGES_MAP).isNull();
 
             MockEndpoint.assertIsSatisfied(context);
 
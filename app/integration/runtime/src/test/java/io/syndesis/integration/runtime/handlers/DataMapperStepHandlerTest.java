@@ -18,6 +18,7 @@ package io.syndesis.integration.runtime.handlers;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -219,6 +220,23 @@ public class DataMapperStepHandlerTest {
         }
     }
 
+    @Test
+    public void testSourceDocumentIds() {
+        final Step step = getTestSteps("{" +
+                                    "\"AtlasMapping\":{" +
+                                        "\"dataSource\":[" +
+                                            "{\"id\":\"step-1\",\"uri\":\"atlas:java\",\"dataSourceType\":\"SOURCE\"}," +
+                                            "{\"id\":\"step-0\",\"uri\":\"atlas:java\",\"dataSourceType\":\"SOURCE\"}," +
+                                            "{\"id\":\"target\",\"uri\":\"atlas:java\",\"dataSourceType\":\"TARGET\"}" +
+                                        "]," +
+                                        "\"mappings\":{}" +
+                                        "}" +
+                                    "}")[1];
+
+        assertThat(DataMapperStepHandler.getSourceDocumentIds(step)).hasValue(new HashSet<>(Arrays.asList("step-0", "step-1")));
+        assertThat(DataMapperStepHandler.getSourceDocumentIds(getTestSteps("not json")[1])).isEmpty();
+    }
+
     private static Step[] getTestSteps() {
         return getTestSteps("{}");
     }
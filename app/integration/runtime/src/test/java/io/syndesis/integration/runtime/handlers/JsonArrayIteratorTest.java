@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.integration.runtime.handlers;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JsonArrayIteratorTest {
+
+    @Test
+    public void shouldIterateArrayElements() throws IOException {
+        try (JsonArrayIterator iterator = new JsonArrayIterator(stream("[{\"id\": 1}, \"two\", 3, []]"), null)) {
+            assertThat(iterator).toIterable().containsExactly("{\"id\":1}", "\"two\"", "3", "[]");
+        }
+    }
+
+    @Test
+    public void shouldIterateArrayOfTopLevelProperty() throws IOException {
+        try (JsonArrayIterator iterator = new JsonArrayIterator(stream("{\"parameters\": {\"body\": []}, \"body\": [{\"id\": 1}, {\"id\": 2}]}"), "body")) {
+            assertThat(iterator).toIterable().containsExactly("{\"id\":1}", "{\"id\":2}");
+        }
+    }
+
+    @Test
+    public void shouldGiveNonArrayValueAsSingleElement() throws IOException {
+        try (JsonArrayIterator iterator = new JsonArrayIterator(stream("{\"id\": 1}"), null)) {
+            assertThat(iterator).toIterable().containsExactly("{\"id\":1}");
+        }
+    }
+
+    @Test
+    public void shouldSupportEmptyDocuments() throws IOException {
+        try (JsonArrayIterator iterator = new JsonArrayIterator(stream(""), null)) {
+            assertThat(iterator).toIterable().isEmpty();
+        }
+
+        try (JsonArrayIterator iterator = new JsonArrayIterator(stream("{\"parameters\": {}}"), "body")) {
+            assertThat(iterator).toIterable().isEmpty();
+        }
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
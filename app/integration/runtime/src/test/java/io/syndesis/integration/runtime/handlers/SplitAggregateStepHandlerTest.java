@@ -15,9 +15,15 @@
  */
 package io.syndesis.integration.runtime.handlers;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import io.syndesis.common.model.action.ConnectorAction;
 import io.syndesis.common.model.action.ConnectorDescriptor;
@@ -30,14 +36,17 @@ import io.syndesis.integration.runtime.logging.IntegrationLoggingListener;
 import io.syndesis.integration.runtime.util.JsonSupport;
 
 import org.apache.camel.CamelContext;
+import org.apache.camel.CamelExecutionException;
 import org.apache.camel.Exchange;
 import org.apache.camel.ProducerTemplate;
 import org.apache.camel.builder.RouteBuilder;
 import org.apache.camel.component.mock.MockEndpoint;
 import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.util.IOHelper;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mockito;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -622,6 +631,245 @@ public class SplitAggregateStepHandlerTest {
         }
     }
 
+    @Test
+    public void testSplitAggregateParallelScriptAggregationStrategy() throws Exception {
+        final CamelContext context = new DefaultCamelContext();
+
+        try {
+            final RouteBuilder routes = newIntegrationRouteBuilder(activityTracker,
+                new Step.Builder()
+                    .id(START_STEP)
+                    .stepKind(StepKind.endpoint)
+                    .action(new ConnectorAction.Builder()
+                        .descriptor(new ConnectorDescriptor.Builder()
+                            .componentScheme("direct")
+                            .putConfiguredProperty("name", "expression")
+                            .build())
+                        .build())
+                    .build(),
+                new Step.Builder()
+                    .id(SPLIT_STEP)
+                    .stepKind(StepKind.split)
+                    .putConfiguredProperty("parallel", "true")
+                    .putConfiguredProperty("parallelThreads", "4")
+                    .putConfiguredProperty("aggregationStrategy", "script")
+                    .putConfiguredProperty("aggregationScriptLanguage", "nashorn")
+                    .putConfiguredProperty("aggregationScript", "if (typeof count !== 'undefined') throw 'count leaked';\n" +
+                            "var count = (oldExchange ? oldExchange.in.body : 0) + 1;\n" +
+                            "newExchange.in.body = count;\n" +
+                            "newExchange;")
+                    .build(),
+                new Step.Builder()
+                    .id(MOCK_STEP)
+                    .stepKind(StepKind.endpoint)
+                    .action(new ConnectorAction.Builder()
+                        .descriptor(new ConnectorDescriptor.Builder()
+                            .componentScheme("mock")
+                            .putConfiguredProperty("name", "split")
+                            .build())
+                        .build())
+                    .build(),
+                new Step.Builder()
+                    .id(AGGREGATE_STEP)
+                    .stepKind(StepKind.aggregate)
+                    .build()
+            );
+
+            // Set up the camel context
+            context.setUuidGenerator(KeyGenerator::createKey);
+            context.addLogListener(new IntegrationLoggingListener(activityTracker));
+            context.addInterceptStrategy(new ActivityTrackingInterceptStrategy(activityTracker));
+            context.addRoutes(routes);
+            context.start();
+
+            // Dump routes as XML for troubleshooting
+            dumpRoutes(context);
+
+            final ProducerTemplate template = context.createProducerTemplate();
+            final MockEndpoint result = context.getEndpoint("mock:split", MockEndpoint.class);
+            final List<String> body = IntStream.range(0, 500).mapToObj(String::valueOf).collect(Collectors.toList());
+
+            result.expectedMessageCount(body.size());
+
+            Integer response = template.requestBody("direct:expression", body, Integer.class);
+
+            result.assertIsSatisfied();
+            Assertions.assertThat(response).isEqualTo(body.size());
+        } finally {
+            context.stop();
+        }
+    }
+
+    @Test
+    public void testSplitAggregateSpoolAggregationStrategy() throws Exception {
+        final CamelContext context = new DefaultCamelContext();
+
+        try {
+            final RouteBuilder routes = newIntegrationRouteBuilder(activityTracker,
+                new Step.Builder()
+                    .id(START_STEP)
+                    .stepKind(StepKind.endpoint)
+                    .action(new ConnectorAction.Builder()
+                        .descriptor(new ConnectorDescriptor.Builder()
+                            .componentScheme("direct")
+                            .putConfiguredProperty("name", "expression")
+                            .build())
+                        .build())
+                    .build(),
+                new Step.Builder()
+                    .id(SPLIT_STEP)
+                    .stepKind(StepKind.split)
+                    .putConfiguredProperty("aggregationStrategy", "spool")
+                    .putConfiguredProperty("aggregationSpoolThreshold", "8")
+                    .build(),
+                new Step.Builder()
+                    .id(MOCK_STEP)
+                    .stepKind(StepKind.endpoint)
+                    .action(new ConnectorAction.Builder()
+                        .descriptor(new ConnectorDescriptor.Builder()
+                            .componentScheme("mock")
+                            .putConfiguredProperty("name", "split")
+                            .build())
+                        .build())
+                    .build(),
+                new Step.Builder()
+                    .id(AGGREGATE_STEP)
+                    .stepKind(StepKind.aggregate)
+                    .build()
+            );
+
+            // Set up the camel context
+            context.setUuidGenerator(KeyGenerator::createKey);
+            context.addLogListener(new IntegrationLoggingListener(activityTracker));
+            context.addInterceptStrategy(new ActivityTrackingInterceptStrategy(activityTracker));
+            context.addRoutes(routes);
+            context.start();
+
+            // Dump routes as XML for troubleshooting
+            dumpRoutes(context);
+
+            final ProducerTemplate template = context.createProducerTemplate();
+            final MockEndpoint result = context.getEndpoint("mock:split", MockEndpoint.class);
+            final List<String> body = Arrays.asList("{\"id\":1}", "{\"id\":2}", "{\"id\":3}");
+
+            result.expectedBodiesReceived(body);
+
+            String response = template.requestBody("direct:expression", body, String.class);
+
+            result.assertIsSatisfied();
+            Assertions.assertThat(response).isEqualTo("[{\"id\":1},{\"id\":2},{\"id\":3}]");
+
+            verify(activityTracker).startTracking(any(Exchange.class));
+            verifyActivityStepTracking(START_STEP, 1);
+            verifyActivityStepTracking(SPLIT_STEP, 0);
+            verifyActivityStepTracking(MOCK_STEP, 3);
+            verifyActivityStepTracking(AGGREGATE_STEP, 0);
+            verify(activityTracker).finishTracking(any(Exchange.class));
+        } finally {
+            context.stop();
+        }
+    }
+
+    @Test
+    public void testSplitAggregateSpoolRemovesTemporaryFilesOnceReplyIsRead(@TempDir Path spoolDirectory) throws Exception {
+        final CamelContext context = new DefaultCamelContext();
+
+        try {
+            context.addRoutes(newSpoolingRouteBuilder(spoolDirectory));
+            context.start();
+
+            final ProducerTemplate template = context.createProducerTemplate();
+            final List<String> body = Arrays.asList("{\"id\":1}", "{\"id\":2}", "{\"id\":3}");
+
+            try (InputStream response = template.requestBody("direct:expression", body, InputStream.class)) {
+                // the reply is read from the spool file
+                Assertions.assertThat(spoolFiles(spoolDirectory)).isNotEmpty();
+                Assertions.assertThat(IOHelper.loadText(response).trim()).isEqualTo("[{\"id\":1},{\"id\":2},{\"id\":3}]");
+            }
+
+            Assertions.assertThat(spoolFiles(spoolDirectory)).isEmpty();
+        } finally {
+            context.stop();
+        }
+    }
+
+    @Test
+    public void testSplitAggregateSpoolRemovesTemporaryFilesOnFailure(@TempDir Path spoolDirectory) throws Exception {
+        final CamelContext context = new DefaultCamelContext();
+
+        try {
+            context.addRoutes(newSpoolingRouteBuilder(spoolDirectory));
+            context.start();
+
+            context.getEndpoint("mock:aggregated", MockEndpoint.class).whenAnyExchangeReceived(exchange -> {
+                throw new IllegalStateException("Failed after aggregation");
+            });
+
+            final ProducerTemplate template = context.createProducerTemplate();
+            final List<String> body = Arrays.asList("{\"id\":1}", "{\"id\":2}", "{\"id\":3}");
+
+            Assertions.assertThatThrownBy(() -> template.requestBody("direct:expression", body, InputStream.class))
+                .isInstanceOf(CamelExecutionException.class)
+                .hasRootCauseMessage("Failed after aggregation");
+
+            Assertions.assertThat(spoolFiles(spoolDirectory)).isEmpty();
+        } finally {
+            context.stop();
+        }
+    }
+
+    private RouteBuilder newSpoolingRouteBuilder(Path spoolDirectory) {
+        return newIntegrationRouteBuilder(activityTracker,
+            new Step.Builder()
+                .id(START_STEP)
+                .stepKind(StepKind.endpoint)
+                .action(new ConnectorAction.Builder()
+                    .descriptor(new ConnectorDescriptor.Builder()
+                        .componentScheme("direct")
+                        .putConfiguredProperty("name", "expression")
+                        .build())
+                    .build())
+                .build(),
+            new Step.Builder()
+                .id(SPLIT_STEP)
+                .stepKind(StepKind.split)
+                .putConfiguredProperty("aggregationStrategy", "spool")
+                .putConfiguredProperty("aggregationSpoolThreshold", "8")
+                .putConfiguredProperty("aggregationSpoolDirectory", spoolDirectory.toString())
+                .build(),
+            new Step.Builder()
+                .id(MOCK_STEP)
+                .stepKind(StepKind.endpoint)
+                .action(new ConnectorAction.Builder()
+                    .descriptor(new ConnectorDescriptor.Builder()
+                        .componentScheme("mock")
+                        .putConfiguredProperty("name", "split")
+                        .build())
+                    .build())
+                .build(),
+            new Step.Builder()
+                .id(AGGREGATE_STEP)
+                .stepKind(StepKind.aggregate)
+                .build(),
+            new Step.Builder()
+                .id("aggregated-step")
+                .stepKind(StepKind.endpoint)
+                .action(new ConnectorAction.Builder()
+                    .descriptor(new ConnectorDescriptor.Builder()
+                        .componentScheme("mock")
+                        .putConfiguredProperty("name", "aggregated")
+                        .build())
+                    .build())
+                .build()
+        );
+    }
+
+    private static List<Path> spoolFiles(Path spoolDirectory) throws IOException {
+        try (Stream<Path> files = Files.list(spoolDirectory)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+
     private void verifyActivityStepTracking(String stepId, int times) {
         verify(activityTracker, times(times)).track(eq("exchange"), anyString(), eq("step"), eq(stepId), eq("id"), anyString(), eq("duration"), anyLong(), eq("failure"), isNull());
     }
@@ -20,6 +20,10 @@ import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
 
 import io.syndesis.common.model.DataShape;
 import io.syndesis.common.model.DataShapeKinds;
@@ -32,16 +36,24 @@ import io.syndesis.common.model.integration.Step;
 import io.syndesis.common.model.integration.StepKind;
 import io.syndesis.common.util.IOStreams;
 import io.syndesis.common.util.KeyGenerator;
+import io.syndesis.integration.runtime.capture.OutMessageCaptureProcessor;
 import io.syndesis.integration.runtime.logging.ActivityTracker;
 import io.syndesis.integration.runtime.logging.ActivityTrackingInterceptStrategy;
 import io.syndesis.integration.runtime.logging.IntegrationLoggingListener;
 import io.syndesis.integration.runtime.util.JsonSupport;
 import org.apache.camel.CamelContext;
+import org.apache.camel.Endpoint;
 import org.apache.camel.Exchange;
+import org.apache.camel.Message;
 import org.apache.camel.ProducerTemplate;
 import org.apache.camel.builder.RouteBuilder;
 import org.apache.camel.component.mock.MockEndpoint;
 import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.impl.DefaultComponent;
+import org.apache.camel.impl.ProcessorEndpoint;
+import org.apache.camel.model.ProcessorDefinition;
+import org.apache.camel.model.RouteDefinition;
+import org.apache.camel.model.SplitDefinition;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -53,6 +65,7 @@ import org.slf4j.LoggerFactory;
 import static io.syndesis.integration.runtime.IntegrationTestSupport.dumpRoutes;
 import static io.syndesis.integration.runtime.IntegrationTestSupport.newIntegrationRouteBuilder;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -69,6 +82,7 @@ public class SplitStepHandlerTest {
     private static final String START_STEP = "start-step";
     private static final String SPLIT_STEP = "split-step";
     private static final String MOCK_STEP = "mock-step";
+    private static final String MAPPER_STEP = "mapper-step";
 
     private final ActivityTracker activityTracker = Mockito.mock(ActivityTracker.class);
 
@@ -339,6 +353,237 @@ public class SplitStepHandlerTest {
         }
     }
 
+    @Test
+    public void testStreamingSplitJsonArrayInputStream() throws Exception {
+        final DefaultCamelContext context = new DefaultCamelContext();
+
+        try {
+            final RouteBuilder routes = newIntegrationRouteBuilder(activityTracker,
+                    new Step.Builder()
+                        .id(START_STEP)
+                        .stepKind(StepKind.endpoint)
+                        .action(new ConnectorAction.Builder()
+                            .descriptor(new ConnectorDescriptor.Builder()
+                                .componentScheme("direct")
+                                .putConfiguredProperty("name", "expression")
+                                .build())
+                            .build())
+                        .build(),
+                    new Step.Builder()
+                        .id(SPLIT_STEP)
+                        .stepKind(StepKind.split)
+                        .putConfiguredProperty("splitMode", "json")
+                        .build(),
+                    new Step.Builder()
+                        .id(MOCK_STEP)
+                        .stepKind(StepKind.endpoint)
+                        .action(new ConnectorAction.Builder()
+                            .descriptor(new ConnectorDescriptor.Builder()
+                                .componentScheme("mock")
+                                .putConfiguredProperty("name", "expression")
+                                .build())
+                            .build())
+                        .build()
+            );
+
+            // Set up the camel context
+            context.setUuidGenerator(KeyGenerator::createKey);
+            context.addLogListener(new IntegrationLoggingListener(activityTracker));
+            context.addInterceptStrategy(new ActivityTrackingInterceptStrategy(activityTracker));
+            context.addRoutes(routes);
+
+            context.start();
+
+            // Dump routes as XML for troubleshooting
+            dumpRoutes(context);
+
+            final ProducerTemplate template = context.createProducerTemplate();
+            final MockEndpoint result = context.getEndpoint("mock:expression", MockEndpoint.class);
+            final String body = "[{\"id\": 1, \"name\": \"a\"},{\"id\": 2, \"name\": \"b\"},{\"id\": 3, \"name\": \"c\"}]";
+
+            result.expectedMessageCount(3);
+            result.expectedBodiesReceived("{\"id\":1,\"name\":\"a\"}", "{\"id\":2,\"name\":\"b\"}", "{\"id\":3,\"name\":\"c\"}");
+
+            template.sendBody("direct:expression", new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+            result.assertIsSatisfied();
+
+            verify(activityTracker).startTracking(any(Exchange.class));
+            verifyActivityStepTracking(SPLIT_STEP, 0);
+            verifyActivityStepTracking(MOCK_STEP, 3);
+            verify(activityTracker).finishTracking(any(Exchange.class));
+        } finally {
+            context.stop();
+        }
+    }
+
+    @Test
+    public void testParallelStreamingSplitLines() throws Exception {
+        final DefaultCamelContext context = new DefaultCamelContext();
+
+        try {
+            final RouteBuilder routes = newIntegrationRouteBuilder(activityTracker,
+                    new Step.Builder()
+                        .id(START_STEP)
+                        .stepKind(StepKind.endpoint)
+                        .action(new ConnectorAction.Builder()
+                            .descriptor(new ConnectorDescriptor.Builder()
+                                .componentScheme("direct")
+                                .putConfiguredProperty("name", "expression")
+                                .build())
+                            .build())
+                        .build(),
+                    new Step.Builder()
+                        .id(SPLIT_STEP)
+                        .stepKind(StepKind.split)
+                        .putConfiguredProperty("splitMode", "lines")
+                        .putConfiguredProperty("parallel", "true")
+                        .putConfiguredProperty("parallelThreads", "2")
+                        .build(),
+                    new Step.Builder()
+                        .id(MOCK_STEP)
+                        .stepKind(StepKind.endpoint)
+                        .action(new ConnectorAction.Builder()
+                            .descriptor(new ConnectorDescriptor.Builder()
+                                .componentScheme("mock")
+                                .putConfiguredProperty("name", "expression")
+                                .build())
+                            .build())
+                        .build()
+            );
+
+            // Set up the camel context
+            context.setUuidGenerator(KeyGenerator::createKey);
+            context.addLogListener(new IntegrationLoggingListener(activityTracker));
+            context.addInterceptStrategy(new ActivityTrackingInterceptStrategy(activityTracker));
+            context.addRoutes(routes);
+
+            context.start();
+
+            // Dump routes as XML for troubleshooting
+            dumpRoutes(context);
+
+            final ProducerTemplate template = context.createProducerTemplate();
+            final MockEndpoint result = context.getEndpoint("mock:expression", MockEndpoint.class);
+            final String body = "{\"id\":1}\n{\"id\":2}\n\n{\"id\":3}\n";
+
+            result.expectedMessageCount(3);
+            result.expectedBodiesReceivedInAnyOrder("{\"id\":1}", "{\"id\":2}", "{\"id\":3}");
+
+            template.sendBody("direct:expression", new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+            result.assertIsSatisfied();
+
+            verify(activityTracker).startTracking(any(Exchange.class));
+            verifyActivityStepTracking(SPLIT_STEP, 0);
+            verifyActivityStepTracking(MOCK_STEP, 3);
+            verify(activityTracker).finishTracking(any(Exchange.class));
+        } finally {
+            context.stop();
+        }
+    }
+
+    @Test
+    public void testParallelSplitWithDataMapper() throws Exception {
+        final DefaultCamelContext context = new DefaultCamelContext();
+
+        // both split threads capture their element before either of them maps it
+        final CyclicBarrier captured = new CyclicBarrier(2);
+
+        try {
+            final RouteBuilder routes = newIntegrationRouteBuilder(activityTracker,
+                    new Step.Builder()
+                        .id(START_STEP)
+                        .stepKind(StepKind.endpoint)
+                        .action(new ConnectorAction.Builder()
+                            .descriptor(new ConnectorDescriptor.Builder()
+                                .componentScheme("direct")
+                                .putConfiguredProperty("name", "expression")
+                                .build())
+                            .build())
+                        .build(),
+                    new Step.Builder()
+                        .id(SPLIT_STEP)
+                        .stepKind(StepKind.split)
+                        .putConfiguredProperty("splitMode", "lines")
+                        .putConfiguredProperty("parallel", "true")
+                        .putConfiguredProperty("parallelThreads", "2")
+                        .build(),
+                    new Step.Builder()
+                        .id(MAPPER_STEP)
+                        .stepKind(StepKind.mapper)
+                        .putConfiguredProperty("atlasmapping", "{" +
+                            "\"AtlasMapping\":{" +
+                                "\"dataSource\":[" +
+                                    "{\"id\":\"" + SPLIT_STEP + "\",\"uri\":\"atlas:java\",\"dataSourceType\":\"SOURCE\"}," +
+                                    "{\"id\":\"target\",\"uri\":\"atlas:java\",\"dataSourceType\":\"TARGET\"}" +
+                                "]," +
+                                "\"mappings\":{}" +
+                            "}" +
+                        "}")
+                        .build(),
+                    new Step.Builder()
+                        .id(MOCK_STEP)
+                        .stepKind(StepKind.endpoint)
+                        .action(new ConnectorAction.Builder()
+                            .descriptor(new ConnectorDescriptor.Builder()
+                                .componentScheme("mock")
+                                .putConfiguredProperty("name", "expression")
+                                .build())
+                            .build())
+                        .build()
+            );
+
+            // Set up the camel context
+            context.setUuidGenerator(KeyGenerator::createKey);
+            context.addLogListener(new IntegrationLoggingListener(activityTracker));
+            context.addInterceptStrategy(new ActivityTrackingInterceptStrategy(activityTracker));
+            context.addComponent("atlas", new CapturedMessageMapperComponent(captured));
+            context.addRoutes(routes);
+
+            context.start();
+
+            // Dump routes as XML for troubleshooting
+            dumpRoutes(context);
+
+            final ProducerTemplate template = context.createProducerTemplate();
+            final MockEndpoint result = context.getEndpoint("mock:expression", MockEndpoint.class);
+            final String body = "{\"id\":1}\n{\"id\":2}\n{\"id\":3}\n{\"id\":4}\n";
+
+            result.expectedMessageCount(4);
+            result.expectedBodiesReceivedInAnyOrder("mapped {\"id\":1}", "mapped {\"id\":2}", "mapped {\"id\":3}", "mapped {\"id\":4}");
+
+            template.sendBody("direct:expression", new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+            result.assertIsSatisfied();
+
+            verify(activityTracker).startTracking(any(Exchange.class));
+            verifyActivityStepTracking(MAPPER_STEP, 4);
+            verifyActivityStepTracking(MOCK_STEP, 4);
+            verify(activityTracker).finishTracking(any(Exchange.class));
+        } finally {
+            context.stop();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    public void testOnlyParallelSplitIsolatesCapturedMessages(boolean parallel) {
+        final Step split = new Step.Builder()
+            .id(SPLIT_STEP)
+            .stepKind(StepKind.split)
+            .putConfiguredProperty("parallel", Boolean.toString(parallel))
+            .build();
+
+        final Optional<ProcessorDefinition<?>> definition = new SplitStepHandler()
+            .handle(split, new RouteDefinition(), newIntegrationRouteBuilder(activityTracker), "0", "1");
+
+        // sequential split elements share the captured messages with the
+        // steps after the split
+        assertThat(definition).containsInstanceOf(SplitDefinition.class);
+        assertThat(((SplitDefinition) definition.get()).getOnPrepare() != null).isEqualTo(parallel);
+    }
+
     @ParameterizedTest
     @ValueSource(strings = {"/person-unified-schema.json",
                  "/person-unified-schema-draft-4.json",
@@ -431,4 +676,28 @@ public class SplitStepHandlerTest {
     private void verifyActivityStepTracking(String stepId, int times) {
         verify(activityTracker, times(times)).track(eq("exchange"), anyString(), eq("step"), eq(stepId), eq("id"), anyString(), eq("duration"), anyLong(), eq("failure"), isNull());
     }
+
+    /**
+     * Stands in for the atlas component, maps the captured out message of the
+     * split step to the body of the exchange.
+     */
+    private static final class CapturedMessageMapperComponent extends DefaultComponent {
+        private final CyclicBarrier captured;
+
+        CapturedMessageMapperComponent(CyclicBarrier captured) {
+            this.captured = captured;
+        }
+
+        @Override
+        protected Endpoint createEndpoint(String uri, String remaining, Map<String, Object> parameters) {
+            parameters.clear();
+
+            return new ProcessorEndpoint(uri, this, exchange -> {
+                captured.await(5, TimeUnit.SECONDS);
+
+                final Message source = OutMessageCaptureProcessor.getCapturedMessageMap(exchange).get(SPLIT_STEP);
+                exchange.getIn().setBody("mapped " + source.getBody(String.class));
+            });
+        }
+    }
 }
@@ -115,6 +115,36 @@ public class JsonSimplePredicateTest {
         assertThat(predicate.matches(exchangeWith(Arrays.asList("{\"prop\": 3}", "{\"prop\": 4}")))).isEqualTo(false);
     }
 
+    @Test
+    public void shouldParseJsonBodyOncePerExchange() {
+        final JsonSimplePredicate first = new JsonSimplePredicate("${body.prop} == 1", CONTEXT);
+        final JsonSimplePredicate second = new JsonSimplePredicate("${body.prop} == 2", CONTEXT);
+        final Exchange exchange = exchangeWith("{\"prop\": 2}");
+
+        assertThat(first.matches(exchange)).isFalse();
+        final Object parsed = exchange.getProperty(JsonSimplePredicate.PARSED_JSON_BODY);
+        assertThat(parsed).isNotNull();
+
+        assertThat(second.matches(exchange)).isTrue();
+        assertThat(exchange.getProperty(JsonSimplePredicate.PARSED_JSON_BODY)).isSameAs(parsed);
+
+        exchange.getIn().setBody("{\"prop\": 1}");
+        assertThat(first.matches(exchange)).isTrue();
+        assertThat(exchange.getProperty(JsonSimplePredicate.PARSED_JSON_BODY)).isNotSameAs(parsed);
+    }
+
+    @Test
+    public void shouldMatchOnHeadersOfJsonMessages() {
+        final JsonSimplePredicate predicate = new JsonSimplePredicate("${body.prop} == 1 && ${header.kind} == 'x'", CONTEXT);
+        final Exchange exchange = exchangeWith("{\"prop\": 1}");
+
+        assertThat(predicate.matches(exchange)).isFalse();
+
+        exchange.getIn().setHeader("kind", "x");
+        assertThat(predicate.matches(exchange)).isTrue();
+        assertThat(exchange.getIn().getBody()).isEqualTo("{\"prop\": 1}");
+    }
+
     private static Exchange exchangeWith(final Object body) {
         final DefaultExchange exchange = new DefaultExchange(CONTEXT);
         final DefaultMessage payload = new DefaultMessage(CONTEXT);
@@ -27,6 +27,7 @@ public class ControllersConfigurationProperties {
     private int maxIntegrationsPerUser = 1;
     private int maxDeploymentsPerUser = 1;
     private int integrationStateCheckInterval = 60;
+    private int integrationWorkers = 4;
 
     public int getMaxIntegrationsPerUser() {
         return maxIntegrationsPerUser;
@@ -51,4 +52,12 @@ public class ControllersConfigurationProperties {
     public int getIntegrationStateCheckInterval() {
         return integrationStateCheckInterval;
     }
+
+    public int getIntegrationWorkers() {
+        return integrationWorkers;
+    }
+
+    public void setIntegrationWorkers(int integrationWorkers) {
+        this.integrationWorkers = integrationWorkers;
+    }
 }
@@ -19,11 +19,12 @@ import java.io.IOException;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import io.fabric8.kubernetes.client.Watch;
 import io.syndesis.common.model.ChangeEvent;
 import io.syndesis.common.model.Kind;
 import io.syndesis.common.model.integration.IntegrationDeployment;
@@ -36,6 +37,7 @@ import io.syndesis.common.util.thread.Threads;
 import io.syndesis.server.controller.ControllersConfigurationProperties;
 import io.syndesis.server.controller.StateChangeHandler;
 import io.syndesis.server.controller.StateChangeHandlerProvider;
+import io.syndesis.server.controller.StateUpdate;
 import io.syndesis.server.dao.manager.DataManager;
 import io.syndesis.server.openshift.OpenShiftService;
 import org.slf4j.Logger;
@@ -56,8 +58,9 @@ public abstract class BaseIntegrationController implements BackendController {
     private final Set<String> scheduledChecks = ConcurrentHashMap.newKeySet();
     private final ControllersConfigurationProperties properties;
 
-    private ExecutorService executor;
+    private DeploymentWorkQueue workQueue;
     private ScheduledExecutorService scheduler;
+    private Watch resourceWatch;
 
     protected BaseIntegrationController(OpenShiftService openShiftService, DataManager dataManager, EventBus eventBus,
                                      StateChangeHandlerProvider handlerFactory, ControllersConfigurationProperties properties) {
@@ -92,27 +95,31 @@ public abstract class BaseIntegrationController implements BackendController {
 
     protected ScheduledExecutorService getScheduler() { return scheduler; }
 
+    public DeploymentWorkQueue getWorkQueue() { return workQueue; }
+
     @SuppressWarnings("FutureReturnValueIgnored")
     protected void doStart() {
-        executor = Executors.newSingleThreadExecutor(Threads.newThreadFactory("Integration Controller"));
         scheduler = Executors.newScheduledThreadPool(2, Threads.newThreadFactory("Integration Controller Scheduler"));
+        workQueue = new DeploymentWorkQueue(properties.getIntegrationWorkers(), scheduler);
 
+        resourceWatch = openShiftService.watchIntegrationResources(this::onResourceChange);
         scheduler.scheduleAtFixedRate(this::scanIntegrationsForWork, 0, properties.getIntegrationStateCheckInterval(), TimeUnit.SECONDS);
         eventBus.subscribe(EVENT_BUS_ID, this::onChangeEvent);
     }
 
     protected void doStop() {
         eventBus.unsubscribe(EVENT_BUS_ID);
+        resourceWatch.close();
 
         scheduler.shutdownNow();
-        executor.shutdownNow();
+        workQueue.shutdownNow();
         try {
             boolean schedulerStopped = false;
             boolean executorStopped = false;
 
             do {
                 schedulerStopped = scheduler.awaitTermination(10, TimeUnit.SECONDS);
-                executorStopped = executor.awaitTermination(10, TimeUnit.SECONDS);
+                executorStopped = workQueue.awaitTermination(10, TimeUnit.SECONDS);
             } while (!schedulerStopped && !executorStopped);
         } catch (final InterruptedException e) {
             LOG.warn("Unable to cleanly stop: {}", e.getMessage());
@@ -121,7 +128,7 @@ public abstract class BaseIntegrationController implements BackendController {
     }
 
     protected void checkIntegrationStatusIfNotAlreadyInProgress(String id) {
-        executor.execute(() -> {
+        workQueue.execute(id, () -> {
             IntegrationDeployment integrationDeployment = dataManager.fetch(IntegrationDeployment.class, id);
             if( integrationDeployment != null) {
                 String scheduledKey = getIntegrationMarkerKey(integrationDeployment);
@@ -160,11 +167,23 @@ public abstract class BaseIntegrationController implements BackendController {
         }
     }
 
+    private void onResourceChange(String integrationId, String version) {
+        // Called from the watch, never do anything that could block here!
+        try {
+            scheduleCheck(IntegrationDeployment.compositeId(integrationId, Integer.parseInt(version)), 0);
+        } catch (NumberFormatException e) {
+            LOG.debug("Ignoring change of integration {} with unexpected version: {}", integrationId, version);
+        }
+    }
+
     private void scanIntegrationsForWork() {
         LOG.info("Checking integrations for their status.");
-        executor.execute(
-            () -> dataManager.fetchIds(IntegrationDeployment.class).forEach(this::checkIntegrationStatusIfNotAlreadyInProgress)
-        );
+        try {
+            dataManager.fetchIds(IntegrationDeployment.class).forEach(this::checkIntegrationStatusIfNotAlreadyInProgress);
+        } catch (RuntimeException e) {
+            // don't let the exception cancel the periodic scan
+            LOG.error("Error while checking integrations for their status", e);
+        }
     }
 
     private void checkIntegrationStatus(IntegrationDeployment integrationDeployment) {
@@ -197,8 +216,9 @@ public abstract class BaseIntegrationController implements BackendController {
 
     void callStateChangeHandler(StateChangeHandler handler, IntegrationDeployment integrationDeployment) {
         String integrationDeploymentId = integrationDeployment.getId().get();
-        executor.execute(() -> {
+        workQueue.execute(integrationDeploymentId, () -> {
             String checkKey = getIntegrationMarkerKey(integrationDeployment);
+            AtomicBoolean handled = new AtomicBoolean();
             scheduledChecks.add(checkKey);
 
             if (stale(handler, integrationDeployment)) {
@@ -211,27 +231,31 @@ public abstract class BaseIntegrationController implements BackendController {
                 final int deploymentVersion = integrationDeployment.getVersion();
                 LOG.info("IntegrationDeploymentId {} Integration {} : Start processing integration: {}, version: {} with handler: {}", integrationDeploymentId, integrationId, integrationId, deploymentVersion, handler.getClass().getSimpleName());
                 handler.execute(integrationDeployment, update-> {
-                    if (LOG.isInfoEnabled()) {
-                        LOG.info("{} : Setting status to {}{}",
-                            getLabel(integrationDeployment),
-                            update.getState(),
-                            Optional.ofNullable(update.getStatusMessage()).map(x->" ("+x+")").orElse(""));
+                    if (!handled.get()) {
+                        // handler.execute might block for while so refresh our copy of the integration
+                        // data before we update the current status
+                        updateState(integrationDeployment, update, dataManager.fetch(IntegrationDeployment.class, integrationDeploymentId));
+                        return;
                     }
 
-                    // handler.execute might block for while so refresh our copy of the integration
-                    // data before we update the current status
-                    IntegrationDeployment current = dataManager.fetch(IntegrationDeployment.class, integrationDeploymentId);
-                    final IntegrationDeployment updated = current.builder()
-                        .statusMessage(Optional.ofNullable(update.getStatusMessage()))
-                        .currentState(update.getState())
-                        .error(update.getError())
-                        .stepsDone(update.getStepsPerformed())
-                        .build();
-                    LOG.trace("Updated {} , Current {}", updated, current);
-                    if (!updated.equals(current)) {
-                        LOG.debug("IntegrationDeploymentId {} Integration {} , version: {} : jsonDB state update from {} to {}", integrationDeploymentId, integrationId, deploymentVersion, current.getCurrentState(), updated.getCurrentState());
-                        dataManager.update(updated.builder().updatedAt(System.currentTimeMillis()).build());
-                    }
+                    // updates after the handler returned come from work done in the
+                    // background (i.e. a finished build) on a thread of its own, apply
+                    // them in turn with the other work on the deployment
+                    workQueue.execute(integrationDeploymentId, () -> {
+                        final IntegrationDeployment current = dataManager.fetch(IntegrationDeployment.class, integrationDeploymentId);
+                        if (current == null
+                            || current.getTargetState() != integrationDeployment.getTargetState()
+                            || current.getVersion() != deploymentVersion) {
+                            LOG.debug("IntegrationDeploymentId {} Integration {} : Discarding update to {}, the deployment was deleted or changed since",
+                                integrationDeploymentId, integrationId, update.getState());
+                            return;
+                        }
+
+                        updateState(integrationDeployment, update, current);
+
+                        // check again right away
+                        scheduleCheck(integrationDeploymentId, 0);
+                    });
                 });
             } catch (Exception e) {
                 LOG.error("Error while processing integration status for integration {}", integrationDeploymentId, e);
@@ -245,6 +269,7 @@ public abstract class BaseIntegrationController implements BackendController {
                     .build());
 
             } finally {
+                handled.set(true);
                 // Add a next check for the next interval
                 reschedule(integrationDeploymentId, checkKey);
             }
@@ -252,15 +277,46 @@ public abstract class BaseIntegrationController implements BackendController {
         });
     }
 
-    @SuppressWarnings("FutureReturnValueIgnored")
+    private void updateState(IntegrationDeployment integrationDeployment, StateUpdate update, IntegrationDeployment current) {
+        final String integrationDeploymentId = integrationDeployment.getId().get();
+        if (current == null) {
+            LOG.debug("IntegrationDeploymentId {} : Not setting status to {}, the deployment was deleted", integrationDeploymentId, update.getState());
+            return;
+        }
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info("{} : Setting status to {}{}",
+                getLabel(integrationDeployment),
+                update.getState(),
+                Optional.ofNullable(update.getStatusMessage()).map(x->" ("+x+")").orElse(""));
+        }
+
+        final IntegrationDeployment updated = current.builder()
+            .statusMessage(Optional.ofNullable(update.getStatusMessage()))
+            .currentState(update.getState())
+            .error(update.getError())
+            .stepsDone(update.getStepsPerformed())
+            .build();
+        LOG.trace("Updated {} , Current {}", updated, current);
+        if (!updated.equals(current)) {
+            LOG.debug("IntegrationDeploymentId {} Integration {} , version: {} : jsonDB state update from {} to {}", integrationDeploymentId,
+                integrationDeployment.getIntegrationId().orElse(null), integrationDeployment.getVersion(), current.getCurrentState(), updated.getCurrentState());
+            dataManager.update(updated.builder().updatedAt(System.currentTimeMillis()).build());
+        }
+    }
+
     protected void reschedule(String integrationId, String checkKey) {
         LOG.debug("Reschedule IntegrationDeployment check, id:{}, keys: {}", integrationId, scheduledChecks);
-        scheduler.schedule(() -> {
+        scheduleCheck(integrationId, properties.getIntegrationStateCheckInterval());
+    }
+
+    private void scheduleCheck(String integrationId, long delaySeconds) {
+        workQueue.schedule(integrationId, () -> {
                 IntegrationDeployment i = dataManager.fetch(IntegrationDeployment.class, integrationId);
                 LOG.debug("Trigger checkIntegrationStatus, id:{}", integrationId);
                 checkIntegrationStatus(i);
             },
-            properties.getIntegrationStateCheckInterval(),
+            delaySeconds,
             TimeUnit.SECONDS
         );
     }
@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.controller.integration;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.syndesis.common.util.thread.Threads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the integration controller work on a bounded pool of workers. Work is
+ * keyed by integration deployment id: work for the same deployment runs one
+ * task after the other in submission order, work for different deployments
+ * runs in parallel. Each deployment can have one delayed check pending,
+ * scheduling a check replaces the one already pending.
+ */
+public final class DeploymentWorkQueue {
+    private static final Logger LOG = LoggerFactory.getLogger(DeploymentWorkQueue.class);
+
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService timer;
+
+    // keys with a task running, mapped to the tasks waiting for it to finish
+    private final Map<String, Deque<Task>> running = new HashMap<>();
+    private final Map<String, DelayedTask> delayed = new HashMap<>();
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public DeploymentWorkQueue(int workers, ScheduledExecutorService timer) {
+        final int size = Math.max(1, workers);
+        this.workers = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            Threads.newThreadFactory("Integration Controller"));
+        this.workers.allowCoreThreadTimeOut(true);
+        this.timer = timer;
+    }
+
+    /**
+     * Runs the given task once no other task for the same deployment is
+     * running.
+     */
+    public void execute(String deploymentId, Runnable task) {
+        final Task work = new Task(deploymentId, task);
+        queued.incrementAndGet();
+
+        synchronized (running) {
+            final Deque<Task> waiting = running.get(deploymentId);
+            if (waiting != null) {
+                waiting.add(work);
+                return;
+            }
+
+            running.put(deploymentId, new ArrayDeque<>());
+        }
+
+        dispatch(work);
+    }
+
+    /**
+     * Runs the given task after the delay, replacing any task that was
+     * scheduled for the same deployment and hasn't run yet.
+     */
+    public void schedule(String deploymentId, Runnable task, long delay, TimeUnit unit) {
+        final DelayedTask check = new DelayedTask(deploymentId, task);
+
+        synchronized (delayed) {
+            final DelayedTask previous = delayed.put(deploymentId, check);
+            if (previous != null) {
+                previous.future.cancel(false);
+            }
+
+            check.future = timer.schedule(check, delay, unit);
+        }
+    }
+
+    public void shutdownNow() {
+        synchronized (delayed) {
+            delayed.values().forEach(d -> d.future.cancel(false));
+            delayed.clear();
+        }
+
+        workers.shutdownNow();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return workers.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * The number of tasks submitted that haven't started yet, including the
+     * ones waiting for a task of the same deployment to finish.
+     */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    public int getActiveCount() {
+        return workers.getActiveCount();
+    }
+
+    public int getMaximumPoolSize() {
+        return workers.getMaximumPoolSize();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    public long getTotalWaitTime(TimeUnit unit) {
+        return unit.convert(totalWaitNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaxWaitTime(TimeUnit unit) {
+        return unit.convert(maxWaitNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    private void dispatch(Task task) {
+        try {
+            workers.execute(task);
+        } catch (RejectedExecutionException e) {
+            LOG.debug("Not running task for IntegrationDeployment {}, the queue has been shut down", task.deploymentId);
+            queued.decrementAndGet();
+            next(task.deploymentId);
+        }
+    }
+
+    private void next(String deploymentId) {
+        final Task next;
+        synchronized (running) {
+            final Deque<Task> waiting = running.get(deploymentId);
+            next = waiting == null ? null : waiting.poll();
+            if (next == null) {
+                running.remove(deploymentId);
+            }
+        }
+
+        if (next != null) {
+            dispatch(next);
+        }
+    }
+
+    private final class Task implements Runnable {
+        private final String deploymentId;
+        private final Runnable delegate;
+        private final long submitted = System.nanoTime();
+
+        Task(String deploymentId, Runnable delegate) {
+            this.deploymentId = deploymentId;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void run() {
+            final long waited = System.nanoTime() - submitted;
+            queued.decrementAndGet();
+            totalWaitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+            try {
+                delegate.run();
+            } catch (RuntimeException e) {
+                LOG.error("Error while processing IntegrationDeployment {}", deploymentId, e);
+            } finally {
+                completed.increment();
+                next(deploymentId);
+            }
+        }
+    }
+
+    private final class DelayedTask implements Runnable {
+        private final String deploymentId;
+        private final Runnable task;
+        private ScheduledFuture<?> future;
+
+        DelayedTask(String deploymentId, Runnable task) {
+            this.deploymentId = deploymentId;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            synchronized (delayed) {
+                delayed.remove(deploymentId, this);
+            }
+
+            execute(deploymentId, task);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.controller.integration.online;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.syndesis.server.controller.integration.DeploymentWorkQueue;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the state of the {@link IntegrationController} work queue. A
+ * growing {@code integration.controller.queue.depth} with all workers active
+ * means more workers are needed, see {@code controllers.integrationWorkers}.
+ */
+@Component
+@ConditionalOnProperty(value = "controllers.integration", havingValue = "s2i", matchIfMissing = true)
+public class IntegrationControllerMetrics implements MeterBinder {
+
+    private final IntegrationController controller;
+
+    public IntegrationControllerMetrics(IntegrationController controller) {
+        this.controller = controller;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("integration.controller.queue.depth", controller, queue(DeploymentWorkQueue::getQueueDepth))
+            .description("Tasks waiting for a worker or for the deployment's previous task to finish")
+            .register(registry);
+
+        Gauge.builder("integration.controller.workers.active", controller, queue(DeploymentWorkQueue::getActiveCount))
+            .description("Workers processing integration deployments")
+            .register(registry);
+
+        Gauge.builder("integration.controller.workers.max", controller, queue(DeploymentWorkQueue::getMaximumPoolSize))
+            .description("The maximum number of workers processing integration deployments")
+            .register(registry);
+
+        FunctionTimer.builder("integration.controller.queue.wait", controller,
+                c -> c.getWorkQueue() == null ? 0 : c.getWorkQueue().getCompletedCount(),
+                queue(q -> q.getTotalWaitTime(TimeUnit.NANOSECONDS)),
+                TimeUnit.NANOSECONDS)
+            .description("Time tasks spent in the queue before running")
+            .register(registry);
+
+        TimeGauge.builder("integration.controller.queue.wait.max", controller, TimeUnit.NANOSECONDS,
+                queue(q -> q.getMaxWaitTime(TimeUnit.NANOSECONDS)))
+            .description("The longest time a task spent in the queue before running")
+            .register(registry);
+    }
+
+    private static ToDoubleFunction<IntegrationController> queue(ToDoubleFunction<DeploymentWorkQueue> statistic) {
+        return c -> c.getWorkQueue() == null ? 0D : statistic.applyAsDouble(c.getWorkQueue());
+    }
+}
@@ -18,13 +18,21 @@ package io.syndesis.server.controller.integration.online;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
 
 import io.syndesis.common.model.integration.Integration;
 import io.syndesis.common.model.integration.IntegrationDeployment;
@@ -51,8 +59,24 @@ import org.springframework.stereotype.Component;
 @ConditionalOnProperty(value = "controllers.integration", havingValue = "s2i", matchIfMissing = true)
 public class PublishHandler extends BaseOnlineHandler implements StateChangeHandler {
 
+    // step recording the digest of the project files, the steps of all
+    // deployments of an integration form the index of the images built
+    // for a digest
+    private static final String DIGEST_STEP = "digest";
+
+    // step recording the prebuilt runtime image the deployment runs on
+    private static final String RUNTIME_STEP = "runtime";
+
+    // the runtime files are stored in the secret of the integration, keep
+    // them well below the 1MiB limit of secrets, base64 encoded
+    private static final long MAX_RUNTIME_FILES_SIZE = 512 * 1024;
+
     private final IntegrationProjectGenerator projectGenerator;
     private final List<DeploymentDataCustomizer> customizers;
+
+    // builds started by this handler, by deployment id and build step
+    private final ConcurrentMap<String, CompletableFuture<String>> builds = new ConcurrentHashMap<>();
+
     PublishHandler(
         OpenShiftService openShiftService,
         IntegrationDao iDao,
@@ -74,6 +98,22 @@ public class PublishHandler extends BaseOnlineHandler implements StateChangeHand
 
     @Override
     public StateUpdate execute(final IntegrationDeployment integrationDeployment) {
+        return publish(integrationDeployment, update -> {
+            // the build result is picked up by the next execution
+        });
+    }
+
+    @Override
+    public void execute(final IntegrationDeployment integrationDeployment, final Consumer<StateUpdate> updates) {
+        final StateUpdate update = publish(integrationDeployment, updates);
+        if (update != null) {
+            updates.accept(update);
+        }
+    }
+
+    private StateUpdate publish(final IntegrationDeployment integrationDeployment, final Consumer<StateUpdate> updates) {
+        forgetAbandonedBuilds();
+
         StateUpdate updateViaValidation = getValidator().validate(integrationDeployment);
         if (updateViaValidation != null) {
             return updateViaValidation;
@@ -97,7 +137,7 @@ public class PublishHandler extends BaseOnlineHandler implements StateChangeHand
 
             DeploymentData deploymentData = createDeploymentData(integration, integrationDeployment);
             String buildLabel = "buildv" + deploymentData.getVersion();
-            stepOncePerformer.perform(buildLabel, this::build, deploymentData);
+            build(buildLabel, stepOncePerformer, deploymentData, updates);
 
             if (stepOncePerformer.hasError()) {
                 logError(integrationDeployment, "[ERROR] Build failed with {} - {}",
@@ -105,12 +145,20 @@ public class PublishHandler extends BaseOnlineHandler implements StateChangeHand
                 return new StateUpdate(IntegrationDeploymentState.Error, stepOncePerformer.getStepsPerformed(), "Error", stepOncePerformer.getError());
             }
 
+            if (!stepOncePerformer.isPerformed(buildLabel)) {
+                logInfo(integrationDeployment, "[PENDING] Build {} in progress", buildLabel);
+                return new StateUpdate(IntegrationDeploymentState.Pending, stepOncePerformer.getStepsPerformed());
+            }
+
             if (hasPublishedDeployments(integrationDeployment)) {
                 return new StateUpdate(IntegrationDeploymentState.Unpublished, integrationDeployment.getStepsDone(), "Integration has still active deployments. Will retry shortly");
             }
 
             deploymentData = new DeploymentData.Builder().createFrom(deploymentData).withImage(stepOncePerformer.stepsPerformed.get(buildLabel)).build();
-            stepOncePerformer.perform("deploy", this::deploy, deploymentData);
+            // the runtime files are only generated when actually deploying,
+            // not on every check of the deployed integration
+            final boolean runtime = stepOncePerformer.isPerformed(RUNTIME_STEP);
+            stepOncePerformer.perform("deploy", (i, d) -> deploy(i, runtime ? withRuntimeFiles(integration, d) : d), deploymentData);
         } catch (Exception e) {
             logError(integrationDeployment, "[ERROR] Activation failure", e);
             // Setting a message to update means implicitly that the deployment is in an error state (for the UI)
@@ -165,16 +213,171 @@ public class PublishHandler extends BaseOnlineHandler implements StateChangeHand
     // =============================================================================
     // Various steps to perform:
 
-    private String build(IntegrationDeployment integration, DeploymentData data, IntegrationErrorHandler errorHandler)  {
-        InputStream tarInputStream = createProjectFiles(integration.getSpec(), errorHandler);
-        logInfo(integration, "Created project files and starting build");
+    /**
+     * Starts the build or picks up the result of the build started by a
+     * previous execution. The build runs in the background, once it's finished
+     * the given updates consumer receives the state with the build step
+     * performed so the deployment can continue without any thread waiting on
+     * the build.
+     */
+    private void build(String step, BuildStepOncePerformer performer, DeploymentData data, Consumer<StateUpdate> updates) {
+        final IntegrationDeployment integration = performer.getIntegrationDeployment();
+        final String buildKey = integration.getId().orElseThrow(() -> new IllegalStateException("IntegrationDeployment should have an id")) + "/" + step;
+
+        if (performer.isPerformed(step)) {
+            builds.remove(buildKey);
+            logInfo(integration, "Skipped step {} because already performed", step);
+            return;
+        }
+
+        CompletableFuture<String> build = builds.get(buildKey);
+        if (build == null) {
+            final Optional<String> runtimeImage = useRuntimeImage(integration, data);
+            if (runtimeImage.isPresent()) {
+                logInfo(integration, "Deploying on prebuilt runtime {}", runtimeImage.get());
+                performer.perform(RUNTIME_STEP, (i, d) -> runtimeImage.get(), data);
+                performer.perform(step, (i, d) -> runtimeImage.get(), data);
+                return;
+            }
+
+            performer.perform(DIGEST_STEP, this::digest, data);
+            final Optional<String> builtImage = findBuiltImage(integration, performer.getStepsPerformed().get(DIGEST_STEP), data);
+            if (builtImage.isPresent()) {
+                logInfo(integration, "Project files unchanged, reusing image {}", builtImage.get());
+                performer.perform(step, (i, d) -> builtImage.get(), data);
+                return;
+            }
+
+            InputStream tarInputStream = createProjectFiles(integration.getSpec(), performer.errorHandler(step));
+            if (performer.hasError()) {
+                return;
+            }
+
+            logInfo(integration, "Created project files and starting build");
+            build = getOpenShiftService().startBuild(integration.getSpec().getName(), data, tarInputStream);
+            builds.put(buildKey, build);
+
+            if (!build.isDone()) {
+                final Map<String, String> stepsPerformed = new HashMap<>(performer.getStepsPerformed());
+                build.whenComplete((image, failure) -> {
+                    if (failure == null) {
+                        logInfo(integration, "Build {} finished", step);
+                        final Map<String, String> withBuild = new HashMap<>(stepsPerformed);
+                        withBuild.put(step, image);
+                        updates.accept(new StateUpdate(IntegrationDeploymentState.Pending, withBuild));
+                    } else {
+                        logError(integration, "[ERROR] Build {} failed: {}", step, failure.getMessage());
+                        updates.accept(new StateUpdate(IntegrationDeploymentState.Pending, stepsPerformed, failure.getMessage()));
+                    }
+                });
+
+                return;
+            }
+        }
+
+        if (!build.isDone()) {
+            return;
+        }
+
+        builds.remove(buildKey);
+        final String image;
+        try {
+            image = build.join();
+        } catch (CompletionException e) {
+            throw SyndesisServerException.launderThrowable(e.getCause().getMessage(), e.getCause());
+        }
+
+        performer.perform(step, (i, d) -> image, data);
+    }
+
+    /**
+     * Forgets the builds of deployments that were deleted or are no longer to
+     * be published, no execution is going to pick up their result.
+     */
+    private void forgetAbandonedBuilds() {
+        final IntegrationDeploymentDao dao = getIntegrationDeploymentDao();
+        builds.keySet().removeIf(buildKey -> {
+            final IntegrationDeployment deployment = dao.fetch(buildKey.substring(0, buildKey.lastIndexOf('/')));
+            return deployment == null || deployment.getTargetState() != IntegrationDeploymentState.Published;
+        });
+    }
+
+    /**
+     * Tags the prebuilt runtime image as the image of this deployment if the
+     * integration can run on it.
+     */
+    private Optional<String> useRuntimeImage(IntegrationDeployment integration, DeploymentData data) {
+        final Optional<Map<String, byte[]>> files = generateRuntimeFiles(integration.getSpec());
+        if (!files.isPresent()) {
+            return Optional.empty();
+        }
+
+        final long size = files.get().values().stream().mapToLong(f -> f.length).sum();
+        if (size > MAX_RUNTIME_FILES_SIZE) {
+            logInfo(integration, "Runtime files too large for the prebuilt runtime: {} bytes", size);
+            return Optional.empty();
+        }
+
+        return getOpenShiftService().useRuntimeImage(integration.getSpec().getName(), data);
+    }
+
+    /**
+     * Adds the runtime files to the secret of the deployment. The generated
+     * application properties are merged with the ones in the secret as both
+     * end up in the same file.
+     */
+    private DeploymentData withRuntimeFiles(Integration integration, DeploymentData data) {
+        final Map<String, byte[]> files = new HashMap<>(generateRuntimeFiles(integration)
+            .orElseThrow(() -> new IllegalStateException("Integration can not run on the prebuilt runtime")));
+
+        final byte[] applicationProperties = files.remove("application.properties");
+        final DeploymentData.Builder builder = new DeploymentData.Builder().createFrom(data)
+            .addSecretEntry("application.properties",
+                new String(applicationProperties, StandardCharsets.UTF_8) + data.getSecret().getOrDefault("application.properties", ""));
+        files.forEach(builder::addSecretFile);
+
+        return builder.build();
+    }
+
+    private Optional<Map<String, byte[]>> generateRuntimeFiles(Integration integration) {
         try {
-            return getOpenShiftService().build(integration.getSpec().getName(), data, tarInputStream);
-        } catch (InterruptedException e) {
+            return projectGenerator.generateRuntimeFiles(integration);
+        } catch (IOException e) {
             throw SyndesisServerException.launderThrowable(e);
         }
     }
 
+    private String digest(IntegrationDeployment integration, DeploymentData data) {
+        try {
+            return projectGenerator.generateDigest(integration.getSpec());
+        } catch (IOException e) {
+            throw SyndesisServerException.launderThrowable(e);
+        }
+    }
+
+    /**
+     * Looks for an earlier deployment of the integration built from project
+     * files with the given digest, and tags the image built for it as the
+     * image of this deployment. Most recent deployments are tried first.
+     */
+    private Optional<String> findBuiltImage(IntegrationDeployment integration, String digest, DeploymentData data) {
+        final String integrationId = integration.getIntegrationId().orElseThrow(() -> new IllegalStateException("IntegrationDeployment should have an integrationId"));
+        final IntegrationDeploymentDao dao = getIntegrationDeploymentDao();
+
+        return dao.fetchIdsByPropertyValue("integrationId", integrationId).stream()
+            .map(dao::fetch)
+            .filter(Objects::nonNull)
+            .filter(d -> d.getVersion() != integration.getVersion())
+            .filter(d -> digest.equals(d.getStepsDone().get(DIGEST_STEP)))
+            .filter(d -> d.getStepsDone().containsKey("buildv" + d.getVersion()))
+            .filter(d -> !d.getStepsDone().containsKey(RUNTIME_STEP))
+            .sorted(Comparator.comparingInt(IntegrationDeployment::getVersion).reversed())
+            .map(d -> getOpenShiftService().reuseImage(integration.getSpec().getName(), data, d.getVersion()))
+            .filter(Optional::isPresent)
+            .map(Optional::get)
+            .findFirst();
+    }
+
     private String deploy(IntegrationDeployment integration, DeploymentData data) {
         logInfo(integration, "Starting deployment");
         String revision = getOpenShiftService().deploy(integration.getSpec().getName(), data);
@@ -255,11 +458,6 @@ public class PublishHandler extends BaseOnlineHandler implements StateChangeHand
         String apply(T t, DeploymentData data);
     }
 
-    @FunctionalInterface
-    public interface IoCheckedErrorHandlingFunction<T> {
-        String apply(T t, DeploymentData data, IntegrationErrorHandler errorHandler);
-    }
-
     private class BuildStepOncePerformer {
         private final Map<String, String> stepsPerformed;
         private final IntegrationDeployment integrationDeployment;
@@ -278,23 +476,26 @@ public class PublishHandler extends BaseOnlineHandler implements StateChangeHand
             }
         }
 
-        void perform(String step, IoCheckedErrorHandlingFunction<IntegrationDeployment> callable, DeploymentData data) {
-            if (!stepsPerformed.containsKey(step)) {
-                stepsPerformed.put(step, callable.apply(integrationDeployment, data,
-                        (throwable) -> {
-                        logError(integrationDeployment, "Error for step {}: {} {}",
-                                step,
-                                throwable.getClass().getName(),
-                                Optional.ofNullable(throwable.getMessage()).orElse(""));
-
-                        error = new IntegrationDeploymentError.Builder()
-                                        .type(throwable.getClass().getName())
-                                        .message(throwable.getMessage())
-                                        .build();
-                    }));
-            } else {
-                logInfo(integrationDeployment, "Skipped step {} because already performed", step);
-            }
+        IntegrationErrorHandler errorHandler(String step) {
+            return throwable -> {
+                logError(integrationDeployment, "Error for step {}: {} {}",
+                        step,
+                        throwable.getClass().getName(),
+                        Optional.ofNullable(throwable.getMessage()).orElse(""));
+
+                error = new IntegrationDeploymentError.Builder()
+                                .type(throwable.getClass().getName())
+                                .message(throwable.getMessage())
+                                .build();
+            };
+        }
+
+        boolean isPerformed(String step) {
+            return stepsPerformed.containsKey(step);
+        }
+
+        IntegrationDeployment getIntegrationDeployment() {
+            return integrationDeployment;
         }
 
         boolean hasError() {
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.controller.integration;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DeploymentWorkQueueTest {
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+
+    private final DeploymentWorkQueue queue = new DeploymentWorkQueue(4, timer);
+
+    @AfterEach
+    public void shutdown() {
+        queue.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    @Test
+    public void shouldRunDifferentDeploymentsInParallel() throws InterruptedException {
+        final CountDownLatch allStarted = new CountDownLatch(3);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        for (String id : new String[] {"a:1", "b:1", "c:1"}) {
+            queue.execute(id, () -> {
+                allStarted.countDown();
+                await(release);
+            });
+        }
+
+        assertThat(allStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(queue.getActiveCount()).isEqualTo(3);
+
+        release.countDown();
+    }
+
+    @Test
+    public void shouldSerializeWorkOfTheSameDeployment() throws InterruptedException {
+        final AtomicInteger concurrent = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+        final List<Integer> order = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(10);
+
+        for (int i = 0; i < 10; i++) {
+            final int task = i;
+            queue.execute("a:1", () -> {
+                maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                order.add(task);
+                sleep(5);
+                concurrent.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(maxConcurrent).hasValue(1);
+        assertThat(order).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+    }
+
+    @Test
+    public void shouldReportQueueDepthAndWaitTime() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(3);
+
+        queue.execute("a:1", () -> {
+            started.countDown();
+            await(release);
+            done.countDown();
+        });
+        queue.execute("a:1", done::countDown);
+        queue.execute("a:1", done::countDown);
+
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(queue.getQueueDepth()).isEqualTo(2);
+
+        sleep(20);
+        release.countDown();
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        waitUntilCompleted(3);
+        assertThat(queue.getQueueDepth()).isZero();
+        assertThat(queue.getMaxWaitTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(20);
+        assertThat(queue.getTotalWaitTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(40);
+    }
+
+    @Test
+    public void shouldKeepWorkingAfterFailure() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+
+        queue.execute("a:1", () -> {
+            throw new IllegalStateException("expected");
+        });
+        queue.execute("a:1", done::countDown);
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void shouldReplacePendingDelayedCheck() throws InterruptedException {
+        final AtomicInteger first = new AtomicInteger();
+        final CountDownLatch second = new CountDownLatch(1);
+
+        queue.schedule("a:1", first::incrementAndGet, 200, TimeUnit.MILLISECONDS);
+        queue.schedule("a:1", second::countDown, 0, TimeUnit.MILLISECONDS);
+
+        assertThat(second.await(5, TimeUnit.SECONDS)).isTrue();
+        sleep(400);
+        assertThat(first).hasValue(0);
+    }
+
+    private void waitUntilCompleted(long count) {
+        final long end = System.currentTimeMillis() + 5000;
+        while (queue.getCompletedCount() < count && System.currentTimeMillis() < end) {
+            sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.controller.integration.online;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import io.syndesis.common.model.integration.Integration;
+import io.syndesis.common.model.integration.IntegrationDeployment;
+import io.syndesis.common.model.integration.IntegrationDeploymentState;
+import io.syndesis.integration.api.IntegrationProjectGenerator;
+import io.syndesis.server.controller.StateUpdate;
+import io.syndesis.server.controller.integration.IntegrationPublishValidator;
+import io.syndesis.server.dao.IntegrationDao;
+import io.syndesis.server.dao.IntegrationDeploymentDao;
+import io.syndesis.server.openshift.DeploymentData;
+import io.syndesis.server.openshift.OpenShiftServiceNoOp;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PublishHandlerTest {
+
+    private final FakeOpenShiftService openShiftService = new FakeOpenShiftService();
+
+    private final IntegrationDeploymentDao deploymentDao = mock(IntegrationDeploymentDao.class);
+
+    private final List<StateUpdate> updates = new ArrayList<>();
+
+    private final IntegrationDeployment deployment = new IntegrationDeployment.Builder()
+        .id(IntegrationDeployment.compositeId("integration-id", 1))
+        .version(1)
+        .userId("developer")
+        .spec(new Integration.Builder()
+            .id("integration-id")
+            .name("integration")
+            .build())
+        .build();
+
+    private IntegrationProjectGenerator projectGenerator;
+
+    private PublishHandler handler;
+
+    @BeforeEach
+    public void createHandler() throws IOException {
+        projectGenerator = mock(IntegrationProjectGenerator.class);
+        when(projectGenerator.generateApplicationProperties(any())).thenReturn(new Properties());
+        when(projectGenerator.generate(any(), any())).thenAnswer(i -> new ByteArrayInputStream(new byte[0]));
+        when(projectGenerator.generateDigest(any())).thenReturn("sha256:5678");
+        when(deploymentDao.fetch(deployment.getId().get())).thenReturn(deployment);
+
+        handler = new PublishHandler(openShiftService, mock(IntegrationDao.class), deploymentDao,
+            projectGenerator, Collections.emptyList(), mock(IntegrationPublishValidator.class));
+    }
+
+    @Test
+    public void shouldNotWaitForTheBuildToFinish() {
+        handler.execute(deployment, updates::add);
+
+        assertThat(openShiftService.builds).isEqualTo(1);
+        assertThat(openShiftService.deployments).isZero();
+        assertThat(updates).hasSize(1);
+        assertThat(updates.get(0).getState()).isEqualTo(IntegrationDeploymentState.Pending);
+        assertThat(updates.get(0).getStepsPerformed()).doesNotContainKey("buildv1");
+    }
+
+    @Test
+    public void shouldReportFinishedBuildAndDeploy() {
+        handler.execute(deployment, updates::add);
+
+        openShiftService.build.complete("image@sha256:1234");
+
+        assertThat(updates).hasSize(2);
+        final StateUpdate built = updates.get(1);
+        assertThat(built.getState()).isEqualTo(IntegrationDeploymentState.Pending);
+        assertThat(built.getStepsPerformed()).containsEntry("buildv1", "image@sha256:1234");
+
+        // the controller checks again with the build step stored
+        handler.execute(deployment.builder().stepsDone(built.getStepsPerformed()).build(), updates::add);
+
+        assertThat(openShiftService.builds).isEqualTo(1);
+        assertThat(openShiftService.deployments).isEqualTo(1);
+        assertThat(openShiftService.deployedImage).isEqualTo("image@sha256:1234");
+        assertThat(updates.get(2).getStepsPerformed()).containsKeys("buildv1", "deploy");
+    }
+
+    @Test
+    public void shouldNotStartBuildTwice() {
+        handler.execute(deployment, updates::add);
+        handler.execute(deployment, updates::add);
+
+        assertThat(openShiftService.builds).isEqualTo(1);
+        assertThat(updates).hasSize(2);
+        assertThat(updates).allSatisfy(u -> assertThat(u.getStepsPerformed()).doesNotContainKey("buildv1"));
+    }
+
+    @Test
+    public void shouldPickUpBuildFinishedBeforeStateWasStored() {
+        handler.execute(deployment, updates::add);
+        openShiftService.build.complete("image@sha256:1234");
+
+        // the state update of the finished build was not yet stored
+        handler.execute(deployment, updates::add);
+
+        assertThat(openShiftService.builds).isEqualTo(1);
+        assertThat(openShiftService.deployments).isEqualTo(1);
+        assertThat(openShiftService.deployedImage).isEqualTo("image@sha256:1234");
+    }
+
+    @Test
+    public void shouldRetryFailedBuild() {
+        handler.execute(deployment, updates::add);
+        openShiftService.build.completeExceptionally(new TimeoutException("Timed out waiting for build completion."));
+
+        assertThat(updates.get(1).getStatusMessage()).isEqualTo("Timed out waiting for build completion.");
+
+        handler.execute(deployment, updates::add);
+        assertThat(updates.get(2).getStatusMessage()).isEqualTo("Timed out waiting for build completion.");
+
+        handler.execute(deployment, updates::add);
+        assertThat(openShiftService.builds).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldForgetBuildOfUnpublishedDeployment() {
+        handler.execute(deployment, updates::add);
+
+        when(deploymentDao.fetch(deployment.getId().get())).thenReturn(deployment.builder().targetState(IntegrationDeploymentState.Unpublished).build());
+        handler.execute(deployment.builder()
+            .id(IntegrationDeployment.compositeId("other-id", 1))
+            .integrationId("other-id")
+            .build(), updates::add);
+        assertThat(openShiftService.builds).isEqualTo(2);
+
+        // published again, the build of the first publish is not picked up
+        when(deploymentDao.fetch(deployment.getId().get())).thenReturn(deployment);
+        handler.execute(deployment, updates::add);
+        assertThat(openShiftService.builds).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldReuseImageOfUnchangedProject() {
+        final IntegrationDeployment previous = deployment.builder()
+            .putStepsDone("digest", "sha256:5678")
+            .putStepsDone("buildv1", "image@sha256:1234")
+            .build();
+        when(deploymentDao.fetchIdsByPropertyValue("integrationId", "integration-id")).thenReturn(new HashSet<>(Collections.singleton(previous.getId().get())));
+        when(deploymentDao.fetch(previous.getId().get())).thenReturn(previous);
+
+        final IntegrationDeployment republished = deployment.builder()
+            .id(IntegrationDeployment.compositeId("integration-id", 2))
+            .version(2)
+            .build();
+        handler.execute(republished, updates::add);
+
+        assertThat(openShiftService.builds).isZero();
+        assertThat(openShiftService.reusedVersion).isEqualTo(1);
+        assertThat(openShiftService.deployedImage).isEqualTo("image@sha256:1234");
+        assertThat(updates).hasSize(1);
+        assertThat(updates.get(0).getStepsPerformed()).containsEntry("buildv2", "image@sha256:1234").containsEntry("digest", "sha256:5678").containsKey("deploy");
+    }
+
+    @Test
+    public void shouldBuildChangedProject() {
+        final IntegrationDeployment previous = deployment.builder()
+            .putStepsDone("digest", "sha256:1234")
+            .putStepsDone("buildv1", "image@sha256:1234")
+            .build();
+        when(deploymentDao.fetchIdsByPropertyValue("integrationId", "integration-id")).thenReturn(new HashSet<>(Collections.singleton(previous.getId().get())));
+        when(deploymentDao.fetch(previous.getId().get())).thenReturn(previous);
+
+        handler.execute(deployment.builder()
+            .id(IntegrationDeployment.compositeId("integration-id", 2))
+            .version(2)
+            .build(), updates::add);
+
+        assertThat(openShiftService.builds).isEqualTo(1);
+        assertThat(openShiftService.reusedVersion).isZero();
+
+        openShiftService.build.complete("image@sha256:5678");
+        assertThat(updates.get(1).getStepsPerformed()).containsEntry("buildv2", "image@sha256:5678").containsEntry("digest", "sha256:5678");
+    }
+
+    @Test
+    public void shouldDeployOnPrebuiltRuntime() throws IOException {
+        final Map<String, byte[]> files = new HashMap<>();
+        files.put("integration.json", "{}".getBytes(StandardCharsets.UTF_8));
+        files.put("application.properties", "camel.springboot.name = integration\n".getBytes(StandardCharsets.UTF_8));
+        when(projectGenerator.generateRuntimeFiles(any())).thenReturn(Optional.of(files));
+        openShiftService.runtimeImage = "syndesis/runtime:latest";
+
+        handler.execute(deployment, updates::add);
+
+        assertThat(openShiftService.builds).isZero();
+        assertThat(openShiftService.deployedImage).isEqualTo("syndesis/runtime:latest");
+        assertThat(openShiftService.deployedData.getSecretFiles()).containsOnlyKeys("integration.json");
+        assertThat(openShiftService.deployedData.getSecret().get("application.properties")).startsWith("camel.springboot.name = integration\n");
+        assertThat(updates.get(0).getStepsPerformed())
+            .containsEntry("runtime", "syndesis/runtime:latest")
+            .containsEntry("buildv1", "syndesis/runtime:latest")
+            .containsKey("deploy");
+    }
+
+    @Test
+    public void shouldNotGenerateRuntimeFilesWhenCheckingDeployedIntegration() throws IOException {
+        when(projectGenerator.generateRuntimeFiles(any())).thenReturn(Optional.of(Collections.singletonMap("application.properties", new byte[0])));
+        openShiftService.runtimeImage = "syndesis/runtime:latest";
+
+        handler.execute(deployment, updates::add);
+        clearInvocations(projectGenerator);
+
+        // the controller checks again with the deploy step stored
+        handler.execute(deployment.builder().stepsDone(updates.get(0).getStepsPerformed()).build(), updates::add);
+
+        assertThat(openShiftService.deployments).isEqualTo(1);
+        verify(projectGenerator, never()).generateRuntimeFiles(any());
+    }
+
+    @Test
+    public void shouldBuildWithoutPrebuiltRuntime() throws IOException {
+        when(projectGenerator.generateRuntimeFiles(any())).thenReturn(Optional.of(Collections.singletonMap("integration.json", new byte[0])));
+
+        handler.execute(deployment, updates::add);
+
+        assertThat(openShiftService.builds).isEqualTo(1);
+        assertThat(updates.get(0).getStepsPerformed()).doesNotContainKey("runtime");
+    }
+
+    private static final class FakeOpenShiftService extends OpenShiftServiceNoOp {
+        private int builds;
+        private int deployments;
+        private String deployedImage;
+        private CompletableFuture<String> build;
+        private int reusedVersion;
+        private String runtimeImage;
+        private DeploymentData deployedData;
+
+        @Override
+        public CompletableFuture<String> startBuild(String name, DeploymentData data, InputStream tarInputStream) {
+            builds++;
+            build = new CompletableFuture<>();
+            return build;
+        }
+
+        @Override
+        public Optional<String> reuseImage(String name, DeploymentData data, int builtVersion) {
+            reusedVersion = builtVersion;
+            return Optional.of("image@sha256:1234");
+        }
+
+        @Override
+        public Optional<String> useRuntimeImage(String name, DeploymentData data) {
+            return Optional.ofNullable(runtimeImage);
+        }
+
+        @Override
+        public String deploy(String name, DeploymentData data) {
+            deployments++;
+            deployedData = data;
+            deployedImage = data.getImage();
+            return "1";
+        }
+    }
+}
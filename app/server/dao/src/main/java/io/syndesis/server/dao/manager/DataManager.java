@@ -270,7 +270,9 @@ public class DataManager implements DataAccessObjectRegistry {
 
         T value = cache.get(id);
         if ( value == null) {
+            long start = System.nanoTime();
             value = doWithDataAccessObject(model, d -> d.fetch(id));
+            cache.recordLoad(System.nanoTime() - start);
             if (value != null) {
                 cache.put(id, value);
             }
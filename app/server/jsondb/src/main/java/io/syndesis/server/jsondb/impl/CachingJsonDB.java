@@ -0,0 +1,306 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.jsondb.impl;
+
+import static io.syndesis.server.jsondb.impl.Strings.prefix;
+import static io.syndesis.server.jsondb.impl.Strings.suffix;
+import static io.syndesis.server.jsondb.impl.Strings.trimSuffix;
+
+import java.io.InputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import io.syndesis.common.util.EventBus;
+import io.syndesis.server.jsondb.GetOptions;
+import io.syndesis.server.jsondb.JsonDB;
+import io.syndesis.server.jsondb.JsonDBException;
+import io.syndesis.server.jsondb.WithGlobalTransaction;
+
+/**
+ * A write-through cache in front of a {@link JsonDB} holding the assembled
+ * JSON documents read from a configured set of (rarely changing) paths, like
+ * {@code /connectors} or {@code /icons}.
+ *
+ * Cached documents are invalidated when written through this instance and
+ * when a {@code jsondb-updated} or {@code jsondb-deleted} event is received on
+ * the {@link EventBus} for writes that bypass it.
+ *
+ * The event bus is local to the server process, writes made by other
+ * processes sharing the database are not seen. This is fine as long as the
+ * server runs as a single replica, which is how it is deployed. Running more
+ * replicas requires disabling the cache with {@code jsondb.cache.enabled}.
+ */
+@SuppressWarnings("PMD.TooManyMethods")
+public class CachingJsonDB implements JsonDB, WithGlobalTransaction {
+
+    private static final String SUBSCRIBER_ID = CachingJsonDB.class.getName();
+
+    private final JsonDB delegate;
+    private final EventBus bus;
+    private final List<String> cachedPaths;
+    private final Map<String, Entry> cache;
+    private final int maxEntries;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private static final class Entry {
+        private final String path;
+        private final byte[] json;
+
+        Entry(String path, byte[] json) {
+            this.path = path;
+            this.json = json;
+        }
+    }
+
+    /**
+     * @param delegate the JsonDB to cache
+     * @param bus to listen for JsonDB updates on, can be {@code null}
+     * @param cachedPaths only documents at or under these paths are cached
+     * @param maxEntries the maximum number of documents to keep, least
+     *            recently used are evicted first
+     */
+    public CachingJsonDB(JsonDB delegate, EventBus bus, Collection<String> cachedPaths, int maxEntries) {
+        this.delegate = delegate;
+        this.bus = bus;
+        this.cachedPaths = cachedPaths.stream().map(CachingJsonDB::normalize).collect(Collectors.toList());
+        this.maxEntries = maxEntries;
+        this.cache = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        if (bus != null) {
+            bus.subscribe(SUBSCRIBER_ID, this::onEvent);
+        }
+    }
+
+    public void close() {
+        if (bus != null) {
+            bus.unsubscribe(SUBSCRIBER_ID);
+        }
+    }
+
+    @Override
+    public Consumer<OutputStream> getAsStreamingOutput(String path, GetOptions options) {
+        String key = cacheKey(path, options);
+        if (key == null) {
+            return delegate.getAsStreamingOutput(path, options);
+        }
+
+        Entry entry;
+        synchronized (cache) {
+            entry = cache.get(key);
+        }
+        if (entry != null) {
+            hits.incrementAndGet();
+            return writing(entry.json);
+        }
+        misses.incrementAndGet();
+
+        // if the path gets invalidated while we're reading it we must not
+        // cache what we've read, it might predate the update
+        long readGeneration = generation.get();
+        byte[] json = delegate.getAsByteArray(path, options);
+        if (json == null) {
+            return null;
+        }
+
+        synchronized (cache) {
+            if (generation.get() == readGeneration) {
+                cache.put(key, new Entry(normalize(path), json));
+            }
+        }
+
+        return writing(json);
+    }
+
+    @Override
+    public boolean delete(String path) {
+        try {
+            return delegate.delete(path);
+        } finally {
+            invalidate(path);
+        }
+    }
+
+    @Override
+    public boolean exists(String path) {
+        return delegate.exists(path);
+    }
+
+    @Override
+    public Set<String> fetchIdsByPropertyValue(String collectionPath, String property, String value) {
+        return delegate.fetchIdsByPropertyValue(collectionPath, property, value);
+    }
+
+    @Override
+    public String createKey() {
+        return delegate.createKey();
+    }
+
+    @Override
+    public void set(String path, InputStream body) {
+        try {
+            delegate.set(path, body);
+        } finally {
+            invalidate(path);
+        }
+    }
+
+    @Override
+    public void update(String path, InputStream body) {
+        try {
+            delegate.update(path, body);
+        } finally {
+            invalidate(path);
+        }
+    }
+
+    @Override
+    public String push(String path, InputStream body) {
+        try {
+            return delegate.push(path, body);
+        } finally {
+            invalidate(path);
+        }
+    }
+
+    @Override
+    public void withGlobalTransaction(Consumer<JsonDB> handler) {
+        if (!(delegate instanceof WithGlobalTransaction)) {
+            throw new UnsupportedOperationException("The cached JsonDB does not support global transactions");
+        }
+
+        try {
+            ((WithGlobalTransaction) delegate).withGlobalTransaction(handler);
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Removes all cached documents that hold the given path or are held
+     * by it.
+     */
+    public void invalidate(String path) {
+        String invalidated = normalize(path);
+        synchronized (cache) {
+            generation.incrementAndGet();
+            for (Iterator<Entry> i = cache.values().iterator(); i.hasNext();) {
+                String cached = i.next().path;
+                if (cached.startsWith(invalidated) || invalidated.startsWith(cached)) {
+                    i.remove();
+                }
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (cache) {
+            generation.incrementAndGet();
+            cache.clear();
+        }
+    }
+
+    private void onEvent(String event, String data) {
+        if (("jsondb-updated".equals(event) || "jsondb-deleted".equals(event)) && data != null) {
+            invalidate(data);
+        }
+    }
+
+    private String cacheKey(String path, GetOptions options) {
+        String normalized = normalize(path);
+        if (cachedPaths.stream().noneMatch(normalized::startsWith)) {
+            return null;
+        }
+
+        if (options == null) {
+            return normalized;
+        }
+
+        if (options.filter() != null) {
+            // filters have no canonical form we could key on
+            return null;
+        }
+
+        return normalized + "?depth=" + options.depth()
+            + "&limitToFirst=" + options.limitToFirst()
+            + "&startAfter=" + options.startAfter()
+            + "&startAt=" + options.startAt()
+            + "&endAt=" + options.endAt()
+            + "&endBefore=" + options.endBefore()
+            + "&order=" + options.order()
+            + "&prettyPrint=" + options.prettyPrint()
+            + "&callback=" + options.callback();
+    }
+
+    private static String normalize(String path) {
+        return suffix(prefix(trimSuffix(path, "/"), "/"), "/");
+    }
+
+    private static Consumer<OutputStream> writing(byte[] json) {
+        return output -> {
+            try {
+                output.write(json);
+            } catch (IOException e) {
+                throw new JsonDBException(e);
+            }
+        };
+    }
+}
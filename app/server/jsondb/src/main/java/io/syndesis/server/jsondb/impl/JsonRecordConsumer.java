@@ -243,7 +243,11 @@ class JsonRecordConsumer implements Consumer<JsonRecord>, Closeable {
                 break;
             case JsonRecordSupport.NEG_NUMBER_VALUE_PREFIX:
             case NUMBER_VALUE_PREFIX:
-                jg.writeNumber(value.getOValue());
+                if (value.getOValue() != null) {
+                    jg.writeNumber(value.getOValue());
+                } else {
+                    jg.writeNumber(JsonRecordSupport.fromLexSortableString(value.getValue()));
+                }
                 break;
             case JsonRecordSupport.TRUE_VALUE_PREFIX:
                 jg.writeBoolean(true);
@@ -129,6 +129,21 @@ public final class JsonRecordSupport {
         return key;
     }
 
+    /**
+     * The depth of a record is the number of path separators in its path,
+     * stored along with the record so that the records at a given level,
+     * like the fields of the objects of a collection, can be selected.
+     */
+    public static int depth(String dbPath) {
+        int depth = 0;
+        for (int i = 0; i < dbPath.length(); i++) {
+            if (dbPath.charAt(i) == '/') {
+                depth++;
+            }
+        }
+        return depth;
+    }
+
     public static void jsonStreamToRecords(Set<String> indexes, JsonParser jp, String path, Consumer<JsonRecord> consumer) throws IOException {
         boolean inArray = false;
         int arrayIndex = 0;
@@ -146,7 +161,7 @@ public final class JsonRecordSupport {
                 if (inArray) {
                     currentPath = path + toArrayIndexPath(arrayIndex) + "/";
                 }
-                consumer.accept(JsonRecord.of(currentPath, String.valueOf(NULL_VALUE_PREFIX), "null", indexFieldValue(indexes, currentPath)));
+                consumer.accept(JsonRecord.of(currentPath, String.valueOf(NULL_VALUE_PREFIX), null, indexFieldValue(indexes, currentPath)));
                 if( inArray ) {
                     arrayIndex++;
                 } else {
@@ -163,13 +178,14 @@ public final class JsonRecordSupport {
                 if( nextToken == JsonToken.VALUE_STRING ) {
                     value = STRING_VALUE_PREFIX + value; //NOPMD
                 } else if( nextToken == JsonToken.VALUE_NUMBER_INT || nextToken == JsonToken.VALUE_NUMBER_FLOAT ) {
-                    ovalue = value; // hold on to the original number in th ovalue field.
-                    value = toLexSortableString(value); // encode it so we can lexically sort.
+                    String original = value;
+                    value = toLexSortableString(original); // encode it so we can lexically sort.
+                    if( !original.equals(fromLexSortableString(value)) ) {
+                        ovalue = original; // hold on to the original number if we can't decode it from the value.
+                    }
                 } else if( nextToken == JsonToken.VALUE_TRUE ) {
-                    ovalue = value;
                     value = String.valueOf(TRUE_VALUE_PREFIX);
                 } else if( nextToken == JsonToken.VALUE_FALSE ) {
-                    ovalue = value;
                     value = String.valueOf(FALSE_VALUE_PREFIX);
                 }
 
@@ -285,16 +301,86 @@ public final class JsonRecordSupport {
     }
 
     static int fromLexSortableStringToInt(String value) {
-        // Trim the initial markers.
-        String remaining = value.replaceFirst("^" + Pattern.quote(String.valueOf(NUMBER_VALUE_PREFIX)) + "+", "");
-
-        int rc = 1;
-        while (!remaining.isEmpty()) {
-            String x = remaining.substring(0, rc);
-            remaining = remaining.substring(rc);
-            rc = Integer.parseInt(x);
+        // Skip the initial markers, there is one per length chunk.
+        int chunks = 0;
+        while (value.charAt(chunks) == NUMBER_VALUE_PREFIX) {
+            chunks++;
+        }
+
+        int pos = chunks;
+        int length = 1;
+        int rc = 0;
+        for (int i = 0; i < chunks; i++) {
+            rc = 0;
+            for (int j = 0; j < length; j++) {
+                rc = rc * 10 + value.charAt(pos++) - '0';
+            }
+            length = rc;
         }
         return rc;
     }
 
+    /**
+     * Decodes a value encoded with {@link #toLexSortableString(String)} back
+     * to the number's text.
+     *
+     * @return the decoded number or {@code null} if the value can't be decoded
+     */
+    @SuppressWarnings("PMD.NPathComplexity")
+    public static String fromLexSortableString(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+
+        boolean negative = value.charAt(0) == NEG_NUMBER_VALUE_PREFIX;
+        char marker = negative ? NEG_NUMBER_VALUE_PREFIX : NUMBER_VALUE_PREFIX;
+        int chunks = 0;
+        while (chunks < value.length() && value.charAt(chunks) == marker) {
+            chunks++;
+        }
+
+        char[] rest = value.substring(chunks).toCharArray();
+        if (negative) {
+            for (int i = 0; i < rest.length; i++) {
+                char c = rest[i];
+                if ('0' <= c && c <= '9') {
+                    rest[i] = (char) ('9' - (c - '0'));
+                }
+            }
+        }
+
+        int pos = 0;
+        int length = 1;
+        String integer = null;
+        try {
+            for (int i = 0; i < chunks; i++) {
+                if (pos + length > rest.length) {
+                    return null;
+                }
+                integer = new String(rest, pos, length);
+                pos += length;
+                if (i + 1 < chunks) {
+                    length = Integer.parseInt(integer);
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        if (integer == null) {
+            return null;
+        }
+
+        StringBuilder builder = new StringBuilder(rest.length + 2);
+        if (negative) {
+            builder.append('-');
+        }
+        builder.append(integer);
+        if (pos < rest.length) {
+            // the fraction is terminated by the marker of the opposite sign
+            builder.append('.').append(rest, pos, rest.length - pos - 1);
+        }
+        return builder.toString();
+    }
+
 }
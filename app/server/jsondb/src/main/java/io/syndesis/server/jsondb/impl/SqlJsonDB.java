@@ -16,7 +16,6 @@
 package io.syndesis.server.jsondb.impl;
 
 import static io.syndesis.server.jsondb.impl.JsonRecordSupport.STRING_VALUE_PREFIX;
-import static io.syndesis.server.jsondb.impl.JsonRecordSupport.validateKey;
 import static io.syndesis.server.jsondb.impl.Strings.prefix;
 import static io.syndesis.server.jsondb.impl.Strings.suffix;
 import static io.syndesis.server.jsondb.impl.Strings.trimSuffix;
@@ -26,6 +25,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayDeque;
@@ -33,12 +33,25 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -46,11 +59,9 @@ import java.util.stream.Collectors;
 import org.skife.jdbi.v2.DBI;
 import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.PreparedBatch;
-import org.skife.jdbi.v2.Query;
 import org.skife.jdbi.v2.ResultIterator;
 import org.skife.jdbi.v2.StatementContext;
 import org.skife.jdbi.v2.tweak.ResultSetMapper;
-import org.skife.jdbi.v2.util.IntegerColumnMapper;
 import org.skife.jdbi.v2.util.StringColumnMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -64,11 +75,11 @@ import io.syndesis.common.util.EventBus;
 import io.syndesis.common.util.KeyGenerator;
 import io.syndesis.common.util.SyndesisServerException;
 import io.syndesis.common.util.TransactedEventBus;
+import io.syndesis.common.util.thread.Threads;
 import io.syndesis.server.jsondb.GetOptions;
 import io.syndesis.server.jsondb.JsonDB;
 import io.syndesis.server.jsondb.JsonDBException;
 import io.syndesis.server.jsondb.WithGlobalTransaction;
-import io.syndesis.server.jsondb.impl.expr.SqlExpressionBuilder;
 
 /**
  * Implements the JsonDB via DBI/JDBC
@@ -85,10 +96,33 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
         PostgreSQL, SQLite, H2, CockroachDB
     }
 
+    private static final int INDEX_BUILD_PAGE_SIZE = 500;
+
+    private static final int DIFF_FETCH_SIZE = 500;
+
+    // bytes of paths and values bound to a batch before it is written
+    private static final long MAX_BATCH_SIZE = 512 * 1024;
+
     protected final DBI dbi;
     private final EventBus bus;
-    private final Collection<Index> indexes;
-    private final Set<String> indexPaths = new HashSet<>();
+    // indexes declared by the schema, maintained by all writes from the start
+    private final List<Index> schemaIndexes;
+    private final List<Index> indexes;
+    // indexes maintained on writes, including the ones still being built
+    private final Set<String> indexPaths;
+    // indexes whose existing records are still being indexed
+    private final Set<String> buildingIndexPaths;
+    // held for reading by writes from reading indexPaths until they commit,
+    // for writing while declaring an index
+    private final ReadWriteLock indexLock;
+    private final ExecutorService indexBuilder;
+    private final SqlQueryPlanner planner = new SqlQueryPlanner(this);
+
+    private final AtomicLong recordsInserted;
+    private final AtomicLong recordsUpdated;
+    private final AtomicLong recordsDeleted;
+    private final AtomicLong recordsUnchanged;
+    private final AtomicLong fullTableScans;
 
     // These values are used to compute a seq key
     private DatabaseKind databaseKind = DatabaseKind.PostgreSQL;
@@ -100,10 +134,21 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
     public SqlJsonDB(DBI dbi, EventBus bus, Collection<Index> indexes) {
         this.dbi = dbi;
         this.bus = bus;
-        this.indexes = indexes;
+        this.schemaIndexes = Collections.unmodifiableList(new ArrayList<>(indexes));
+        this.indexes = new CopyOnWriteArrayList<>(indexes);
+        this.indexPaths = ConcurrentHashMap.newKeySet();
+        this.buildingIndexPaths = ConcurrentHashMap.newKeySet();
+        this.indexLock = new ReentrantReadWriteLock();
+        // a single thread, only kept while indexes are being built
+        this.indexBuilder = new ThreadPoolExecutor(0, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), Threads.newThreadFactory("JsonDB index"));
+        this.recordsInserted = new AtomicLong();
+        this.recordsUpdated = new AtomicLong();
+        this.recordsDeleted = new AtomicLong();
+        this.recordsUnchanged = new AtomicLong();
+        this.fullTableScans = new AtomicLong();
 
         for (Index index : indexes) {
-            this.indexPaths.add(index.getPath()+"/#"+index.getField());
+            this.indexPaths.add(indexPath(index));
         }
 
         // Lets find out the type of DB we are working with.
@@ -126,25 +171,84 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
     }
 
 
+    /**
+     * Shares the indexes and statistics of the given JsonDB, used to run
+     * within a transaction of that JsonDB.
+     */
+    private SqlJsonDB(DBI dbi, EventBus bus, SqlJsonDB shared) {
+        this.dbi = dbi;
+        this.bus = bus;
+        this.schemaIndexes = shared.schemaIndexes;
+        this.indexes = shared.indexes;
+        this.indexPaths = shared.indexPaths;
+        this.buildingIndexPaths = shared.buildingIndexPaths;
+        this.indexLock = shared.indexLock;
+        this.indexBuilder = shared.indexBuilder;
+        this.recordsInserted = shared.recordsInserted;
+        this.recordsUpdated = shared.recordsUpdated;
+        this.recordsDeleted = shared.recordsDeleted;
+        this.recordsUnchanged = shared.recordsUnchanged;
+        this.fullTableScans = shared.fullTableScans;
+        this.databaseKind = shared.databaseKind;
+    }
+
     public void createTables() {
         withTransaction(dbi -> {
             if(databaseKind == DatabaseKind.PostgreSQL) {
-                dbi.update("CREATE TABLE IF NOT EXISTS jsondb (path VARCHAR COLLATE \"C\" PRIMARY KEY, value VARCHAR, ovalue VARCHAR, idx VARCHAR COLLATE \"C\")");
+                dbi.update("CREATE TABLE IF NOT EXISTS jsondb (path VARCHAR COLLATE \"C\" PRIMARY KEY, value VARCHAR, ovalue VARCHAR, idx VARCHAR COLLATE \"C\", depth INTEGER)");
+                dbi.update("CREATE TABLE IF NOT EXISTS jsondb_indexes (idx VARCHAR COLLATE \"C\" PRIMARY KEY)");
                 dbi.update("CREATE INDEX IF NOT EXISTS jsondb_idx ON jsondb (idx, value) WHERE idx IS NOT NULL");
                 dbi.update("CREATE INDEX IF NOT EXISTS jsondb_activity_idx ON jsondb (path DESC)");
             } else {
-                dbi.update("CREATE TABLE jsondb (path VARCHAR PRIMARY KEY, value VARCHAR, ovalue VARCHAR, idx VARCHAR)");
+                dbi.update("CREATE TABLE IF NOT EXISTS jsondb (path VARCHAR PRIMARY KEY, value VARCHAR, ovalue VARCHAR, idx VARCHAR, depth INTEGER)");
+                dbi.update("CREATE TABLE IF NOT EXISTS jsondb_indexes (idx VARCHAR PRIMARY KEY)");
             }
+            addDepthColumn(dbi);
             if( databaseKind == DatabaseKind.H2 ) {
+                dbi.update("CREATE INDEX IF NOT EXISTS jsondb_idx ON jsondb (idx, value)");
                 dbi.update("CREATE ALIAS IF NOT EXISTS split_part FOR \""+Strings.class.getName()+".splitPart\"");
                 dbi.update("CREATE ALIAS IF NOT EXISTS trim_suffix FOR \""+Strings.class.getName()+".trimSuffix\"");
             }
         });
     }
 
+    /**
+     * Tables created before the depth column was introduced get the column
+     * and the depth of their records, only done once as writes maintain the
+     * depth from then on.
+     */
+    private static void addDepthColumn(Handle dbi) {
+        if (hasColumn(dbi, "jsondb", "depth")) {
+            return;
+        }
+
+        LOG.info("Adding the depth column to the jsondb table");
+        dbi.update("ALTER TABLE jsondb ADD COLUMN depth INTEGER");
+        dbi.update("UPDATE jsondb SET depth = length(path) - length(replace(path, '/', ''))");
+    }
+
+    private static boolean hasColumn(Handle dbi, String table, String column) {
+        try {
+            DatabaseMetaData metaData = dbi.getConnection().getMetaData();
+            // unquoted identifiers are stored upper case by some databases
+            // and lower case by others
+            for (String[] name : new String[][] {{table, column}, {table.toUpperCase(Locale.US), column.toUpperCase(Locale.US)}}) {
+                try (ResultSet columns = metaData.getColumns(null, null, name[0], name[1])) {
+                    if (columns.next()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        } catch (SQLException e) {
+            throw new JsonDBException(e);
+        }
+    }
+
     public void dropTables() {
         withTransaction(dbi -> {
             dbi.update("DROP TABLE jsondb");
+            dbi.update("DROP TABLE IF EXISTS jsondb_indexes");
         });
     }
 
@@ -153,17 +257,7 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
         return KeyGenerator.createKey();
     }
 
-    private static String incrementKey(String value) {
-        if( value == null || value.isEmpty()) {
-            return value;
-        }
-        char[] chars = value.toCharArray();
-        chars[chars.length-1]++;
-        return new String(chars);
-    }
-
     @Override
-    @SuppressWarnings({"PMD.ExcessiveMethodLength", "PMD.NPathComplexity"})
     public Consumer<OutputStream> getAsStreamingOutput(String path, GetOptions options) {
 
         GetOptions o;
@@ -175,99 +269,17 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
 
         // Lets normalize the path a bit
         String baseDBPath = JsonRecordSupport.convertToDBPath(path);
-        String like = baseDBPath + "%";
-        GetOptions.Order order = o.order();
-        if( order == null ) {
-            order = GetOptions.Order.ASC;
-        }
 
         Consumer<OutputStream> result = null;
         final Handle h = dbi.open();
         try {
+            // the records are read through a cursor, only done within a
+            // transaction, so that reading can stop at the requested limit
+            h.begin();
 
-            StringBuilder sql = new StringBuilder(250);
             // Creating the iterator could fail with a runtime exception,
-            ArrayList<Consumer<Query<Map<String, Object>>>> binds = new ArrayList<>();
-
-            if( o.filter() == null ) {
-                sql.append("select path,value,ovalue from jsondb where path LIKE :like");
-            } else {
-                sql.append("SELECT path,value,ovalue FROM jsondb A INNER JOIN (");
-                SqlExpressionBuilder.create(this, o.filter(), baseDBPath).build(sql, binds);
-                sql.append(") B ON A.path LIKE B.match_path||'%'");
-            }
-
-            if (o.startAfter() != null) {
-                String startAfter = validateKey(o.startAfter());
-                if (o.order() == GetOptions.Order.DESC) {
-                    sql.append(" and path <= :startAfter");
-                    binds.add(query -> {
-                        String bindPath = baseDBPath + startAfter;
-                        query.bind("startAfter", bindPath);
-                    });
-                } else {
-                    sql.append(" and path >= :startAfter");
-                    binds.add(query -> {
-                        String bindPath = baseDBPath + incrementKey(startAfter);
-                        query.bind("startAfter", bindPath);
-                    });
-                }
-            }
-            if (o.startAt() != null) {
-                String startAt = validateKey(o.startAt());
-                if (o.order() == GetOptions.Order.DESC) {
-                    sql.append(" and path < :startAt");
-                    binds.add(query -> {
-                        String bindPath = baseDBPath + incrementKey(startAt);
-                        query.bind("startAt", bindPath);
-                    });
-                } else {
-                    sql.append(" and path >= :startAt");
-                    binds.add(query -> {
-                        String bindPath = baseDBPath + startAt;
-                        query.bind("startAt", bindPath);
-                    });
-                }
-            }
-            if (o.endAt() != null) {
-                String endAt = validateKey(o.endAt());
-                if (o.order() == GetOptions.Order.DESC) {
-                    sql.append(" and path > :endAt");
-                    binds.add(query -> {
-                        String value = baseDBPath + endAt;
-                        query.bind("endAt", value);
-                    });
-                } else {
-                    sql.append(" and path < :endAt");
-                    binds.add(query -> {
-                        String bindPath = baseDBPath + incrementKey(endAt);
-                        query.bind("endAt", bindPath);
-                    });
-                }
-            }
-            if (o.endBefore() != null) {
-                String endBefore = validateKey(o.endBefore());
-                if (o.order() == GetOptions.Order.DESC) {
-                    sql.append(" and path >= :endBefore");
-                    binds.add(query -> {
-                        String value = baseDBPath + incrementKey(endBefore);
-                        query.bind("endBefore", value);
-                    });
-                } else {
-                    sql.append(" and path < :endBefore");
-                    binds.add(query -> {
-                        String value = baseDBPath + endBefore;
-                        query.bind("endBefore", value);
-                    });
-                }
-            }
-
-            sql.append(" order by path ").append(order);
-            Query<Map<String, Object>> query = h.createQuery(sql.toString()).bind("like", like);
-            for (Consumer<Query<Map<String, Object>>> bind : binds) {
-                bind.accept(query);
-            }
-            ResultIterator<JsonRecord> iterator = query.map(JsonRecordMapper.INSTANCE).iterator();
+            SqlQueryPlanner.Plan plan = planner.plan(baseDBPath, o);
+            ResultIterator<JsonRecord> iterator = plan.createQuery(h).map(JsonRecordMapper.INSTANCE).iterator();
 
             try {
                 // At this point we know if we can produce results..
@@ -281,7 +293,7 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
                             throw new JsonDBException(e);
                         } finally {
                             iterator.close();
-                            h.close();
+                            closeReadHandle(h);
                         }
                     };
                 }
@@ -294,20 +306,30 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
         } finally {
             // if we are producing results, then defer closing the handle
             if (result == null) {
-                h.close();
+                closeReadHandle(h);
             }
         }
         return result;
     }
 
 
+    private static void closeReadHandle(Handle h) {
+        try {
+            if (h.isInTransaction()) {
+                // nothing was written
+                h.rollback();
+            }
+        } finally {
+            h.close();
+        }
+    }
+
     @Override
     public boolean delete(String path) {
         String baseDBPath = JsonRecordSupport.convertToDBPath(path);
-        String like = baseDBPath+"%";
         boolean rc[] = new boolean[]{false};
         withTransaction(dbi -> {
-            rc[0] = deleteJsonRecords(dbi, baseDBPath, like) > 0;
+            rc[0] = deleteJsonRecords(dbi, baseDBPath) > 0;
         });
         if( bus!=null && rc[0] ) {
             bus.broadcast("jsondb-deleted", prefix(trimSuffix(path, "/"), "/"));
@@ -322,10 +344,9 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
     @Override
     public boolean exists(String path) {
         String baseDBPath = JsonRecordSupport.convertToDBPath(path);
-        String like = baseDBPath+"%";
         boolean rc[] = new boolean[]{false};
         withTransaction(dbi -> {
-            rc[0] = countJsonRecords(dbi, like) > 0;
+            rc[0] = anyJsonRecords(dbi, baseDBPath);
         });
         return rc[0];
     }
@@ -336,9 +357,10 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
         String path = prefix(trimSuffix(collectionPath, "/"), "/");
 
         String idx = path+"/#"+property;
-        if( !indexPaths.contains(idx) ) {
+        if( !isIndexReady(idx) ) {
             String message = "Index not defined for:  collectionPath: " + path + ", property: " + property;
             LOG.warn("fetchIdsByPropertyValue not optimzed !!!: {}", message);
+            fullTableScans.incrementAndGet();
             return fetchIdsByPropertyValueFullTableScan(collectionPath, property, value);
         } else {
             final AtomicReference<Set<String>> ret = new AtomicReference<>();
@@ -384,6 +406,169 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
         return ret.get();
     }
 
+    /**
+     * Records the indexes declared by the schema as built. The schema indexes
+     * are ready right away as all writes maintain them, except for the ones
+     * declared since the schema indexes were last recorded: the records
+     * stored before have no index values, they are indexed in the background
+     * and lookups by those indexes scan the table until then. When no schema
+     * index was recorded so far all of them are assumed to be built, as
+     * writes have always maintained them.
+     *
+     * @return completes once the newly declared schema indexes are built
+     */
+    public CompletableFuture<Void> declareSchemaIndexes() {
+        List<Index> added = new ArrayList<>();
+        withTransaction(h -> {
+            Set<String> recorded = new HashSet<>(h.createQuery("SELECT idx FROM jsondb_indexes")
+                .map(StringColumnMapper.INSTANCE)
+                .list());
+            boolean tracked = !recorded.isEmpty();
+
+            for (Index index : schemaIndexes) {
+                String idx = indexPath(index);
+                if (recorded.remove(idx)) {
+                    continue;
+                }
+
+                if (tracked) {
+                    added.add(index);
+                } else {
+                    recordIndex(h, idx);
+                }
+            }
+
+            // indexes no longer declared are not maintained from now on and
+            // need to be built again should they be declared again
+            for (String idx : recorded) {
+                h.update("DELETE FROM jsondb_indexes WHERE idx = ?", idx);
+            }
+        });
+
+        List<CompletableFuture<Void>> builds = new ArrayList<>();
+        for (Index index : added) {
+            String idx = indexPath(index);
+            LOG.info("Index {} declared since the last start, indexing the stored records", idx);
+            buildingIndexPaths.add(idx);
+            builds.add(CompletableFuture.runAsync(() -> {
+                buildIndex(index, idx);
+                withTransaction(h -> recordIndex(h, idx));
+            }, indexBuilder));
+        }
+
+        return CompletableFuture.allOf(builds.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private void recordIndex(Handle h, String idx) {
+        if (databaseKind == DatabaseKind.H2) {
+            h.update("MERGE INTO jsondb_indexes (idx) KEY (idx) VALUES (?)", idx);
+        } else {
+            h.update("INSERT INTO jsondb_indexes (idx) VALUES (?) ON CONFLICT DO NOTHING", idx);
+        }
+    }
+
+    /**
+     * Declares a new index. Records written from now on are indexed right
+     * away, the records already stored are indexed in the background in small
+     * transactions so that the collection stays writable. Until the returned
+     * future completes lookups by the indexed property keep scanning the
+     * table.
+     */
+    public CompletableFuture<Void> createIndex(Index index) {
+        String idx = indexPath(index);
+        // once the write lock is acquired all writes that might not have
+        // seen the index have committed, so a single pass over the stored
+        // records indexes all records written without it
+        indexLock.writeLock().lock();
+        try {
+            if (indexPaths.contains(idx)) {
+                return CompletableFuture.completedFuture(null);
+            }
+            buildingIndexPaths.add(idx);
+            indexPaths.add(idx);
+            indexes.add(index);
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+
+        return CompletableFuture.runAsync(() -> buildIndex(index, idx), indexBuilder);
+    }
+
+    /**
+     * @return {@code true} if the index exists and all stored records have
+     *         been indexed
+     */
+    public boolean isIndexReady(String indexPath) {
+        return indexPaths.contains(indexPath) && !buildingIndexPaths.contains(indexPath);
+    }
+
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private void buildIndex(Index index, String idx) {
+        String collection = JsonRecordSupport.convertToDBPath(index.getPath());
+        String fieldSuffix = "/" + index.getField() + "/";
+        // records of the indexed field: /collection/:id/field/
+        int depth = JsonRecordSupport.depth(collection) + 2;
+
+        String[] from = {collection};
+        long[] indexed = {0};
+        boolean[] more = {true};
+        boolean built = false;
+        try {
+            while (more[0]) {
+                withTransaction(h -> {
+                    List<String> paths = h.createQuery("SELECT path FROM jsondb WHERE path > :from AND path < :to AND depth = :depth ORDER BY path LIMIT :limit")
+                        .bind("from", from[0])
+                        .bind("to", Strings.incrementKey(collection))
+                        .bind("depth", depth)
+                        .bind("limit", INDEX_BUILD_PAGE_SIZE)
+                        .map(StringColumnMapper.INSTANCE)
+                        .list();
+
+                    PreparedBatch batch = h.prepareBatch("UPDATE jsondb SET idx = :idx WHERE path = :path AND idx IS NULL");
+                    int updates = 0;
+                    for (String path : paths) {
+                        if (path.endsWith(fieldSuffix)) {
+                            batch.bind("idx", idx).bind("path", path).add();
+                            updates++;
+                        }
+                    }
+                    if (updates > 0) {
+                        batch.execute();
+                        indexed[0] += updates;
+                    }
+
+                    more[0] = paths.size() == INDEX_BUILD_PAGE_SIZE;
+                    if (!paths.isEmpty()) {
+                        from[0] = paths.get(paths.size() - 1);
+                    }
+                });
+            }
+
+            built = true;
+            LOG.info("Index {} built, {} existing records indexed", idx, indexed[0]);
+        } catch (RuntimeException e) {
+            LOG.error("Unable to build index {}, lookups by {} keep scanning the table", idx, index.getField(), e);
+            throw e;
+        } finally {
+            if (!built) {
+                // an incomplete index must not be used, drop it so it can be
+                // declared again
+                indexLock.writeLock().lock();
+                try {
+                    indexes.remove(index);
+                    indexPaths.remove(idx);
+                } finally {
+                    indexLock.writeLock().unlock();
+                }
+            }
+            buildingIndexPaths.remove(idx);
+        }
+    }
+
+    private static String indexPath(Index index) {
+        return index.getPath() + "/#" + index.getField();
+    }
+
     @Override
     public String push(String path, InputStream body) {
         String key = createKey();
@@ -391,19 +576,141 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
         return key;
     }
 
+    /**
+     * Writes records in batches, counting the records touched.
+     */
     static class BatchManager {
 
         private final Handle dbi;
         private long batchSize;
         private PreparedBatch insertBatch;
+        private long deleteBatchSize;
+        private PreparedBatch deleteBatch;
+        private long updateBatchSize;
+        private PreparedBatch updateBatch;
+
+        private int inserted;
+        private int updated;
+        private int deleted;
+        private int unchanged;
 
         BatchManager(Handle dbi) {
             this.dbi = dbi;
         }
 
-        public void deleteRecordsForSet(String baseDBPath) {
-            String like = baseDBPath + "%";
-            deleteJsonRecords(dbi, baseDBPath, like);
+        /**
+         * Replaces the records stored under the base path with the records
+         * given to the returned diff. The stored records are read in path
+         * order and merged with the given records as they arrive, so that
+         * only the records that differ are deleted, updated or inserted.
+         * Stored records skipped by the merge are kept until the end, as a
+         * record given later out of path order may still match them.
+         */
+        public RecordDiff diffRecordsForSet(String baseDBPath) {
+            deleted += deleteParentRecords(dbi, baseDBPath);
+
+            ResultIterator<JsonRecord> existing = dbi.createQuery("SELECT path,value,ovalue,idx FROM jsondb WHERE path >= :from AND path < :to ORDER BY path")
+                .bind("from", baseDBPath)
+                .bind("to", Strings.incrementKey(baseDBPath))
+                .setFetchSize(DIFF_FETCH_SIZE)
+                .map(IndexedJsonRecordMapper.INSTANCE)
+                .iterator();
+
+            return new RecordDiff(existing);
+        }
+
+        /**
+         * Merges the given records with the stored ones, must be finished
+         * once all records of the document were given.
+         */
+        final class RecordDiff implements Consumer<JsonRecord>, AutoCloseable {
+            private final ResultIterator<JsonRecord> existing;
+            private final Map<String, JsonRecord> skipped = new HashMap<>();
+            private final Consumer<JsonRecord> insert = createSetConsumer();
+            private JsonRecord next;
+
+            RecordDiff(ResultIterator<JsonRecord> existing) {
+                this.existing = existing;
+                this.next = existing.hasNext() ? existing.next() : null;
+            }
+
+            @Override
+            public void accept(JsonRecord record) {
+                JsonRecord stored = skipped.remove(record.getPath());
+                if (stored == null) {
+                    while (next != null && next.getPath().compareTo(record.getPath()) < 0) {
+                        skipped.put(next.getPath(), next);
+                        next = existing.hasNext() ? existing.next() : null;
+                    }
+
+                    if (next != null && next.getPath().equals(record.getPath())) {
+                        stored = next;
+                        next = existing.hasNext() ? existing.next() : null;
+                    }
+                }
+
+                if (stored == null) {
+                    insert.accept(record);
+                } else if (Objects.equals(stored.getValue(), record.getValue())
+                    && Objects.equals(stored.getOValue(), record.getOValue())
+                    && Objects.equals(stored.getIndex(), record.getIndex())) {
+                    unchanged++;
+                } else {
+                    update(record);
+                }
+            }
+
+            /**
+             * Deletes the stored records that were not given and writes
+             * the pending batches.
+             */
+            public void finish() {
+                skipped.keySet().forEach(BatchManager.this::delete);
+                skipped.clear();
+                while (next != null) {
+                    delete(next.getPath());
+                    next = existing.hasNext() ? existing.next() : null;
+                }
+
+                flush();
+            }
+
+            @Override
+            public void close() {
+                existing.close();
+            }
+        }
+
+        private void delete(String path) {
+            if (deleteBatch == null) {
+                deleteBatch = dbi.prepareBatch("DELETE FROM jsondb WHERE path = :path");
+            }
+            deleteBatch.bind("path", path).add();
+            deleted++;
+
+            deleteBatchSize += path.length();
+            if (deleteBatchSize > MAX_BATCH_SIZE) {
+                deleteBatch.execute();
+                deleteBatchSize = 0;
+            }
+        }
+
+        private void update(JsonRecord record) {
+            if (updateBatch == null) {
+                updateBatch = dbi.prepareBatch("UPDATE jsondb SET value = :value, ovalue = :ovalue, idx = :idx WHERE path = :path");
+            }
+            updateBatch.bind("path", record.getPath())
+                .bind("value", record.getValue())
+                .bind("ovalue", record.getOValue())
+                .bind("idx", record.getIndex())
+                .add();
+            updated++;
+
+            updateBatchSize += record.getPath().length() + record.getValue().length();
+            if (updateBatchSize > MAX_BATCH_SIZE) {
+                updateBatch.execute();
+                updateBatchSize = 0;
+            }
         }
 
         public Consumer<JsonRecord> createSetConsumer() {
@@ -413,10 +720,12 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
                     .bind("value", r.getValue())
                     .bind("ovalue", r.getOValue())
                     .bind("idx", r.getIndex())
+                    .bind("depth", JsonRecordSupport.depth(r.getPath()))
                     .add();
+                inserted++;
 
                 batchSize += r.getPath().length() + r.getValue().length();
-                if (batchSize > 512 * 1024) { // Write the batch once we have enough data.
+                if (batchSize > MAX_BATCH_SIZE) { // Write the batch once we have enough data.
                     insert.execute();
                     batchSize = 0;
                 }
@@ -425,32 +734,40 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
 
         public PreparedBatch getInsertBatch() {
             if (insertBatch == null) {
-                insertBatch = dbi.prepareBatch("INSERT into jsondb (path, value, ovalue, idx) values (:path, :value, :ovalue, :idx)");
+                insertBatch = dbi.prepareBatch("INSERT into jsondb (path, value, ovalue, idx, depth) values (:path, :value, :ovalue, :idx, :depth)");
             }
             return insertBatch;
         }
 
         public void flush() {
+            if (deleteBatchSize > 0) {
+                deleteBatch.execute();
+                deleteBatchSize = 0;
+            }
+            if (updateBatchSize > 0) {
+                updateBatch.execute();
+                updateBatchSize = 0;
+            }
             if (batchSize > 0 && insertBatch != null) {
                 insertBatch.execute();
-
+                batchSize = 0;
             }
         }
     }
 
     @Override
     public void set(String path, InputStream body) {
-        withTransaction(dbi -> {
+        withIndexes(() -> withTransaction(dbi -> {
             BatchManager mb = new BatchManager(dbi);
             String baseDBPath = JsonRecordSupport.convertToDBPath(path);
-            mb.deleteRecordsForSet(baseDBPath);
-            try {
-                JsonRecordSupport.jsonStreamToRecords(indexPaths, baseDBPath, body, mb.createSetConsumer());
+            try (BatchManager.RecordDiff diff = mb.diffRecordsForSet(baseDBPath)) {
+                JsonRecordSupport.jsonStreamToRecords(indexPaths, baseDBPath, body, diff);
+                diff.finish();
             } catch (IOException e) {
                 throw new JsonDBException(e);
             }
-            mb.flush();
-        });
+            recordWrite(path, mb);
+        }));
         if( bus!=null ) {
             bus.broadcast("jsondb-updated", prefix(trimSuffix(path, "/"), "/"));
         }
@@ -459,7 +776,7 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
     @Override
     public void update(String path, InputStream is) {
         ArrayList<String> updatePaths = new ArrayList<>();
-        withTransaction(dbi -> {
+        withIndexes(() -> withTransaction(dbi -> {
             try {
                 BatchManager mb = new BatchManager(dbi);
 
@@ -482,12 +799,10 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
                         String key = suffix(path, "/")+jp.getCurrentName();
                         updatePaths.add(key);
                         String baseDBPath = JsonRecordSupport.convertToDBPath(key);
-                        mb.deleteRecordsForSet(baseDBPath);
 
-                        try {
-                            JsonRecordSupport.jsonStreamToRecords(indexPaths, jp, baseDBPath, mb.createSetConsumer());
-                        } catch (IOException e) {
-                            throw new JsonDBException(e);
+                        try (BatchManager.RecordDiff diff = mb.diffRecordsForSet(baseDBPath)) {
+                            JsonRecordSupport.jsonStreamToRecords(indexPaths, jp, baseDBPath, diff);
+                            diff.finish();
                         }
                     }
 
@@ -495,13 +810,13 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
                     if (nextToken != null) {
                         throw new JsonParseException(jp, "Document did not terminate as expected.");
                     }
-                    mb.flush();
                 }
+                recordWrite(path, mb);
             } catch (IOException e) {
                 throw new JsonDBException(e);
             }
 
-        });
+        }));
         if( bus!=null ) {
             for (String updatePath : updatePaths) {
                 bus.broadcast("jsondb-updated", prefix(trimSuffix(updatePath, "/"), "/"));
@@ -509,8 +824,76 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
         }
     }
 
+    /**
+     * Runs the given write holding the index lock for reading, so that an
+     * index can not be declared between the write reading the indexes and
+     * committing.
+     */
+    private void withIndexes(Runnable write) {
+        indexLock.readLock().lock();
+        try {
+            write.run();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    private void recordWrite(String path, BatchManager mb) {
+        recordsInserted.addAndGet(mb.inserted);
+        recordsUpdated.addAndGet(mb.updated);
+        recordsDeleted.addAndGet(mb.deleted);
+        recordsUnchanged.addAndGet(mb.unchanged);
+        LOG.debug("Wrote {}: {} records inserted, {} updated, {} deleted, {} unchanged", path, mb.inserted, mb.updated, mb.deleted, mb.unchanged);
+    }
+
+    /**
+     * @return the number of records inserted by {@code set} and {@code update} so far
+     */
+    public long getRecordsInserted() {
+        return recordsInserted.get();
+    }
+
+    /**
+     * @return the number of records updated by {@code set} and {@code update} so far
+     */
+    public long getRecordsUpdated() {
+        return recordsUpdated.get();
+    }
+
+    /**
+     * @return the number of records deleted by {@code set} and {@code update} so far
+     */
+    public long getRecordsDeleted() {
+        return recordsDeleted.get();
+    }
+
+    /**
+     * @return the number of records {@code set} and {@code update} found
+     *         unchanged and did not need to write so far
+     */
+    public long getRecordsUnchanged() {
+        return recordsUnchanged.get();
+    }
+
+    /**
+     * @return the number of lookups by property value that had to scan the
+     *         whole table as the property was not indexed so far
+     */
+    public long getFullTableScans() {
+        return fullTableScans.get();
+    }
+
+    private static int deleteParentRecords(Handle dbi, String baseDBPath) {
+        Deque<String> parents = getAllParentPaths(baseDBPath);
+        if (parents.isEmpty()) {
+            return 0;
+        }
 
-    private static int deleteJsonRecords(Handle dbi, String baseDBPath, String like) {
+        String sql = "DELETE FROM jsondb WHERE " + parents.stream().map(p -> "path = ?").collect(Collectors.joining(" OR "));
+        return dbi.update(sql, parents.toArray());
+    }
+
+    private static int deleteJsonRecords(Handle dbi, String baseDBPath) {
 
         ArrayList<String> expressions = new ArrayList<>();
         ArrayList<String> queryParams = new ArrayList<>();
@@ -518,8 +901,9 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
             expressions.add("path = ?");
             queryParams.add(p);
         }
-        expressions.add("path LIKE ?");
-        queryParams.add(like);
+        expressions.add("(path >= ? AND path < ?)");
+        queryParams.add(baseDBPath);
+        queryParams.add(Strings.incrementKey(baseDBPath));
 
         StringBuilder sql = new StringBuilder("DELETE FROM jsondb WHERE ");
         sql.append(String.join(" OR ", expressions));
@@ -541,11 +925,24 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
         return  params;
     }
 
-    private static int countJsonRecords(Handle dbi, String like) {
-        Integer result = dbi.createQuery("SELECT COUNT(*) from jsondb where path LIKE ?")
-            .bind(0, like)
-            .map(IntegerColumnMapper.PRIMITIVE).first();
-        return result.intValue();
+    private static boolean anyJsonRecords(Handle dbi, String baseDBPath) {
+        String found = dbi.createQuery("SELECT path FROM jsondb WHERE path >= ? AND path < ? LIMIT 1")
+            .bind(0, baseDBPath)
+            .bind(1, Strings.incrementKey(baseDBPath))
+            .map(StringColumnMapper.INSTANCE).first();
+        return found != null;
+    }
+
+    /**
+     * Merges the shallow records read from the database with the first deep
+     * record of each child, in the order the records were requested in.
+     */
+    private static class IndexedJsonRecordMapper implements ResultSetMapper<JsonRecord> {
+        private static final IndexedJsonRecordMapper INSTANCE = new IndexedJsonRecordMapper();
+        @Override
+        public JsonRecord map(int index, ResultSet r, StatementContext ctx) throws SQLException {
+            return JsonRecord.of(r.getString("path"), r.getString("value"), r.getString("ovalue"), r.getString("idx"));
+        }
     }
 
     private static class JsonRecordMapper implements ResultSetMapper<JsonRecord> {
@@ -570,7 +967,7 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
     }
 
     public Collection<Index> getIndexes() {
-        return indexes;
+        return Collections.unmodifiableList(indexes);
     }
 
     public Set<String> getIndexPaths() {
@@ -591,12 +988,15 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
 
             try (Connection connection = handle.getConnection(); Connection transacted = withoutTransactionControl(connection)) {
                 final TransactedEventBus transactedBus = new TransactedEventBus(bus);
-                final SqlJsonDB checkpointed = new SqlJsonDB(new DBI(() -> transacted), transactedBus);
+                final SqlJsonDB checkpointed = new SqlJsonDB(new DBI(() -> transacted), transactedBus, this);
 
                 boolean committed = false;
                 try {
-                    handler.accept(checkpointed);
-                    handle.commit();
+                    // the writes of the transaction commit at its end
+                    withIndexes(() -> {
+                        handler.accept(checkpointed);
+                        handle.commit();
+                    });
                     committed = true;
                     transactedBus.commit();
                 } catch (@SuppressWarnings("PMD.AvoidCatchingGenericException") final RuntimeException e) {
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.jsondb.impl;
+
+import static io.syndesis.server.jsondb.impl.JsonRecordSupport.validateKey;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.Query;
+
+import io.syndesis.server.jsondb.GetOptions;
+import io.syndesis.server.jsondb.impl.expr.SqlExpressionBuilder;
+
+/**
+ * Plans the SQL used to read a sub tree of the JsonDB.
+ *
+ * Since the {@code path} primary key is compared using a binary collation,
+ * all records under a path prefix {@code /a/b/} can be found with the half
+ * open range {@code path >= '/a/b/' AND path < '/a/b0'}, which every database
+ * we support can answer with an index range scan. {@code LIKE} patterns on the
+ * other hand end up being a sequential scan as soon as the pattern is not a
+ * literal.
+ *
+ * The records are read with a single query ordered by path, {@link
+ * GetOptions#limitToFirst()} and {@link GetOptions#depth()} are applied by the
+ * {@link JsonRecordConsumer} which stops reading once the limit is reached. The
+ * query is fetched in pages through a cursor so only the records read until
+ * then are transferred.
+ */
+@SuppressWarnings({"PMD.CyclomaticComplexity", "PMD.ModifiedCyclomaticComplexity", "PMD.StdCyclomaticComplexity", "PMD.NPathComplexity"})
+final class SqlQueryPlanner {
+
+    /**
+     * Number of records fetched from the cursor at a time.
+     */
+    static final int FETCH_SIZE = 500;
+
+    private final SqlJsonDB db;
+
+    /**
+     * Result of planning: the SQL text and the parameters to bind to it.
+     */
+    static final class Plan {
+        private final String sql;
+        private final List<Consumer<Query<Map<String, Object>>>> binds;
+
+        Plan(String sql, List<Consumer<Query<Map<String, Object>>>> binds) {
+            this.sql = sql;
+            this.binds = binds;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        /**
+         * The query fetches in pages only when run within a transaction.
+         */
+        public Query<Map<String, Object>> createQuery(Handle h) {
+            return bind(h.createQuery(sql)).setFetchSize(FETCH_SIZE);
+        }
+
+        public Query<Map<String, Object>> bind(Query<Map<String, Object>> query) {
+            for (Consumer<Query<Map<String, Object>>> bind : binds) {
+                bind.accept(query);
+            }
+            return query;
+        }
+    }
+
+    SqlQueryPlanner(SqlJsonDB db) {
+        this.db = db;
+    }
+
+    /**
+     * Plans the query that selects the {@code path, value, ovalue} records
+     * stored under the {@code baseDBPath} honoring the given range options.
+     */
+    Plan plan(String baseDBPath, GetOptions o) {
+        GetOptions.Order order = o.order();
+        if (order == null) {
+            order = GetOptions.Order.ASC;
+        }
+
+        StringBuilder where = new StringBuilder(100);
+        ArrayList<Consumer<Query<Map<String, Object>>>> binds = new ArrayList<>();
+
+        String column = o.filter() == null ? "path" : "A.path";
+        appendRange(where, binds, column, baseDBPath, o);
+
+        StringBuilder sql = new StringBuilder(250);
+        if (o.filter() == null) {
+            sql.append("SELECT path,value,ovalue FROM jsondb WHERE ").append(where);
+        } else {
+            // Drive the join from the (small) set of matching objects, each
+            // matching object then selects its records with a primary key range
+            sql.append("SELECT A.path,A.value,A.ovalue FROM (");
+            SqlExpressionBuilder.create(db, o.filter(), baseDBPath).build(sql, binds);
+            sql.append(") B INNER JOIN jsondb A ON A.path >= B.match_path AND A.path < ")
+                .append(rangeEnd("B.match_path"))
+                .append(" WHERE ").append(where);
+        }
+
+        sql.append(" ORDER BY ").append(column).append(' ').append(order);
+        return new Plan(sql.toString(), binds);
+    }
+
+    /**
+     * Condition selecting all records in the {@code :from}, {@code :to} range.
+     */
+    static String rangeCondition(String column) {
+        return column + " >= :from AND " + column + " < :to";
+    }
+
+    /**
+     * SQL expression computing the exclusive upper bound of the range of
+     * paths prefixed by the path in the given expression.
+     */
+    static String rangeEnd(String pathExpression) {
+        return "substr(" + pathExpression + ", 1, length(" + pathExpression + ") - 1)||'0'";
+    }
+
+    private static void appendRange(StringBuilder where, List<Consumer<Query<Map<String, Object>>>> binds, String column, String baseDBPath, GetOptions o) {
+        where.append(rangeCondition(column));
+        binds.add(query -> {
+            query.bind("from", baseDBPath);
+            query.bind("to", Strings.incrementKey(baseDBPath));
+        });
+
+        if (o.startAfter() != null) {
+            String startAfter = validateKey(o.startAfter());
+            if (o.order() == GetOptions.Order.DESC) {
+                where.append(" AND ").append(column).append(" <= :startAfter");
+                binds.add(query -> query.bind("startAfter", baseDBPath + startAfter));
+            } else {
+                where.append(" AND ").append(column).append(" >= :startAfter");
+                binds.add(query -> query.bind("startAfter", baseDBPath + Strings.incrementKey(startAfter)));
+            }
+        }
+        if (o.startAt() != null) {
+            String startAt = validateKey(o.startAt());
+            if (o.order() == GetOptions.Order.DESC) {
+                where.append(" AND ").append(column).append(" < :startAt");
+                binds.add(query -> query.bind("startAt", baseDBPath + Strings.incrementKey(startAt)));
+            } else {
+                where.append(" AND ").append(column).append(" >= :startAt");
+                binds.add(query -> query.bind("startAt", baseDBPath + startAt));
+            }
+        }
+        if (o.endAt() != null) {
+            String endAt = validateKey(o.endAt());
+            if (o.order() == GetOptions.Order.DESC) {
+                where.append(" AND ").append(column).append(" > :endAt");
+                binds.add(query -> query.bind("endAt", baseDBPath + endAt));
+            } else {
+                where.append(" AND ").append(column).append(" < :endAt");
+                binds.add(query -> query.bind("endAt", baseDBPath + Strings.incrementKey(endAt)));
+            }
+        }
+        if (o.endBefore() != null) {
+            String endBefore = validateKey(o.endBefore());
+            if (o.order() == GetOptions.Order.DESC) {
+                where.append(" AND ").append(column).append(" >= :endBefore");
+                binds.add(query -> query.bind("endBefore", baseDBPath + Strings.incrementKey(endBefore)));
+            } else {
+                where.append(" AND ").append(column).append(" < :endBefore");
+                binds.add(query -> query.bind("endBefore", baseDBPath + endBefore));
+            }
+        }
+    }
+
+}
@@ -54,6 +54,21 @@ public final class Strings {
         return value;
     }
 
+    /**
+     * Increments the last character of the given value, yielding the smallest
+     * value greater than all values prefixed by the given value. Used on a path
+     * ending with {@code /} this gives the exclusive upper bound of all the
+     * paths nested under it.
+     */
+    public static String incrementKey(String value) {
+        if( value == null || value.isEmpty()) {
+            return value;
+        }
+        char[] chars = value.toCharArray();
+        chars[chars.length-1]++;
+        return new String(chars);
+    }
+
     public static String splitPart(String delimiter, String value, int idx) {
         int i = idx-1;
         String[] split = value.split(Pattern.quote(delimiter), -1);
@@ -45,7 +45,9 @@ class BinarySqlExpressionBuilder extends SqlExpressionBuilder {
         if (db.getDatabaseKind() == H2) {
             sql.append("trim_suffix(path, split_part('#', idx, 2)||'/')");
         } else {
-            sql.append("trim(trailing split_part('#', idx, 2)||'/' from path)");
+            // strip the indexed field from the end of the path, trim would
+            // strip any of the characters of the field
+            sql.append("substr(path, 1, length(path) - length(split_part(idx, '#', 2)) - 1)");
         }
         sql.append("as match_path FROM jsondb WHERE (");
         arg1.build(sql, binds, bindCounter);
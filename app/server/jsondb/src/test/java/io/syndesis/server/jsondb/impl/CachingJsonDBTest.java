@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.jsondb.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import io.syndesis.common.util.EventBus;
+import io.syndesis.server.jsondb.CloseableJsonDB;
+import io.syndesis.server.jsondb.GetOptions;
+
+public class CachingJsonDBTest {
+
+    private CloseableJsonDB delegate;
+
+    private EventBus bus;
+
+    private CachingJsonDB jsondb;
+
+    @BeforeEach
+    public void createDatabase() {
+        delegate = MemorySqlJsonDB.create(Collections.emptyList());
+        bus = mock(EventBus.class);
+        jsondb = new CachingJsonDB(delegate, bus, Arrays.asList("/connectors", "/icons"), 2);
+    }
+
+    @AfterEach
+    public void closeDatabase() throws IOException {
+        jsondb.close();
+        delegate.close();
+    }
+
+    @Test
+    public void shouldServeRepeatedReadsFromCache() {
+        jsondb.set("/connectors/:c1", "{\"name\":\"c1\"}");
+
+        assertThat(jsondb.getAsString("/connectors")).isEqualTo("{\":c1\":{\"name\":\"c1\"}}");
+        assertThat(jsondb.getAsString("/connectors")).isEqualTo("{\":c1\":{\"name\":\"c1\"}}");
+
+        assertThat(jsondb.getMissCount()).isEqualTo(1);
+        assertThat(jsondb.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotCacheOtherPaths() {
+        jsondb.set("/integrations/:i1", "{\"name\":\"i1\"}");
+
+        assertThat(jsondb.getAsString("/integrations")).isEqualTo("{\":i1\":{\"name\":\"i1\"}}");
+
+        assertThat(jsondb.size()).isZero();
+        assertThat(jsondb.getMissCount()).isZero();
+    }
+
+    @Test
+    public void shouldKeyOnOptions() {
+        jsondb.set("/connectors/:c1", "{\"name\":\"c1\"}");
+
+        assertThat(jsondb.getAsString("/connectors")).isEqualTo("{\":c1\":{\"name\":\"c1\"}}");
+        assertThat(jsondb.getAsString("/connectors", new GetOptions().depth(1))).isEqualTo("{\":c1\":true}");
+    }
+
+    @Test
+    public void shouldInvalidateOnWriteThrough() {
+        jsondb.set("/connectors/:c1", "{\"name\":\"c1\"}");
+        assertThat(jsondb.getAsString("/connectors/:c1")).isEqualTo("{\"name\":\"c1\"}");
+        assertThat(jsondb.getAsString("/connectors")).isEqualTo("{\":c1\":{\"name\":\"c1\"}}");
+
+        jsondb.update("/connectors/:c1", "{\"name\":\"updated\"}");
+
+        assertThat(jsondb.getAsString("/connectors/:c1")).isEqualTo("{\"name\":\"updated\"}");
+        assertThat(jsondb.getAsString("/connectors")).isEqualTo("{\":c1\":{\"name\":\"updated\"}}");
+
+        jsondb.delete("/connectors/:c1");
+
+        assertThat(jsondb.getAsString("/connectors/:c1")).isNull();
+        assertThat(jsondb.getAsString("/connectors")).isNull();
+    }
+
+    @Test
+    public void shouldInvalidateOnEvents() {
+        final ArgumentCaptor<EventBus.Subscription> subscription = ArgumentCaptor.forClass(EventBus.Subscription.class);
+        verify(bus).subscribe(eq(CachingJsonDB.class.getName()), subscription.capture());
+
+        jsondb.set("/icons/:i1", "{\"name\":\"i1\"}");
+        assertThat(jsondb.getAsString("/icons/:i1")).isEqualTo("{\"name\":\"i1\"}");
+
+        // write that bypasses the cache
+        delegate.set("/icons/:i1", "{\"name\":\"updated\"}");
+        assertThat(jsondb.getAsString("/icons/:i1")).isEqualTo("{\"name\":\"i1\"}");
+
+        subscription.getValue().onEvent("jsondb-updated", "/icons/:i1");
+        assertThat(jsondb.getAsString("/icons/:i1")).isEqualTo("{\"name\":\"updated\"}");
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() {
+        jsondb.set("/icons/:i1", "1");
+        jsondb.set("/icons/:i2", "2");
+        jsondb.set("/icons/:i3", "3");
+
+        jsondb.getAsString("/icons/:i1");
+        jsondb.getAsString("/icons/:i2");
+        jsondb.getAsString("/icons/:i1");
+        jsondb.getAsString("/icons/:i3");
+
+        assertThat(jsondb.size()).isEqualTo(2);
+        assertThat(jsondb.getEvictionCount()).isEqualTo(1);
+
+        jsondb.getAsString("/icons/:i1");
+        assertThat(jsondb.getHitCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldUnsubscribeOnClose() {
+        jsondb.close();
+
+        verify(bus).unsubscribe(CachingJsonDB.class.getName());
+        verify(bus).subscribe(eq(CachingJsonDB.class.getName()), any());
+    }
+}
@@ -23,10 +23,17 @@ import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.h2.jdbcx.JdbcDataSource;
 import org.junit.jupiter.api.BeforeEach;
@@ -47,6 +54,7 @@ import io.syndesis.server.jsondb.JsonDBException;
  */
 public class JsonDBTest {
 
+    private DBI dbi;
     private SqlJsonDB jsondb;
     private final ObjectMapper mapper = new ObjectMapper()
         .setSerializationInclusion(JsonInclude.Include.ALWAYS);
@@ -57,7 +65,7 @@ public class JsonDBTest {
     public void before() {
         JdbcDataSource ds = new JdbcDataSource();
         ds.setURL("jdbc:h2:mem:test1;DB_CLOSE_DELAY=-1;MODE=PostgreSQL");
-        DBI dbi = new DBI(ds);
+        this.dbi = new DBI(ds);
 
         this.jsondb = new SqlJsonDB(dbi, null,
             Arrays.asList(
@@ -121,6 +129,59 @@ public class JsonDBTest {
 
     }
 
+    @Test
+    public void testSetOnlyWritesChangedRecords() throws IOException {
+
+        jsondb.set("/test", mapper.writeValueAsString(map(
+            "name", "Hiram Chirino",
+            "props", map(
+                "city", "Tampa",
+                "state", "FL"
+            )
+        )));
+        assertThat(jsondb.getRecordsInserted()).isEqualTo(3);
+
+        jsondb.set("/test", mapper.writeValueAsString(map(
+            "name", "Hiram Chirino",
+            "props", map(
+                "city", "Miami",
+                "zip", "33101"
+            )
+        )));
+
+        assertThat(jsondb.getRecordsInserted()).isEqualTo(4);
+        assertThat(jsondb.getRecordsUpdated()).isEqualTo(1);
+        assertThat(jsondb.getRecordsDeleted()).isEqualTo(1);
+        assertThat(jsondb.getRecordsUnchanged()).isEqualTo(1);
+
+        String json = jsondb.getAsString("/test");
+        assertThat(json).isEqualTo("{\"name\":\"Hiram Chirino\",\"props\":{\"city\":\"Miami\",\"zip\":\"33101\"}}");
+
+        // replacing an object with a value and back
+        jsondb.set("/test/props", "\"none\"");
+        assertThat(jsondb.getAsString("/test")).isEqualTo("{\"name\":\"Hiram Chirino\",\"props\":\"none\"}");
+        jsondb.set("/test/props/city", "\"Tampa\"");
+        assertThat(jsondb.getAsString("/test")).isEqualTo("{\"name\":\"Hiram Chirino\",\"props\":{\"city\":\"Tampa\"}}");
+    }
+
+    @Test
+    public void testSetMergesRecordsGivenOutOfPathOrder() {
+        jsondb.set("/test", "{\"b\":1,\"a\":{\"x\":1,\"y\":2}}");
+        assertThat(jsondb.getRecordsInserted()).isEqualTo(3);
+
+        jsondb.set("/test", "{\"c\":3,\"a\":{\"y\":2,\"x\":5},\"b\":1}");
+        assertThat(jsondb.getRecordsInserted()).isEqualTo(4);
+        assertThat(jsondb.getRecordsUpdated()).isEqualTo(1);
+        assertThat(jsondb.getRecordsDeleted()).isEqualTo(0);
+        assertThat(jsondb.getRecordsUnchanged()).isEqualTo(2);
+
+        jsondb.set("/test", "{\"b\":1}");
+        assertThat(jsondb.getRecordsDeleted()).isEqualTo(3);
+        assertThat(jsondb.getRecordsUnchanged()).isEqualTo(3);
+
+        assertThat(jsondb.getAsString("/test")).isEqualTo("{\"b\":1}");
+    }
+
     @Test
     public void testGetMissingKey() throws IOException {
 
@@ -581,6 +642,88 @@ public class JsonDBTest {
         assertThat(jsondb.fetchIdsByPropertyValue("/pair", "key", "nope")).isEmpty();
     }
 
+    @Test
+    public void shouldBuildIndexesDeclaredAtRuntime() throws Exception {
+        jsondb.set("/pets/:p1", "{\"kind\": \"cat\", \"name\": \"Tom\"}");
+        jsondb.set("/pets/:p2", "{\"kind\": \"dog\", \"name\": \"Spike\"}");
+
+        assertThat(jsondb.fetchIdsByPropertyValue("/pets", "kind", "cat")).containsOnly("/pets/:p1");
+        assertThat(jsondb.getFullTableScans()).isEqualTo(1);
+
+        jsondb.createIndex(new Index("/pets", "kind")).get(1, TimeUnit.MINUTES);
+        jsondb.set("/pets/:p3", "{\"kind\": \"cat\", \"name\": \"Felix\"}");
+
+        assertThat(jsondb.isIndexReady("/pets/#kind")).isTrue();
+        assertThat(jsondb.fetchIdsByPropertyValue("/pets", "kind", "cat")).containsOnly("/pets/:p1", "/pets/:p3");
+        assertThat(jsondb.fetchIdsByPropertyValue("/pets", "kind", "dog")).containsOnly("/pets/:p2");
+        assertThat(jsondb.getFullTableScans()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldOnlyBuildSchemaIndexesDeclaredSinceLastStart() throws Exception {
+        jsondb.declareSchemaIndexes().get(1, TimeUnit.MINUTES);
+        jsondb.set("/users/:u1", "{\"name\": \"u1\"}");
+        jsondb.set("/pets/:p1", "{\"kind\": \"cat\"}");
+
+        final SqlJsonDB restarted = new SqlJsonDB(dbi, null,
+            Arrays.asList(
+                new Index("/pair", "key"),
+                new Index("/users", "name"),
+                new Index("/users", "age"),
+                new Index("/pets", "kind")
+            )
+        );
+        restarted.createTables();
+        final CompletableFuture<Void> built = restarted.declareSchemaIndexes();
+
+        // indexes declared before are ready right away
+        assertThat(restarted.isIndexReady("/users/#name")).isTrue();
+        assertThat(restarted.fetchIdsByPropertyValue("/users", "name", "u1")).containsOnly("/users/:u1");
+
+        built.get(1, TimeUnit.MINUTES);
+
+        assertThat(restarted.isIndexReady("/pets/#kind")).isTrue();
+        assertThat(restarted.fetchIdsByPropertyValue("/pets", "kind", "cat")).containsOnly("/pets/:p1");
+        assertThat(restarted.getFullTableScans()).isZero();
+
+        // recorded as built for the next start
+        final SqlJsonDB restartedAgain = new SqlJsonDB(dbi, null, Collections.singletonList(new Index("/pets", "kind")));
+        restartedAgain.createTables();
+        assertThat(restartedAgain.declareSchemaIndexes()).isDone();
+        assertThat(restartedAgain.isIndexReady("/pets/#kind")).isTrue();
+    }
+
+    @Test
+    public void shouldIndexWritesInProgressWhenIndexIsDeclared() throws Exception {
+        final CountDownLatch written = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<?> write = executor.submit(() -> jsondb.withGlobalTransaction(checkpointed -> {
+                checkpointed.set("/pets/:p1", "{\"kind\": \"cat\"}");
+                written.countDown();
+                try {
+                    release.await(1, TimeUnit.MINUTES);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertThat(written.await(1, TimeUnit.MINUTES)).isTrue();
+
+            // declaring the index waits for the write that didn't see it to commit
+            final Future<CompletableFuture<Void>> declared = executor.submit(() -> jsondb.createIndex(new Index("/pets", "kind")));
+            release.countDown();
+
+            write.get(1, TimeUnit.MINUTES);
+            declared.get(1, TimeUnit.MINUTES).get(1, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(jsondb.fetchIdsByPropertyValue("/pets", "kind", "cat")).containsOnly("/pets/:p1");
+        assertThat(jsondb.getFullTableScans()).isZero();
+    }
+
 
     @Test
     public void testGetFilter() throws IOException {
@@ -18,6 +18,12 @@ package io.syndesis.server.jsondb.impl;
 import static io.syndesis.server.jsondb.impl.JsonRecordSupport.toLexSortableString;
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.regex.Pattern;
 
 import org.junit.jupiter.api.Test;
@@ -72,6 +78,27 @@ public class JsonRecordSupportTest {
         }
     }
 
+    @Test
+    public void shouldDecodeLexSortableStrings() {
+        for (String value : new String[] {"0", "7", "10", "1234567890", "12345678901234", "-1", "-100.5", "1.01", "-0.5", "0.0"}) {
+            assertThat(JsonRecordSupport.fromLexSortableString(toLexSortableString(value))).isEqualTo(value);
+        }
+
+        for (int i = 0; i < 10000; i++) {
+            assertThat(JsonRecordSupport.fromLexSortableStringToInt(toLexSortableString(i))).isEqualTo(i);
+        }
+    }
+
+    @Test
+    public void shouldNotStoreDecodableValuesTwice() throws IOException {
+        final List<JsonRecord> records = new ArrayList<>();
+        JsonRecordSupport.jsonStreamToRecords(Collections.emptySet(), "/",
+            new ByteArrayInputStream("{\"a\":10,\"b\":-1.5,\"c\":true,\"d\":null,\"e\":\"text\"}".getBytes(StandardCharsets.UTF_8)),
+            records::add);
+
+        assertThat(records).extracting(JsonRecord::getOValue).containsOnlyNulls();
+    }
+
     private static String rtrim(String value, String suffix) {
         return value.replaceAll("("+Pattern.quote(suffix)+")+$", "");
     }
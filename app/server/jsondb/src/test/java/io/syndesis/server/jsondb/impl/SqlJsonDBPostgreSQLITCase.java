@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.jsondb.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.util.StringColumnMapper;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import io.syndesis.server.jsondb.Filter;
+import io.syndesis.server.jsondb.GetOptions;
+
+/**
+ * Runs the reads planned by {@link SqlQueryPlanner} against PostgreSQL, the
+ * database used in production.
+ */
+@Testcontainers
+public class SqlJsonDBPostgreSQLITCase {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRESQL = new PostgreSQLContainer<>("postgres:11.11");
+
+    private DBI dbi;
+
+    private SqlJsonDB jsondb;
+
+    @BeforeEach
+    public void createTables() {
+        dbi = new DBI(POSTGRESQL.getJdbcUrl(), POSTGRESQL.getUsername(), POSTGRESQL.getPassword());
+
+        jsondb = new SqlJsonDB(dbi, null, Collections.singletonList(new Index("/users", "name")));
+        jsondb.createTables();
+
+        jsondb.set("/users/u1", "{\"name\":\"u1\",\"address\":{\"city\":\"Tampa\"}}");
+        jsondb.set("/users/u2", "{\"name\":\"u2\"}");
+        jsondb.set("/users/u3", "{\"name\":\"u3\"}");
+        jsondb.set("/users0/u1", "{\"name\":\"u1\"}");
+        jsondb.set("/user/u1", "{\"name\":\"u1\"}");
+    }
+
+    @AfterEach
+    public void dropTables() {
+        jsondb.dropTables();
+    }
+
+    @Test
+    public void shouldDetectPostgreSQL() {
+        assertThat(jsondb.getDatabaseKind()).isEqualTo(SqlJsonDB.DatabaseKind.PostgreSQL);
+    }
+
+    @Test
+    public void shouldReadPrefixesUsingPrimaryKeyRange() {
+        final SqlQueryPlanner.Plan plan = new SqlQueryPlanner(jsondb).plan("/users/", new GetOptions());
+
+        // the tables are too small for the planner to prefer the index on
+        // its own, this only checks that the range can use it
+        try (Handle h = dbi.open()) {
+            h.execute("SET enable_seqscan = off");
+            final String explain = String.join("\n", plan.bind(h.createQuery("EXPLAIN " + plan.getSql())).map(StringColumnMapper.INSTANCE).list());
+
+            assertThat(explain).contains("jsondb_pkey").doesNotContain("Seq Scan");
+        }
+
+        assertThat(jsondb.getAsString("/users")).isEqualTo(
+            "{\"u1\":{\"address\":{\"city\":\"Tampa\"},\"name\":\"u1\"},\"u2\":{\"name\":\"u2\"},\"u3\":{\"name\":\"u3\"}}");
+    }
+
+    @Test
+    public void shouldReadLimitToFirst() {
+        final GetOptions options = new GetOptions().limitToFirst(2);
+
+        assertThat(jsondb.getAsString("/users", options)).isEqualTo("{\"u1\":{\"address\":{\"city\":\"Tampa\"},\"name\":\"u1\"},\"u2\":{\"name\":\"u2\"}}");
+        assertThat(jsondb.getAsString("/users", options.order(GetOptions.Order.DESC))).isEqualTo("{\"u3\":{\"name\":\"u3\"},\"u2\":{\"name\":\"u2\"}}");
+    }
+
+    @Test
+    public void shouldReadDepth() {
+        jsondb.set("/users/u4", "\"shallow\"");
+
+        assertThat(jsondb.getAsString("/users/u1", new GetOptions().depth(1))).isEqualTo("{\"name\":\"u1\",\"address\":true}");
+        assertThat(jsondb.getAsString("/users", new GetOptions().depth(1))).isEqualTo("{\"u4\":\"shallow\",\"u1\":true,\"u2\":true,\"u3\":true}");
+    }
+
+    @Test
+    public void shouldReadFilterMatches() {
+        final GetOptions options = new GetOptions().filter(Filter.child("name", Filter.Op.EQ, "u2"));
+
+        assertThat(jsondb.getAsString("/users", options)).isEqualTo("{\"u2\":{\"name\":\"u2\"}}");
+    }
+
+    @Test
+    public void shouldAddDepthColumnToExistingTables() {
+        try (Handle h = dbi.open()) {
+            h.execute("ALTER TABLE jsondb DROP COLUMN depth");
+        }
+
+        jsondb.createTables();
+
+        try (Handle h = dbi.open()) {
+            assertThat(h.createQuery("SELECT depth FROM jsondb WHERE path = '/users/u1/name/'").mapTo(Integer.class).first()).isEqualTo(4);
+        }
+    }
+}
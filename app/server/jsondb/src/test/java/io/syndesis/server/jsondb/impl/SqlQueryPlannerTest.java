@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.jsondb.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.util.StringColumnMapper;
+
+import io.syndesis.common.util.KeyGenerator;
+import io.syndesis.server.jsondb.Filter;
+import io.syndesis.server.jsondb.GetOptions;
+
+/**
+ * Verifies via EXPLAIN that the planned queries are answered using the
+ * indexes rather than by scanning the whole table.
+ */
+public class SqlQueryPlannerTest {
+
+    private DBI dbi;
+
+    private SqlJsonDB jsondb;
+
+    @AfterEach
+    public void dropTables() {
+        if (jsondb != null) {
+            jsondb.dropTables();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", ";MODE=PostgreSQL"})
+    public void shouldReadPrefixesUsingPrimaryKeyRange(String mode) {
+        create(mode);
+
+        final SqlQueryPlanner.Plan plan = new SqlQueryPlanner(jsondb).plan("/users/", new GetOptions());
+
+        assertThat(plan.getSql()).doesNotContain("LIKE");
+        assertThat(explain(plan)).contains("PRIMARY_KEY").doesNotContainIgnoringCase("tableScan");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", ";MODE=PostgreSQL"})
+    public void shouldReadLimitToFirstWithASingleRangeQuery(String mode) {
+        create(mode);
+
+        final GetOptions options = new GetOptions().limitToFirst(2);
+        final SqlQueryPlanner.Plan plan = new SqlQueryPlanner(jsondb).plan("/users/", options);
+
+        assertThat(plan.getSql()).isEqualTo("SELECT path,value,ovalue FROM jsondb WHERE path >= :from AND path < :to ORDER BY path ASC");
+        assertThat(explain(plan)).contains("PRIMARY_KEY").doesNotContainIgnoringCase("tableScan");
+
+        assertThat(jsondb.getAsString("/users", options)).isEqualTo("{\"u1\":{\"name\":\"u1\"},\"u2\":{\"name\":\"u2\"}}");
+        assertThat(jsondb.getAsString("/users", options.order(GetOptions.Order.DESC))).isEqualTo("{\"u3\":{\"name\":\"u3\"},\"u2\":{\"name\":\"u2\"}}");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", ";MODE=PostgreSQL"})
+    public void shouldReadDepthWithASingleRangeQuery(String mode) {
+        create(mode);
+        jsondb.set("/users/u4", "\"shallow\"");
+
+        final GetOptions options = new GetOptions().depth(1);
+        final SqlQueryPlanner.Plan plan = new SqlQueryPlanner(jsondb).plan("/users/", options);
+
+        assertThat(plan.getSql()).isEqualTo("SELECT path,value,ovalue FROM jsondb WHERE path >= :from AND path < :to ORDER BY path ASC");
+        assertThat(explain(plan)).contains("PRIMARY_KEY").doesNotContainIgnoringCase("tableScan");
+
+        assertThat(jsondb.getAsString("/users", options)).isEqualTo("{\"u4\":\"shallow\",\"u1\":true,\"u2\":true,\"u3\":true}");
+        assertThat(jsondb.getAsString("/users", options.order(GetOptions.Order.DESC))).isEqualTo("{\"u4\":\"shallow\",\"u3\":true,\"u2\":true,\"u1\":true}");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", ";MODE=PostgreSQL"})
+    public void shouldAddDepthColumnToExistingTables(String mode) {
+        create(mode);
+
+        try (Handle h = dbi.open()) {
+            h.execute("ALTER TABLE jsondb DROP COLUMN depth");
+        }
+
+        jsondb.createTables();
+
+        try (Handle h = dbi.open()) {
+            assertThat(h.createQuery("SELECT depth FROM jsondb WHERE path = '/users/u1/name/'").mapTo(Integer.class).first()).isEqualTo(4);
+        }
+
+        assertThat(jsondb.getAsString("/users", new GetOptions().depth(1))).isEqualTo("{\"u1\":true,\"u2\":true,\"u3\":true}");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", ";MODE=PostgreSQL"})
+    public void shouldJoinFilterMatchesUsingIndexes(String mode) {
+        create(mode);
+
+        final GetOptions options = new GetOptions().filter(Filter.child("name", Filter.Op.EQ, "u2"));
+        final SqlQueryPlanner.Plan plan = new SqlQueryPlanner(jsondb).plan("/users/", options);
+
+        assertThat(plan.getSql()).doesNotContain("LIKE");
+        assertThat(explain(plan)).contains("PRIMARY_KEY").contains("JSONDB_IDX").doesNotContainIgnoringCase("tableScan");
+
+        assertThat(jsondb.getAsString("/users", options)).isEqualTo("{\"u2\":{\"name\":\"u2\"}}");
+    }
+
+    @Test
+    public void shouldMatchFilteredObjectsByPathPrefixOnPostgreSQL() {
+        final SqlJsonDB postgresql = mock(SqlJsonDB.class);
+        when(postgresql.getDatabaseKind()).thenReturn(SqlJsonDB.DatabaseKind.PostgreSQL);
+        when(postgresql.isIndexReady("/users/#name")).thenReturn(true);
+
+        final GetOptions options = new GetOptions().filter(Filter.child("name", Filter.Op.EQ, "u2"));
+        final SqlQueryPlanner.Plan plan = new SqlQueryPlanner(postgresql).plan("/users/", options);
+
+        // PostgreSQL's split_part takes the string to split first
+        assertThat(plan.getSql())
+            .startsWith("SELECT A.path,A.value,A.ovalue FROM (SELECT substr(path, 1, length(path) - length(split_part(idx, '#', 2)) - 1)as match_path FROM jsondb")
+            .contains(") B INNER JOIN jsondb A ON A.path >= B.match_path AND A.path < substr(B.match_path, 1, length(B.match_path) - 1)||'0'")
+            .doesNotContain("trim_suffix");
+    }
+
+    private void create(String mode) {
+        final JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:" + KeyGenerator.createKey() + ";DB_CLOSE_DELAY=-1" + mode);
+        dbi = new DBI(ds);
+
+        jsondb = new SqlJsonDB(dbi, null, Collections.singletonList(new Index("/users", "name")));
+        jsondb.createTables();
+
+        jsondb.set("/users/u1", "{\"name\":\"u1\"}");
+        jsondb.set("/users/u2", "{\"name\":\"u2\"}");
+        jsondb.set("/users/u3", "{\"name\":\"u3\"}");
+        jsondb.set("/users0/u1", "{\"name\":\"u1\"}");
+        jsondb.set("/user/u1", "{\"name\":\"u1\"}");
+    }
+
+    private String explain(SqlQueryPlanner.Plan plan) {
+        try (Handle h = dbi.open()) {
+            return String.join("\n", plan.bind(h.createQuery("EXPLAIN " + plan.getSql())).map(StringColumnMapper.INSTANCE).list());
+        }
+    }
+}
@@ -19,9 +19,9 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.time.Duration;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
@@ -34,6 +34,8 @@ import java.util.function.Consumer;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.api.model.PodList;
 import io.fabric8.kubernetes.client.KubernetesClient;
@@ -42,11 +44,8 @@ import io.syndesis.common.util.backend.BackendController;
 import io.syndesis.common.util.json.JsonUtils;
 import io.syndesis.server.jsondb.GetOptions;
 import io.syndesis.server.jsondb.JsonDB;
-import io.syndesis.server.jsondb.impl.JsonRecordSupport;
-import io.syndesis.server.jsondb.impl.SqlJsonDB;
+import io.syndesis.server.logging.jsondb.store.ActivityStore;
 import io.syndesis.server.openshift.OpenShiftService;
-import org.skife.jdbi.v2.DBI;
-import org.skife.jdbi.v2.PreparedBatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -66,9 +65,11 @@ public class ActivityTrackingController implements BackendController, Closeable
 
     static final String IDLE_THREAD_NAME = "Logs Controller [idle]";
 
+    static final String JSONDB_ACTIVITY_MIGRATION = "remove-jsondb-activity";
+
     private static final Logger LOG = LoggerFactory.getLogger(ActivityTrackingController.class);
 
-    private final DBI dbi;
+    private final ActivityStore store;
     private final KubernetesClient client;
     private final Map<String, PodLogMonitor> podHandlers = new ConcurrentHashMap<>();
     private final JsonDB jsondb;
@@ -84,14 +85,15 @@ public class ActivityTrackingController implements BackendController, Closeable
     private int retention = 50;
     /** Logs older than this will not be processed */
     private Duration retentionTime = Duration.ofDays(1);
+    /** Logs of exchanges that started before this are removed */
+    private Duration maxAge = Duration.ofDays(7);
     private Duration cleanUpInterval = Duration.ofMinutes(15);
     private Duration startupDelay = Duration.ofSeconds(15);
-    private SqlJsonDB.DatabaseKind databaseKind;
 
     @Autowired
-    public ActivityTrackingController(JsonDB jsondb, DBI dbi, KubernetesClient client) {
+    public ActivityTrackingController(JsonDB jsondb, ActivityStore store, KubernetesClient client) {
         this.jsondb = jsondb;
-        this.dbi = dbi;
+        this.store = store;
         this.client = client;
         this.kubernetesSupport = new KubernetesSupport(client);
     }
@@ -103,28 +105,72 @@ public class ActivityTrackingController implements BackendController, Closeable
     @PostConstruct
     @SuppressWarnings("FutureReturnValueIgnored")
     public void open() {
+        // activity used to be stored in the jsondb
+        if (!store.isMigrated(JSONDB_ACTIVITY_MIGRATION)) {
+            try {
+                migrateJsonDBActivity();
+                store.setMigrated(JSONDB_ACTIVITY_MIGRATION);
+            } catch (IOException | RuntimeException e) {
+                LOG.warn("Unable to move activity logs stored by previous versions, retrying on next start", e);
+            }
+        }
+
         scheduler = Executors.newScheduledThreadPool(1, newThreadFactory("Logs Controller Scheduler"));
         executor =  Executors.newCachedThreadPool(newThreadFactory("Logs Controller"));
         stopped.set(false);
         executor.execute(this::processEventQueue);
         scheduler.scheduleWithFixedDelay(this::pollPods, startupDelay.getSeconds(), 5, TimeUnit.SECONDS);
         scheduler.scheduleWithFixedDelay(this::cleanupLogs, startupDelay.toMillis(), cleanUpInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
 
-        // Lets find out the type of DB we are working with.
-        dbi.inTransaction((x, status) -> {
-            String dbName = x.getConnection().getMetaData().getDatabaseProductName();
-            databaseKind = SqlJsonDB.DatabaseKind.valueOf(dbName);
-
-            // CockroachDB uses the PostgreSQL driver.. so need to look a little
-            // closer.
-            if (databaseKind == SqlJsonDB.DatabaseKind.PostgreSQL) {
-                String version = x.createQuery("SELECT VERSION()").mapTo(String.class).first();
-                if (version.startsWith("CockroachDB")) {
-                    databaseKind = SqlJsonDB.DatabaseKind.CockroachDB;
-                }
+    /**
+     * Moves the activity and pod log positions stored in the jsondb by
+     * previous versions into the {@link ActivityStore}, an integration at a
+     * time, and removes them from the jsondb.
+     */
+    void migrateJsonDBActivity() throws IOException {
+        if (!jsondb.exists("/activity")) {
+            return;
+        }
+
+        int moved = 0;
+        Iterator<String> integrationIds = readTree("/activity/exchanges", new GetOptions().depth(1)).fieldNames();
+        while (integrationIds.hasNext()) {
+            String integrationId = integrationIds.next();
+
+            ActivityStore.Batch batch = new ActivityStore.Batch();
+            Iterator<Map.Entry<String, JsonNode>> exchanges = readTree("/activity/exchanges/" + integrationId, null).fields();
+            while (exchanges.hasNext()) {
+                Map.Entry<String, JsonNode> exchange = exchanges.next();
+                JsonNode activity = exchange.getValue();
+                batch.addActivity(integrationId, exchange.getKey(), activity.isTextual() ? activity.textValue() : activity.toString());
+                moved++;
             }
-            return null;
-        });
+            store.write(batch);
+        }
+
+        ActivityStore.Batch pods = new ActivityStore.Batch();
+        Iterator<Map.Entry<String, JsonNode>> states = readTree("/activity/pods", null).fields();
+        while (states.hasNext()) {
+            Map.Entry<String, JsonNode> state = states.next();
+            String time = state.getValue().path("time").textValue();
+            if (time != null) {
+                pods.setPodTime(state.getKey(), time);
+            }
+        }
+        store.write(pods);
+
+        jsondb.delete("/activity");
+        LOG.info("Moved {} activity logs stored by previous versions", moved);
+    }
+
+    private JsonNode readTree(String path, GetOptions options) throws IOException {
+        String json = jsondb.getAsString(path, options);
+        if (json == null) {
+            return MissingNode.getInstance();
+        }
+
+        return JsonUtils.reader().readTree(json);
     }
 
     public void cleanupLogs() {
@@ -133,80 +179,34 @@ public class ActivityTrackingController implements BackendController, Closeable
         try {
             LOG.info("Purging old activity logs");
 
-            @SuppressWarnings("unchecked")
-            Map<String, Object> hashMap = dbGet(HashMap.class, "/activity/integrations");
-            if( hashMap!=null ) {
-                for (String integrationId : hashMap.keySet()) {
-                    String integrationPath = "/activity/exchanges/" + integrationId + "/%";
-                    int count = deleteKeepingRetention(integrationPath);
-                    LOG.info("deleted {} transactions for integration: {}", count, integrationId);
-                }
+            int expired = store.deleteStartedBefore(System.currentTimeMillis() - maxAge.toMillis());
+            LOG.info("removed {} partitions or transactions older than {}", expired, maxAge);
+
+            for (String integrationId : store.fetchIntegrationIds()) {
+                int count = store.deleteKeepingRetention(integrationId, retention);
+                LOG.info("deleted {} transactions for integration: {}", count, integrationId);
             }
-        } catch (IOException e) {
+
+            store.deleteIntegrationsWithoutActivity();
+        } catch (RuntimeException e) {
             LOG.error("Unexpected Error occurred.", e);
         } finally {
             Thread.currentThread().setName("Logs Controller Scheduler [idle]");
         }
     }
 
-    /**
-     * TODO: push this into the jsondb API.
-     *
-     * @param path
-     */
-    int deleteKeepingRetention(String path) {
-        return dbi.inTransaction((conn, status) -> {
-            final String skipLocked = databaseKind == SqlJsonDB.DatabaseKind.PostgreSQL ? "FOR KEY SHARE SKIP LOCKED " : "";
-
-            final String sql = "DELETE FROM jsondb WHERE path IN ("
-                + "SELECT path "
-                + "FROM jsondb "
-                + "WHERE path LIKE ? "
-                + "ORDER BY path DESC "
-                + skipLocked
-                + "OFFSET ? ROWS"
-                + ")";
-
-            return conn.update(sql, path, retention);
-        });
-    }
-
     private void writeBatch(Map<String, Object> batch) {
-        dbi.inTransaction((conn, status) -> {
-            final String sql;
-            if( databaseKind == SqlJsonDB.DatabaseKind.PostgreSQL ) {
-                // Lets update if the record exists.
-                sql =  "INSERT into jsondb (path, value, ovalue) values (:path, :value, :ovalue) "
-                        + "ON CONFLICT (path) DO UPDATE SET value = :value, ovalue = :ovalue";
-            } else if (databaseKind == SqlJsonDB.DatabaseKind.H2) {
-                sql =  "MERGE INTO jsondb (path, value, ovalue) VALUES (:path, :value, :ovalue)";
-            } else {
-                sql = "INSERT into jsondb (path, value, ovalue) values (:path, :value, :ovalue)";
-            }
-
-            PreparedBatch insert = conn.prepareBatch(sql);
-            for (Map.Entry<String, Object> entry : batch.entrySet()) {
-                String key = "/activity" + entry.getKey() + "/";
-                String value = null;
-                String ovalue = null;
-                if( key.startsWith("/activity/exchanges" )) {
-                    value = JsonRecordSupport.STRING_VALUE_PREFIX + (String)entry.getValue();
-                } else if ( key.startsWith("/activity/integrations" )) {
-                    ovalue = "true";
-                    value = String.valueOf(JsonRecordSupport.TRUE_VALUE_PREFIX);
-                } else if ( key.startsWith("/activity/pods" )) {
-                    PodLogState p = (PodLogState) entry.getValue();
-                    key += "time/"; //NOPMD
-                    value = JsonRecordSupport.STRING_VALUE_PREFIX+p.time;
-                }
-                insert
-                    .bind("path", key)
-                    .bind("value", value)
-                    .bind("ovalue", ovalue)
-                    .add();
+        ActivityStore.Batch writes = new ActivityStore.Batch();
+        for (Map.Entry<String, Object> entry : batch.entrySet()) {
+            // keys are /exchanges/<integration>/<exchange> or /pods/<pod>
+            String[] key = entry.getKey().split("/");
+            if ("exchanges".equals(key[1])) {
+                writes.addActivity(key[2], key[3], (String) entry.getValue());
+            } else if ("pods".equals(key[1])) {
+                writes.setPodTime(key[2], ((PodLogState) entry.getValue()).time);
             }
-            return insert.execute();
-        });
+        }
+        store.write(writes);
     }
 
     @Override
@@ -281,16 +281,13 @@ public class ActivityTrackingController implements BackendController, Closeable
                 }
             }
 
-            @SuppressWarnings("unchecked")
-            Map<String, Object> pods = dbGet(HashMap.class, "/activity/pods"); //NOPMD
-            if (pods != null) {
-                pods.keySet().removeAll(podHandlers.keySet());
-                for (String o : pods.keySet()) {
-                    jsondb.delete("/activity/pods/" + o);
-                    LOG.info("Pod state removed from db: {}", o);
-                }
+            Set<String> pods = store.fetchPodNames();
+            pods.removeAll(podHandlers.keySet());
+            for (String o : pods) {
+                store.deletePod(o);
+                LOG.info("Pod state removed from db: {}", o);
             }
-        } catch (RuntimeException | IOException e) {
+        } catch (RuntimeException e) {
             LOG.error("Unexpected Error occurred.", e);
         } finally {
             Thread.currentThread().setName("Logs Controller Scheduler [idle]");
@@ -323,27 +320,22 @@ public class ActivityTrackingController implements BackendController, Closeable
     }
 
     public void deletePodLogState(String podName) {
-        jsondb.delete("/activity/pods/" + podName);
+        store.deletePod(podName);
     }
 
     public void setPodLogState(String podName, PodLogState state) throws IOException {
-        jsondb.set("/activity/pods/" + podName, JsonUtils.writer().writeValueAsBytes(state));
+        store.setPodTime(podName, state.time);
     }
 
     public PodLogState getPodLogState(String podName) throws IOException {
-        return dbGet(PodLogState.class, "/activity/pods/" + podName);
-    }
-
-    private <T> T dbGet(Class<T> type, String path) throws IOException {
-        return dbGet(type, path, null);
-    }
-
-    private <T> T dbGet(Class<T> type, String path, GetOptions options) throws IOException {
-        byte[] data = jsondb.getAsByteArray(path, options);
-        if (data == null) {
+        String time = store.getPodTime(podName);
+        if (time == null) {
             return null;
         }
-        return JsonUtils.reader().forType(type).readValue(data);
+
+        PodLogState state = new PodLogState();
+        state.time = time;
+        return state;
     }
 
     private void processEventQueue() {
@@ -413,6 +405,11 @@ public class ActivityTrackingController implements BackendController, Closeable
         this.retentionTime = new DurationConverter().convert(retentionTime);
     }
 
+    @Value("${controllers.dblogging.maxAge:7 days}")
+    public void setMaxAge(final String maxAge) {
+        this.maxAge = new DurationConverter().convert(maxAge);
+    }
+
     @Value("${controllers.dblogging.cleanUpPeriod:15 minutes}")
     public void setCleanUpInterval(String cleanUpInterval) {
         this.cleanUpInterval = new DurationConverter().convert(cleanUpInterval);
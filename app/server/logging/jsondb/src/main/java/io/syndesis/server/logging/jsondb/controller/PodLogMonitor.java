@@ -15,7 +15,6 @@
  */
 package io.syndesis.server.logging.jsondb.controller;
 
-import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -27,10 +26,14 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.syndesis.common.util.KeyGenerator;
 import io.syndesis.common.util.json.JsonUtils;
@@ -44,6 +47,7 @@ import org.slf4j.LoggerFactory;
 
 import static io.syndesis.server.jsondb.impl.JsonRecordSupport.validateKey;
 import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.US_ASCII;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 @SuppressWarnings("PMD.GodClass")
@@ -51,8 +55,16 @@ class PodLogMonitor implements Consumer<InputStream> {
 
     private static final Logger LOG = LoggerFactory.getLogger(ActivityTrackingController.class);
 
-    // matches log lines like: 2018-06-06T21:54:36.30603486Z {"exchange":"i-LEM51uGKc6IuIjvR95Vz","status":"begin"}
-    private static final Pattern LOG_LINE_REGEX = Pattern.compile("^(\\d\\d\\d\\d\\-\\d\\d\\-\\d\\dT\\d\\d:\\d\\d:\\d\\d\\.\\d+Z) (\\{.*\\})\\s*");
+    // longer lines are cut to avoid blowing up our memory
+    private static final int MAX_LINE_LENGTH = 1024 * 10;
+
+    // as the line is prematurely cut, this closes the json value
+    private static final byte[] CUT_LINE_TERMINATOR = "\"}".getBytes(UTF_8);
+
+    // the timestamp of log lines like: 2018-06-06T21:54:36.30603486Z {"exchange":"i-LEM51uGKc6IuIjvR95Vz","status":"begin"}
+    private static final String TIMESTAMP_PATTERN = "dddd-dd-ddTdd:dd:dd.";
+
+    private static final JsonFactory JSON_FACTORY = JsonUtils.reader().getFactory();
 
     private final AtomicBoolean running = new AtomicBoolean(false);
     private final ActivityTrackingController logsController;
@@ -136,26 +148,24 @@ class PodLogMonitor implements Consumer<InputStream> {
     }
 
     void processLogStream(final InputStream is) throws IOException, InterruptedException {
-        ByteArrayOutputStream line = new ByteArrayOutputStream();
-        int c;
-
-        while (!logsController.stopped.get()) {
-            c = is.read();
-            if (c < 0) {
-                break;
-            }
-
-            line.write(c);
-            // cut really long lines to avoid blowing up our memory.
-            if (line.size() > 1024 * 10) {
-                // as the string is prematurely cut, add the closing terminator to the json value
-                line.write("\"}".getBytes(UTF_8));
-                c = '\n';
-            }
-
-            if (c == '\n') {
-                processLine(new String(line.toByteArray(), UTF_8));
-                line.reset();
+        final byte[] buffer = new byte[8 * 1024];
+        final byte[] line = new byte[MAX_LINE_LENGTH + 1 + CUT_LINE_TERMINATOR.length];
+        int length = 0;
+
+        int read;
+        while (!logsController.stopped.get() && (read = is.read(buffer)) >= 0) {
+            for (int i = 0; i < read; i++) {
+                final byte b = buffer[i];
+                line[length++] = b;
+
+                if (length > MAX_LINE_LENGTH) {
+                    System.arraycopy(CUT_LINE_TERMINATOR, 0, line, length, CUT_LINE_TERMINATOR.length);
+                    processLine(line, 0, length + CUT_LINE_TERMINATOR.length);
+                    length = 0;
+                } else if (b == '\n') {
+                    processLine(line, 0, length);
+                    length = 0;
+                }
             }
         }
 
@@ -174,7 +184,7 @@ class PodLogMonitor implements Consumer<InputStream> {
         Activity activity = new Activity();
         ArrayList<ActivityStep> doneSteps = new ArrayList<>();
         Map<String, ActivityStep> activeSteps = new LinkedHashMap<>();
-        Map<String, Object> metadata = new HashMap<>();
+        ObjectNode metadata = JsonNodeFactory.instance.objectNode();
 
         public ActivityStep getStep(String step, String id) throws IOException {
             ActivityStep rc = activeSteps.get(step);
@@ -202,21 +212,110 @@ class PodLogMonitor implements Consumer<InputStream> {
         return data;
     }
 
-    void processLine(String line) throws IOException {
+    /**
+     * Fields of a structured log line, the ones that are not tracked are
+     * collected as they are.
+     */
+    private static final class LogEvent {
+        String exchange;
+        String step;
+        String id;
+        String status;
+        Boolean failed;
+        JsonNode message;
+        JsonNode failure;
+        JsonNode duration;
+        ObjectNode other;
+
+        void parse(JsonParser parser) throws IOException {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = parser.getCurrentName();
+                final JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "exchange":
+                        exchange = text(parser, value);
+                        break;
+                    case "step":
+                        step = text(parser, value);
+                        break;
+                    case "id":
+                        id = text(parser, value);
+                        break;
+                    case "status":
+                        status = text(parser, value);
+                        break;
+                    case "failed":
+                        if (value != JsonToken.VALUE_NULL) {
+                            failed = parser.getBooleanValue();
+                        }
+                        break;
+                    case "message":
+                        message = readNode(parser, value);
+                        break;
+                    case "failure":
+                        failure = readNode(parser, value);
+                        break;
+                    case "duration":
+                        duration = readNode(parser, value);
+                        break;
+                    default:
+                        if (other == null) {
+                            other = JsonNodeFactory.instance.objectNode();
+                        }
+                        other.set(field, JsonUtils.reader().readTree(parser));
+                }
+            }
+        }
+
+        private static String text(JsonParser parser, JsonToken value) throws JsonParseException {
+            if (value == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            if (value != JsonToken.VALUE_STRING) {
+                throw new JsonParseException(parser, "Expected a string value, got: " + value);
+            }
+            return parser.getText();
+        }
+
+        private static JsonNode readNode(JsonParser parser, JsonToken value) throws IOException {
+            if (value == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            return JsonUtils.reader().readTree(parser);
+        }
+    }
+
+    void processLine(byte[] line, int offset, int length) throws IOException {
         // Does it look like a data of json structured output?
-        Matcher matcher = LOG_LINE_REGEX.matcher(line);
-        if (!matcher.matches()) {
+        final int timeEnd = timestampEnd(line, offset, offset + length);
+        if (timeEnd < 0 || timeEnd + 1 >= offset + length || line[timeEnd] != ' ' || line[timeEnd + 1] != '{') {
             return;
         }
 
-        String time = matcher.group(1);
-        String data = matcher.group(2);
-        try {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> json = JsonUtils.reader().forType(HashMap.class).readValue(data); //NOPMD
+        final int jsonStart = timeEnd + 1;
+        int jsonEnd = offset + length;
+        while (Character.isWhitespace(line[jsonEnd - 1])) {
+            jsonEnd--;
+        }
+        if (line[jsonEnd - 1] != '}' || jsonEnd - 1 == jsonStart) {
+            return;
+        }
+
+        final LogEvent event = new LogEvent();
+        try (JsonParser parser = JSON_FACTORY.createParser(line, jsonStart, jsonEnd - jsonStart)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return;
+            }
+            event.parse(parser);
+        } catch (IOException ignored) {
+            // log record not in the expected format.
+            return;
+        }
 
+        final String time = new String(line, offset, timeEnd - offset, US_ASCII);
+        try {
             // are the required fields set?
-            String exchange = validate((String) json.remove("exchange"));
+            String exchange = validate(event.exchange);
             if (exchange == null) {
                 // This log entry is not valid json format
                 return;
@@ -229,17 +328,16 @@ class PodLogMonitor implements Consumer<InputStream> {
             }
             InflightData inflightData = getInflightData(exchange, time);
 
-            String id = validate((String) json.remove("id"));
-            String step = (String) json.remove("step");
-            if (step == null) {
+            String id = validate(event.id);
+            if (event.step == null) {
                 // Looks like an exchange level logging event.
-                processLogLineExchange(json, inflightData, exchange, time);
+                processLogLineExchange(event, inflightData, exchange, time);
             } else {
                 // Looks like a step level logging event.
-                processLogLineStep(json, inflightData, step, id);
+                processLogLineStep(event, inflightData, event.step, id);
             }
 
-        } catch (JsonDBException | ClassCastException | IOException ignored) {
+        } catch (JsonDBException | IOException ignored) {
             /// log record not in the expected format.
         } catch (InterruptedException e) {
             final InterruptedIOException rethrow = new InterruptedIOException(e.getMessage());
@@ -248,34 +346,85 @@ class PodLogMonitor implements Consumer<InputStream> {
         }
     }
 
-    private static void processLogLineStep(Map<String, Object> json, InflightData inflightData, String step, String id) throws IOException {
+    /**
+     * @return the index following the timestamp at the start of the line, or
+     *         {@code -1} if the line doesn't start with a timestamp
+     */
+    private static int timestampEnd(byte[] line, int offset, int end) {
+        int i = offset;
+        for (int p = 0; p < TIMESTAMP_PATTERN.length(); p++, i++) {
+            if (i >= end) {
+                return -1;
+            }
+            final char expected = TIMESTAMP_PATTERN.charAt(p);
+            if (expected == 'd' ? !isDigit(line[i]) : line[i] != expected) {
+                return -1;
+            }
+        }
+
+        // fraction of seconds
+        final int fractionStart = i;
+        while (i < end && isDigit(line[i])) {
+            i++;
+        }
+        if (i == fractionStart || i >= end || line[i] != 'Z') {
+            return -1;
+        }
+
+        return i + 1;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static void processLogLineStep(LogEvent event, InflightData inflightData, String step, String id) throws IOException {
+        if (event.message != null && !event.message.isTextual()
+            || event.failure != null && !event.failure.isTextual()
+            || event.duration != null && !event.duration.isNumber()) {
+            // log record not in the expected format.
+            return;
+        }
+
         ActivityStep as = inflightData.getStep(step, id);
-        String message = (String) json.remove("message");
-        if (message != null) {
+        if (event.message != null) {
             if (as.getMessages() == null) {
                 as.setMessages(new ArrayList<>());
             }
-            as.getMessages().add(message);
+            as.getMessages().add(event.message.textValue());
         }
 
-        String failure = (String) json.remove("failure");
-        if (failure != null) {
-            as.setFailure(failure);
+        if (event.failure != null) {
+            as.setFailure(event.failure.textValue());
         }
 
-        Number duration = (Number) json.remove("duration");
-        if (duration != null) {
-            as.setDuration(duration.longValue());
+        if (event.duration != null) {
+            as.setDuration(event.duration.longValue());
         }
 
-        if (!json.isEmpty()) {
+        ObjectNode other = event.other;
+        if (event.status != null || event.failed != null) {
+            // status and failed are only tracked on exchange level events,
+            // on step level events they are kept along with the other fields
+            if (other == null) {
+                other = JsonNodeFactory.instance.objectNode();
+            }
+            if (event.status != null) {
+                other.put("status", event.status);
+            }
+            if (event.failed != null) {
+                other.put("failed", event.failed);
+            }
+        }
+
+        if (other != null) {
             if (as.getEvents() == null) {
                 as.setEvents(new ArrayList<>());
             }
-            as.getEvents().add(toJsonNode(json));
+            as.getEvents().add(other);
         }
 
-        if (duration != null) {
+        if (event.duration != null) {
             inflightData.activeSteps.remove(step);
             if (inflightData.doneSteps.size() == 50) {
                 ActivityStep truncated = new ActivityStep();
@@ -288,19 +437,32 @@ class PodLogMonitor implements Consumer<InputStream> {
         }
     }
 
-    private void processLogLineExchange(Map<String, Object> json, InflightData inflightData, String exchange, String time) throws IOException, InterruptedException {
-        Boolean failed = (Boolean) json.remove("failed");
-        if (failed != null) {
-            inflightData.activity.setFailed(failed);
+    private void processLogLineExchange(LogEvent event, InflightData inflightData, String exchange, String time) throws IOException, InterruptedException {
+        if (event.failed != null) {
+            inflightData.activity.setFailed(event.failed);
+        }
+
+        // on exchange level events, all but the status is metadata
+        if (event.message != null) {
+            inflightData.metadata.set("message", event.message);
+        }
+        if (event.failure != null) {
+            inflightData.metadata.set("failure", event.failure);
+        }
+        if (event.duration != null) {
+            inflightData.metadata.set("duration", event.duration);
+        }
+        if (event.other != null) {
+            inflightData.metadata.setAll(event.other);
         }
-        String status = (String) json.remove("status");
-        inflightData.metadata.putAll(json);
+
+        String status = event.status;
         if (status != null) {
             inflightData.activity.setStatus(status);
             if ("done".equals(status)) {
                 inflightData.activity.setSteps(inflightData.doneSteps);
-                if (!inflightData.metadata.isEmpty()) {
-                    inflightData.activity.setMetadata(toJsonNode(inflightData.metadata));
+                if (inflightData.metadata.size() > 0) {
+                    inflightData.activity.setMetadata(inflightData.metadata);
                 }
 
                 String activityAsString = JsonUtils.writer().writeValueAsString(inflightData.activity);
@@ -321,15 +483,10 @@ class PodLogMonitor implements Consumer<InputStream> {
         return System.currentTimeMillis();
     }
 
-    private static JsonNode toJsonNode(Map<String, Object> json) throws IOException {
-        return JsonUtils.reader().readTree(JsonUtils.writer().writeValueAsString(json));
-    }
-
     private void trackState(String time, Map<String, Object> batch) {
         state.time = time;
         String podStatPath = "/pods/" + podName;
         batch.put(podStatPath, state);
-        batch.put("/integrations/" + integrationId, Boolean.TRUE);
     }
 
     private static String validate(String value) {
@@ -15,12 +15,9 @@
  */
 package io.syndesis.server.logging.jsondb.service;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 
 import io.syndesis.common.util.json.JsonUtils;
 import org.slf4j.Logger;
@@ -28,14 +25,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
-import com.fasterxml.jackson.databind.JsonNode;
-
 import io.syndesis.server.endpoint.v1.handler.activity.Activity;
 import io.syndesis.server.endpoint.v1.handler.activity.ActivityStep;
 import io.syndesis.server.endpoint.v1.handler.activity.ActivityTrackingService;
-import io.syndesis.server.jsondb.GetOptions;
-import io.syndesis.server.jsondb.JsonDB;
 import io.syndesis.server.logging.jsondb.controller.ActivityTrackingController;
+import io.syndesis.server.logging.jsondb.store.ActivityStore;
 
 /**
  * Implements a dblogging service for the Activity JAXRS service.
@@ -45,17 +39,15 @@ import io.syndesis.server.logging.jsondb.controller.ActivityTrackingController;
 public class DBActivityTrackingService implements ActivityTrackingService {
 
     private static final Logger LOG = LoggerFactory.getLogger(ActivityTrackingController.class);
-    private final JsonDB jsondb;
+    private final ActivityStore store;
 
-    public DBActivityTrackingService(final JsonDB jsondb) {
-        this.jsondb = jsondb;
+    public DBActivityTrackingService(final ActivityStore store) {
+        this.store = store;
     }
 
     @Override
     public List<Activity> getActivities(String integrationId, String from, Integer requestedLimit) throws IOException {
 
-        String path = "/activity/exchanges/" + integrationId;
-
         int limit = 10;
         if( requestedLimit != null ) {
             limit = requestedLimit;
@@ -64,23 +56,12 @@ public class DBActivityTrackingService implements ActivityTrackingService {
             limit = 1000; // max out to 1000 per request.
         }
 
-        GetOptions options = new GetOptions()
-            .order(GetOptions.Order.DESC) // reverse the order since we want most recent exchanges first.
-            .startAfter(from).limitToFirst(limit); // allow paging
+        // most recent exchanges first, paging by the exchange id
+        List<String> activities = store.fetchActivities(integrationId, from, limit);
 
-        byte[] data = jsondb.getAsByteArray(path, options);
-        if( data == null )  {
-            return new ArrayList<>();
-        }
-
-        JsonNode map = JsonUtils.reader().readTree(new ByteArrayInputStream(data));
         List<Activity> rc = new ArrayList<>();
-
-        Iterator<Map.Entry<String, JsonNode>> i = map.fields();
-        while (i.hasNext()) {
-            Map.Entry<String, JsonNode> entry = i.next();
+        for (String value : activities) {
             try {
-                String value = entry.getValue().textValue();
                 Activity activity = JsonUtils.reader().forType(Activity.class).readValue(value);
                 if (activity.getSteps() == null){
                     activity.setSteps(new ArrayList<ActivityStep>());
@@ -88,7 +69,7 @@ public class DBActivityTrackingService implements ActivityTrackingService {
                 rc.add(activity);
             } catch (RuntimeException ignored) {
                 // We could get stuff like class cast exceptions..
-                LOG.debug("Could convert entry: {}", entry, ignored);
+                LOG.debug("Could convert entry: {}", value, ignored);
             }
         }
         return rc;
@@ -0,0 +1,388 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.logging.jsondb.store;
+
+import java.io.IOException;
+import java.sql.DatabaseMetaData;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+
+import io.syndesis.common.util.DurationConverter;
+import io.syndesis.common.util.KeyGenerator;
+import io.syndesis.server.jsondb.impl.SqlJsonDB;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.PreparedBatch;
+import org.skife.jdbi.v2.util.StringColumnMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stores the activity of integrations in tables of its own instead of the
+ * jsondb table. Activities are only ever appended and are keyed by
+ * integration and exchange, as exchange ids are ordered by time the most
+ * recent activities are read by walking the primary key backwards.
+ *
+ * On PostgreSQL 11 and later the activity table is partitioned by the time
+ * the exchanges started so that expired activity is removed by dropping
+ * whole partitions, elsewhere it is deleted in small batches.
+ */
+@Component
+@SuppressWarnings("PMD.TooManyMethods")
+public class ActivityStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ActivityStore.class);
+
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("activity_p(\\d+)");
+
+    private final DBI dbi;
+
+    // start times of the partitions known to exist
+    private final Set<Long> partitions = ConcurrentHashMap.newKeySet();
+
+    private Duration partitionSize = Duration.ofDays(1);
+
+    private SqlJsonDB.DatabaseKind databaseKind;
+
+    private boolean partitioned;
+
+    /**
+     * Writes collected by the activity tracking controller, written in a
+     * single transaction.
+     */
+    public static final class Batch {
+        private final Map<String, Map<String, String>> activities = new TreeMap<>();
+        private final Map<String, String> podTimes = new TreeMap<>();
+
+        public void addActivity(String integrationId, String exchangeId, String activity) {
+            activities.computeIfAbsent(integrationId, k -> new TreeMap<>()).put(exchangeId, activity);
+        }
+
+        public void setPodTime(String podName, String time) {
+            podTimes.put(podName, time);
+        }
+
+        public boolean isEmpty() {
+            return activities.isEmpty() && podTimes.isEmpty();
+        }
+    }
+
+    @Autowired
+    public ActivityStore(DBI dbi) {
+        this.dbi = dbi;
+    }
+
+    @PostConstruct
+    public void createTables() {
+        dbi.inTransaction((h, status) -> {
+            DatabaseMetaData metaData = h.getConnection().getMetaData();
+            databaseKind = SqlJsonDB.DatabaseKind.valueOf(metaData.getDatabaseProductName());
+
+            // CockroachDB uses the PostgreSQL driver.. so need to look a little
+            // closer.
+            if (databaseKind == SqlJsonDB.DatabaseKind.PostgreSQL) {
+                String version = h.createQuery("SELECT VERSION()").mapTo(String.class).first();
+                if (version.startsWith("CockroachDB")) {
+                    databaseKind = SqlJsonDB.DatabaseKind.CockroachDB;
+                }
+            }
+
+            // primary keys on partitioned tables need PostgreSQL 11
+            partitioned = databaseKind == SqlJsonDB.DatabaseKind.PostgreSQL && metaData.getDatabaseMajorVersion() >= 11;
+
+            if (partitioned) {
+                h.execute("CREATE TABLE IF NOT EXISTS activity (integration_id VARCHAR COLLATE \"C\" NOT NULL, exchange_id VARCHAR COLLATE \"C\" NOT NULL, "
+                    + "started_at BIGINT NOT NULL, value VARCHAR NOT NULL, PRIMARY KEY (integration_id, exchange_id, started_at)) PARTITION BY RANGE (started_at)");
+                partitions.addAll(h.createQuery("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = 'activity'::regclass")
+                    .map(StringColumnMapper.INSTANCE).list().stream()
+                    .map(ActivityStore::partitionStart)
+                    .filter(start -> start >= 0)
+                    .collect(Collectors.toSet()));
+            } else {
+                h.execute("CREATE TABLE IF NOT EXISTS activity (integration_id VARCHAR NOT NULL, exchange_id VARCHAR NOT NULL, "
+                    + "started_at BIGINT NOT NULL, value VARCHAR NOT NULL, PRIMARY KEY (integration_id, exchange_id, started_at))");
+            }
+            h.execute("CREATE TABLE IF NOT EXISTS activity_integrations (integration_id VARCHAR PRIMARY KEY)");
+            h.execute("CREATE TABLE IF NOT EXISTS activity_pods (pod VARCHAR PRIMARY KEY, log_time VARCHAR)");
+            h.execute("CREATE TABLE IF NOT EXISTS activity_migrations (name VARCHAR PRIMARY KEY)");
+            return null;
+        });
+    }
+
+    public void dropTables() {
+        dbi.inTransaction((h, status) -> {
+            h.execute("DROP TABLE IF EXISTS activity");
+            h.execute("DROP TABLE IF EXISTS activity_integrations");
+            h.execute("DROP TABLE IF EXISTS activity_pods");
+            h.execute("DROP TABLE IF EXISTS activity_migrations");
+            partitions.clear();
+            return null;
+        });
+    }
+
+    public void write(Batch batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        // partitions created by the transaction, only known to exist once it
+        // commits
+        Set<Long> created = new HashSet<>();
+        dbi.inTransaction((h, status) -> {
+            created.clear();
+            if (!batch.activities.isEmpty()) {
+                writeActivities(h, batch.activities, created);
+            }
+            if (!batch.podTimes.isEmpty()) {
+                PreparedBatch pods = h.prepareBatch(upsert("activity_pods", "pod", "log_time"));
+                batch.podTimes.forEach((pod, time) -> pods.bind(0, pod).bind(1, time).add());
+                pods.execute();
+            }
+            return null;
+        });
+
+        for (Long start : created) {
+            partitions.add(start);
+            LOG.debug("Created activity partition starting at {}", start);
+        }
+    }
+
+    private void writeActivities(Handle h, Map<String, Map<String, String>> activities, Set<Long> created) throws IOException {
+        PreparedBatch insert = h.prepareBatch(upsert("activity", "integration_id", "exchange_id", "started_at", "value"));
+        for (Map.Entry<String, Map<String, String>> integration : activities.entrySet()) {
+            for (Map.Entry<String, String> activity : integration.getValue().entrySet()) {
+                long startedAt = KeyGenerator.getKeyTimeMillis(activity.getKey());
+                if (partitioned) {
+                    ensurePartition(h, startedAt, created);
+                }
+                insert.bind(0, integration.getKey())
+                    .bind(1, activity.getKey())
+                    .bind(2, startedAt)
+                    .bind(3, activity.getValue())
+                    .add();
+            }
+        }
+        insert.execute();
+
+        PreparedBatch integrations = h.prepareBatch(upsert("activity_integrations", "integration_id"));
+        activities.keySet().forEach(id -> integrations.bind(0, id).add());
+        integrations.execute();
+    }
+
+    private void ensurePartition(Handle h, long startedAt, Set<Long> created) {
+        long size = partitionSize.toMillis();
+        long start = startedAt - Math.floorMod(startedAt, size);
+        if (partitions.contains(start) || created.contains(start)) {
+            return;
+        }
+
+        h.execute("CREATE TABLE IF NOT EXISTS activity_p" + start + " PARTITION OF activity FOR VALUES FROM (" + start + ") TO (" + (start + size) + ")");
+        created.add(start);
+    }
+
+    private String upsert(String table, String... columns) {
+        String names = String.join(", ", columns);
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < columns.length; i++) {
+            values.append(i == 0 ? "?" : ", ?");
+        }
+
+        switch (databaseKind) {
+            case PostgreSQL:
+                // all columns are part of the key, except for the last one
+                // of tables having more than one column
+                if (columns.length == 1) {
+                    return "INSERT INTO " + table + " (" + names + ") VALUES (" + values + ") ON CONFLICT DO NOTHING";
+                }
+                String last = columns[columns.length - 1];
+                String key = String.join(", ", Arrays.copyOf(columns, columns.length - 1));
+                return "INSERT INTO " + table + " (" + names + ") VALUES (" + values + ") ON CONFLICT (" + key + ") DO UPDATE SET "
+                    + last + " = EXCLUDED." + last;
+            case H2:
+                return "MERGE INTO " + table + " (" + names + ") VALUES (" + values + ")";
+            default:
+                return "INSERT INTO " + table + " (" + names + ") VALUES (" + values + ")";
+        }
+    }
+
+    /**
+     * Most recent activities of the integration first.
+     *
+     * @param before only activities of exchanges before this one, for paging,
+     *            can be {@code null}
+     */
+    public List<String> fetchActivities(String integrationId, String before, int limit) {
+        return dbi.withHandle(h -> {
+            if (before == null) {
+                return h.createQuery("SELECT value FROM activity WHERE integration_id = ? ORDER BY exchange_id DESC LIMIT ?")
+                    .bind(0, integrationId)
+                    .bind(1, limit)
+                    .map(StringColumnMapper.INSTANCE).list();
+            }
+
+            return h.createQuery("SELECT value FROM activity WHERE integration_id = ? AND exchange_id < ? ORDER BY exchange_id DESC LIMIT ?")
+                .bind(0, integrationId)
+                .bind(1, before)
+                .bind(2, limit)
+                .map(StringColumnMapper.INSTANCE).list();
+        });
+    }
+
+    public Set<String> fetchIntegrationIds() {
+        return dbi.withHandle(h -> new TreeSet<>(h.createQuery("SELECT integration_id FROM activity_integrations")
+            .map(StringColumnMapper.INSTANCE).list()));
+    }
+
+    /**
+     * Deletes all but the {@code retention} most recent activities of the
+     * integration, a batch at a time.
+     *
+     * @return the number of activities deleted
+     */
+    public int deleteKeepingRetention(String integrationId, int retention) {
+        String newestDeleted = dbi.withHandle(h -> h.createQuery("SELECT exchange_id FROM activity WHERE integration_id = ? ORDER BY exchange_id DESC LIMIT 1 OFFSET ?")
+            .bind(0, integrationId)
+            .bind(1, retention)
+            .map(StringColumnMapper.INSTANCE).first());
+        if (newestDeleted == null) {
+            return 0;
+        }
+
+        return deleteInBatches("DELETE FROM activity WHERE integration_id = ? AND exchange_id IN ("
+            + "SELECT exchange_id FROM activity WHERE integration_id = ? AND exchange_id <= ? LIMIT " + DELETE_BATCH_SIZE + ")",
+            integrationId, integrationId, newestDeleted);
+    }
+
+    /**
+     * Removes activity of exchanges that started before the given time,
+     * dropping partitions that hold only such activity. Without partitions
+     * the activity is deleted a batch at a time.
+     *
+     * @return the number of partitions dropped or activities deleted
+     */
+    public int deleteStartedBefore(long time) {
+        if (partitioned) {
+            long size = partitionSize.toMillis();
+            int dropped = 0;
+            for (Long start : new ArrayList<>(partitions)) {
+                if (start + size <= time) {
+                    dbi.withHandle(h -> h.update("DROP TABLE IF EXISTS activity_p" + start));
+                    partitions.remove(start);
+                    LOG.debug("Dropped activity partition starting at {}", start);
+                    dropped++;
+                }
+            }
+            return dropped;
+        }
+
+        int deleted = 0;
+        for (String integrationId : fetchIntegrationIds()) {
+            deleted += deleteInBatches("DELETE FROM activity WHERE integration_id = ? AND exchange_id IN ("
+                + "SELECT exchange_id FROM activity WHERE integration_id = ? AND started_at < ? LIMIT " + DELETE_BATCH_SIZE + ")",
+                integrationId, integrationId, time);
+        }
+        return deleted;
+    }
+
+    /**
+     * Forgets integrations that have no activity left.
+     */
+    public int deleteIntegrationsWithoutActivity() {
+        return dbi.withHandle(h -> h.update("DELETE FROM activity_integrations "
+            + "WHERE NOT EXISTS (SELECT 1 FROM activity WHERE activity.integration_id = activity_integrations.integration_id)"));
+    }
+
+    private int deleteInBatches(String sql, Object... parameters) {
+        int total = 0;
+        int deleted;
+        do {
+            // each batch in its own transaction so that the rows are not
+            // locked for long
+            deleted = dbi.withHandle(h -> h.update(sql, parameters));
+            total += deleted;
+        } while (deleted >= DELETE_BATCH_SIZE);
+
+        return total;
+    }
+
+    public String getPodTime(String podName) {
+        return dbi.withHandle(h -> h.createQuery("SELECT log_time FROM activity_pods WHERE pod = ?")
+            .bind(0, podName)
+            .map(StringColumnMapper.INSTANCE).first());
+    }
+
+    public void setPodTime(String podName, String time) {
+        Batch batch = new Batch();
+        batch.setPodTime(podName, time);
+        write(batch);
+    }
+
+    public void deletePod(String podName) {
+        dbi.withHandle(h -> h.update("DELETE FROM activity_pods WHERE pod = ?", podName));
+    }
+
+    public Set<String> fetchPodNames() {
+        return dbi.withHandle(h -> new HashSet<>(h.createQuery("SELECT pod FROM activity_pods")
+            .map(StringColumnMapper.INSTANCE).list()));
+    }
+
+    /**
+     * True if the one time migration with the given name has been performed.
+     */
+    public boolean isMigrated(String name) {
+        return dbi.withHandle(h -> h.createQuery("SELECT name FROM activity_migrations WHERE name = ?")
+            .bind(0, name)
+            .map(StringColumnMapper.INSTANCE).first() != null);
+    }
+
+    public void setMigrated(String name) {
+        dbi.withHandle(h -> h.update(upsert("activity_migrations", "name"), name));
+    }
+
+    public boolean isPartitioned() {
+        return partitioned;
+    }
+
+    @Value("${controllers.dblogging.partitionSize:1 day}")
+    public void setPartitionSize(String partitionSize) {
+        this.partitionSize = new DurationConverter().convert(partitionSize);
+    }
+
+    private static long partitionStart(String tableName) {
+        Matcher matcher = PARTITION_NAME.matcher(tableName);
+        if (!matcher.matches()) {
+            return -1;
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+}
@@ -23,6 +23,8 @@ import java.nio.charset.StandardCharsets;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
@@ -38,9 +40,9 @@ import io.fabric8.kubernetes.client.ConfigBuilder;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.syndesis.common.util.KeyGenerator;
 import io.syndesis.common.util.json.JsonUtils;
-import io.syndesis.server.jsondb.GetOptions;
 import io.syndesis.server.jsondb.JsonDB;
 import io.syndesis.server.jsondb.impl.SqlJsonDB;
+import io.syndesis.server.logging.jsondb.store.ActivityStore;
 import io.syndesis.server.openshift.OpenShiftService;
 
 import org.h2.jdbcx.JdbcDataSource;
@@ -64,8 +66,8 @@ public class ActivityTrackingControllerTest {
 
         private final long time;
 
-        private StubbedController(JsonDB jsondb, DBI dbi, KubernetesClient client, InputStream podLogs, long time) {
-            super(jsondb, dbi, client);
+        private StubbedController(JsonDB jsondb, ActivityStore store, KubernetesClient client, InputStream podLogs, long time) {
+            super(jsondb, store, client);
             this.podLogs = podLogs;
             this.time = time;
         }
@@ -110,7 +112,7 @@ public class ActivityTrackingControllerTest {
     }
 
     private SqlJsonDB jsondb;
-    private DBI dbi;
+    private ActivityStore store;
 
     private KubernetesClient client;
 
@@ -118,9 +120,11 @@ public class ActivityTrackingControllerTest {
     public void before() {
         JdbcDataSource ds = new JdbcDataSource();
         ds.setURL("jdbc:h2:mem:t;DB_CLOSE_DELAY=-1;MODE=PostgreSQL");
-        this.dbi = new DBI(ds);
+        DBI dbi = new DBI(ds);
         this.jsondb = new SqlJsonDB(dbi, null);
         this.jsondb.createTables();
+        this.store = new ActivityStore(dbi);
+        this.store.createTables();
 
         client = mock(KubernetesClient.class);
         when(client.getConfiguration()).thenReturn(new ConfigBuilder().withMasterUrl("http://master").build());
@@ -129,57 +133,78 @@ public class ActivityTrackingControllerTest {
     @AfterEach
     public void destroyEverything() {
         jsondb.dropTables();
+        store.dropTables();
     }
 
     @Test
     public void testLogsController() throws IOException {
-        final String expectedDBState = resource("logs-controller-db.json").trim();
+        final JsonNode expected = JsonUtils.reader().readTree(resource("logs-controller-db.json")).get("activity");
+        final List<String> expectedActivities = new ArrayList<>();
+        // most recent first
+        expected.get("exchanges").get("my-integration").elements().forEachRemaining(e -> expectedActivities.add(0, e.textValue()));
         final String podLogs = resource("test-pod-x23x.txt");
         final InputStream podLogsStream = new ByteArrayInputStream(podLogs.getBytes(StandardCharsets.UTF_8));
 
-        try (ActivityTrackingController controller = new StubbedController(jsondb, dbi, client, podLogsStream, ZonedDateTime.parse("2018-01-12T21:22:02.068338027Z").toInstant().toEpochMilli())) {
+        try (ActivityTrackingController controller = new StubbedController(jsondb, store, client, podLogsStream, ZonedDateTime.parse("2018-01-12T21:22:02.068338027Z").toInstant().toEpochMilli())) {
 
             controller.setStartupDelay("0 seconds");
             controller.setRetention(Integer.MAX_VALUE);
+            // the logs are from 2018
+            controller.setMaxAge("36500 days");
             controller.open();
 
-            // Eventually all the log data should make it into the jsondb
+            // Eventually all the log data should make it into the store
             given().await()
                 .atMost(20, SECONDS)
                 .pollInterval(1, SECONDS)
                 .untilAsserted(() -> {
-                    String db = jsondb.getAsString("/", new GetOptions().prettyPrint(true));
-                    assertThat(db).isEqualTo(expectedDBState);
+                    assertThat(store.fetchActivities("my-integration", null, 10)).containsExactlyElementsOf(expectedActivities);
+                    assertThat(store.fetchIntegrationIds()).containsOnly("my-integration");
+                    assertThat(store.getPodTime("test-pod-x23x")).isEqualTo(expected.get("pods").get("test-pod-x23x").get("time").textValue());
                 });
+
+            assertThat(jsondb.exists("/activity")).isFalse();
         }
 
     }
 
+    @Test
+    public void shouldMoveActivityStoredByPreviousVersions() throws IOException {
+        final JsonNode stored = JsonUtils.reader().readTree(resource("logs-controller-db.json")).get("activity");
+        jsondb.set("/activity", JsonUtils.writer().writeValueAsBytes(stored));
+
+        final List<String> expectedActivities = new ArrayList<>();
+        // most recent first
+        stored.get("exchanges").get("my-integration").elements().forEachRemaining(e -> expectedActivities.add(0, e.textValue()));
+
+        try (ActivityTrackingController controller = new StubbedController(jsondb, store, client, new ByteArrayInputStream(new byte[0]), System.currentTimeMillis())) {
+            controller.setStartupDelay("1 hour");
+            controller.open();
+
+            assertThat(store.fetchActivities("my-integration", null, 10)).containsExactlyElementsOf(expectedActivities);
+            assertThat(store.getPodTime("test-pod-x23x")).isEqualTo(stored.get("pods").get("test-pod-x23x").get("time").textValue());
+            assertThat(store.isMigrated(ActivityTrackingController.JSONDB_ACTIVITY_MIGRATION)).isTrue();
+            assertThat(jsondb.exists("/activity")).isFalse();
+        }
+    }
+
     @Test
     public void shouldRetainLastRetainActivityLogs() throws IOException {
         try (InputStream podLogsStream = logStream(1100);
-            ActivityTrackingController controller = new StubbedController(jsondb, dbi, client, podLogsStream, System.currentTimeMillis())) {
+            ActivityTrackingController controller = new StubbedController(jsondb, store, client, podLogsStream, System.currentTimeMillis())) {
 
             controller.setStartupDelay("0 seconds");
             controller.setCleanUpInterval("15 minutes");
             controller.open();
 
-            // Eventually all the log data should make it into the jsondb
+            // Eventually all the log data should make it into the store
             given().await()
                 .atMost(20, SECONDS)
                 .pollInterval(1, SECONDS)
-                .untilAsserted(() -> {
-                    final String json = jsondb.getAsString("/", new GetOptions().prettyPrint(true));
-                    assertThat(json).isNotNull();
-                    final JsonNode tree = JsonUtils.reader().readTree(json);
-                    assertThat(tree.get("activity").get("exchanges").get("my-integration").size()).isGreaterThan(1000);
-                });
+                .untilAsserted(() -> assertThat(store.fetchActivities("my-integration", null, 2000)).hasSizeGreaterThan(1000));
 
             controller.cleanupLogs();
-            final String json = jsondb.getAsString("/", new GetOptions().prettyPrint(true));
-            assertThat(json).isNotNull();
-            final JsonNode tree = JsonUtils.reader().readTree(json);
-            assertThat(tree.get("activity").get("exchanges").get("my-integration").size()).isLessThanOrEqualTo(controller.getRetention());
+            assertThat(store.fetchActivities("my-integration", null, 2000)).hasSizeLessThanOrEqualTo(controller.getRetention());
         }
     }
 
@@ -35,12 +35,12 @@ import io.fabric8.kubernetes.client.ConfigBuilder;
 import io.fabric8.kubernetes.client.DefaultKubernetesClient;
 import io.fabric8.kubernetes.client.NamespacedKubernetesClient;
 import io.syndesis.server.jsondb.JsonDB;
+import io.syndesis.server.logging.jsondb.store.ActivityStore;
 import io.syndesis.server.openshift.OpenShiftService;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.skife.jdbi.v2.DBI;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -105,13 +105,13 @@ public class KubernetesSupportIT {
                 .build();
 
             final JsonDB jsondb = mock(JsonDB.class);
-            final DBI dbi = mock(DBI.class);
+            final ActivityStore store = mock(ActivityStore.class);
 
             // we're using the mock HTTP server to emulate K8S API server, but
             // only for the log endpoint, so we need to stub out some of the
             // calls that would go to the live server and replace the
             // PodLogMonitor with test version
-            final ActivityTrackingController controller = new ActivityTrackingController(jsondb, dbi, client) {
+            final ActivityTrackingController controller = new ActivityTrackingController(jsondb, store, client) {
                 @Override
                 protected boolean isPodRunning(String name) {
                     return true;
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.logging.jsondb.controller;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.client.ConfigBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.syndesis.common.util.KeyGenerator;
+import io.syndesis.common.util.json.JsonUtils;
+import io.syndesis.server.openshift.OpenShiftService;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PodLogMonitorTest {
+
+    private static final Pod POD = new PodBuilder()
+        .withNewMetadata()
+        .withName("test-pod")
+        .addToLabels(OpenShiftService.INTEGRATION_ID_LABEL, "my-integration")
+        .addToLabels(OpenShiftService.DEPLOYMENT_VERSION_LABEL, "1")
+        .endMetadata()
+        .build();
+
+    private static final class CollectingPodLogMonitor extends PodLogMonitor {
+        private final List<String> lines = new ArrayList<>();
+
+        CollectingPodLogMonitor(ActivityTrackingController logsController) {
+            super(logsController, POD);
+        }
+
+        @Override
+        void processLine(byte[] line, int offset, int length) {
+            lines.add(new String(line, offset, length, StandardCharsets.UTF_8));
+        }
+    }
+
+    // hands out the data a few bytes at a time so lines span multiple reads
+    private static final class TricklingInputStream extends ByteArrayInputStream {
+        TricklingInputStream(byte[] data) {
+            super(data);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, 3));
+        }
+    }
+
+    @Test
+    public void shouldSplitLinesAcrossReads() throws IOException, InterruptedException {
+        final CollectingPodLogMonitor monitor = new CollectingPodLogMonitor(controller());
+
+        monitor.processLogStream(new TricklingInputStream("first line\nsecond line\n\nincomplete".getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(monitor.lines).containsExactly("first line\n", "second line\n", "\n");
+    }
+
+    @Test
+    public void shouldCutLongLines() throws IOException, InterruptedException {
+        final CollectingPodLogMonitor monitor = new CollectingPodLogMonitor(controller());
+
+        final char[] longLine = new char[20_000];
+        Arrays.fill(longLine, 'x');
+        monitor.processLogStream(new ByteArrayInputStream((new String(longLine) + "\nnext\n").getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(monitor.lines).hasSize(3);
+        assertThat(monitor.lines.get(0)).hasSize(10 * 1024 + 1 + 2).endsWith("x\"}");
+        assertThat(monitor.lines.get(2)).isEqualTo("next\n");
+    }
+
+    @Test
+    public void shouldProcessStructuredLogLines() throws IOException, InterruptedException {
+        final String exchange = KeyGenerator.createKey();
+        final String stepId = KeyGenerator.createKey();
+        final ActivityTrackingController controller = controller();
+        final PodLogMonitor monitor = new PodLogMonitor(controller, POD);
+        monitor.state = new PodLogState();
+
+        final String prefix = "2018-06-06T21:54:36.30603486Z {\"exchange\":\"" + exchange + "\"";
+        final String logs = "not a structured line\n"
+            + prefix + ",\"status\":\"begin\"}\n"
+            + prefix + ",\"step\":42,\"id\":\"" + stepId + "\",\"message\":\"ignored\"}\n"
+            + prefix + ",\"step\":\"s1\",\"id\":\"" + stepId + "\",\"message\":\"hello\",\"duration\":5,\"extra\":{\"a\":1}}  \n"
+            + prefix + ",\"status\":\"done\",\"failed\":false,\"custom\":\"value\"}\n";
+
+        monitor.processLogStream(new ByteArrayInputStream(logs.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(monitor.inflightActivities).isEmpty();
+        assertThat(controller.eventQueue).hasSize(1);
+
+        final Map<String, Object> batch = new HashMap<>();
+        controller.eventQueue.poll().apply(batch);
+
+        final JsonNode activity = JsonUtils.reader().readTree((String) batch.get("/exchanges/my-integration/" + exchange));
+        assertThat(activity.get("status").textValue()).isEqualTo("done");
+        assertThat(activity.get("failed").booleanValue()).isFalse();
+        assertThat(activity.get("metadata").get("custom").textValue()).isEqualTo("value");
+        assertThat(activity.get("steps")).hasSize(1);
+
+        final JsonNode step = activity.get("steps").get(0);
+        assertThat(step.get("id").textValue()).isEqualTo("s1");
+        assertThat(step.get("duration").longValue()).isEqualTo(5);
+        assertThat(step.get("messages")).containsExactly(JsonNodeFactory.instance.textNode("hello"));
+        assertThat(step.get("events").get(0).get("extra").get("a").intValue()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldKeepStatusOfStepLevelEventsWithTheStepEvents() throws IOException, InterruptedException {
+        final String exchange = KeyGenerator.createKey();
+        final String stepId = KeyGenerator.createKey();
+        final ActivityTrackingController controller = controller();
+        final PodLogMonitor monitor = new PodLogMonitor(controller, POD);
+        monitor.state = new PodLogState();
+
+        final String prefix = "2018-06-06T21:54:36.30603486Z {"exchange":"" + exchange + """;
+        final String logs = prefix + ","status":"begin"}
+"
+            + prefix + ","step":"s1","id":"" + stepId + "","status":"retrying","failed":true,"duration":5}
+"
+            + prefix + ","status":"done"}
+";
+
+        monitor.processLogStream(new ByteArrayInputStream(logs.getBytes(StandardCharsets.UTF_8)));
+
+        final Map<String, Object> batch = new HashMap<>();
+        controller.eventQueue.poll().apply(batch);
+
+        final JsonNode activity = JsonUtils.reader().readTree((String) batch.get("/exchanges/my-integration/" + exchange));
+        assertThat(activity.get("status").textValue()).isEqualTo("done");
+        assertThat(activity.path("failed").booleanValue()).isFalse();
+
+        final JsonNode event = activity.get("steps").get(0).get("events").get(0);
+        assertThat(event.get("status").textValue()).isEqualTo("retrying");
+        assertThat(event.get("failed").booleanValue()).isTrue();
+    }
+
+    private static ActivityTrackingController controller() {
+        final KubernetesClient client = mock(KubernetesClient.class);
+        when(client.getConfiguration()).thenReturn(new ConfigBuilder().withMasterUrl("http://master").build());
+
+        return new ActivityTrackingController(null, null, client) {
+            @Override
+            protected boolean isPodRunning(String name) {
+                return false;
+            }
+        };
+    }
+}
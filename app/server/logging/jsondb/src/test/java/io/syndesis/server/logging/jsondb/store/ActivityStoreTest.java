@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.logging.jsondb.store;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.syndesis.common.util.KeyGenerator;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.skife.jdbi.v2.DBI;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ActivityStoreTest {
+
+    private ActivityStore store;
+
+    @BeforeEach
+    public void before() {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:activity;DB_CLOSE_DELAY=-1;MODE=PostgreSQL");
+        store = new ActivityStore(new DBI(ds));
+        store.createTables();
+    }
+
+    @AfterEach
+    public void after() {
+        store.dropTables();
+    }
+
+    @Test
+    public void shouldPageMostRecentActivitiesFirst() {
+        List<String> exchanges = write("integration", 5);
+
+        assertThat(store.fetchActivities("integration", null, 2)).containsExactly(exchanges.get(4), exchanges.get(3));
+        assertThat(store.fetchActivities("integration", exchanges.get(3), 2)).containsExactly(exchanges.get(2), exchanges.get(1));
+        assertThat(store.fetchActivities("other", null, 2)).isEmpty();
+        assertThat(store.fetchIntegrationIds()).containsOnly("integration");
+    }
+
+    @Test
+    public void shouldDeleteKeepingRetention() {
+        List<String> exchanges = write("integration", 5);
+        write("other", 2);
+
+        assertThat(store.deleteKeepingRetention("integration", 2)).isEqualTo(3);
+        assertThat(store.fetchActivities("integration", null, 10)).containsExactly(exchanges.get(4), exchanges.get(3));
+        assertThat(store.fetchActivities("other", null, 10)).hasSize(2);
+    }
+
+    @Test
+    public void shouldDeleteExpiredActivities() throws IOException {
+        List<String> exchanges = write("integration", 3);
+
+        long cutoff = KeyGenerator.getKeyTimeMillis(exchanges.get(2));
+        List<String> retained = new ArrayList<>();
+        for (String exchange : exchanges) {
+            if (KeyGenerator.getKeyTimeMillis(exchange) >= cutoff) {
+                retained.add(0, exchange);
+            }
+        }
+
+        store.deleteStartedBefore(cutoff);
+        assertThat(store.fetchActivities("integration", null, 10)).containsExactlyElementsOf(retained);
+
+        store.deleteStartedBefore(Long.MAX_VALUE);
+        assertThat(store.fetchActivities("integration", null, 10)).isEmpty();
+        assertThat(store.deleteIntegrationsWithoutActivity()).isEqualTo(1);
+        assertThat(store.fetchIntegrationIds()).isEmpty();
+    }
+
+    @Test
+    public void shouldTrackPodTimes() {
+        store.setPodTime("pod", "2018-01-12T21:22:02.068338027Z");
+        store.setPodTime("pod", "2018-01-12T21:22:03.068338027Z");
+
+        assertThat(store.getPodTime("pod")).isEqualTo("2018-01-12T21:22:03.068338027Z");
+        assertThat(store.fetchPodNames()).containsOnly("pod");
+
+        store.deletePod("pod");
+        assertThat(store.getPodTime("pod")).isNull();
+    }
+
+    @Test
+    public void shouldRecordMigrations() {
+        assertThat(store.isMigrated("migration")).isFalse();
+
+        store.setMigrated("migration");
+
+        assertThat(store.isMigrated("migration")).isTrue();
+        assertThat(store.isMigrated("other")).isFalse();
+    }
+
+    // the exchange ids are stored as the activities so that the tests can
+    // see which activities are returned
+    private List<String> write(String integrationId, int count) {
+        List<String> exchanges = new ArrayList<>();
+        ActivityStore.Batch batch = new ActivityStore.Batch();
+        for (int i = 0; i < count; i++) {
+            String exchange = KeyGenerator.createKey();
+            exchanges.add(exchange);
+            batch.addActivity(integrationId, exchange, exchange);
+        }
+        store.write(batch);
+        return exchanges;
+    }
+}
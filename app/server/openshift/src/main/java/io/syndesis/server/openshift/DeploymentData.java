@@ -25,6 +25,7 @@ public final class DeploymentData {
     private final Map<String, String> annotations = new HashMap<>();
     private final Map<String, String> labels = new HashMap<>();
     private final Map<String, String> secret = new HashMap<>();
+    private final Map<String, byte[]> secretFiles = new HashMap<>();
     private final Map<String, String> properties = new HashMap<>();
 
     private String image;
@@ -44,6 +45,14 @@ public final class DeploymentData {
         return secret;
     }
 
+    /**
+     * Files stored in the secret alongside the secret entries, the files are
+     * put on the classpath of the integration.
+     */
+    public Map<String, byte[]> getSecretFiles() {
+        return secretFiles;
+    }
+
     public Map<String, String> getProperties() {
         return properties;
     }
@@ -99,6 +108,11 @@ public final class DeploymentData {
             return this;
         }
 
+        public DeploymentData.Builder addSecretFile(final String name, final byte[] content) {
+            that.secretFiles.put(name, content);
+            return this;
+        }
+
         public DeploymentData.Builder addProperty(final String name, final String value) {
             that.properties.put(name, value);
             return this;
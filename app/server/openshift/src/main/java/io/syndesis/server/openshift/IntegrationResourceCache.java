@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.openshift;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.openshift.api.model.Build;
+import io.fabric8.openshift.api.model.DeploymentConfig;
+import io.fabric8.openshift.client.NamespacedOpenShiftClient;
+import io.syndesis.common.util.thread.Threads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local copy of the integration DeploymentConfigs and Builds. The copy is kept
+ * current by watches, and by a periodic resync that lists the resources again
+ * and re-establishes watches closed by the server. The listener receives the
+ * integration id and deployment version labels of every resource added,
+ * changed or removed.
+ */
+final class IntegrationResourceCache implements Watch {
+    static final String BUILD_CONFIG_LABEL = "openshift.io/build-config.name";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IntegrationResourceCache.class);
+
+    private final Informer<DeploymentConfig> deploymentConfigs;
+    private final Informer<Build> builds;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(Threads.newThreadFactory("OpenShift Resource Cache"));
+
+    IntegrationResourceCache(NamespacedOpenShiftClient client, BiConsumer<String, String> listener) {
+        deploymentConfigs = new Informer<>("DeploymentConfig",
+            () -> client.deploymentConfigs().withLabel(OpenShiftService.INTEGRATION_ID_LABEL).list(),
+            (version, watcher) -> client.deploymentConfigs().withLabel(OpenShiftService.INTEGRATION_ID_LABEL).watch(version, watcher),
+            listener);
+        builds = new Informer<>("Build",
+            () -> client.builds().withLabel(BUILD_CONFIG_LABEL).list(),
+            (version, watcher) -> client.builds().withLabel(BUILD_CONFIG_LABEL).watch(version, watcher),
+            listener);
+    }
+
+    @SuppressWarnings("FutureReturnValueIgnored")
+    void start(long resyncInterval, TimeUnit unit) {
+        scheduler.scheduleWithFixedDelay(this::resync, 0, resyncInterval, unit);
+    }
+
+    /**
+     * True once both resource kinds have been listed, until the cache is
+     * closed.
+     */
+    boolean isSynced() {
+        return deploymentConfigs.synced && builds.synced;
+    }
+
+    Optional<DeploymentConfig> getDeploymentConfig(String name) {
+        return Optional.ofNullable(deploymentConfigs.resources.get(name));
+    }
+
+    /**
+     * Returns the DeploymentConfigs having all of the given labels, a label
+     * given with {@code null} value matches any value of that label.
+     */
+    List<DeploymentConfig> getDeploymentConfigs(Map<String, String> labels) {
+        return deploymentConfigs.resources.values().stream()
+            .filter(d -> hasLabels(d, labels))
+            .collect(Collectors.toList());
+    }
+
+    List<Build> getBuilds(String buildConfigName) {
+        return builds.resources.values().stream()
+            .filter(b -> hasLabels(b, Collections.singletonMap(BUILD_CONFIG_LABEL, buildConfigName)))
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        deploymentConfigs.close();
+        builds.close();
+    }
+
+    private void resync() {
+        deploymentConfigs.resync();
+        builds.resync();
+    }
+
+    private void resyncSoon() {
+        try {
+            scheduler.execute(this::resync);
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("Not resyncing, the cache has been closed");
+        }
+    }
+
+    static boolean hasLabels(HasMetadata resource, Map<String, String> labels) {
+        final Map<String, String> present = resource.getMetadata().getLabels();
+        if (present == null) {
+            return labels.isEmpty();
+        }
+
+        for (Map.Entry<String, String> label : labels.entrySet()) {
+            if (!present.containsKey(label.getKey())) {
+                return false;
+            }
+
+            if (label.getValue() != null && !label.getValue().equals(present.get(label.getKey()))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private final class Informer<T extends HasMetadata> implements Watcher<T> {
+        private final String kind;
+        private final Supplier<KubernetesResourceList<T>> lister;
+        private final BiFunction<String, Watcher<T>, Watch> watcher;
+        private final BiConsumer<String, String> listener;
+        private final ConcurrentMap<String, T> resources = new ConcurrentHashMap<>();
+
+        private volatile boolean synced;
+        private volatile boolean closed;
+        private Watch watch;
+
+        Informer(String kind, Supplier<KubernetesResourceList<T>> lister, BiFunction<String, Watcher<T>, Watch> watcher, BiConsumer<String, String> listener) {
+            this.kind = kind;
+            this.lister = lister;
+            this.watcher = watcher;
+            this.listener = listener;
+        }
+
+        synchronized void resync() {
+            if (closed) {
+                return;
+            }
+
+            final KubernetesResourceList<T> list;
+            try {
+                list = lister.get();
+            } catch (KubernetesClientException e) {
+                LOGGER.warn("Unable to list {}s: {}", kind, e.getMessage());
+                return;
+            }
+
+            final Map<String, T> current = new HashMap<>();
+            for (T resource : list.getItems()) {
+                current.put(resource.getMetadata().getName(), resource);
+            }
+
+            for (T resource : current.values()) {
+                final T previous = resources.put(resource.getMetadata().getName(), resource);
+                if (previous == null || !Objects.equals(previous.getMetadata().getResourceVersion(), resource.getMetadata().getResourceVersion())) {
+                    notifyListener(resource);
+                }
+            }
+
+            for (Iterator<T> i = resources.values().iterator(); i.hasNext();) {
+                final T resource = i.next();
+                if (!current.containsKey(resource.getMetadata().getName())) {
+                    i.remove();
+                    notifyListener(resource);
+                }
+            }
+
+            synced = true;
+
+            if (watch == null) {
+                final String resourceVersion = list.getMetadata() == null ? null : list.getMetadata().getResourceVersion();
+                try {
+                    watch = watcher.apply(resourceVersion, this);
+                } catch (KubernetesClientException e) {
+                    LOGGER.warn("Unable to watch {}s, relying on resync: {}", kind, e.getMessage());
+                }
+            }
+        }
+
+        @Override
+        public synchronized void eventReceived(Action action, T resource) {
+            if (closed) {
+                return;
+            }
+
+            switch (action) {
+            case ADDED:
+            case MODIFIED:
+                resources.put(resource.getMetadata().getName(), resource);
+                break;
+            case DELETED:
+                resources.remove(resource.getMetadata().getName());
+                break;
+            default:
+                LOGGER.debug("Received {} watching {}s: {}", action, kind, resource);
+                return;
+            }
+
+            notifyListener(resource);
+        }
+
+        @Override
+        public synchronized void onClose(KubernetesClientException e) {
+            watch = null;
+            if (closed) {
+                return;
+            }
+
+            // without a watch the copy is no longer current, fall back to the
+            // API server until the resources are listed and watched again
+            synced = false;
+            if (e == null) {
+                LOGGER.info("Watch of {}s closed, resyncing", kind);
+            } else {
+                // most likely the resource version is too old, list again and watch from there
+                LOGGER.info("Watch of {}s closed, resyncing: {}", kind, e.getMessage());
+            }
+            resyncSoon();
+        }
+
+        synchronized void close() {
+            closed = true;
+            synced = false;
+            if (watch != null) {
+                watch.close();
+                watch = null;
+            }
+            resources.clear();
+        }
+
+        private void notifyListener(T resource) {
+            final Map<String, String> labels = resource.getMetadata().getLabels();
+            if (labels == null) {
+                return;
+            }
+
+            final String integrationId = labels.get(OpenShiftService.INTEGRATION_ID_LABEL);
+            final String version = labels.get(OpenShiftService.DEPLOYMENT_VERSION_LABEL);
+            if (integrationId == null || version == null) {
+                return;
+            }
+
+            try {
+                listener.accept(integrationId, version);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Listener failed on {} {}", kind, resource.getMetadata().getName(), e);
+            }
+        }
+    }
+}
@@ -36,6 +36,9 @@ public class OpenShiftConfigurationProperties {
 
     private String builderImageStreamTag = "s2i-java:2.0";
 
+    // prebuilt integration runtime, no integration is deployed without a build when not set
+    private String runtimeImage;
+
     private String deploymentMemoryRequestMi = "280";
     private String deploymentMemoryLimitMi = "512";
     private String mavenOptions = "-XX:+UseG1GC -XX:+UseStringDeduplication -Xmx300m";
@@ -52,6 +55,7 @@ public class OpenShiftConfigurationProperties {
 
     private int maximumRetries = 3;
     private long pollingInterval = 5000;
+    private long resourceCacheResyncInterval = 600000;
 
     private Map<String, String> buildNodeSelector;
 
@@ -99,6 +103,14 @@ public class OpenShiftConfigurationProperties {
         this.builderImageStreamTag = builderImageStreamTag;
     }
 
+    public String getRuntimeImage() {
+        return runtimeImage;
+    }
+
+    public void setRuntimeImage(String runtimeImage) {
+        this.runtimeImage = runtimeImage;
+    }
+
     public String getApiBaseUrl() {
         return apiBaseUrl;
     }
@@ -179,6 +191,14 @@ public class OpenShiftConfigurationProperties {
         this.pollingInterval = pollingInterval;
     }
 
+    public long getResourceCacheResyncInterval() {
+        return resourceCacheResyncInterval;
+    }
+
+    public void setResourceCacheResyncInterval(long resourceCacheResyncInterval) {
+        this.resourceCacheResyncInterval = resourceCacheResyncInterval;
+    }
+
     public Map<String, String> getBuildNodeSelector() {
         return buildNodeSelector;
     }
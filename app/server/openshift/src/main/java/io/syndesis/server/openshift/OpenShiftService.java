@@ -19,6 +19,7 @@ import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 
@@ -61,6 +62,43 @@ public interface OpenShiftService {
      */
     String build(String name, DeploymentData data, InputStream tarInputStream) throws InterruptedException;
 
+    /**
+     * Start a previously created build with the data from the given directory
+     * without waiting for it to finish.
+     *
+     * @param name name of the build
+     * @param data the deployment data to use
+     * @param tarInputStream input stream representing a tar file containing the project files
+     * @return a future completed with the image digest once the build is done,
+     *         or completed exceptionally if the build didn't finish in time.
+     */
+    CompletableFuture<String> startBuild(String name, DeploymentData data, InputStream tarInputStream);
+
+    /**
+     * Tag the image built for an earlier version as the image of the version
+     * in the given deployment data, so that version can be deployed without
+     * building it.
+     *
+     * @param name name of the build
+     * @param data the deployment data to use
+     * @param builtVersion the version the image was built for
+     * @return the image digest, or empty if the image of the earlier version
+     *         is no longer available.
+     */
+    Optional<String> reuseImage(String name, DeploymentData data, int builtVersion);
+
+    /**
+     * Tag the prebuilt integration runtime image as the image of the version
+     * in the given deployment data. The runtime loads the integration from the
+     * secret files of the deployment data.
+     *
+     * @param name name of the build
+     * @param data the deployment data to use
+     * @return the runtime image, or empty if there is no prebuilt runtime image
+     *         configured.
+     */
+    Optional<String> useRuntimeImage(String name, DeploymentData data);
+
     /**
      * Perform a deployment
      *
@@ -133,6 +171,18 @@ public interface OpenShiftService {
      */
     List<DeploymentConfig> getDeploymentsByLabel(Map<String, String> labels);
 
+    /**
+     * Watches the integration DeploymentConfigs and Builds. Until the returned
+     * watch is closed the deployment and build state is answered from a local
+     * cache, kept current by the watches and a periodic resync, instead of
+     * querying the API server on each call.
+     *
+     * @param listener receives the integration id and deployment version of
+     *                 each resource that was added, changed or removed
+     * @return the watch, closing it stops maintaining and using the cache
+     */
+    Watch watchIntegrationResources(BiConsumer<String, String> listener);
+
     /**
      * Returns the currently logged in user.
      * @return The currently logged in user.
@@ -17,6 +17,7 @@ package io.syndesis.server.openshift;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
@@ -24,6 +25,12 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.function.BiConsumer;
@@ -52,10 +59,10 @@ import io.fabric8.kubernetes.client.dsl.MixedOperation;
 import io.fabric8.kubernetes.client.dsl.Resource;
 import io.fabric8.openshift.api.model.Build;
 import io.fabric8.openshift.api.model.DeploymentConfig;
-import io.fabric8.openshift.api.model.DeploymentConfigBuilder;
 import io.fabric8.openshift.api.model.DeploymentConfigStatus;
 import io.fabric8.openshift.api.model.DeploymentTriggerPolicyBuilder;
 import io.fabric8.openshift.api.model.DoneableDeploymentConfig;
+import io.fabric8.openshift.api.model.ImageStreamTag;
 import io.fabric8.openshift.api.model.Route;
 import io.fabric8.openshift.api.model.RouteSpec;
 import io.fabric8.openshift.api.model.User;
@@ -63,6 +70,7 @@ import io.fabric8.openshift.api.model.UserBuilder;
 import io.fabric8.openshift.client.NamespacedOpenShiftClient;
 import io.syndesis.common.util.Names;
 import io.syndesis.common.util.SyndesisServerException;
+import io.syndesis.common.util.thread.Threads;
 import io.syndesis.server.openshift.crd.IntegrationScheduling;
 import io.syndesis.server.openshift.crd.Syndesis;
 import io.syndesis.server.openshift.crd.SyndesisResourceDoneable;
@@ -78,9 +86,16 @@ public class OpenShiftServiceImpl implements OpenShiftService {
 
     private static final String OPENSHIFT_PREFIX = "i-";
 
+    private static final long BUILD_TIMEOUT_MINUTES = 10;
+
+    // Times out and, when the watch is lost, polls the running builds
+    private static final ScheduledExecutorService BUILD_TIMER = Executors.newSingleThreadScheduledExecutor(daemon(Threads.newThreadFactory("OpenShift Build Timer")));
+
     // Labels used for generated objects
     private static final Map<String, String> INTEGRATION_DEFAULT_LABELS = defaultLabels();
 
+    private static final String LOADER_PATH_ENV = "LOADER_PATH";
+
     public static final CustomResourceDefinition SYNDESIS_CRD = new CustomResourceDefinitionBuilder()
         .withApiVersion("apiextensions.k8s.io/v1beta1")
         .withKind("CustomResourceDefinition")
@@ -104,6 +119,8 @@ public class OpenShiftServiceImpl implements OpenShiftService {
     private final NamespacedOpenShiftClient openShiftClient;
     private final OpenShiftConfigurationProperties config;
 
+    private volatile IntegrationResourceCache cache;
+
     public OpenShiftServiceImpl(NamespacedOpenShiftClient openShiftClient, OpenShiftConfigurationProperties config) {
         this.openShiftClient = openShiftClient;
         this.config = config;
@@ -111,18 +128,78 @@ public class OpenShiftServiceImpl implements OpenShiftService {
 
     @Override
     public String build(String name, DeploymentData deploymentData, InputStream tarInputStream) throws InterruptedException {
+        try {
+            return startBuild(name, deploymentData, tarInputStream).get();
+        } catch (ExecutionException e) {
+            throw SyndesisServerException.launderThrowable(e.getCause());
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> startBuild(String name, DeploymentData deploymentData, InputStream tarInputStream) {
         final String sName = openshiftName(name);
         ensureImageStreams(sName);
         ensureBuildConfig(sName, deploymentData, this.config.getBuilderImageStreamTag(), this.config.getImageStreamNamespace(), this.config.getBuildNodeSelector());
         Build build = openShiftClient.buildConfigs().withName(sName)
                        .instantiateBinary()
                        .fromInputStream(tarInputStream);
-        Build complete = waitForBuild(build, 10, TimeUnit.MINUTES);
-        if (complete != null && complete.getStatus() != null) {
-            return build.getStatus().getOutputDockerImageReference();
-        } else {
-            return null;
+        return new BuildCompletion(build).start(BUILD_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public Optional<String> reuseImage(String name, DeploymentData deploymentData, int builtVersion) {
+        final String sName = openshiftName(name);
+        final ImageStreamTag built = openShiftClient.imageStreamTags().withName(sName + ":" + builtVersion).get();
+        if (built == null || built.getImage() == null) {
+            LOGGER.debug("No image built for {} version {}", sName, builtVersion);
+            return Optional.empty();
         }
+
+        LOGGER.debug("Tag image of {} version {} for version {}", sName, builtVersion, deploymentData.getVersion());
+
+        // same as `oc tag name@sha256:... name:version`, the deployment
+        // configuration triggers on the tag of the version it deploys
+        openShiftClient.imageStreamTags().withName(sName + ":" + deploymentData.getVersion()).createOrReplaceWithNew()
+            .withNewMetadata()
+                .withName(sName + ":" + deploymentData.getVersion())
+                .addToLabels(INTEGRATION_DEFAULT_LABELS)
+            .endMetadata()
+            .withNewTag()
+                .withNewFrom()
+                    .withKind("ImageStreamImage")
+                    .withName(sName + "@" + built.getImage().getMetadata().getName())
+                .endFrom()
+            .endTag()
+            .done();
+
+        return Optional.ofNullable(built.getImage().getDockerImageReference());
+    }
+
+    @Override
+    public Optional<String> useRuntimeImage(String name, DeploymentData deploymentData) {
+        final String runtimeImage = config.getRuntimeImage();
+        if (runtimeImage == null || runtimeImage.isEmpty()) {
+            return Optional.empty();
+        }
+
+        final String sName = openshiftName(name);
+        LOGGER.debug("Tag runtime image {} for {} version {}", runtimeImage, sName, deploymentData.getVersion());
+
+        ensureImageStreams(sName);
+        openShiftClient.imageStreamTags().withName(sName + ":" + deploymentData.getVersion()).createOrReplaceWithNew()
+            .withNewMetadata()
+                .withName(sName + ":" + deploymentData.getVersion())
+                .addToLabels(INTEGRATION_DEFAULT_LABELS)
+            .endMetadata()
+            .withNewTag()
+                .withNewFrom()
+                    .withKind("DockerImage")
+                    .withName(runtimeImage)
+                .endFrom()
+            .endTag()
+            .done();
+
+        return Optional.of(runtimeImage);
     }
 
     @Override
@@ -141,6 +218,10 @@ public class OpenShiftServiceImpl implements OpenShiftService {
     @Override
     public boolean isDeploymentReady(String name) {
         String sName = openshiftName(name);
+        Optional<IntegrationResourceCache> cached = cache();
+        if (cached.isPresent()) {
+            return cached.get().getDeploymentConfig(sName).map(OpenShiftServiceImpl::isReady).orElse(false);
+        }
         return openShiftClient.deploymentConfigs().withName(sName).isReady();
     }
 
@@ -168,27 +249,36 @@ public class OpenShiftServiceImpl implements OpenShiftService {
     @Override
     public boolean exists(String name) {
         String sName = openshiftName(name);
+        Optional<IntegrationResourceCache> cached = cache();
+        if (cached.isPresent()) {
+            return cached.get().getDeploymentConfig(sName).isPresent();
+        }
         return openShiftClient.deploymentConfigs().withName(sName).get() != null;
     }
 
     @Override
     public void scale(String name, Map<String, String> labels, int desiredReplicas, long amount, TimeUnit timeUnit) throws InterruptedException {
         String sName = openshiftName(name);
-        getDeploymentsByLabel(labels)
-            .stream()
-            .filter(d -> d.getMetadata().getName().equals(sName))
-            .map(d -> new DeploymentConfigBuilder(d)
-                    // record the previous, possibly user defined custom number of replicas
-                    .editSpec()
-                        .withReplicas(desiredReplicas)
-                        .editTemplate()
-                            .editMetadata()
-                                .addToAnnotations(OpenShiftService.DEPLOYMENT_REPLICAS_ANNOTATION, d.getSpec().getReplicas().toString())
-                            .endMetadata()
-                        .endTemplate()
-                    .endSpec()
-                    .build())
-            .findAny().ifPresent(d -> openShiftClient.deploymentConfigs().createOrReplace(d));
+        // read the live object, a cached copy might be older than the
+        // DeploymentConfig on the server
+        DeploymentConfig current = openShiftClient.deploymentConfigs().withName(sName).get();
+        if (current == null || !IntegrationResourceCache.hasLabels(current, labels)) {
+            return;
+        }
+
+        // patch only the replicas, leaving the rest of the DeploymentConfig
+        // as it is on the server
+        openShiftClient.deploymentConfigs().withName(sName).edit()
+            .editSpec()
+                .withReplicas(desiredReplicas)
+                .editTemplate()
+                    .editMetadata()
+                        // record the previous, possibly user defined custom number of replicas
+                        .addToAnnotations(OpenShiftService.DEPLOYMENT_REPLICAS_ANNOTATION, String.valueOf(current.getSpec().getReplicas()))
+                    .endMetadata()
+                .endTemplate()
+            .endSpec()
+            .done();
     }
 
 
@@ -224,6 +314,11 @@ public class OpenShiftServiceImpl implements OpenShiftService {
 
     protected boolean checkBuildStatus(String name, String status){
         String sName = openshiftName(name);
+        Optional<IntegrationResourceCache> cached = cache();
+        if (cached.isPresent()) {
+            return cached.get().getBuilds(sName).stream()
+                .anyMatch(b -> b.getStatus() != null && status.equals(b.getStatus().getPhase()));
+        }
         return !openShiftClient.builds()
             .withLabel("openshift.io/build-config.name", sName)
             .withField("status", status)
@@ -232,9 +327,30 @@ public class OpenShiftServiceImpl implements OpenShiftService {
 
     @Override
     public List<DeploymentConfig> getDeploymentsByLabel(Map<String, String> labels) {
+        Optional<IntegrationResourceCache> cached = cache();
+        // only DeploymentConfigs of integrations are cached
+        if (cached.isPresent() && labels.containsKey(INTEGRATION_ID_LABEL)) {
+            return cached.get().getDeploymentConfigs(labels);
+        }
         return openShiftClient.deploymentConfigs().withLabels(labels).list().getItems();
     }
 
+    @Override
+    public Watch watchIntegrationResources(BiConsumer<String, String> listener) {
+        IntegrationResourceCache resources = new IntegrationResourceCache(openShiftClient, listener);
+        resources.start(config.getResourceCacheResyncInterval(), TimeUnit.MILLISECONDS);
+        cache = resources;
+        return resources;
+    }
+
+    private Optional<IntegrationResourceCache> cache() {
+        IntegrationResourceCache current = cache;
+        if (current != null && current.isSynced()) {
+            return Optional.of(current);
+        }
+        return Optional.empty();
+    }
+
     @Override
     public User whoAmI(String username) {
         return new UserBuilder().withNewMetadata().withName(username).and().build();
@@ -244,6 +360,20 @@ public class OpenShiftServiceImpl implements OpenShiftService {
         return nr != null ? nr : 0;
     }
 
+    private static boolean isReady(DeploymentConfig deploymentConfig) {
+        DeploymentConfigStatus status = deploymentConfig.getStatus();
+        if (status == null || status.getReplicas() == null || status.getAvailableReplicas() == null) {
+            return false;
+        }
+
+        if (deploymentConfig.getSpec() == null || deploymentConfig.getSpec().getReplicas() == null) {
+            return false;
+        }
+
+        int replicas = deploymentConfig.getSpec().getReplicas();
+        return replicas == status.getReplicas() && replicas <= status.getAvailableReplicas();
+    }
+
     // ***********************
     // Image Stream
     // ***********************
@@ -299,8 +429,13 @@ public class OpenShiftServiceImpl implements OpenShiftService {
             for (EnvVar var : vars) {
                 envVarMap.put(var.getName(), var);
             }
+            for (EnvVar var : runtimeFilesEnv(deploymentData)) {
+                envVarMap.put(var.getName(), var);
+            }
             final Container container = oldTemplate.getSpec().getContainers().get(0);
             final List<EnvVar> envVars = container.getEnv().stream()
+                    // drop the runtime files from the classpath of deployments that don't have them anymore
+                    .filter(e -> envVarMap.containsKey(e.getName()) || !LOADER_PATH_ENV.equals(e.getName()))
                     .map(e -> envVarMap.containsKey(e.getName()) ? envVarMap.remove(e.getName()) : e)
                     .collect(Collectors.toList());
             // add missing vars
@@ -433,6 +568,7 @@ public class OpenShiftServiceImpl implements OpenShiftService {
                                             new EnvVar("JAEGER_TAGS", "integration.version="+deploymentData.getVersion(), null),
                                             new EnvVar("JAEGER_SAMPLER_TYPE", "const", null),
                                             new EnvVar("JAEGER_SAMPLER_PARAM", "1", null))
+                                    .addAllToEnv(runtimeFilesEnv(deploymentData))
                                     .addNewPort()
                                         .withName("jolokia")
                                         .withContainerPort(8778)
@@ -538,12 +674,28 @@ public class OpenShiftServiceImpl implements OpenShiftService {
         return openShiftClient.buildConfigs().withName(projectName).withPropagationPolicy("Foreground").delete();
     }
 
+    /**
+     * The secret is mounted on the configuration directory, the files of the
+     * secret are put on the classpath by adding that directory to the
+     * classpath of the Spring Boot properties launcher.
+     */
+    private static List<EnvVar> runtimeFilesEnv(DeploymentData deploymentData) {
+        if (deploymentData.getSecretFiles().isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return Collections.singletonList(new EnvVar(LOADER_PATH_ENV, "/deployments/config", null));
+    }
+
     private void ensureSecret(String name, DeploymentData deploymentData) {
         final Map<String, String> secrets = deploymentData.getSecret();
-        if (secrets.isEmpty()) {
+        if (secrets.isEmpty() && deploymentData.getSecretFiles().isEmpty()) {
             return;
         }
 
+        final Map<String, String> files = new HashMap<>();
+        deploymentData.getSecretFiles().forEach((file, content) -> files.put(file, Base64.getEncoder().encodeToString(content)));
+
         openShiftClient.secrets().withName(name).createOrReplaceWithNew()
             .withNewMetadata()
                 .withName(name)
@@ -551,6 +703,7 @@ public class OpenShiftServiceImpl implements OpenShiftService {
                 .addToLabels(deploymentData.getLabels())
             .endMetadata()
             .withStringData(secrets)
+            .withData(files)
             .done();
     }
 
@@ -654,25 +807,6 @@ public class OpenShiftServiceImpl implements OpenShiftService {
         return openShiftClient.routes().withName(name).delete();
     }
 
-    private Build waitForBuild(Build r, long timeout, TimeUnit timeUnit) throws InterruptedException {
-        long end = System.currentTimeMillis() + timeUnit.toMillis(timeout);
-        Build next = r;
-
-        int retriesLeft = config.getMaximumRetries();
-        while ( System.currentTimeMillis() < end) {
-            if (next.getStatus() != null && ("Complete".equals(next.getStatus().getPhase()) || "Failed".equals(next.getStatus().getPhase()))) {
-                return next;
-            }
-            try {
-                next = openShiftClient.builds().inNamespace(next.getMetadata().getNamespace()).withName(next.getMetadata().getName()).get();
-            } catch (KubernetesClientException e) {
-                checkRetryPolicy(e, retriesLeft--);
-            }
-            Thread.sleep(config.getPollingInterval());
-        }
-        throw SyndesisServerException.launderThrowable(new TimeoutException("Timed out waiting for build completion."));
-    }
-
     private IntegrationScheduling loadIntegrationScheduling() {
         IntegrationScheduling integrationScheduling = null;
         try {
@@ -801,4 +935,133 @@ public class OpenShiftServiceImpl implements OpenShiftService {
     public ConfigMap createOrReplaceConfigMap(ConfigMap configMap){
         return openShiftClient.configMaps().createOrReplace(configMap);
     }
+
+    private static ThreadFactory daemon(ThreadFactory factory) {
+        return task -> {
+            Thread thread = factory.newThread(task);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static boolean isFinished(Build build) {
+        return build.getStatus() != null && ("Complete".equals(build.getStatus().getPhase()) || "Failed".equals(build.getStatus().getPhase()));
+    }
+
+    /**
+     * Completes a future once the build is complete or failed. Build changes
+     * are received through a watch, if the watch is closed by the server the
+     * build is polled on the build timer instead, so no thread is waiting for
+     * the build to finish.
+     */
+    private final class BuildCompletion implements Watcher<Build> {
+        private final Build initial;
+        private final String namespace;
+        private final String name;
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private int retriesLeft = config.getMaximumRetries();
+        private volatile Watch watch;
+
+        BuildCompletion(Build initial) {
+            this.initial = initial;
+            this.namespace = initial.getMetadata().getNamespace();
+            this.name = initial.getMetadata().getName();
+        }
+
+        @SuppressWarnings("FutureReturnValueIgnored")
+        CompletableFuture<String> start(long timeout, TimeUnit timeUnit) {
+            ScheduledFuture<?> timeoutTask = BUILD_TIMER.schedule(
+                () -> result.completeExceptionally(new TimeoutException("Timed out waiting for build completion.")), timeout, timeUnit);
+            result.whenComplete((image, failure) -> {
+                timeoutTask.cancel(false);
+                closeWatch();
+            });
+
+            if (completeIfFinished(initial)) {
+                return result;
+            }
+
+            try {
+                watch = openShiftClient.builds().inNamespace(namespace).withName(name).watch(this);
+            } catch (KubernetesClientException e) {
+                LOGGER.warn("Unable to watch build {}, polling it instead: {}", name, e.getMessage());
+                schedulePoll();
+                return result;
+            }
+
+            if (result.isDone()) {
+                closeWatch();
+            } else {
+                // the build might have finished before the watch was established
+                poll();
+            }
+
+            return result;
+        }
+
+        @Override
+        public void eventReceived(Action action, Build build) {
+            if (action == Action.DELETED) {
+                result.completeExceptionally(new IllegalStateException("Build " + name + " has been deleted."));
+            } else {
+                completeIfFinished(build);
+            }
+        }
+
+        @Override
+        public void onClose(KubernetesClientException e) {
+            watch = null;
+            if (e != null && !result.isDone()) {
+                LOGGER.warn("Watch of build {} closed, polling it instead: {}", name, e.getMessage());
+                schedulePoll();
+            }
+        }
+
+        private boolean completeIfFinished(Build build) {
+            if (!isFinished(build)) {
+                return false;
+            }
+
+            Build withImage = initial.getStatus() != null ? initial : build;
+            result.complete(withImage.getStatus().getOutputDockerImageReference());
+            return true;
+        }
+
+        private void poll() {
+            if (result.isDone()) {
+                return;
+            }
+
+            try {
+                Build current = openShiftClient.builds().inNamespace(namespace).withName(name).get();
+                if (current != null && completeIfFinished(current)) {
+                    return;
+                }
+            } catch (KubernetesClientException e) {
+                try {
+                    checkRetryPolicy(e, retriesLeft--);
+                } catch (KubernetesClientException fatal) {
+                    result.completeExceptionally(fatal);
+                    return;
+                }
+            }
+
+            if (watch == null) {
+                schedulePoll();
+            }
+        }
+
+        @SuppressWarnings("FutureReturnValueIgnored")
+        private void schedulePoll() {
+            BUILD_TIMER.schedule(this::poll, config.getPollingInterval(), TimeUnit.MILLISECONDS);
+        }
+
+        private void closeWatch() {
+            Watch current = watch;
+            if (current != null) {
+                watch = null;
+                current.close();
+            }
+        }
+    }
 }
@@ -32,6 +32,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 
@@ -91,6 +92,24 @@ public class OpenShiftServiceNoOp implements OpenShiftService {
         return null;
     }
 
+    @Override
+    public CompletableFuture<String> startBuild(String name, DeploymentData data, InputStream tarInputStream) {
+        // Empty no-op just for testing
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public Optional<String> reuseImage(String name, DeploymentData data, int builtVersion) {
+        // Empty no-op just for testing
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<String> useRuntimeImage(String name, DeploymentData data) {
+        // Empty no-op just for testing
+        return Optional.empty();
+    }
+
     @Override
     public String deploy(String name, DeploymentData data) {
         // Empty no-op just for testing
@@ -127,6 +146,13 @@ public class OpenShiftServiceNoOp implements OpenShiftService {
         return false;
     }
 
+    @Override
+    public Watch watchIntegrationResources(BiConsumer<String, String> listener) {
+        return () -> {
+            // Empty no-op just for testing
+        };
+    }
+
     @Override
     public List<DeploymentConfig> getDeploymentsByLabel(Map<String, String> labels) {
         return Collections.emptyList();
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.openshift;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import io.fabric8.kubernetes.api.model.WatchEvent;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.openshift.api.model.Build;
+import io.fabric8.openshift.api.model.BuildBuilder;
+import io.fabric8.openshift.api.model.BuildListBuilder;
+import io.fabric8.openshift.api.model.DeploymentConfig;
+import io.fabric8.openshift.api.model.DeploymentConfigBuilder;
+import io.fabric8.openshift.api.model.DeploymentConfigListBuilder;
+import io.fabric8.openshift.client.NamespacedOpenShiftClient;
+import io.fabric8.openshift.client.server.mock.OpenShiftMockServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IntegrationResourceCacheTest {
+
+    private static final String DEPLOYMENT_CONFIGS = "/apis/apps.openshift.io/v1/namespaces/test/deploymentconfigs?labelSelector=syndesis.io%2Fintegration-id";
+
+    private static final String BUILDS = "/apis/build.openshift.io/v1/namespaces/test/builds?labelSelector=openshift.io%2Fbuild-config.name";
+
+    private final List<String> changes = new CopyOnWriteArrayList<>();
+
+    private OpenShiftMockServer server;
+
+    private OpenShiftServiceImpl service;
+
+    private Watch watch;
+
+    @BeforeEach
+    public void setUp() {
+        server = new OpenShiftMockServer();
+        final NamespacedOpenShiftClient client = server.createOpenShiftClient();
+        service = new OpenShiftServiceImpl(client, new OpenShiftConfigurationProperties());
+
+        server.expect().get().withPath(DEPLOYMENT_CONFIGS)
+            .andReturn(200, new DeploymentConfigListBuilder()
+                .withNewMetadata().withResourceVersion("10").endMetadata()
+                .addToItems(deploymentConfig("1", 1))
+                .build())
+            .once();
+
+        server.expect().get().withPath(BUILDS)
+            .andReturn(200, new BuildListBuilder()
+                .withNewMetadata().withResourceVersion("20").endMetadata()
+                .addToItems(build("Running"))
+                .build())
+            .once();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (watch != null) {
+            watch.close();
+        }
+    }
+
+    @Test
+    public void shouldAnswerFromCacheWithoutApiCalls() {
+        server.expect().withPath(DEPLOYMENT_CONFIGS + "&resourceVersion=10&watch=true")
+            .andUpgradeToWebSocket().open().done().once();
+        server.expect().withPath(BUILDS + "&resourceVersion=20&watch=true")
+            .andUpgradeToWebSocket().open().done().once();
+
+        startWatching();
+
+        final int requests = server.getRequestCount();
+
+        final Map<String, String> labels = Collections.singletonMap(OpenShiftService.INTEGRATION_ID_LABEL, "integration-id");
+        assertThat(service.exists("integration")).isTrue();
+        assertThat(service.exists("other")).isFalse();
+        assertThat(service.isDeploymentReady("integration")).isTrue();
+        assertThat(service.isScaled("integration", 1, labels)).isTrue();
+        assertThat(service.getDeploymentsByLabel(labels)).hasSize(1);
+        assertThat(service.isBuildStarted("integration")).isTrue();
+        assertThat(service.isBuildFailed("integration")).isFalse();
+
+        assertThat(server.getRequestCount()).isEqualTo(requests);
+        assertThat(changes).contains("integration-id:3");
+    }
+
+    @Test
+    public void shouldApplyWatchEvents() {
+        server.expect().withPath(DEPLOYMENT_CONFIGS + "&resourceVersion=10&watch=true")
+            .andUpgradeToWebSocket().open()
+            .waitFor(500).andEmit(new WatchEvent(deploymentConfig("2", 0), "MODIFIED"))
+            .done().once();
+        server.expect().withPath(BUILDS + "&resourceVersion=20&watch=true")
+            .andUpgradeToWebSocket().open()
+            .waitFor(500).andEmit(new WatchEvent(build("Error"), "MODIFIED"))
+            .done().once();
+
+        startWatching();
+        changes.clear();
+
+        await(() -> !service.isDeploymentReady("integration") && service.isBuildFailed("integration"));
+
+        assertThat(service.isScaled("integration", 1, Collections.singletonMap(OpenShiftService.INTEGRATION_ID_LABEL, "integration-id"))).isFalse();
+        assertThat(changes).containsOnly("integration-id:3");
+    }
+
+    private void startWatching() {
+        watch = service.watchIntegrationResources((integrationId, version) -> changes.add(integrationId + ":" + version));
+        await(((IntegrationResourceCache) watch)::isSynced);
+    }
+
+    private static DeploymentConfig deploymentConfig(String resourceVersion, int availableReplicas) {
+        return new DeploymentConfigBuilder()
+            .withNewMetadata()
+                .withName("i-integration")
+                .withResourceVersion(resourceVersion)
+                .addToLabels(OpenShiftService.INTEGRATION_ID_LABEL, "integration-id")
+                .addToLabels(OpenShiftService.DEPLOYMENT_VERSION_LABEL, "3")
+            .endMetadata()
+            .withNewSpec()
+                .withReplicas(1)
+            .endSpec()
+            .withNewStatus()
+                .withReplicas(1)
+                .withAvailableReplicas(availableReplicas)
+            .endStatus()
+            .build();
+    }
+
+    private static Build build(String phase) {
+        return new BuildBuilder()
+            .withNewMetadata()
+                .withName("i-integration-1")
+                .addToLabels(IntegrationResourceCache.BUILD_CONFIG_LABEL, "i-integration")
+                .addToLabels(OpenShiftService.INTEGRATION_ID_LABEL, "integration-id")
+                .addToLabels(OpenShiftService.DEPLOYMENT_VERSION_LABEL, "3")
+            .endMetadata()
+            .withNewStatus()
+                .withPhase(phase)
+            .endStatus()
+            .build();
+    }
+
+    private static void await(BooleanSupplier condition) {
+        final long end = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("Timed out waiting for condition").isLessThan(end);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
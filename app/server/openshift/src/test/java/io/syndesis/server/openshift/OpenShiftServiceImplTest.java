@@ -384,6 +384,43 @@ public class OpenShiftServiceImplTest {
         assertThat(issuedRequests).contains(Request.with("DELETE", "/apis/route.openshift.io/v1/namespaces/test/routes/i-via-service-and-route"));
     }
 
+    @Test
+    public void shouldScaleByPatchingTheLiveDeploymentConfig() throws InterruptedException {
+        final DeploymentConfig deploymentConfig = new DeploymentConfigBuilder()
+            .withNewMetadata()
+                .withName("i-integration")
+                .addToLabels(OpenShiftService.INTEGRATION_ID_LABEL, "integration-id")
+                .addToLabels(OpenShiftService.DEPLOYMENT_VERSION_LABEL, "2")
+            .endMetadata()
+            .withNewSpec()
+                .withReplicas(1)
+                .withNewTemplate()
+                .endTemplate()
+            .endSpec()
+            .build();
+
+        server.expect()
+            .get()
+            .withPath("/apis/apps.openshift.io/v1/namespaces/test/deploymentconfigs/i-integration")
+            .andReturn(200, deploymentConfig)
+            .always();
+
+        server.expect()
+            .patch()
+            .withPath("/apis/apps.openshift.io/v1/namespaces/test/deploymentconfigs/i-integration")
+            .andReturn(200, deploymentConfig)
+            .once();
+
+        // the live DeploymentConfig is of version 2, scaling version 1 must not touch it
+        service.scale("integration", Collections.singletonMap(OpenShiftService.DEPLOYMENT_VERSION_LABEL, "1"), 0, 1, TimeUnit.MINUTES);
+        assertThat(gatherRequests()).noneMatch(r -> "PATCH".equals(r.method) || "PUT".equals(r.method));
+
+        service.scale("integration", Collections.singletonMap(OpenShiftService.DEPLOYMENT_VERSION_LABEL, "2"), 0, 1, TimeUnit.MINUTES);
+        final List<Request> issuedRequests = gatherRequests();
+        assertThat(issuedRequests).contains(Request.with("PATCH", "/apis/apps.openshift.io/v1/namespaces/test/deploymentconfigs/i-integration"));
+        assertThat(issuedRequests).noneMatch(r -> "PUT".equals(r.method));
+    }
+
     @Test
     public void shouldDeleteBasedOnIntegrationName() {
         server.expect()
@@ -15,22 +15,87 @@
  */
 package io.syndesis.server.runtime;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 import io.syndesis.common.util.cache.CacheManager;
+import io.syndesis.common.util.cache.ConcurrentCacheManager;
 import io.syndesis.common.util.cache.LRUCacheManager;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
+@EnableConfigurationProperties
+@ConfigurationProperties("cache")
 public class CacheConfiguration {
 
-    @Value("${cache.max.entries}")
-    private int maxEntries;
+    private final Max max = new Max();
+
+    // `lru` or `concurrent`
+    private String type = "lru";
+
+    // expiry of cached entries backed by the database in milliseconds, 0 to
+    // never expire
+    private long expireAfterWrite;
+
+    // maximum number of entries by cache name, overriding `max.entries`
+    private Map<String, Integer> sizes = new HashMap<>();
+
+    public static class Max {
+        private int entries;
+
+        public int getEntries() {
+            return entries;
+        }
+
+        public void setEntries(int entries) {
+            this.entries = entries;
+        }
+    }
+
+    public Max getMax() {
+        return max;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public long getExpireAfterWrite() {
+        return expireAfterWrite;
+    }
+
+    public void setExpireAfterWrite(long expireAfterWrite) {
+        this.expireAfterWrite = expireAfterWrite;
+    }
+
+    public Map<String, Integer> getSizes() {
+        return sizes;
+    }
+
+    public void setSizes(Map<String, Integer> sizes) {
+        this.sizes = sizes;
+    }
 
     @Bean
     @ConditionalOnMissingBean
     public CacheManager syndesisCacheManager() {
-        return new LRUCacheManager(maxEntries);
+        if ("concurrent".equals(type)) {
+            return new ConcurrentCacheManager(max.getEntries(), sizes, expireAfterWrite, TimeUnit.MILLISECONDS);
+        }
+        return new LRUCacheManager(max.getEntries(), sizes);
+    }
+
+    @Bean
+    public CacheMetrics cacheMetrics(CacheManager cacheManager) {
+        return new CacheMetrics(cacheManager);
     }
 }
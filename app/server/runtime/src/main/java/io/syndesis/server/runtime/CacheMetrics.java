@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.runtime;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.syndesis.common.model.Kind;
+import io.syndesis.common.util.cache.CacheManager;
+import io.syndesis.common.util.cache.CacheStats;
+
+/**
+ * Exposes the statistics of the {@link CacheManager} caches, one per model
+ * kind, tagged with the kind's model name. Caches are created on first use
+ * so all statistics read as zero until then.
+ */
+public class CacheMetrics implements MeterBinder {
+
+    private final CacheManager cacheManager;
+
+    public CacheMetrics(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Kind kind : Kind.values()) {
+            String name = kind.getModelName();
+
+            FunctionCounter.builder("cache.gets", cacheManager, stat(name, CacheStats::getHitCount))
+                .tag("cache", name)
+                .tag("result", "hit")
+                .description("The number of times a cached value was found")
+                .register(registry);
+
+            FunctionCounter.builder("cache.gets", cacheManager, stat(name, CacheStats::getMissCount))
+                .tag("cache", name)
+                .tag("result", "miss")
+                .description("The number of times a value was not in the cache")
+                .register(registry);
+
+            FunctionCounter.builder("cache.evictions", cacheManager, stat(name, CacheStats::getEvictionCount))
+                .tag("cache", name)
+                .description("The number of entries evicted to keep the cache in its bounds")
+                .register(registry);
+
+            FunctionTimer.builder("cache.load", cacheManager,
+                    m -> m.getStats(name).map(CacheStats::getLoadCount).orElse(0L),
+                    stat(name, CacheStats::getTotalLoadTimeNanos),
+                    TimeUnit.NANOSECONDS)
+                .tag("cache", name)
+                .description("Time spent loading values that were not in the cache")
+                .register(registry);
+
+            Gauge.builder("cache.size", cacheManager, stat(name, CacheStats::getSize))
+                .tag("cache", name)
+                .description("The number of entries in the cache")
+                .register(registry);
+
+            Gauge.builder("cache.max.size", cacheManager, stat(name, CacheStats::getMaxSize))
+                .tag("cache", name)
+                .description("The maximum number of entries the cache can hold")
+                .register(registry);
+        }
+    }
+
+    private static ToDoubleFunction<CacheManager> stat(String name, ToDoubleFunction<CacheStats> statistic) {
+        return m -> m.getStats(name).map(statistic::applyAsDouble).orElse(0D);
+    }
+}
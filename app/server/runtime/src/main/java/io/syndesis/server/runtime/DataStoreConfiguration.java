@@ -15,7 +15,9 @@
  */
 package io.syndesis.server.runtime;
 
+import io.syndesis.common.util.EventBus;
 import io.syndesis.common.util.IndexedProperty;
+import io.syndesis.server.jsondb.impl.CachingJsonDB;
 import io.syndesis.server.jsondb.impl.Index;
 import io.syndesis.server.jsondb.impl.SqlJsonDB;
 import io.syndesis.common.model.Kind;
@@ -24,10 +26,14 @@ import org.skife.jdbi.v2.DBI;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -38,16 +44,19 @@ import java.util.Optional;
 public class DataStoreConfiguration {
     private static final Logger LOG = LoggerFactory.getLogger(Migrations.class);
 
+    // jsondb write events are only used to invalidate the document cache, so
+    // they are kept off the event bus feeding the browser clients. Like that
+    // bus it is local to this process, the cache relies on the server running
+    // as a single replica
+    private final EventBus jsonDBEvents = new SimpleEventBus();
+
     @Bean
     @Autowired
-    @SuppressWarnings("PMD.EmptyCatchBlock")
+    // FutureReturnValueIgnored: failures to build an index are logged by the jsondb
+    @SuppressWarnings({"PMD.EmptyCatchBlock", "FutureReturnValueIgnored"})
     public SqlJsonDB jsonDB(DBI dbi, Optional<List<Index>> beanIndexes) {
 
-        ArrayList<Index> indexes = new ArrayList<>();
-        if(beanIndexes.isPresent()) {
-            indexes.addAll(beanIndexes.get());
-        }
-
+        ArrayList<Index> indexes = new ArrayList<>(beanIndexes.orElse(Collections.emptyList()));
         for (Kind kind : Kind.values()) {
             addIndex(indexes, kind, kind.getModelClass().getAnnotation(UniqueProperty.class));
             UniqueProperty.Multiple ump = kind.getModelClass().getAnnotation(UniqueProperty.Multiple.class);
@@ -66,15 +75,39 @@ public class DataStoreConfiguration {
             }
         }
 
-        SqlJsonDB jsondb = new SqlJsonDB(dbi, null, indexes);
+        SqlJsonDB jsondb = new SqlJsonDB(dbi, jsonDBEvents, indexes);
         try {
             jsondb.createTables();
+            // only indexes declared since the last start need the stored
+            // records indexed, lookups by them scan the table until then
+            jsondb.declareSchemaIndexes();
         } catch (@SuppressWarnings("PMD.AvoidCatchingGenericException") Exception ignore) {
             LOG.debug("Could not create tables", ignore);
         }
+
         return jsondb;
     }
 
+    @Bean
+    @Primary
+    @ConditionalOnProperty(value = "jsondb.cache.enabled", havingValue = "true", matchIfMissing = true)
+    public CachingJsonDB cachingJsonDB(SqlJsonDB jsondb,
+                                       @Value("${jsondb.cache.paths:/connectors,/connector-templates,/icons}") List<String> paths,
+                                       @Value("${jsondb.cache.max-entries:1000}") int maxEntries) {
+        return new CachingJsonDB(jsondb, jsonDBEvents, paths, maxEntries);
+    }
+
+    @Bean
+    @ConditionalOnProperty(value = "jsondb.cache.enabled", havingValue = "true", matchIfMissing = true)
+    public JsonDBCacheMetrics jsonDBCacheMetrics(CachingJsonDB cachingJsonDB) {
+        return new JsonDBCacheMetrics(cachingJsonDB);
+    }
+
+    @Bean
+    public JsonDBMetrics jsonDBMetrics(SqlJsonDB jsondb) {
+        return new JsonDBMetrics(jsondb);
+    }
+
     private static void addIndex(List<Index> indexes, Kind kind, IndexedProperty indexedProperty) {
         if (indexedProperty != null) {
             indexes.add(new Index("/" + kind.getModelName() + "s", indexedProperty.value()));
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.runtime;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.syndesis.server.jsondb.impl.CachingJsonDB;
+
+/**
+ * Exposes the statistics of the {@link CachingJsonDB} document cache with the
+ * same meters as {@link CacheMetrics}, tagged with {@code cache=jsondb}.
+ */
+public class JsonDBCacheMetrics implements MeterBinder {
+
+    private static final String CACHE = "jsondb";
+
+    private final CachingJsonDB jsondb;
+
+    public JsonDBCacheMetrics(CachingJsonDB jsondb) {
+        this.jsondb = jsondb;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", jsondb, CachingJsonDB::getHitCount)
+            .tag("cache", CACHE)
+            .tag("result", "hit")
+            .description("The number of times a cached value was found")
+            .register(registry);
+
+        FunctionCounter.builder("cache.gets", jsondb, CachingJsonDB::getMissCount)
+            .tag("cache", CACHE)
+            .tag("result", "miss")
+            .description("The number of times a value was not in the cache")
+            .register(registry);
+
+        FunctionCounter.builder("cache.evictions", jsondb, CachingJsonDB::getEvictionCount)
+            .tag("cache", CACHE)
+            .description("The number of entries evicted to keep the cache in its bounds")
+            .register(registry);
+
+        Gauge.builder("cache.size", jsondb, CachingJsonDB::size)
+            .tag("cache", CACHE)
+            .description("The number of entries in the cache")
+            .register(registry);
+
+        Gauge.builder("cache.max.size", jsondb, CachingJsonDB::getMaxEntries)
+            .tag("cache", CACHE)
+            .description("The maximum number of entries the cache can hold")
+            .register(registry);
+    }
+}
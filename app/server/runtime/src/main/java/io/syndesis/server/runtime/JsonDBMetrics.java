@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.runtime;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.syndesis.server.jsondb.impl.SqlJsonDB;
+
+/**
+ * Exposes the counters kept by {@link SqlJsonDB}. Any increase of
+ * {@code jsondb.full.table.scans} means a property lookup was done on a
+ * property that is not indexed.
+ */
+public class JsonDBMetrics implements MeterBinder {
+
+    private final SqlJsonDB jsondb;
+
+    public JsonDBMetrics(SqlJsonDB jsondb) {
+        this.jsondb = jsondb;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("jsondb.full.table.scans", jsondb, SqlJsonDB::getFullTableScans)
+            .description("Lookups by property value that scanned the whole table")
+            .register(registry);
+
+        FunctionCounter.builder("jsondb.records", jsondb, SqlJsonDB::getRecordsInserted)
+            .tag("operation", "insert")
+            .description("Records written by set and update")
+            .register(registry);
+
+        FunctionCounter.builder("jsondb.records", jsondb, SqlJsonDB::getRecordsUpdated)
+            .tag("operation", "update")
+            .description("Records written by set and update")
+            .register(registry);
+
+        FunctionCounter.builder("jsondb.records", jsondb, SqlJsonDB::getRecordsDeleted)
+            .tag("operation", "delete")
+            .description("Records written by set and update")
+            .register(registry);
+
+        FunctionCounter.builder("jsondb.records", jsondb, SqlJsonDB::getRecordsUnchanged)
+            .tag("operation", "unchanged")
+            .description("Records written by set and update")
+            .register(registry);
+    }
+}
@@ -22,18 +22,28 @@ import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.ActiveProfiles;
 
+import com.fasterxml.jackson.databind.JsonNode;
+
+import io.syndesis.common.util.json.JsonUtils;
 import io.syndesis.server.endpoint.v1.handler.activity.Feature;
+import io.syndesis.server.logging.jsondb.store.ActivityStore;
 
 @ActiveProfiles("activity-test")
 public class ActivityITCase extends BaseITCase {
 
+    @Autowired
+    private ActivityStore activityStore;
+
     @Override
     @BeforeEach
     public void clearDB() {
         super.clearDB();
+        activityStore.dropTables();
+        activityStore.createTables();
     }
 
 
@@ -47,7 +57,11 @@ public class ActivityITCase extends BaseITCase {
     @Test
     @SuppressWarnings({"unchecked","rawtypes"})
     public void requestIntegrationLogs() throws IOException {
-        jsondb.update("/", resource("logs-controller-db.json"));
+        JsonNode exchanges = JsonUtils.reader().readTree(resource("logs-controller-db.json")).get("activity").get("exchanges");
+        ActivityStore.Batch batch = new ActivityStore.Batch();
+        exchanges.fields().forEachRemaining(integration -> integration.getValue().fields()
+            .forEachRemaining(exchange -> batch.addActivity(integration.getKey(), exchange.getKey(), exchange.getValue().textValue())));
+        activityStore.write(batch);
 
         ResponseEntity<List> re = get("/api/v1/activity/integrations/my-integration", List.class);
         List<Object> response = re.getBody();
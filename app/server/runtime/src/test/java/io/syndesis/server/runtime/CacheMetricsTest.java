@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.runtime;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.syndesis.common.util.cache.Cache;
+import io.syndesis.common.util.cache.CacheManager;
+import io.syndesis.common.util.cache.ConcurrentCacheManager;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CacheMetricsTest {
+
+    @Test
+    public void shouldExposeStatisticsPerModelKind() {
+        CacheManager cacheManager = new ConcurrentCacheManager(10);
+        MeterRegistry registry = new SimpleMeterRegistry();
+        new CacheMetrics(cacheManager).bindTo(registry);
+
+        Cache<String, String> cache = cacheManager.getCache("integration", true);
+        cache.put("1", "1");
+        cache.get("1");
+        cache.get("2");
+
+        assertThat(registry.get("cache.gets").tags("cache", "integration", "result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.gets").tags("cache", "integration", "result", "miss").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.size").tag("cache", "integration").gauge().value()).isEqualTo(1);
+        assertThat(registry.get("cache.max.size").tag("cache", "integration").gauge().value()).isEqualTo(10);
+        assertThat(registry.get("cache.size").tag("cache", "connector").gauge().value()).isZero();
+    }
+}
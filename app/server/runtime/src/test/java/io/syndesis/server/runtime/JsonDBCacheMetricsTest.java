@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.runtime;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.syndesis.server.jsondb.JsonDB;
+import io.syndesis.server.jsondb.impl.CachingJsonDB;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JsonDBCacheMetricsTest {
+
+    @Test
+    public void shouldExposeDocumentCacheStatistics() {
+        JsonDB delegate = mock(JsonDB.class);
+        when(delegate.getAsByteArray(eq("/connectors/a"), any())).thenReturn("{}".getBytes(StandardCharsets.UTF_8));
+
+        CachingJsonDB jsondb = new CachingJsonDB(delegate, null, Collections.singletonList("/connectors"), 10);
+        MeterRegistry registry = new SimpleMeterRegistry();
+        new JsonDBCacheMetrics(jsondb).bindTo(registry);
+
+        jsondb.getAsString("/connectors/a");
+        jsondb.getAsString("/connectors/a");
+
+        assertThat(registry.get("cache.gets").tags("cache", "jsondb", "result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.gets").tags("cache", "jsondb", "result", "miss").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.size").tag("cache", "jsondb").gauge().value()).isEqualTo(1);
+        assertThat(registry.get("cache.max.size").tag("cache", "jsondb").gauge().value()).isEqualTo(10);
+    }
+}
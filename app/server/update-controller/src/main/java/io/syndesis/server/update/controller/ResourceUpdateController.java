@@ -180,9 +180,9 @@ public class ResourceUpdateController {
                     LOGGER.debug("Trigger handler {}", handler);
                     handler.process(event);
 
-                    // At the moment, handlers are not selective but they scan
-                    // resources every time process is invoked so we do not need
-                    // to trigger the handler multiple time.
+                    // Events without a resource id make the handlers scan all
+                    // the resources they handle so we do not need to trigger
+                    // the handler multiple time.
                     break;
                 }
             }
@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.update.controller.bulletin;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import io.syndesis.common.model.connection.Connection;
+import io.syndesis.common.model.integration.Flow;
+import io.syndesis.common.model.integration.Integration;
+import io.syndesis.common.model.integration.IntegrationDeployment;
+import io.syndesis.common.model.integration.Step;
+
+/**
+ * Reverse index from the resources integrations depend on to the ids of the
+ * integrations using them. Connections and connectors are indexed by id,
+ * extensions by their {@code extensionId} as that is shared by all the
+ * versions of an extension. Integrations are also indexed by their draft and
+ * deployed names as the duplicate name validation makes integrations sharing
+ * a name depend on each other.
+ * <p>
+ * Not thread safe, the update handlers are invoked one at a time.
+ */
+final class IntegrationDependencyIndex {
+    private final Map<String, Integration> integrations = new HashMap<>();
+    private final Map<String, Set<String>> byConnection = new HashMap<>();
+    private final Map<String, Set<String>> byConnector = new HashMap<>();
+    private final Map<String, Set<String>> byExtension = new HashMap<>();
+    private final Map<String, Set<String>> byName = new HashMap<>();
+    private final Map<String, Set<String>> names = new HashMap<>();
+
+    private boolean built;
+
+    /**
+     * True once the index has been built from all integrations.
+     */
+    boolean isBuilt() {
+        return built;
+    }
+
+    void rebuild(final Collection<Integration> all, final Map<String, List<IntegrationDeployment>> deployments) {
+        integrations.clear();
+        byConnection.clear();
+        byConnector.clear();
+        byExtension.clear();
+        byName.clear();
+        names.clear();
+
+        for (final Integration integration : all) {
+            put(integration, deployments.getOrDefault(integration.getId().get(), Collections.emptyList()));
+        }
+
+        built = true;
+    }
+
+    void put(final Integration integration, final Collection<IntegrationDeployment> deployments) {
+        final String id = integration.getId().get();
+
+        remove(id);
+
+        final Set<String> integrationNames = namesOf(integration, deployments);
+
+        integrations.put(id, integration);
+        names.put(id, integrationNames);
+        add(byConnection, integration.getConnectionIds(), id);
+        add(byConnector, connectorIds(integration), id);
+        add(byExtension, integration.getExtensionIds(), id);
+        add(byName, integrationNames, id);
+    }
+
+    void remove(final String integrationId) {
+        final Integration previous = integrations.remove(integrationId);
+        if (previous == null) {
+            return;
+        }
+
+        remove(byConnection, previous.getConnectionIds(), integrationId);
+        remove(byConnector, connectorIds(previous), integrationId);
+        remove(byExtension, previous.getExtensionIds(), integrationId);
+        remove(byName, names.remove(integrationId), integrationId);
+    }
+
+    Optional<Integration> get(final String integrationId) {
+        return Optional.ofNullable(integrations.get(integrationId));
+    }
+
+    Set<String> usingConnection(final String connectionId) {
+        return lookup(byConnection, connectionId);
+    }
+
+    Set<String> usingConnector(final String connectorId) {
+        return lookup(byConnector, connectorId);
+    }
+
+    Set<String> usingExtension(final String extensionId) {
+        return lookup(byExtension, extensionId);
+    }
+
+    Set<String> named(final String name) {
+        if (name == null) {
+            return Collections.emptySet();
+        }
+
+        return lookup(byName, name);
+    }
+
+    /**
+     * Ids of the integrations sharing a draft or deployed name with the given
+     * integration, including the given integration.
+     */
+    Set<String> sharingNameWith(final String integrationId) {
+        final Set<String> ids = new HashSet<>();
+        for (final String name : names.getOrDefault(integrationId, Collections.emptySet())) {
+            ids.addAll(lookup(byName, name));
+        }
+
+        return ids;
+    }
+
+    private static Set<String> connectorIds(final Integration integration) {
+        final Set<String> ids = new HashSet<>();
+
+        final Stream<Connection> flowConnections = integration.getFlows().stream()
+            .flatMap(IntegrationDependencyIndex::connections);
+
+        Stream.concat(integration.getConnections().stream(), flowConnections)
+            .map(Connection::getConnectorId)
+            .forEach(ids::add);
+
+        ids.remove(null);
+
+        return ids;
+    }
+
+    private static Stream<Connection> connections(final Flow flow) {
+        final Stream<Connection> stepConnections = flow.getSteps().stream()
+            .map(Step::getConnection)
+            .filter(Optional::isPresent)
+            .map(Optional::get);
+
+        return Stream.concat(flow.getConnections().stream(), stepConnections);
+    }
+
+    private static Set<String> namesOf(final Integration integration, final Collection<IntegrationDeployment> deployments) {
+        final Set<String> names = new HashSet<>();
+        names.add(integration.getName());
+
+        for (final IntegrationDeployment deployment : deployments) {
+            names.add(deployment.getSpec().getName());
+        }
+
+        names.remove(null);
+
+        return names;
+    }
+
+    private static void add(final Map<String, Set<String>> index, final Set<String> keys, final String integrationId) {
+        for (final String key : keys) {
+            index.computeIfAbsent(key, k -> new HashSet<>()).add(integrationId);
+        }
+    }
+
+    private static void remove(final Map<String, Set<String>> index, final Set<String> keys, final String integrationId) {
+        for (final String key : keys) {
+            final Set<String> ids = index.get(key);
+            if (ids != null && ids.remove(integrationId) && ids.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static Set<String> lookup(final Map<String, Set<String>> index, final String key) {
+        final Set<String> ids = index.get(key);
+        if (ids == null) {
+            return Collections.emptySet();
+        }
+
+        return Collections.unmodifiableSet(new HashSet<>(ids));
+    }
+}
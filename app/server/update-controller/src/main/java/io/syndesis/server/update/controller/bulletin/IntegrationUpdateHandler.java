@@ -17,10 +17,12 @@ package io.syndesis.server.update.controller.bulletin;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Supplier;
@@ -54,11 +56,22 @@ import io.syndesis.server.dao.manager.EncryptionComponent;
 
 /**
  * This class handles updates on {@link Integration} and related resources and
- * generates related {@link IntegrationBulletinBoard}.
+ * generates related {@link IntegrationBulletinBoard}. Change events of a
+ * single resource fetch and recompute the boards of the integrations
+ * depending on that resource only, events without a resource id recompute all
+ * boards.
  */
 public class IntegrationUpdateHandler extends AbstractResourceUpdateHandler<IntegrationBulletinBoard> {
     private final List<Kind> supportedKinds;
 
+    // the index and the deployment differences are plain maps as they are
+    // only accessed from compute, which the ResourceUpdateController invokes
+    // from its single scheduler thread
+    private final IntegrationDependencyIndex index = new IntegrationDependencyIndex();
+
+    // differences of the published deployments, by integration id and deployment id
+    private final Map<String, Map<String, DeploymentDifferences>> deploymentDifferences = new HashMap<>();
+
     public IntegrationUpdateHandler(final DataManager dataManager, final EncryptionComponent encryptionComponent, final Validator validator) {
         super(dataManager, encryptionComponent, validator);
 
@@ -119,81 +132,128 @@ public class IntegrationUpdateHandler extends AbstractResourceUpdateHandler<Inte
         }
     }
 
-    private Collection<? extends LeveledMessage> computeDeploymentDifferences(final Integration integration,
-        final Collection<IntegrationDeployment> allDeployments) {
-        final List<IntegrationDeployment> deployments = allDeployments.stream()
-            .filter(d -> d.getIntegrationId().equals(integration.getId()))
+    private List<LeveledMessage> computeDeploymentDifferences(final Integration integration,
+        final List<IntegrationDeployment> integrationDeployments) {
+        final String integrationId = integration.getId().get();
+        final List<IntegrationDeployment> deployments = integrationDeployments.stream()
             .filter(d -> d.getCurrentState().equals(IntegrationDeploymentState.Published))
             .collect(Collectors.toList());
 
+        final Map<String, DeploymentDifferences> previous = deploymentDifferences.getOrDefault(integrationId, Collections.emptyMap());
+        deploymentDifferences.remove(integrationId);
+
         if (deployments.isEmpty()) {
             // Nothing to do as no deployments have been published
             return Collections.emptyList();
         }
 
+        final Map<String, DeploymentDifferences> current = new HashMap<>();
         final List<LeveledMessage> messages = new ArrayList<>();
 
         for (final IntegrationDeployment deployment : deployments) {
-            final Supplier<LeveledMessage.Builder> supplier = () -> new LeveledMessage.Builder().putMetadata("deployment", deployment.getId().get());
+            final String deploymentId = deployment.getId().get();
             final Integration deployedInteg = deployment.getSpec();
+            final List<Connection> dbConnections = fetchDeployedConnections(deployedInteg);
 
-            // **********************
-            // Draft Integration
-            // **********************
+            //
+            // The deployed integration never changes so if neither the
+            // integration nor the connections it uses changed since the
+            // last check the differences are still the same and the deep
+            // comparisons can be skipped
+            //
+            final DeploymentDifferences checked = previous.get(deploymentId);
+            if (checked != null && checked.isFor(integration, dbConnections)) {
+                current.put(deploymentId, checked);
+                messages.addAll(checked.messages);
+                continue;
+            }
 
-            final Equivalencer equiv = new Equivalencer();
-            if (!equiv.equivalent(integration, deployedInteg)) {
-                final String message = equiv.failureMessage();
-                messages.add(
-                    supplier.get()
-                        .code(LeveledMessage.Code.SYNDESIS012)
-                        .level(LeveledMessage.Level.WARN)
-                        .detail(message)
-                        .build());
+            final List<LeveledMessage> deploymentMessages = computeDeploymentDifferences(integration, deployment, dbConnections);
+            current.put(deploymentId, new DeploymentDifferences(integration, dbConnections, deploymentMessages));
+            messages.addAll(deploymentMessages);
+        }
 
-                //
-                // Deployment is already stale in comparison to its source
-                // integration
-                // so no need to check the connections as well and duplicate the
-                // messages
-                //
+        deploymentDifferences.put(integrationId, current);
+
+        return Collections.unmodifiableList(messages);
+    }
+
+    private List<LeveledMessage> computeDeploymentDifferences(final Integration integration, final IntegrationDeployment deployment,
+        final List<Connection> dbConnections) {
+        final List<LeveledMessage> messages = new ArrayList<>();
+        final Supplier<LeveledMessage.Builder> supplier = () -> new LeveledMessage.Builder().putMetadata("deployment", deployment.getId().get());
+        final Integration deployedInteg = deployment.getSpec();
+
+        // **********************
+        // Draft Integration
+        // **********************
+
+        final Equivalencer equiv = new Equivalencer();
+        if (!equiv.equivalent(integration, deployedInteg)) {
+            final String message = equiv.failureMessage();
+            messages.add(
+                supplier.get()
+                    .code(LeveledMessage.Code.SYNDESIS012)
+                    .level(LeveledMessage.Level.WARN)
+                    .detail(message)
+                    .build());
+
+            //
+            // Deployment is already stale in comparison to its source
+            // integration
+            // so no need to check the connections as well and duplicate the
+            // messages
+            //
+            return Collections.unmodifiableList(messages);
+        }
+
+        // **********************
+        // Connections
+        // **********************
+
+        int c = 0;
+        for (final Step deployedStep : deployedInteg.getSteps()) {
+            if (!isConnectorStep(deployedStep)) {
                 continue;
             }
 
-            // **********************
-            // Connections
-            // **********************
+            //
+            // Compare the connection in the deployed integration's step
+            // with the connection from the data manager and log the
+            // result using the given message codes
+            //
+            compareConnection(
+                deployedStep.getConnection().get(),
+                dbConnections.get(c++),
+                messages,
+                supplier,
+                LeveledMessage.Code.SYNDESIS009,
+                LeveledMessage.Code.SYNDESIS012);
+        }
 
-            for (final Step deployedStep : deployedInteg.getSteps()) {
-                deployedStep.getAction()
-                    .filter(ConnectorAction.class::isInstance)
-                    .map(ConnectorAction.class::cast)
-                    .ifPresent(action -> {
-                        if (!deployedStep.getConnection().isPresent()) {
-                            return;
-                        }
+        return Collections.unmodifiableList(messages);
+    }
 
-                        //
-                        // Compare the connection in the deployed integration's
-                        // step
-                        // with the connection from the data manager and log the
-                        // result using the given message codes
-                        //
-                        final Connection connection = deployedStep.getConnection().get();
-                        final Connection dbConnection = getDataManager().fetch(Connection.class, connection.getId().get());
+    /**
+     * Fetches the connections, including their connectors, used by the
+     * connector steps of the given deployed integration, in step order. A
+     * connection that no longer exists is represented by {@code null}.
+     */
+    private List<Connection> fetchDeployedConnections(final Integration deployedInteg) {
+        final List<Connection> connections = new ArrayList<>();
 
-                        compareConnection(
-                            connection,
-                            dbConnection,
-                            messages,
-                            supplier,
-                            LeveledMessage.Code.SYNDESIS009,
-                            LeveledMessage.Code.SYNDESIS012);
-                    });
+        for (final Step deployedStep : deployedInteg.getSteps()) {
+            if (isConnectorStep(deployedStep)) {
+                final Connection connection = deployedStep.getConnection().get();
+                connections.add(includeConnector(getDataManager().fetch(Connection.class, connection.getId().get())));
             }
         }
 
-        return Collections.unmodifiableList(messages);
+        return connections;
+    }
+
+    private static boolean isConnectorStep(final Step step) {
+        return step.getAction().filter(ConnectorAction.class::isInstance).isPresent() && step.getConnection().isPresent();
     }
 
     private Connection includeConnector(final Connection connection) {
@@ -224,27 +284,31 @@ public class IntegrationUpdateHandler extends AbstractResourceUpdateHandler<Inte
         final DataManager dataManager = getDataManager();
 
         /*
-         * Assemble all the artifact collections that are going to be checked in
-         * the data manager. This does it once rather than repeatedly in the
-         * various loops since getting stuff from the DataManager is quite
-         * expensive and slow.
+         * Getting stuff from the DataManager is quite expensive and slow, so
+         * only the integrations affected by the event and their deployments
+         * are fetched. Events without a resource id fetch everything once and
+         * rebuild the dependency index.
          *
          * see #3717
          */
-        final List<Integration> integrations = dataManager.fetchAll(Integration.class).getItems();
-        final List<IntegrationDeployment> deployments = dataManager.fetchAll(IntegrationDeployment.class).getItems();
-        final Set<Integration> deployedIintegrations = deployments.stream()
-            .map(IntegrationDeployment::getSpec)
-            .collect(Collectors.toSet());
-        final List<Connection> connections = dataManager.fetchAll(Connection.class).getItems();
-        final Collection<Integration> allIntegrations = new ArrayList<>(integrations.size() + deployedIintegrations.size());
-        allIntegrations.addAll(integrations);
-        allIntegrations.addAll(deployedIintegrations);
+        final Map<String, List<IntegrationDeployment>> deployments = new HashMap<>();
+        final Optional<Set<String>> affected = updateIndex(event, deployments);
+
+        final List<Integration> integrations;
+        if (affected.isPresent()) {
+            integrations = affected.get().stream()
+                .map(id -> dataManager.fetch(Integration.class, id))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        } else {
+            integrations = rebuildIndex(deployments);
+        }
 
         final List<LeveledMessage> messages = new ArrayList<>();
 
         for (final Integration integration : integrations) {
             final String id = integration.getId().get();
+            final List<Integration> duplicateNameDomain = duplicateNameDomain(integration, deployments);
 
             final IntegrationBulletinBoard board = dataManager.fetchByPropertyValue(IntegrationBulletinBoard.class, "targetResourceId", id).orElse(null);
             final IntegrationBulletinBoard.Builder builder;
@@ -292,7 +356,7 @@ public class IntegrationUpdateHandler extends AbstractResourceUpdateHandler<Inte
                     // Integration
                     // **********************
 
-                    final TargetWithDomain<Integration> intTarget = new IntegrationWithDomain(integration, allIntegrations);
+                    final TargetWithDomain<Integration> intTarget = new IntegrationWithDomain(integration, duplicateNameDomain);
                     messages.addAll(computeValidatorMessages(supplier, intTarget));
 
                     // **********************
@@ -438,7 +502,10 @@ public class IntegrationUpdateHandler extends AbstractResourceUpdateHandler<Inte
                                 final Map<String, String> configuredProperties = CollectionsUtils.aggregate(connection.getConfiguredProperties(),
                                     step.getConfiguredProperties());
 
-                                final ConnectionWithDomain connTarget = new ConnectionWithDomain(connection, connections);
+                                // the unique name of connections is validated
+                                // with a lookup in the data manager, no domain
+                                // is needed
+                                final ConnectionWithDomain connTarget = new ConnectionWithDomain(connection, Collections.emptyList());
                                 messages.addAll(computeValidatorMessages(supplier, connTarget));
                                 messages.addAll(computePropertiesDiffMessages(supplier, action.getProperties(), newAction.getProperties()));
                                 messages.addAll(computeMissingMandatoryPropertiesMessages(supplier, newAction.getProperties(), configuredProperties));
@@ -453,7 +520,7 @@ public class IntegrationUpdateHandler extends AbstractResourceUpdateHandler<Inte
             // **********************
             // Integration Deployments
             // **********************
-            messages.addAll(computeDeploymentDifferences(integration, deployments));
+            messages.addAll(computeDeploymentDifferences(integration, deploymentsOf(id, deployments)));
 
             builder.errors(countMessagesWithLevel(LeveledMessage.Level.ERROR, messages));
             builder.warnings(countMessagesWithLevel(LeveledMessage.Level.WARN, messages));
@@ -473,4 +540,154 @@ public class IntegrationUpdateHandler extends AbstractResourceUpdateHandler<Inte
 
         return boards;
     }
+
+    /**
+     * Brings the dependency index up to date with the given event and
+     * determines the integrations affected by it.
+     *
+     * @param event the change event
+     * @param deployments the deployments fetched so far, by integration id
+     * @return the ids of the affected integrations, or empty if all
+     *         integrations are affected and the index needs to be rebuilt
+     */
+    private Optional<Set<String>> updateIndex(final ChangeEvent event, final Map<String, List<IntegrationDeployment>> deployments) {
+        final Optional<String> id = event.getId();
+
+        if (!id.isPresent() || !index.isBuilt()) {
+            return Optional.empty();
+        }
+
+        final Kind kind = event.getKind().map(Kind::from).orElse(null);
+        if (kind == Kind.Connection) {
+            return Optional.of(index.usingConnection(id.get()));
+        }
+
+        if (kind == Kind.Connector) {
+            return Optional.of(index.usingConnector(id.get()));
+        }
+
+        if (kind == Kind.Extension) {
+            final Extension extension = getDataManager().fetch(Extension.class, id.get());
+            if (extension == null) {
+                // the extension is gone and with it its extensionId
+                return Optional.empty();
+            }
+
+            return Optional.of(index.usingExtension(extension.getExtensionId()));
+        }
+
+        if (kind == Kind.Integration) {
+            return Optional.of(updateIntegrationIndex(id.get(), deployments));
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Fetches all integrations and their deployments and rebuilds the
+     * dependency index from them.
+     *
+     * @param deployments receives the deployments, by integration id
+     * @return all integrations
+     */
+    private List<Integration> rebuildIndex(final Map<String, List<IntegrationDeployment>> deployments) {
+        final List<Integration> integrations = getDataManager().fetchAll(Integration.class).getItems();
+
+        final Set<String> ids = new HashSet<>();
+        for (final Integration integration : integrations) {
+            final String id = integration.getId().get();
+            ids.add(id);
+            deployments.put(id, new ArrayList<>());
+        }
+
+        for (final IntegrationDeployment deployment : getDataManager().fetchAll(IntegrationDeployment.class).getItems()) {
+            deployment.getIntegrationId()
+                .ifPresent(id -> deployments.computeIfAbsent(id, k -> new ArrayList<>()).add(deployment));
+        }
+
+        index.rebuild(integrations, deployments);
+        deploymentDifferences.keySet().retainAll(ids);
+
+        return integrations;
+    }
+
+    private List<IntegrationDeployment> deploymentsOf(final String integrationId, final Map<String, List<IntegrationDeployment>> deployments) {
+        return deployments.computeIfAbsent(integrationId,
+            id -> getDataManager().fetchAllByPropertyValue(IntegrationDeployment.class, "integrationId", id).collect(Collectors.toList()));
+    }
+
+    /**
+     * The draft and deployed integrations the given integration needs to have
+     * a unique name among, limited to the ones sharing its name as the
+     * validation only looks for equal names.
+     */
+    private List<Integration> duplicateNameDomain(final Integration integration, final Map<String, List<IntegrationDeployment>> deployments) {
+        final List<Integration> domain = new ArrayList<>();
+
+        for (final String id : index.named(integration.getName())) {
+            index.get(id).ifPresent(domain::add);
+            deploymentsOf(id, deployments).stream()
+                .map(IntegrationDeployment::getSpec)
+                .forEach(domain::add);
+        }
+
+        return domain;
+    }
+
+    private Set<String> updateIntegrationIndex(final String integrationId, final Map<String, List<IntegrationDeployment>> deployments) {
+        final Set<String> affected = new HashSet<>();
+        affected.add(integrationId);
+
+        // integrations sharing the old names are no longer duplicates
+        affected.addAll(index.sharingNameWith(integrationId));
+        final Optional<Integration> previous = index.get(integrationId);
+
+        final Optional<Integration> current = Optional.ofNullable(getDataManager().fetch(Integration.class, integrationId));
+
+        if (current.isPresent()) {
+            index.put(current.get(), deploymentsOf(integrationId, deployments));
+            affected.addAll(index.sharingNameWith(integrationId));
+        } else {
+            index.remove(integrationId);
+            deploymentDifferences.remove(integrationId);
+        }
+
+        // connections no longer used by the integration need their usage
+        // re-synced by clients as well, see #4008
+        previous.ifPresent(p -> {
+            final Set<String> removed = new HashSet<>(p.getConnectionIds());
+            current.ifPresent(c -> removed.removeAll(c.getConnectionIds()));
+
+            for (final String connectionId : removed) {
+                final Connection connection = getDataManager().fetch(Connection.class, connectionId);
+                if (connection != null) {
+                    getDataManager().update(connection);
+                }
+            }
+        });
+
+        return affected;
+    }
+
+    /**
+     * Differences of a published deployment and the integration and
+     * connections they were computed from.
+     */
+    private static final class DeploymentDifferences {
+        private final Integration integration;
+        private final List<Connection> connections;
+        private final List<LeveledMessage> messages;
+
+        DeploymentDifferences(final Integration integration, final List<Connection> connections, final List<LeveledMessage> messages) {
+            this.integration = integration;
+            this.connections = connections;
+            this.messages = messages;
+        }
+
+        boolean isFor(final Integration integration, final List<Connection> connections) {
+            // structural equality of the immutable model, a lot cheaper than
+            // the reflective walk of the Equivalencer
+            return this.integration.equals(integration) && this.connections.equals(connections);
+        }
+    }
 }
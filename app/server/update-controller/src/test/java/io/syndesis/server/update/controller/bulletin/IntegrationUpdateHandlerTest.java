@@ -22,6 +22,8 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import java.util.Collections;
 import java.util.HashMap;
@@ -29,9 +31,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
 import javax.validation.Validator;
 import org.junit.jupiter.api.Test;
 import io.syndesis.common.model.ChangeEvent;
+import io.syndesis.common.model.Dependency;
 import io.syndesis.common.model.ListResult;
 import io.syndesis.common.model.action.Action.Pattern;
 import io.syndesis.common.model.action.ConnectorAction;
@@ -39,6 +43,7 @@ import io.syndesis.common.model.bulletin.IntegrationBulletinBoard;
 import io.syndesis.common.model.bulletin.LeveledMessage;
 import io.syndesis.common.model.connection.Connection;
 import io.syndesis.common.model.connection.Connector;
+import io.syndesis.common.model.extension.Extension;
 import io.syndesis.common.model.integration.Flow;
 import io.syndesis.common.model.integration.Integration;
 import io.syndesis.common.model.integration.IntegrationDeployment;
@@ -515,4 +520,190 @@ public class IntegrationUpdateHandlerTest implements StringConstants {
         List<LeveledMessage> messages = board.getMessages();
         assertTrue(messages.isEmpty());
     }
+
+    /**
+     * Once all boards have been computed a connection change only recomputes
+     * the boards of the integrations using that connection
+     */
+    @Test
+    public void shouldComputeOnlyIntegrationsUsingChangedConnection() {
+        final IntegrationUpdateHandler updateHandler = new IntegrationUpdateHandler(dataManager, null, validator);
+
+        Connector sqlConnector = newSqlConnector();
+        Connection sqlConnection = newSqlConnection(sqlConnector);
+        Connection otherConnection = new Connection.Builder()
+            .createFrom(sqlConnection)
+            .id("6")
+            .name("OtherDB")
+            .build();
+        Integration sqlIntegration = newSqlIntegration("sql-integration", sqlConnection);
+        Integration otherIntegration = newSqlIntegration("other-integration", otherConnection);
+
+        when(dataManager.fetchAll(Connection.class)).thenReturn(
+            new ListResult.Builder<Connection>()
+                .addItem(sqlConnection).addItem(otherConnection).build());
+        when(dataManager.fetch(Connection.class, CONNECTION_ID)).thenReturn(sqlConnection);
+        when(dataManager.fetch(Connection.class, "6")).thenReturn(otherConnection);
+        when(dataManager.fetch(Connector.class, CONNECTOR_ID)).thenReturn(sqlConnector);
+        when(dataManager.fetchAll(IntegrationDeployment.class)).thenReturn(new ListResult.Builder<IntegrationDeployment>().build());
+        when(dataManager.fetchAll(Integration.class)).thenReturn(
+            new ListResult.Builder<Integration>()
+                .addItem(sqlIntegration).addItem(otherIntegration).build());
+        when(dataManager.fetch(Integration.class, "other-integration")).thenReturn(otherIntegration);
+
+        // the periodic check computes all boards
+        List<IntegrationBulletinBoard> boards = updateHandler.compute(new ChangeEvent.Builder().kind("connection").build());
+        assertEquals(2, boards.size());
+
+        boards = updateHandler.compute(new ChangeEvent.Builder()
+            .action("updated")
+            .id("6")
+            .kind("connection")
+            .build());
+        assertEquals(1, boards.size());
+        assertEquals("other-integration", boards.get(0).getTargetResourceId());
+
+        boards = updateHandler.compute(new ChangeEvent.Builder()
+            .action("updated")
+            .id("7")
+            .kind("connection")
+            .build());
+        assertTrue(boards.isEmpty());
+
+        // only the periodic check fetches everything
+        verify(dataManager, times(1)).fetchAll(Integration.class);
+        verify(dataManager, times(1)).fetchAll(IntegrationDeployment.class);
+    }
+
+    /**
+     * Once all boards have been computed connector and extension changes only
+     * recompute the boards of the integrations using them
+     */
+    @Test
+    public void shouldComputeOnlyIntegrationsUsingChangedConnectorOrExtension() {
+        final IntegrationUpdateHandler updateHandler = new IntegrationUpdateHandler(dataManager, null, validator);
+
+        Connector sqlConnector = newSqlConnector();
+        Connector otherConnector = new Connector.Builder()
+            .createFrom(sqlConnector)
+            .id("other")
+            .build();
+        Connection sqlConnection = newSqlConnection(sqlConnector);
+        Connection otherConnection = new Connection.Builder()
+            .createFrom(sqlConnection)
+            .id("6")
+            .connector(otherConnector)
+            .connectorId("other")
+            .build();
+        Integration sqlIntegration = newSqlIntegration("sql-integration", sqlConnection);
+        Integration otherIntegration = newSqlIntegration("other-integration", otherConnection);
+        Integration extensionIntegration = new Integration.Builder()
+            .id("extension-integration")
+            .name("extension-integration")
+            .addFlow(new Flow.Builder()
+                .addStep(new Step.Builder()
+                    .addDependency(Dependency.extension("my-extension"))
+                    .build())
+                .build())
+            .build();
+
+        when(dataManager.fetch(Connection.class, CONNECTION_ID)).thenReturn(sqlConnection);
+        when(dataManager.fetch(Connection.class, "6")).thenReturn(otherConnection);
+        when(dataManager.fetch(Connector.class, CONNECTOR_ID)).thenReturn(sqlConnector);
+        when(dataManager.fetch(Connector.class, "other")).thenReturn(otherConnector);
+        when(dataManager.fetch(Extension.class, "extension-2")).thenReturn(new Extension.Builder()
+            .id("extension-2")
+            .extensionId("my-extension")
+            .build());
+        when(dataManager.fetchAll(IntegrationDeployment.class)).thenReturn(new ListResult.Builder<IntegrationDeployment>().build());
+        when(dataManager.fetchAll(Integration.class)).thenReturn(
+            new ListResult.Builder<Integration>()
+                .addItem(sqlIntegration).addItem(otherIntegration).addItem(extensionIntegration).build());
+        when(dataManager.fetch(Integration.class, "sql-integration")).thenReturn(sqlIntegration);
+        when(dataManager.fetch(Integration.class, "other-integration")).thenReturn(otherIntegration);
+        when(dataManager.fetch(Integration.class, "extension-integration")).thenReturn(extensionIntegration);
+
+        // the periodic check computes all boards
+        List<IntegrationBulletinBoard> boards = updateHandler.compute(new ChangeEvent.Builder().kind("connector").build());
+        assertEquals(3, boards.size());
+
+        boards = updateHandler.compute(new ChangeEvent.Builder()
+            .action("updated")
+            .id("other")
+            .kind("connector")
+            .build());
+        assertEquals(1, boards.size());
+        assertEquals("other-integration", boards.get(0).getTargetResourceId());
+
+        boards = updateHandler.compute(new ChangeEvent.Builder()
+            .action("updated")
+            .id("extension-2")
+            .kind("extension")
+            .build());
+        assertEquals(1, boards.size());
+        assertEquals("extension-integration", boards.get(0).getTargetResourceId());
+
+        boards = updateHandler.compute(new ChangeEvent.Builder()
+            .action("updated")
+            .id("unused")
+            .kind("connector")
+            .build());
+        assertTrue(boards.isEmpty());
+
+        // only the periodic check fetches everything
+        verify(dataManager, times(1)).fetchAll(Integration.class);
+        verify(dataManager, times(1)).fetchAll(IntegrationDeployment.class);
+    }
+
+    /**
+     * The integration is modified after the deployment differences have been
+     * computed, the differences must not be reused
+     */
+    @Test
+    public void shouldRecomputeDeploymentDifferencesOfModifiedIntegration() {
+        final IntegrationUpdateHandler updateHandler = new IntegrationUpdateHandler(dataManager, null, validator);
+
+        String id = "MyTestIntegration-x123456";
+        Connector sqlConnector = newSqlConnector();
+        Connection sqlConnection = newSqlConnection(sqlConnector);
+        Integration sqlIntegration = newSqlIntegration(id, sqlConnection);
+        IntegrationDeployment integrationDeployment = newIntegrationDeployment(id, 1, sqlIntegration, true);
+
+        when(dataManager.fetchAll(Connection.class)).thenReturn(
+            new ListResult.Builder<Connection>()
+                .addItem(sqlConnection).build());
+        when(dataManager.fetch(Connection.class, CONNECTION_ID)).thenReturn(sqlConnection);
+        when(dataManager.fetch(Connector.class, CONNECTOR_ID)).thenReturn(sqlConnector);
+        when(dataManager.fetchAll(IntegrationDeployment.class)).thenReturn(
+            new ListResult.Builder<IntegrationDeployment>()
+                .addItem(integrationDeployment).build());
+        when(dataManager.fetchAll(Integration.class))
+            .thenReturn(new ListResult.Builder<Integration>().addItem(sqlIntegration).build());
+        when(dataManager.fetchAllByPropertyValue(IntegrationDeployment.class, "integrationId", id))
+            .thenAnswer(invocation -> Stream.of(integrationDeployment));
+        when(dataManager.fetch(Integration.class, id)).thenReturn(sqlIntegration);
+
+        ChangeEvent event = new ChangeEvent.Builder()
+            .action("updated")
+            .id(id)
+            .kind("integration")
+            .build();
+
+        List<IntegrationBulletinBoard> boards = updateHandler.compute(event);
+        assertEquals(1, boards.size());
+        assertTrue(boards.get(0).getMessages().isEmpty());
+
+        Integration modSqlIntegration = new Integration.Builder()
+            .createFrom(sqlIntegration)
+            .description("modified")
+            .build();
+        when(dataManager.fetch(Integration.class, id)).thenReturn(modSqlIntegration);
+
+        boards = updateHandler.compute(event);
+        assertEquals(1, boards.size());
+
+        List<LeveledMessage> messages = boards.get(0).getMessages();
+        assertEquals(1, messages.size());
+        assertEquals(LeveledMessage.Code.SYNDESIS012, messages.get(0).getCode());
+    }
 }